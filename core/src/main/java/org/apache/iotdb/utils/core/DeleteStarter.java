@@ -1,5 +1,7 @@
 package org.apache.iotdb.utils.core;
 
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
 import org.apache.iotdb.utils.core.pipeline.context.model.DeleteModel;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import lombok.extern.slf4j.Slf4j;
@@ -20,8 +22,10 @@ import reactor.core.scheduler.Schedulers;
 public class DeleteStarter implements Starter<DeleteModel> {
 
     @Override
-    public Disposable start(DeleteModel model) {
+    public PipelineHandle start(DeleteModel model) {
         Scheduler scheduler = Schedulers.single();
+        PipelineHandle handle = new PipelineHandle();
+        long startTime = System.currentTimeMillis();
         Disposable disposable = Flux.just("")
                 .subscribeOn(scheduler)
                 .flatMap(s -> {
@@ -30,9 +34,15 @@ public class DeleteStarter implements Starter<DeleteModel> {
                 })
                 .doFinally(s->{
                     scheduler.dispose();
+                    PipelineResult result = new PipelineResult();
+                    result.setSignalType(s);
+                    result.setStartTime(startTime);
+                    result.setEndTime(System.currentTimeMillis());
+                    handle.complete(result);
                 })
                 .subscribe();
-        return disposable;
+        handle.setSubscription(disposable);
+        return handle;
     }
 
     public void deleteTimeseries(DeleteModel model) {
@@ -1,12 +1,15 @@
 package org.apache.iotdb.utils.core;
 
 import com.alibaba.fastjson.JSON;
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
 import org.apache.iotdb.utils.core.pipeline.*;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.out.channel.StringFormatBatchChannel;
 import org.apache.iotdb.utils.core.pipeline.out.channel.StringFormatIncludeNullFieldChannel;
-import org.apache.iotdb.utils.core.pipeline.out.channel.StringFormatWithoutNullFieldChannel;
 import org.apache.iotdb.utils.core.pipeline.out.sink.OutCompressFileSink;
 import org.apache.iotdb.utils.core.pipeline.out.sink.OutCsvFileSink;
 import org.apache.iotdb.utils.core.pipeline.out.sink.OutSqlFileSink;
@@ -15,7 +18,7 @@ import org.apache.iotdb.utils.core.pipeline.out.source.OutCompressDataSource;
 import org.apache.iotdb.utils.core.pipeline.out.source.OutCsvDataSource;
 import org.apache.iotdb.utils.core.pipeline.out.source.OutSqlDataSource;
 import org.apache.iotdb.utils.core.pipeline.out.source.OutStructureSource;
-import reactor.core.Disposable;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.ParallelFlux;
 
 import java.io.File;
@@ -27,15 +30,16 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+@Slf4j
 public class ExportStarter implements Starter<ExportModel>{
 
-    private List<PipeSink<TimeSeriesRowModel, TimeSeriesRowModel>> pipeSinkList = new ArrayList<>();
+    private List<PipeSink<RowBatch, RowBatch>> pipeSinkList = new ArrayList<>();
     private List<PipeSource> pipeSourceList = new ArrayList<>();
 
     private CommonPipeline pipeline;
 
     @Override
-    public Disposable start(ExportModel exportModel){
+    public PipelineHandle start(ExportModel exportModel){
 
         pipeSinkList.clear();
         pipeSourceList.clear();
@@ -59,6 +63,13 @@ public class ExportStarter implements Starter<ExportModel>{
         }catch (IOException e) {
             e.printStackTrace();
         }
+        //检查点日志，resume 时读取上次的进度
+        try {
+            exportModel.setCheckpoint(ExportCheckpoint.open(exportModel));
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+            exportModel.setCheckpoint(null);
+        }
 
         if (exportModel.getNeedTimeseriesStructure()) {
             PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> outStructureFileSink = new OutStructureFileSink("structure sink");
@@ -66,23 +77,44 @@ public class ExportStarter implements Starter<ExportModel>{
             builder
                     .source(new OutStructureSource("structure source"))
                     .channel(new StringFormatIncludeNullFieldChannel("structure channel"))
-                    .sink(outStructureFileSink);
+                    .sink(outStructureFileSink)
+                    .name("structure");
         }
-        PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> pipeSink = generateSink(exportModel);
+        PipeSink<RowBatch, RowBatch> pipeSink = generateSink(exportModel);
         pipeSinkList.add(pipeSink);
         PipeSource pipeSource = generateSource(exportModel);
         pipeSourceList.add(pipeSource);
-        pipeline = builder
+        PipelineBuilder.SinkBuilder dataBuilder = builder
                 .source(pipeSource)
                 .channel(() -> generateChannel(exportModel))
                 .sink(pipeSink)
+                .name("data");
+        //结构和数据写入不同的文件，互不依赖；有 sessionFactory 时结构导出使用独立的session，两个分支同时执行
+        if (exportModel.getSessionFactory() != null) {
+            dataBuilder.dependsOn();
+        }
+        pipeline = builder
                 .build()
                 .withContext(() -> {
                     PipelineContext<ExportModel> context = new PipelineContext<>();
                     context.setModel(exportModel);
                     return context;
-                });
-        return pipeline.start();
+                })
+                .withFinishedRowNum(this::finishedRowNum);
+        PipelineHandle handle = pipeline.start();
+        handle.future().whenComplete((result, e) -> closeCheckpoint(exportModel));
+        return handle;
+    }
+
+    private void closeCheckpoint(ExportModel exportModel) {
+        if (exportModel.getCheckpoint() == null) {
+            return;
+        }
+        try {
+            exportModel.getCheckpoint().close();
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+        }
     }
 
     @Override
@@ -118,8 +150,8 @@ public class ExportStarter implements Starter<ExportModel>{
         return result.get();
     }
 
-    public PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> generateSource(ExportModel exportModel) {
-        PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> pipeSource;
+    public PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> generateSource(ExportModel exportModel) {
+        PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> pipeSource;
         switch (exportModel.getCompressEnum()) {
             case SQL:
                 pipeSource = new OutSqlDataSource("sql source",exportModel.getParallelism());
@@ -127,37 +159,39 @@ public class ExportStarter implements Starter<ExportModel>{
             case CSV:
                 pipeSource = new OutCsvDataSource("csv source",exportModel.getParallelism());
                 break;
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
-                pipeSource = new OutCompressDataSource("compress source",exportModel.getParallelism());
-                break;
             default:
-                throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                //压缩文件格式，算法在 BlockCompressors 中注册
+                if (!BlockCompressors.contains(exportModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                }
+                pipeSource = new OutCompressDataSource("compress source",exportModel.getParallelism());
         }
         return pipeSource;
     }
 
-    public PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> generateChannel(ExportModel exportModel) {
-        PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> pipeChannel;
+    /**
+     * 数据按RowBatch传递，空值由bitMap表示，三种格式都只需要给TEXT列加上引号
+     */
+    public PipeChannel<RowBatch, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> generateChannel(ExportModel exportModel) {
+        PipeChannel<RowBatch, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> pipeChannel;
         switch (exportModel.getCompressEnum()) {
             case SQL:
-                pipeChannel = new StringFormatWithoutNullFieldChannel("string format without null channel");
+                pipeChannel = new StringFormatBatchChannel("string format without null channel");
                 break;
             case CSV:
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
-                pipeChannel = new StringFormatIncludeNullFieldChannel("string format channel");
+                pipeChannel = new StringFormatBatchChannel("string format channel");
                 break;
             default:
-                throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                if (!BlockCompressors.contains(exportModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                }
+                pipeChannel = new StringFormatBatchChannel("string format channel");
         }
         return pipeChannel;
     }
 
-    public PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> generateSink(ExportModel exportModel) {
-        PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> pipeSink;
+    public PipeSink<RowBatch, RowBatch> generateSink(ExportModel exportModel) {
+        PipeSink<RowBatch, RowBatch> pipeSink;
         switch (exportModel.getCompressEnum()) {
             case SQL:
                 pipeSink = new OutSqlFileSink("sql sink");
@@ -165,13 +199,11 @@ public class ExportStarter implements Starter<ExportModel>{
             case CSV:
                 pipeSink = new OutCsvFileSink("csv sink");
                 break;
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
-                pipeSink = new OutCompressFileSink("compress sink");
-                break;
             default:
-                throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                if (!BlockCompressors.contains(exportModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + exportModel.getCompressEnum());
+                }
+                pipeSink = new OutCompressFileSink("compress sink");
         }
         return pipeSink;
     }
@@ -1,39 +1,44 @@
 package org.apache.iotdb.utils.core;
 
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
 import org.apache.iotdb.utils.core.pipeline.CommonPipeline;
 import org.apache.iotdb.utils.core.pipeline.PipelineBuilder;
 import org.apache.iotdb.utils.core.pipeline.PipeChannel;
+import org.apache.iotdb.utils.core.pipeline.in.channel.FieldColumnFormatBatchChannel;
 import org.apache.iotdb.utils.core.pipeline.in.channel.FieldColumnFormatChannel;
-import org.apache.iotdb.utils.core.pipeline.in.channel.SpecialForSQLChannel;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.core.pipeline.PipeSink;
 import org.apache.iotdb.utils.core.pipeline.in.sink.InRowModelFileSink;
-import org.apache.iotdb.utils.core.pipeline.in.sink.InSqlFileSink;
 import org.apache.iotdb.utils.core.pipeline.in.sink.InStructureFileSink;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
 import org.apache.iotdb.utils.core.pipeline.in.source.InCompressDataSource;
 import org.apache.iotdb.utils.core.pipeline.in.source.InCsvDataSource;
 import org.apache.iotdb.utils.core.pipeline.in.source.InSqlDataSource;
 import org.apache.iotdb.utils.core.pipeline.in.source.InStructureSource;
-import reactor.core.Disposable;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 public class ImportStarter implements Starter<ImportModel>{
 
-    private List<PipeSink<TimeSeriesRowModel, TimeSeriesRowModel>> pipeSinkList = new ArrayList<>();
+    private List<PipeSink<RowBatch, RowBatch>> pipeSinkList = new ArrayList<>();
 
     private List<PipeSource> pipeSourceList = new ArrayList<>();
 
     private CommonPipeline pipeline;
 
     @Override
-    public Disposable start(ImportModel importModel){
+    public PipelineHandle start(ImportModel importModel){
 
         pipeSinkList.clear();
         pipeSourceList.clear();
@@ -44,30 +49,54 @@ public class ImportStarter implements Starter<ImportModel>{
             fileFloder += File.separator;
         }
         importModel.setFileFolder(fileFloder);
+        //检查点日志，resume 时读取上次的进度
+        try {
+            importModel.setCheckpoint(ImportCheckpoint.open(importModel));
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+            importModel.setCheckpoint(null);
+        }
         if(importModel.getNeedTimeseriesStructure()){
             PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> iStructureFileSink = new InStructureFileSink("structure sink");
             //pipeSinkList.add(iStructureFileSink);
             builder
                     .source(new InStructureSource("structure source"))
                     .channel(new FieldColumnFormatChannel("structure channel"))
-                    .sink(iStructureFileSink);
+                    .sink(iStructureFileSink)
+                    .name("structure");
         }
-        PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> pipeSink = generateSink(importModel);
+        PipeSink<RowBatch, RowBatch> pipeSink = generateSink(importModel);
         pipeSinkList.add(pipeSink);
 
         PipeSource pipeSource = generateSource(importModel);
         pipeSourceList.add(pipeSource);
+        //数据分支默认依赖前面的结构分支，时间序列创建完成后再写入数据
         pipeline = builder
                 .source(() -> generateSource(importModel))
                 .channel(() -> generateChannel(importModel))
                 .sink(pipeSink)
+                .name("data")
                 .build()
                 .withContext(() -> {
                     PipelineContext context = new PipelineContext();
                     context.setModel(importModel);
                     return context;
-                });
-        return pipeline.start();
+                })
+                .withFinishedRowNum(this::finishedRowNum);
+        PipelineHandle handle = pipeline.start();
+        handle.future().whenComplete((result, e) -> closeCheckpoint(importModel));
+        return handle;
+    }
+
+    private void closeCheckpoint(ImportModel importModel) {
+        if (importModel.getCheckpoint() == null) {
+            return;
+        }
+        try {
+            importModel.getCheckpoint().close();
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+        }
     }
 
     @Override
@@ -112,13 +141,12 @@ public class ImportStarter implements Starter<ImportModel>{
             case CSV:
                 pipeSource = new InCsvDataSource("csv source",importModel.getParallelism());
                 break;
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
-                pipeSource = new InCompressDataSource("compress source",importModel.getParallelism());
-                break;
             default:
-                throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                //压缩文件格式，算法在 BlockCompressors 中注册
+                if (!BlockCompressors.contains(importModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                }
+                pipeSource = new InCompressDataSource("compress source",importModel.getParallelism());
         }
         return pipeSource;
     }
@@ -126,17 +154,16 @@ public class ImportStarter implements Starter<ImportModel>{
     public PipeChannel generateChannel(ImportModel importModel) {
         PipeChannel pipeChannel;
         switch (importModel.getCompressEnum()) {
+            //sql在数据源中解析为RowBatch，与csv共用channel和sink
             case SQL:
-                pipeChannel = new SpecialForSQLChannel("sql channel");
-                break;
             case CSV:
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
-                pipeChannel = new FieldColumnFormatChannel("csv channel");
+                pipeChannel = new FieldColumnFormatBatchChannel("csv channel");
                 break;
             default:
-                throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                if (!BlockCompressors.contains(importModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                }
+                pipeChannel = new FieldColumnFormatBatchChannel("csv channel");
         }
         return pipeChannel;
     }
@@ -145,16 +172,14 @@ public class ImportStarter implements Starter<ImportModel>{
         PipeSink pipeSink;
         switch (importModel.getCompressEnum()) {
             case SQL:
-                pipeSink = new InSqlFileSink("sql sink");
-                break;
             case CSV:
-            case SNAPPY:
-            case GZIP:
-            case LZ4:
                 pipeSink = new InRowModelFileSink("compress sink");
                 break;
             default:
-                throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                if (!BlockCompressors.contains(importModel.getCompressEnum())) {
+                    throw new IllegalStateException("Unexpected value: " + importModel.getCompressEnum());
+                }
+                pipeSink = new InRowModelFileSink("compress sink");
         }
         return pipeSink;
     }
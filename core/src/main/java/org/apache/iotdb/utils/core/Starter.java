@@ -1,7 +1,7 @@
 package org.apache.iotdb.utils.core;
 
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
 import org.apache.iotdb.utils.core.pipeline.context.model.PipelineModel;
-import reactor.core.Disposable;
 
 /**
  * @Author: LL
@@ -10,7 +10,10 @@ import reactor.core.Disposable;
  */
 public interface Starter<T extends PipelineModel> {
 
-    Disposable start(T model);
+    /**
+     * 异步启动，返回的句柄在所有pipeline结束后完成，携带结果汇总
+     */
+    PipelineHandle start(T model);
 
     void shutDown();
 
@@ -0,0 +1,73 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 压缩文件中单个列数据的压缩算法
+ * 实现需要是线程安全的，压缩、解压都写入调用方提供的数组，不在内部分配缓冲区
+ * 新增算法时实现该接口，并在 BlockCompressors 中注册
+ */
+public interface BlockCompressor {
+
+    /**
+     * 写入文件header的压缩格式，2byte
+     */
+    String typeCode();
+
+    /**
+     * 导出文件的后缀
+     */
+    String fileSuffix();
+
+    /**
+     * length 字节压缩后的最大长度，用于准备输出数组
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * 压缩 src 的 [srcOffset, srcOffset + length) 到 dest 的 destOffset 处
+     *
+     * @return 压缩后的长度
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException;
+
+    /**
+     * 解压 src 的 [srcOffset, srcOffset + length) 到 dest 的 destOffset 处
+     *
+     * @param originalLength 压缩前的长度
+     */
+    void uncompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException;
+
+    /**
+     * 解压 src 的 [position, limit) 到 dest 的 position 处，两者的 position、limit 都不改变
+     * src 可以是文件映射的区域，默认实现把堆外数据复制到线程复用的数组后解压，支持 ByteBuffer 的算法应覆盖该方法
+     */
+    default void uncompress(ByteBuffer src, ByteBuffer dest, int originalLength) throws IOException {
+        int length = src.remaining();
+        byte[] in;
+        int inOffset;
+        if (src.hasArray()) {
+            in = src.array();
+            inOffset = src.arrayOffset() + src.position();
+        } else {
+            in = CompressBuffers.inputArray(length);
+            inOffset = 0;
+            src.duplicate().get(in, 0, length);
+        }
+        if (dest.hasArray()) {
+            uncompress(in, inOffset, length, dest.array(), dest.arrayOffset() + dest.position(), originalLength);
+        } else {
+            byte[] out = CompressBuffers.outputArray(originalLength);
+            uncompress(in, inOffset, length, out, 0, originalLength);
+            dest.duplicate().put(out, 0, originalLength);
+        }
+    }
+
+    /**
+     * 指定压缩级别的实例，不支持级别的算法返回自身
+     */
+    default BlockCompressor withLevel(int level) {
+        return this;
+    }
+}
@@ -0,0 +1,65 @@
+package org.apache.iotdb.utils.core.compress;
+
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压缩算法注册表，CompressEnum 对应导出时使用的算法，header 中的压缩格式对应导入时使用的算法
+ * 新增算法（如 zstd）只需要实现 BlockCompressor 并调用 register
+ */
+public class BlockCompressors {
+
+    private static final Map<CompressEnum, BlockCompressor> ENUM_MAP = new ConcurrentHashMap<>();
+
+    private static final Map<String, BlockCompressor> TYPE_CODE_MAP = new ConcurrentHashMap<>();
+
+    static {
+        register(CompressEnum.SNAPPY, new SnappyBlockCompressor());
+        register(CompressEnum.GZIP, new GzipBlockCompressor());
+        register(CompressEnum.LZ4, new Lz4BlockCompressor());
+        register(CompressEnum.LZ4HC, new Lz4HcBlockCompressor());
+        register(CompressEnum.NONE, new NoneBlockCompressor());
+    }
+
+    private BlockCompressors() {
+
+    }
+
+    public static void register(CompressEnum compressEnum, BlockCompressor compressor) {
+        ENUM_MAP.put(compressEnum, compressor);
+        TYPE_CODE_MAP.put(compressor.typeCode(), compressor);
+    }
+
+    /**
+     * 是否为压缩文件格式，SQL、CSV 返回 false
+     */
+    public static boolean contains(CompressEnum compressEnum) {
+        return compressEnum != null && ENUM_MAP.containsKey(compressEnum);
+    }
+
+    public static BlockCompressor get(CompressEnum compressEnum) {
+        BlockCompressor compressor = compressEnum == null ? null : ENUM_MAP.get(compressEnum);
+        if (compressor == null) {
+            throw new IllegalArgumentException("compressEnum is illegal");
+        }
+        return compressor;
+    }
+
+    /**
+     * @param level 压缩级别，为空使用默认级别
+     */
+    public static BlockCompressor get(CompressEnum compressEnum, Integer level) {
+        BlockCompressor compressor = get(compressEnum);
+        return level == null ? compressor : compressor.withLevel(level);
+    }
+
+    public static BlockCompressor get(String typeCode) {
+        BlockCompressor compressor = TYPE_CODE_MAP.get(typeCode);
+        if (compressor == null) {
+            throw new IllegalStateException("Unexpected value: " + typeCode);
+        }
+        return compressor;
+    }
+}
@@ -0,0 +1,102 @@
+package org.apache.iotdb.utils.core.compress;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * v2 压缩文件末尾的block索引
+ * 格式： "index"(5byte) + block数(4byte) + 每个block[offset(8) rowCount(4) minTime(8) maxTime(8)]
+ * + 索引起始位置(8byte) + 模数 LOLI(4byte)
+ * 读取时从文件末尾的12个字节定位索引，没有索引的文件返回null，按顺序读取
+ */
+@Data
+public class BlockIndex {
+
+    public static final String INDEX_MARKER = "index";
+
+    private static final String MAGIC = "LOLI";
+
+    private static final int ENTRY_SIZE = 28;
+
+    private static final int TAIL_SIZE = 12;
+
+    private List<BlockIndexEntry> entries = new ArrayList<>();
+
+    //索引的起始位置，也就是最后一个block的结束位置
+    private long indexOffset;
+
+    /**
+     * 第i个block的字节长度
+     */
+    public int blockLength(int i) {
+        long end = i + 1 < entries.size() ? entries.get(i + 1).getOffset() : indexOffset;
+        return (int) (end - entries.get(i).getOffset());
+    }
+
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_MARKER.length() + 4 + entries.size() * ENTRY_SIZE + TAIL_SIZE);
+        buffer.put(INDEX_MARKER.getBytes());
+        buffer.putInt(entries.size());
+        for (BlockIndexEntry entry : entries) {
+            buffer.putLong(entry.getOffset());
+            buffer.putInt(entry.getRowCount());
+            buffer.putLong(entry.getMinTime());
+            buffer.putLong(entry.getMaxTime());
+        }
+        buffer.putLong(indexOffset);
+        buffer.put(MAGIC.getBytes());
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    public static BlockIndex read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TAIL_SIZE) {
+            return null;
+        }
+        ByteBuffer tail = ByteBuffer.allocate(TAIL_SIZE);
+        readFully(channel, tail, size - TAIL_SIZE);
+        long indexOffset = tail.getLong();
+        byte[] magic = new byte[4];
+        tail.get(magic);
+        if (!MAGIC.equals(new String(magic)) || indexOffset < 0 || indexOffset > size - TAIL_SIZE - 9) {
+            return null;
+        }
+        ByteBuffer head = ByteBuffer.allocate(INDEX_MARKER.length() + 4);
+        readFully(channel, head, indexOffset);
+        byte[] marker = new byte[INDEX_MARKER.length()];
+        head.get(marker);
+        int count = head.getInt();
+        if (!INDEX_MARKER.equals(new String(marker)) || count < 0
+                || indexOffset + head.capacity() + (long) count * ENTRY_SIZE + TAIL_SIZE != size) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(count * ENTRY_SIZE);
+        readFully(channel, body, indexOffset + head.capacity());
+        BlockIndex index = new BlockIndex();
+        index.setIndexOffset(indexOffset);
+        for (int i = 0; i < count; i++) {
+            index.getEntries().add(new BlockIndexEntry(body.getLong(), body.getInt(), body.getLong(), body.getLong()));
+        }
+        return index;
+    }
+
+    /**
+     * 从position开始读满buffer，读取后buffer已flip
+     */
+    public static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of compressed file");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
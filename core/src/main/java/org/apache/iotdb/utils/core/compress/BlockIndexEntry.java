@@ -0,0 +1,30 @@
+package org.apache.iotdb.utils.core.compress;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 压缩文件索引中一个block的信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlockIndexEntry {
+
+    //block 在文件中的起始位置（"block" 标志的位置）
+    private long offset;
+
+    private int rowCount;
+
+    private long minTime;
+
+    private long maxTime;
+
+    /**
+     * block 是否与时间范围[startTime, endTime]有交集，为空表示不限制
+     */
+    public boolean overlaps(Long startTime, Long endTime) {
+        return (startTime == null || maxTime >= startTime) && (endTime == null || minTime <= endTime);
+    }
+}
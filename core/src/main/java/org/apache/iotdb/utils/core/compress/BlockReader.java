@@ -0,0 +1,18 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 压缩文件的顺序读取
+ * 返回的ByteBuffer是内部数据的视图，只在下一次 read 之前有效，不要修改其内容
+ */
+public interface BlockReader {
+
+    /**
+     * 读取 length 个字节，ByteBuffer 的 position 为数据起点，limit 为数据终点，字节序为大端
+     *
+     * @return 已经读到文件末尾时返回null；读到一部分就结束时抛出 EOFException
+     */
+    ByteBuffer read(int length) throws IOException;
+}
@@ -0,0 +1,92 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.util.Arrays;
+
+/**
+ * 可复用、自动扩容的字节数组，列编码时使用
+ * reset 后复用内部数组，避免每个block重新分配
+ */
+public class ByteArrayBuilder {
+
+    private byte[] buffer;
+
+    private int size;
+
+    public ByteArrayBuilder() {
+        this(1024);
+    }
+
+    public ByteArrayBuilder(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 内部数组，有效数据为 [0, size)
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length << 1));
+        }
+    }
+
+    public void writeByte(int b) {
+        ensureCapacity(size + 1);
+        buffer[size++] = (byte) b;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    public void writeIntLE(int v) {
+        ensureCapacity(size + 4);
+        buffer[size++] = (byte) v;
+        buffer[size++] = (byte) (v >>> 8);
+        buffer[size++] = (byte) (v >>> 16);
+        buffer[size++] = (byte) (v >>> 24);
+    }
+
+    public void writeLongLE(long v) {
+        ensureCapacity(size + 8);
+        for (int i = 0; i < 8; i++) {
+            buffer[size++] = (byte) (v >>> (i * 8));
+        }
+    }
+
+    /**
+     * 无符号变长整数，每个字节7位，最高位表示后面还有字节
+     */
+    public void writeVarLong(long v) {
+        ensureCapacity(size + 10);
+        while ((v & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[size++] = (byte) v;
+    }
+
+    /**
+     * zigzag 编码后的变长整数，适合有正有负的小数值
+     */
+    public void writeZigZagLong(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+}
@@ -0,0 +1,253 @@
+package org.apache.iotdb.utils.core.compress;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.utils.core.model.RowBatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * LOLI v2 列编码
+ * 时间列： varint 行数 + zigzag varint 首个时间戳 + 首个差值 + 后续差值的差值(delta-of-delta)
+ * 数据列： 类型byte(-1 表示整列为空) + 空值标志byte(0 无空值, 1 后面跟空值bitmap) + [bitmap] + 非空值
+ * BOOLEAN 按位压缩，INT32/INT64 zigzag varint，FLOAT/DOUBLE 小端定长，TEXT varint长度 + UTF-8字节
+ */
+public class ColumnBlockCodec {
+
+    public static final short VERSION_1 = 1;
+
+    public static final short VERSION_2 = 2;
+
+    private static final byte NULL_COLUMN = -1;
+
+    private static final byte NO_NULL = 0;
+
+    private static final byte HAS_NULL = 1;
+
+    private ColumnBlockCodec() {
+
+    }
+
+    public static void encodeTime(long[] times, int rowCount, ByteArrayBuilder out) {
+        out.writeVarLong(rowCount);
+        if (rowCount == 0) {
+            return;
+        }
+        out.writeZigZagLong(times[0]);
+        long preDelta = 0;
+        for (int i = 1; i < rowCount; i++) {
+            long delta = times[i] - times[i - 1];
+            out.writeZigZagLong(delta - preDelta);
+            preDelta = delta;
+        }
+    }
+
+    public static long[] decodeTime(ByteBuffer in) {
+        int rowCount = (int) readVarLong(in);
+        long[] times = new long[rowCount];
+        if (rowCount == 0) {
+            return times;
+        }
+        times[0] = readZigZagLong(in);
+        long delta = 0;
+        for (int i = 1; i < rowCount; i++) {
+            delta += readZigZagLong(in);
+            times[i] = times[i - 1] + delta;
+        }
+        return times;
+    }
+
+    /**
+     * 编码batch中的一列，直接读取基本类型数组
+     *
+     * @param batch
+     * @param column 列下标
+     * @param out
+     */
+    public static void encodeColumn(RowBatch batch, int column, ByteArrayBuilder out) {
+        int rowCount = batch.getRowCount();
+        TSDataType type = batch.getDataTypes()[column];
+        BitMap nulls = batch.getBitMaps()[column];
+        int nonNullCount = 0;
+        if (type != null) {
+            for (int i = 0; i < rowCount; i++) {
+                if (!nulls.isMarked(i)) {
+                    nonNullCount++;
+                }
+            }
+        }
+        if (nonNullCount == 0) {
+            out.writeByte(NULL_COLUMN);
+            return;
+        }
+        out.writeByte(type.serialize());
+        if (nonNullCount == rowCount) {
+            out.writeByte(NO_NULL);
+        } else {
+            out.writeByte(HAS_NULL);
+            int bits = 0;
+            for (int i = 0; i < rowCount; i++) {
+                if (!nulls.isMarked(i)) {
+                    bits |= 1 << (i & 7);
+                }
+                if ((i & 7) == 7) {
+                    out.writeByte(bits);
+                    bits = 0;
+                }
+            }
+            if ((rowCount & 7) != 0) {
+                out.writeByte(bits);
+            }
+        }
+        Object values = batch.getValues()[column];
+        switch (type) {
+            case BOOLEAN:
+                boolean[] booleans = (boolean[]) values;
+                int bits = 0;
+                int position = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        if (booleans[i]) {
+                            bits |= 1 << (position & 7);
+                        }
+                        if ((position & 7) == 7) {
+                            out.writeByte(bits);
+                            bits = 0;
+                        }
+                        position++;
+                    }
+                }
+                if ((position & 7) != 0) {
+                    out.writeByte(bits);
+                }
+                break;
+            case INT32:
+                int[] ints = (int[]) values;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        out.writeZigZagLong(ints[i]);
+                    }
+                }
+                break;
+            case INT64:
+                long[] longs = (long[]) values;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        out.writeZigZagLong(longs[i]);
+                    }
+                }
+                break;
+            case FLOAT:
+                float[] floats = (float[]) values;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        out.writeIntLE(Float.floatToRawIntBits(floats[i]));
+                    }
+                }
+                break;
+            case DOUBLE:
+                double[] doubles = (double[]) values;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        out.writeLongLE(Double.doubleToRawLongBits(doubles[i]));
+                    }
+                }
+                break;
+            case TEXT:
+                Binary[] binaries = (Binary[]) values;
+                for (int i = 0; i < rowCount; i++) {
+                    if (!nulls.isMarked(i)) {
+                        byte[] bytes = binaries[i].getValues();
+                        out.writeVarLong(bytes.length);
+                        out.writeBytes(bytes, 0, bytes.length);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(type + ": not support type");
+        }
+    }
+
+    /**
+     * 解码一列数据，直接写入batch的第column列，batch的行已经按时间列添加
+     *
+     * @param in
+     * @param batch
+     * @param column 列下标
+     */
+    public static void decodeColumn(ByteBuffer in, RowBatch batch, int column) {
+        int rowCount = batch.getRowCount();
+        byte typeByte = in.get();
+        if (typeByte == NULL_COLUMN) {
+            return;
+        }
+        TSDataType type = TSDataType.deserialize(typeByte);
+        boolean allNotNull = in.get() == NO_NULL;
+        byte[] notNullBits = null;
+        if (!allNotNull) {
+            notNullBits = new byte[(rowCount + 7) >>> 3];
+            in.get(notNullBits);
+        }
+        ByteOrder order = in.order();
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        Object values = batch.column(column, type);
+        BitMap nulls = batch.getBitMaps()[column];
+        int position = 0;
+        int bits = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (!allNotNull && (notNullBits[i >>> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+            switch (type) {
+                case BOOLEAN:
+                    if ((position & 7) == 0) {
+                        bits = in.get();
+                    }
+                    ((boolean[]) values)[i] = (bits & (1 << (position & 7))) != 0;
+                    position++;
+                    break;
+                case INT32:
+                    ((int[]) values)[i] = (int) readZigZagLong(in);
+                    break;
+                case INT64:
+                    ((long[]) values)[i] = readZigZagLong(in);
+                    break;
+                case FLOAT:
+                    ((float[]) values)[i] = Float.intBitsToFloat(in.getInt());
+                    break;
+                case DOUBLE:
+                    ((double[]) values)[i] = Double.longBitsToDouble(in.getLong());
+                    break;
+                case TEXT:
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.get(bytes);
+                    ((Binary[]) values)[i] = new Binary(bytes);
+                    break;
+                default:
+                    throw new IllegalArgumentException(type + ": not support type");
+            }
+            nulls.unmark(i);
+        }
+        in.order(order);
+    }
+
+    public static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    public static long readZigZagLong(ByteBuffer in) {
+        long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
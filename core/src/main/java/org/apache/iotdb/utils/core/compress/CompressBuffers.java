@@ -0,0 +1,48 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按线程复用的解压缓冲区，容量不够时按两倍扩容
+ * 同一线程内，下一次获取同类缓冲区之前有效
+ */
+public class CompressBuffers {
+
+    private static final ThreadLocal<ByteArrayBuilder> INPUT = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private static final ThreadLocal<ByteArrayBuilder> OUTPUT = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private static final ThreadLocal<ByteBuffer[]> DIRECT = ThreadLocal.withInitial(() -> new ByteBuffer[1]);
+
+    private CompressBuffers() {
+
+    }
+
+    public static byte[] inputArray(int capacity) {
+        ByteArrayBuilder builder = INPUT.get();
+        builder.ensureCapacity(capacity);
+        return builder.getBuffer();
+    }
+
+    public static byte[] outputArray(int capacity) {
+        ByteArrayBuilder builder = OUTPUT.get();
+        builder.ensureCapacity(capacity);
+        return builder.getBuffer();
+    }
+
+    /**
+     * 解压输出使用的堆外缓冲区，返回时 position 为0，limit 为 capacity
+     */
+    public static ByteBuffer directBuffer(int capacity) {
+        ByteBuffer[] holder = DIRECT.get();
+        ByteBuffer buffer = holder[0];
+        if (buffer == null || buffer.capacity() < capacity) {
+            int newCapacity = buffer == null ? Math.max(capacity, 64 * 1024) : Math.max(capacity, buffer.capacity() << 1);
+            buffer = ByteBuffer.allocateDirect(newCapacity);
+            holder[0] = buffer;
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
+    }
+}
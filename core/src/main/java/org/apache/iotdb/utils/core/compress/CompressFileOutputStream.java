@@ -0,0 +1,143 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压缩文件的输出流，记录写入位置和每个block的索引
+ * 写入的数据（block标记、长度、压缩数据）先放入池中的堆外缓冲区，flush 时用一次 gathering write 写入FileChannel，
+ * 每个block调用一次flush，不会每个长度、每列数据一次系统调用
+ * withIndex 为true时，close 时在文件末尾写入 BlockIndex
+ * 继续导出时以追加的方式打开，位置从文件当前的长度开始，已写入的block由检查点日志提供
+ */
+public class CompressFileOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+
+    private final boolean withIndex;
+
+    private final BlockIndex blockIndex = new BlockIndex();
+
+    //还没有写入文件的数据，最后一个是正在写入的缓冲区
+    private final List<ByteBuffer> pending = new ArrayList<>();
+
+    private ByteBuffer current;
+
+    private long position;
+
+    private boolean closed;
+
+    public CompressFileOutputStream(File file, boolean withIndex) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.withIndex = withIndex;
+    }
+
+    public CompressFileOutputStream(File file, boolean withIndex, List<BlockIndexEntry> writtenBlocks) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.withIndex = withIndex;
+        this.position = channel.size();
+        blockIndex.getEntries().addAll(writtenBlocks);
+    }
+
+    /**
+     * flush 之后channel的位置与 getPosition() 相同
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void addBlockIndex(BlockIndexEntry entry) {
+        blockIndex.getEntries().add(entry);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer().put((byte) b);
+        position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        position += len;
+        while (len > 0) {
+            ByteBuffer buffer = buffer();
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 缓冲的数据一次写入文件，缓冲区归还到池中
+     */
+    @Override
+    public void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                buffer.flip();
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (withIndex) {
+                blockIndex.setIndexOffset(position);
+                blockIndex.write(this);
+            }
+            flush();
+        } finally {
+            closed = true;
+            release();
+            channel.close();
+        }
+    }
+
+    //有剩余空间的缓冲区，写满时从池中取新的
+    private ByteBuffer buffer() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+        if (current == null || !current.hasRemaining()) {
+            current = DirectBufferPool.acquire();
+            pending.add(current);
+        }
+        return current;
+    }
+
+    private void release() {
+        for (ByteBuffer buffer : pending) {
+            DirectBufferPool.release(buffer);
+        }
+        pending.clear();
+        current = null;
+    }
+}
@@ -0,0 +1,17 @@
+package org.apache.iotdb.utils.core.compress;
+
+import lombok.Data;
+
+/**
+ * 压缩文件头：模数 LOLI、版本、压缩格式、设备的timeseries
+ */
+@Data
+public class CompressHeader {
+
+    private short version;
+
+    //01 SNAPPY 02 GZIP 03 LZ4
+    private String compressType;
+
+    private String[] timeseries;
+}
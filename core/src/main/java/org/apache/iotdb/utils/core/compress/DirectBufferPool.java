@@ -0,0 +1,45 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 写压缩文件使用的堆外缓冲区池，缓冲区大小固定，所有输出流共用
+ * 池中最多保留 MAX_POOLED 个，超出的归还后由GC回收
+ */
+public class DirectBufferPool {
+
+    public static final int CHUNK_SIZE = 256 * 1024;
+
+    private static final int MAX_POOLED = 64;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private DirectBufferPool() {
+
+    }
+
+    /**
+     * 返回时 position 为0，limit 为 capacity
+     */
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+        POOLED.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(buffer);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+}
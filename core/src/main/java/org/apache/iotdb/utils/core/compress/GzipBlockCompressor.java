@@ -0,0 +1,149 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 输出与 GZIPOutputStream 相同的格式（10byte header + deflate + crc32 + 原始长度），兼容之前导出的文件
+ * Deflater、Inflater 按线程复用，不再每次创建流
+ */
+public class GzipBlockCompressor implements BlockCompressor {
+
+    private static final int HEADER_SIZE = 10;
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private static final ConcurrentHashMap<Integer, GzipBlockCompressor> LEVEL_MAP = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    private final ThreadLocal<Deflater> deflater;
+
+    public GzipBlockCompressor() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    private GzipBlockCompressor(int level) {
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    @Override
+    public String typeCode() {
+        return "02";
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".gz.bin";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        // 参考 zlib deflateBound
+        return HEADER_SIZE + length + (length >> 3) + (length >> 6) + 64 + TRAILER_SIZE;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+        Deflater def = deflater.get();
+        def.reset();
+        def.setInput(src, srcOffset, length);
+        def.finish();
+        System.arraycopy(HEADER, 0, dest, destOffset, HEADER_SIZE);
+        int position = destOffset + HEADER_SIZE;
+        int limit = dest.length - TRAILER_SIZE;
+        while (!def.finished() && position < limit) {
+            position += def.deflate(dest, position, limit - position);
+        }
+        if (!def.finished()) {
+            throw new IOException("gzip output buffer is too small");
+        }
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(src, srcOffset, length);
+        writeIntLE(dest, position, (int) crc.getValue());
+        writeIntLE(dest, position + 4, length);
+        return position + TRAILER_SIZE - destOffset;
+    }
+
+    @Override
+    public void uncompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException {
+        if (length < HEADER_SIZE + TRAILER_SIZE || src[srcOffset] != 0x1f || src[srcOffset + 1] != (byte) 0x8b
+                || src[srcOffset + 2] != Deflater.DEFLATED) {
+            throw new IOException("not in gzip format");
+        }
+        int end = srcOffset + length;
+        int flag = src[srcOffset + 3] & 0xff;
+        int position = srcOffset + HEADER_SIZE;
+        if ((flag & FEXTRA) != 0) {
+            position += 2 + ((src[position] & 0xff) | (src[position + 1] & 0xff) << 8);
+        }
+        if ((flag & FNAME) != 0) {
+            while (src[position++] != 0) {
+            }
+        }
+        if ((flag & FCOMMENT) != 0) {
+            while (src[position++] != 0) {
+            }
+        }
+        if ((flag & FHCRC) != 0) {
+            position += 2;
+        }
+        Inflater inf = INFLATER.get();
+        inf.reset();
+        inf.setInput(src, position, end - TRAILER_SIZE - position);
+        try {
+            int count = 0;
+            while (count < originalLength) {
+                int n = inf.inflate(dest, destOffset + count, originalLength - count);
+                if (n == 0 && (inf.finished() || inf.needsInput() || inf.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count != originalLength) {
+                throw new IOException("gzip data is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(dest, destOffset, originalLength);
+        if (readIntLE(src, end - TRAILER_SIZE) != (int) crc.getValue()) {
+            throw new IOException("gzip crc check failed");
+        }
+    }
+
+    @Override
+    public BlockCompressor withLevel(int level) {
+        return LEVEL_MAP.computeIfAbsent(level, GzipBlockCompressor::new);
+    }
+
+    private static void writeIntLE(byte[] b, int offset, int v) {
+        b[offset] = (byte) v;
+        b[offset + 1] = (byte) (v >>> 8);
+        b[offset + 2] = (byte) (v >>> 16);
+        b[offset + 3] = (byte) (v >>> 24);
+    }
+
+    private static int readIntLE(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8 | (b[offset + 2] & 0xff) << 16 | (b[offset + 3] & 0xff) << 24;
+    }
+}
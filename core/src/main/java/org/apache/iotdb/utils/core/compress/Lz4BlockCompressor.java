@@ -0,0 +1,55 @@
+package org.apache.iotdb.utils.core.compress;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.ByteBuffer;
+
+public class Lz4BlockCompressor implements BlockCompressor {
+
+    //LZ4Compressor、LZ4FastDecompressor 本身是线程安全的，全局共用
+    protected static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+    private static final LZ4FastDecompressor DECOMPRESSOR = FACTORY.fastDecompressor();
+
+    private final LZ4Compressor compressor;
+
+    public Lz4BlockCompressor() {
+        this(FACTORY.fastCompressor());
+    }
+
+    protected Lz4BlockCompressor(LZ4Compressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public String typeCode() {
+        return "03";
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".lz4.bin";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+        return compressor.compress(src, srcOffset, length, dest, destOffset, dest.length - destOffset);
+    }
+
+    @Override
+    public void uncompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) {
+        DECOMPRESSOR.decompress(src, srcOffset, dest, destOffset, originalLength);
+    }
+
+    @Override
+    public void uncompress(ByteBuffer src, ByteBuffer dest, int originalLength) {
+        DECOMPRESSOR.decompress(src, src.position(), dest, dest.position(), originalLength);
+    }
+}
@@ -0,0 +1,37 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LZ4 高压缩率模式，压缩更慢，解压与 LZ4 相同
+ * 级别 1~17，默认 9
+ */
+public class Lz4HcBlockCompressor extends Lz4BlockCompressor {
+
+    public static final int DEFAULT_LEVEL = 9;
+
+    private static final ConcurrentHashMap<Integer, Lz4HcBlockCompressor> LEVEL_MAP = new ConcurrentHashMap<>();
+
+    public Lz4HcBlockCompressor() {
+        this(DEFAULT_LEVEL);
+    }
+
+    private Lz4HcBlockCompressor(int level) {
+        super(FACTORY.highCompressor(level));
+    }
+
+    @Override
+    public String typeCode() {
+        return "04";
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".lz4hc.bin";
+    }
+
+    @Override
+    public BlockCompressor withLevel(int level) {
+        return LEVEL_MAP.computeIfAbsent(level, Lz4HcBlockCompressor::new);
+    }
+}
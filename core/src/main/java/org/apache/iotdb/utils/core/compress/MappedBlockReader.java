@@ -0,0 +1,44 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 在 MappedFile 的 [position, end) 范围内顺序读取，数据不复制，直接返回映射区域的视图
+ */
+public class MappedBlockReader implements BlockReader {
+
+    private final MappedFile mappedFile;
+
+    private final long end;
+
+    private long position;
+
+    public MappedBlockReader(MappedFile mappedFile) {
+        this(mappedFile, 0, mappedFile.size());
+    }
+
+    public MappedBlockReader(MappedFile mappedFile, long position, long end) {
+        this.mappedFile = mappedFile;
+        this.position = position;
+        this.end = end;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public ByteBuffer read(int length) throws IOException {
+        if (position >= end && length > 0) {
+            return null;
+        }
+        if (position + length > end) {
+            throw new EOFException("unexpected end of compressed file");
+        }
+        ByteBuffer buffer = mappedFile.slice(position, length);
+        position += length;
+        return buffer;
+    }
+}
@@ -0,0 +1,77 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 只读映射的压缩文件，可以被多个线程同时读取
+ * 文件按 regionSize 分区，每个分区在第一次使用时映射一次，映射长度多出 overlap，
+ * 不超过 overlap 的数据不会跨分区；更大的数据单独映射
+ */
+public class MappedFile {
+
+    public static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+    public static final long DEFAULT_OVERLAP = 64L << 20;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final long regionSize;
+
+    private final long overlap;
+
+    private final ConcurrentHashMap<Long, MappedByteBuffer> regionMap = new ConcurrentHashMap<>();
+
+    public MappedFile(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_REGION_SIZE, DEFAULT_OVERLAP);
+    }
+
+    public MappedFile(FileChannel channel, long regionSize, long overlap) throws IOException {
+        if (regionSize + overlap > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("region is too large");
+        }
+        this.channel = channel;
+        this.size = channel.size();
+        this.regionSize = regionSize;
+        this.overlap = overlap;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * [position, position + length) 的只读视图，调用方保证不超过文件大小
+     */
+    public ByteBuffer slice(long position, int length) throws IOException {
+        long region = position / regionSize;
+        long regionStart = region * regionSize;
+        MappedByteBuffer mapped;
+        int offset;
+        if (position + length <= regionStart + regionSize + overlap) {
+            mapped = regionMap.get(region);
+            if (mapped == null) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                        Math.min(regionSize + overlap, size - regionStart));
+                MappedByteBuffer previous = regionMap.putIfAbsent(region, mapped);
+                if (previous != null) {
+                    mapped = previous;
+                }
+            }
+            offset = (int) (position - regionStart);
+        } else {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            offset = 0;
+        }
+        // duplicate 的字节序为大端，position、limit 互不影响
+        ByteBuffer view = mapped.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view;
+    }
+}
@@ -0,0 +1,42 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 不压缩，数据已经按类型编码，适合磁盘足够、需要最快导入导出的场景
+ */
+public class NoneBlockCompressor implements BlockCompressor {
+
+    @Override
+    public String typeCode() {
+        return "05";
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".raw.bin";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+        System.arraycopy(src, srcOffset, dest, destOffset, length);
+        return length;
+    }
+
+    @Override
+    public void uncompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) {
+        System.arraycopy(src, srcOffset, dest, destOffset, originalLength);
+    }
+
+    @Override
+    public void uncompress(ByteBuffer src, ByteBuffer dest, int originalLength) {
+        ByteBuffer in = src.duplicate();
+        in.limit(in.position() + originalLength);
+        dest.duplicate().put(in);
+    }
+}
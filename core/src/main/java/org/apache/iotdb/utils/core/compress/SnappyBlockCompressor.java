@@ -0,0 +1,44 @@
+package org.apache.iotdb.utils.core.compress;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class SnappyBlockCompressor implements BlockCompressor {
+
+    @Override
+    public String typeCode() {
+        return "01";
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".snappy.bin";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+        return Snappy.compress(src, srcOffset, length, dest, destOffset);
+    }
+
+    @Override
+    public void uncompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException {
+        Snappy.uncompress(src, srcOffset, length, dest, destOffset);
+    }
+
+    @Override
+    public void uncompress(ByteBuffer src, ByteBuffer dest, int originalLength) throws IOException {
+        if (src.isDirect() && dest.isDirect()) {
+            // Snappy 的 ByteBuffer 接口只支持堆外内存，会修改 dest 的 limit，使用副本
+            Snappy.uncompress(src.duplicate(), dest.duplicate());
+        } else {
+            BlockCompressor.super.uncompress(src, dest, originalLength);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.apache.iotdb.utils.core.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 基于 InputStream 的读取，处理 read 读不满的情况，数据读入复用的数组
+ */
+public class StreamBlockReader implements BlockReader {
+
+    private final InputStream in;
+
+    private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+
+    public StreamBlockReader(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public ByteBuffer read(int length) throws IOException {
+        buffer.ensureCapacity(length);
+        byte[] b = buffer.getBuffer();
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(b, offset, length - offset);
+            if (read == -1) {
+                if (offset == 0) {
+                    return null;
+                }
+                throw new EOFException("unexpected end of compressed file");
+            }
+            offset += read;
+        }
+        return ByteBuffer.wrap(b, 0, length);
+    }
+}
@@ -0,0 +1,232 @@
+package org.apache.iotdb.utils.core.memory;
+
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MemorySession 的查询结果，按页编码为 TSQueryDataSet，由 SessionDataSet 按真实的客户端逻辑解码
+ * 时间列8字节；每列的值只写非空的部分，bitmap 每行一位，高位在前，置位表示非空
+ */
+abstract class MemoryResultSet {
+
+    private final List<String> columnNames;
+
+    private final List<TSDataType> dataTypes;
+
+    private final boolean ignoreTimeStamp;
+
+    MemoryResultSet(List<String> columnNames, List<TSDataType> dataTypes, boolean ignoreTimeStamp) {
+        this.columnNames = columnNames;
+        this.dataTypes = dataTypes;
+        this.ignoreTimeStamp = ignoreTimeStamp;
+    }
+
+    List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    List<String> getColumnTypes() {
+        List<String> typeList = new ArrayList<>(dataTypes.size());
+        for (TSDataType dataType : dataTypes) {
+            typeList.add(dataType.toString());
+        }
+        return typeList;
+    }
+
+    boolean isIgnoreTimeStamp() {
+        return ignoreTimeStamp;
+    }
+
+    /**
+     * 读取下一页，最多 fetchSize 行
+     *
+     * @param times  每行的时间
+     * @param values 每列每行的值，空值为null
+     * @return 行数，0表示没有数据了
+     */
+    abstract int fetch(int fetchSize, long[] times, Object[][] values);
+
+    TSQueryDataSet nextPage(int fetchSize) {
+        long[] times = new long[fetchSize];
+        Object[][] values = new Object[dataTypes.size()][fetchSize];
+        int rowCount = fetch(fetchSize, times, values);
+        return encode(times, values, rowCount);
+    }
+
+    private TSQueryDataSet encode(long[] times, Object[][] values, int rowCount) {
+        ByteBuffer timeBuffer = ByteBuffer.allocate(rowCount * 8);
+        for (int row = 0; row < rowCount; row++) {
+            timeBuffer.putLong(times[row]);
+        }
+        timeBuffer.flip();
+        List<ByteBuffer> valueList = new ArrayList<>(dataTypes.size());
+        List<ByteBuffer> bitmapList = new ArrayList<>(dataTypes.size());
+        for (int column = 0; column < dataTypes.size(); column++) {
+            TSDataType dataType = dataTypes.get(column);
+            Object[] columnValues = values[column];
+            byte[] bitmap = new byte[(rowCount + 7) / 8];
+            int size = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (columnValues[row] != null) {
+                    bitmap[row / 8] |= 0x80 >>> (row % 8);
+                    size += valueSize(dataType, columnValues[row]);
+                }
+            }
+            ByteBuffer valueBuffer = ByteBuffer.allocate(size);
+            for (int row = 0; row < rowCount; row++) {
+                if (columnValues[row] != null) {
+                    putValue(valueBuffer, dataType, columnValues[row]);
+                }
+            }
+            valueBuffer.flip();
+            valueList.add(valueBuffer);
+            bitmapList.add(ByteBuffer.wrap(bitmap));
+        }
+        return new TSQueryDataSet(timeBuffer, valueList, bitmapList);
+    }
+
+    private static int valueSize(TSDataType dataType, Object value) {
+        switch (dataType) {
+            case BOOLEAN:
+                return 1;
+            case INT32:
+            case FLOAT:
+                return 4;
+            case INT64:
+            case DOUBLE:
+                return 8;
+            default:
+                return 4 + ((Binary) value).getLength();
+        }
+    }
+
+    private static void putValue(ByteBuffer buffer, TSDataType dataType, Object value) {
+        switch (dataType) {
+            case BOOLEAN:
+                buffer.put((byte) ((Boolean) value ? 1 : 0));
+                break;
+            case INT32:
+                buffer.putInt((Integer) value);
+                break;
+            case INT64:
+                buffer.putLong((Long) value);
+                break;
+            case FLOAT:
+                buffer.putFloat((Float) value);
+                break;
+            case DOUBLE:
+                buffer.putDouble((Double) value);
+                break;
+            default:
+                Binary binary = (Binary) value;
+                buffer.putInt(binary.getLength());
+                buffer.put(binary.getValues());
+        }
+    }
+
+    /**
+     * 已经生成好的结果，show/count/聚合查询使用
+     */
+    static class ListResultSet extends MemoryResultSet {
+
+        private final List<Object[]> rowList = new ArrayList<>();
+
+        private int position;
+
+        ListResultSet(List<String> columnNames, List<TSDataType> dataTypes) {
+            super(columnNames, dataTypes, true);
+        }
+
+        void addRow(Object... row) {
+            rowList.add(row);
+        }
+
+        @Override
+        int fetch(int fetchSize, long[] times, Object[][] values) {
+            int count = 0;
+            for (; count < fetchSize && position < rowList.size(); count++, position++) {
+                Object[] row = rowList.get(position);
+                times[count] = position;
+                for (int column = 0; column < values.length; column++) {
+                    values[column][count] = row[column];
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 原始数据查询，按时间归并多个序列，每页从各序列复制一段后归并
+     */
+    static class RawResultSet extends MemoryResultSet {
+
+        private final List<MemoryTimeseriesStore.Series> seriesList;
+
+        private final long endTime;
+
+        private long cursor;
+
+        private boolean exhausted;
+
+        RawResultSet(List<MemoryTimeseriesStore.Series> seriesList, List<String> columnNames, List<TSDataType> dataTypes,
+                     long startTime, long endTime) {
+            super(columnNames, dataTypes, false);
+            this.seriesList = seriesList;
+            this.cursor = startTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        int fetch(int fetchSize, long[] times, Object[][] values) {
+            if (exhausted) {
+                return 0;
+            }
+            int seriesSize = seriesList.size();
+            long[][] seriesTimes = new long[seriesSize][fetchSize];
+            Object[][] seriesValues = new Object[seriesSize][fetchSize];
+            int[] counts = new int[seriesSize];
+            int[] positions = new int[seriesSize];
+            //只归并所有序列都已复制到的时间范围，复制满 fetchSize 的序列的最后一个时间为上限
+            long limit = Long.MAX_VALUE;
+            for (int i = 0; i < seriesSize; i++) {
+                counts[i] = seriesList.get(i).copy(cursor, endTime, fetchSize, seriesTimes[i], seriesValues[i]);
+                if (counts[i] == fetchSize) {
+                    limit = Math.min(limit, seriesTimes[i][fetchSize - 1]);
+                }
+            }
+            int rowCount = 0;
+            while (rowCount < fetchSize) {
+                long time = Long.MAX_VALUE;
+                boolean found = false;
+                for (int i = 0; i < seriesSize; i++) {
+                    if (positions[i] < counts[i] && seriesTimes[i][positions[i]] <= time) {
+                        time = seriesTimes[i][positions[i]];
+                        found = true;
+                    }
+                }
+                if (!found || time > limit) {
+                    break;
+                }
+                times[rowCount] = time;
+                for (int i = 0; i < seriesSize; i++) {
+                    if (positions[i] < counts[i] && seriesTimes[i][positions[i]] == time) {
+                        values[i][rowCount] = seriesValues[i][positions[i]++];
+                    }
+                }
+                rowCount++;
+            }
+            //不满一页说明所有序列都已读完
+            if (rowCount < fetchSize || times[rowCount - 1] == Long.MAX_VALUE) {
+                exhausted = true;
+            } else {
+                cursor = times[rowCount - 1] + 1;
+            }
+            return rowCount;
+        }
+    }
+}
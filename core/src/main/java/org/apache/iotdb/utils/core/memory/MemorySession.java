@@ -0,0 +1,652 @@
+package org.apache.iotdb.utils.core.memory;
+
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsReq;
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsResp;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 不连接server的session，数据读写 MemoryTimeseriesStore，用于在没有IoTDB的环境下运行完整的导入导出pipeline
+ * 支持pipeline用到的语句：show devices、count devices、show timeseries、count timeseries、select（原始数据和 min_time/max_time），
+ * insert into、create [aligned] timeseries；where 只支持 time 的比较条件用 and 连接
+ * 查询结果按 fetchSize 分页，经过代理的 rpc client 返回给 SessionDataSet，客户端的解码和真实server时相同
+ * 多个 MemorySession 可以共用一个store，对应一个server的多个连接
+ */
+public class MemorySession extends Session {
+
+    private static final AtomicLong SESSION_ID = new AtomicLong();
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
+
+    private static final Pattern SHOW_DEVICES = Pattern.compile("^show\\s+devices(?:\\s+(.+?))?(?:\\s+limit\\s+(\\d+))?(?:\\s+offset\\s+(\\d+))?$", FLAGS);
+
+    private static final Pattern COUNT_DEVICES = Pattern.compile("^count\\s+devices(?:\\s+(.+?))?$", FLAGS);
+
+    private static final Pattern COUNT_TIMESERIES = Pattern.compile("^count\\s+timeseries(?:\\s+(.+?))?$", FLAGS);
+
+    private static final Pattern SHOW_TIMESERIES = Pattern.compile("^show\\s+timeseries(?:\\s+(.+?))?(?:\\s+limit\\s+(\\d+))?(?:\\s+offset\\s+(\\d+))?$", FLAGS);
+
+    private static final Pattern SELECT = Pattern.compile("^select\\s+(.+?)\\s+from\\s+(.+?)(?:\\s+where\\s+(.+))?$", FLAGS);
+
+    private static final Pattern TIME_FILTER = Pattern.compile("^time\\s*(>=|<=|>|<|=)\\s*(-?\\d+)$", FLAGS);
+
+    private static final Pattern INSERT = Pattern.compile("^insert\\s+into\\s+(.+?)\\s*\\((.+?)\\)\\s*(aligned\\s+)?values\\s*\\((.*)\\)$", FLAGS);
+
+    private static final Pattern CREATE_ALIGNED = Pattern.compile("^create\\s+aligned\\s+timeseries\\s+(.+?)\\s*\\((.+)\\)$", FLAGS);
+
+    private static final Pattern CREATE_TIMESERIES = Pattern.compile("^create\\s+timeseries\\s+(.+?)\\s+with\\s+(.+)$", FLAGS);
+
+    private static final Pattern ALIGNED_MEASUREMENT = Pattern.compile("^(`[^`]*`|\\S+)\\s+(\\w+)(.*)$", FLAGS);
+
+    private final MemoryTimeseriesStore store;
+
+    private final long sessionId = SESSION_ID.incrementAndGet();
+
+    private final Map<Long, MemoryResultSet> resultMap = new ConcurrentHashMap<>();
+
+    private final TSIService.Iface client;
+
+    private String timestampPrecision = "ms";
+
+    private ZoneId zoneId = ZoneId.systemDefault();
+
+    public MemorySession(MemoryTimeseriesStore store) {
+        super("127.0.0.1", 6667);
+        this.store = store;
+        this.client = (TSIService.Iface) Proxy.newProxyInstance(TSIService.Iface.class.getClassLoader(),
+                new Class[]{TSIService.Iface.class}, (proxy, method, args) -> invokeClient(method, args));
+    }
+
+    public MemoryTimeseriesStore getStore() {
+        return store;
+    }
+
+    @Override
+    public synchronized void open() {
+    }
+
+    @Override
+    public synchronized void open(boolean enableRPCCompression) {
+    }
+
+    @Override
+    public synchronized void open(boolean enableRPCCompression, int connectionTimeoutInMs) {
+    }
+
+    @Override
+    public synchronized void close() {
+        resultMap.clear();
+    }
+
+    @Override
+    public String getTimestampPrecision() {
+        return timestampPrecision;
+    }
+
+    public void setTimestampPrecision(String timestampPrecision) {
+        this.timestampPrecision = timestampPrecision;
+    }
+
+    @Override
+    public synchronized String getTimeZone() {
+        return zoneId.toString();
+    }
+
+    @Override
+    public synchronized void setTimeZone(String zoneId) {
+        this.zoneId = ZoneId.of(zoneId);
+    }
+
+    @Override
+    public SessionDataSet executeQueryStatement(String sql) throws StatementExecutionException {
+        store.request();
+        return open(sql, query(trimStatement(sql)));
+    }
+
+    @Override
+    public SessionDataSet executeQueryStatement(String sql, long timeoutInMs) throws StatementExecutionException {
+        return executeQueryStatement(sql);
+    }
+
+    @Override
+    public SessionDataSet executeRawDataQuery(List<String> paths, long startTime, long endTime) throws StatementExecutionException {
+        store.request();
+        List<MemoryTimeseriesStore.Series> seriesList = new ArrayList<>();
+        for (String path : paths) {
+            List<MemoryTimeseriesStore.Series> matched = store.timeseries(path);
+            if (!matched.isEmpty()) {
+                seriesList.add(matched.get(0));
+            }
+        }
+        return open(String.valueOf(paths), rawResult(seriesList, startTime, endTime));
+    }
+
+    @Override
+    public void executeNonQueryStatement(String sql) throws StatementExecutionException {
+        store.request();
+        String statement = trimStatement(sql);
+        Matcher matcher = INSERT.matcher(statement);
+        if (matcher.matches()) {
+            insertStatement(matcher);
+            return;
+        }
+        matcher = CREATE_ALIGNED.matcher(statement);
+        if (matcher.matches()) {
+            createAlignedStatement(matcher);
+            return;
+        }
+        matcher = CREATE_TIMESERIES.matcher(statement);
+        if (matcher.matches()) {
+            createTimeseriesStatement(matcher);
+            return;
+        }
+        if (statement.toLowerCase(Locale.ROOT).startsWith("set storage group")) {
+            return;
+        }
+        throw new StatementExecutionException("unsupported statement: " + sql);
+    }
+
+    @Override
+    public void insertRecordsOfOneDevice(String deviceId, List<Long> times, List<List<String>> measurementsList,
+                                         List<List<TSDataType>> typesList, List<List<Object>> valuesList) throws StatementExecutionException {
+        insertRecords(deviceId, false, times, measurementsList, typesList, valuesList);
+    }
+
+    @Override
+    public void insertRecordsOfOneDevice(String deviceId, List<Long> times, List<List<String>> measurementsList,
+                                         List<List<TSDataType>> typesList, List<List<Object>> valuesList,
+                                         boolean haveSorted) throws StatementExecutionException {
+        insertRecords(deviceId, false, times, measurementsList, typesList, valuesList);
+    }
+
+    @Override
+    public void insertAlignedRecordsOfOneDevice(String deviceId, List<Long> times, List<List<String>> measurementsList,
+                                                List<List<TSDataType>> typesList, List<List<Object>> valuesList) throws StatementExecutionException {
+        insertRecords(deviceId, true, times, measurementsList, typesList, valuesList);
+    }
+
+    @Override
+    public void insertAlignedRecordsOfOneDevice(String deviceId, List<Long> times, List<List<String>> measurementsList,
+                                                List<List<TSDataType>> typesList, List<List<Object>> valuesList,
+                                                boolean haveSorted) throws StatementExecutionException {
+        insertRecords(deviceId, true, times, measurementsList, typesList, valuesList);
+    }
+
+    @Override
+    public void insertTablet(Tablet tablet) throws StatementExecutionException {
+        store.request();
+        store.insertTablet(tablet, false);
+    }
+
+    @Override
+    public void insertTablet(Tablet tablet, boolean sorted) throws StatementExecutionException {
+        store.request();
+        store.insertTablet(tablet, false);
+    }
+
+    @Override
+    public void insertAlignedTablet(Tablet tablet) throws StatementExecutionException {
+        store.request();
+        store.insertTablet(tablet, true);
+    }
+
+    @Override
+    public void insertAlignedTablet(Tablet tablet, boolean sorted) throws StatementExecutionException {
+        store.request();
+        store.insertTablet(tablet, true);
+    }
+
+    @Override
+    public void insertTablets(Map<String, Tablet> tablets) throws StatementExecutionException {
+        insertTablets(tablets, false);
+    }
+
+    @Override
+    public void insertTablets(Map<String, Tablet> tablets, boolean sorted) throws StatementExecutionException {
+        store.request();
+        for (Tablet tablet : tablets.values()) {
+            store.insertTablet(tablet, false);
+        }
+    }
+
+    @Override
+    public void insertAlignedTablets(Map<String, Tablet> tablets) throws StatementExecutionException {
+        insertAlignedTablets(tablets, false);
+    }
+
+    @Override
+    public void insertAlignedTablets(Map<String, Tablet> tablets, boolean sorted) throws StatementExecutionException {
+        store.request();
+        for (Tablet tablet : tablets.values()) {
+            store.insertTablet(tablet, true);
+        }
+    }
+
+    @Override
+    public void createTimeseries(String path, TSDataType dataType, TSEncoding encoding, CompressionType compressor)
+            throws StatementExecutionException {
+        store.request();
+        store.createTimeseries(path, dataType, encoding, compressor, null, false);
+    }
+
+    @Override
+    public void createTimeseries(String path, TSDataType dataType, TSEncoding encoding, CompressionType compressor,
+                                 Map<String, String> props, Map<String, String> tags, Map<String, String> attributes,
+                                 String measurementAlias) throws StatementExecutionException {
+        store.request();
+        store.createTimeseries(path, dataType, encoding, compressor, measurementAlias, false);
+    }
+
+    @Override
+    public void createAlignedTimeseries(String deviceId, List<String> measurements, List<TSDataType> dataTypes,
+                                        List<TSEncoding> encodings, List<CompressionType> compressors,
+                                        List<String> measurementAliasList) throws StatementExecutionException {
+        store.request();
+        List<String> failedList = new ArrayList<>();
+        for (int i = 0; i < measurements.size(); i++) {
+            try {
+                store.createTimeseries(deviceId + "." + measurements.get(i), dataTypes.get(i), encodings.get(i),
+                        compressors.get(i), measurementAliasList == null ? null : measurementAliasList.get(i), true);
+            } catch (StatementExecutionException e) {
+                failedList.add(e.getMessage());
+            }
+        }
+        throwIfFailed(failedList);
+    }
+
+    @Override
+    public void createMultiTimeseries(List<String> paths, List<TSDataType> dataTypes, List<TSEncoding> encodings,
+                                      List<CompressionType> compressors, List<Map<String, String>> propsList,
+                                      List<Map<String, String>> tagsList, List<Map<String, String>> attributesList,
+                                      List<String> measurementAliasList) throws StatementExecutionException {
+        store.request();
+        List<String> failedList = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            try {
+                store.createTimeseries(paths.get(i), dataTypes.get(i), encodings.get(i), compressors.get(i),
+                        measurementAliasList == null ? null : measurementAliasList.get(i), false);
+            } catch (StatementExecutionException e) {
+                failedList.add(e.getMessage());
+            }
+        }
+        throwIfFailed(failedList);
+    }
+
+    private void insertRecords(String deviceId, boolean aligned, List<Long> times, List<List<String>> measurementsList,
+                               List<List<TSDataType>> typesList, List<List<Object>> valuesList) throws StatementExecutionException {
+        store.request();
+        for (int i = 0; i < times.size(); i++) {
+            store.insert(deviceId, aligned, times.get(i), measurementsList.get(i), typesList.get(i), valuesList.get(i));
+        }
+    }
+
+    private static void throwIfFailed(List<String> failedList) throws StatementExecutionException {
+        if (!failedList.isEmpty()) {
+            throw new StatementExecutionException(String.join(";", failedList));
+        }
+    }
+
+    private SessionDataSet open(String sql, MemoryResultSet resultSet) {
+        long queryId = store.nextQueryId();
+        TSQueryDataSet firstPage = resultSet.nextPage(getFetchSize());
+        resultMap.put(queryId, resultSet);
+        SessionDataSet dataSet = new SessionDataSet(sql, resultSet.getColumnNames(), resultSet.getColumnTypes(), null,
+                queryId, queryId, client, sessionId, firstPage, resultSet.isIgnoreTimeStamp());
+        dataSet.setFetchSize(getFetchSize());
+        return dataSet;
+    }
+
+    /**
+     * 代理的 rpc client，SessionDataSet 只会调用取下一页和关闭
+     */
+    private Object invokeClient(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "fetchResults":
+                return fetchResults((TSFetchResultsReq) args[0]);
+            case "closeOperation":
+                resultMap.remove(((TSCloseOperationReq) args[0]).getQueryId());
+                return RpcUtils.SUCCESS_STATUS;
+            case "hashCode":
+                return System.identityHashCode(this);
+            case "equals":
+                return args[0] == client;
+            case "toString":
+                return "MemorySession client " + sessionId;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private TSFetchResultsResp fetchResults(TSFetchResultsReq req) {
+        store.request();
+        TSFetchResultsResp resp = new TSFetchResultsResp(RpcUtils.SUCCESS_STATUS, false, true);
+        MemoryResultSet resultSet = resultMap.get(req.getQueryId());
+        if (resultSet == null) {
+            return resp;
+        }
+        TSQueryDataSet page = resultSet.nextPage(req.getFetchSize());
+        if (page.time.hasRemaining()) {
+            resp.setHasResultSet(true);
+            resp.setQueryDataSet(page);
+        } else {
+            resultMap.remove(req.getQueryId());
+        }
+        return resp;
+    }
+
+    private MemoryResultSet query(String sql) throws StatementExecutionException {
+        Matcher matcher = SHOW_DEVICES.matcher(sql);
+        if (matcher.matches()) {
+            MemoryResultSet.ListResultSet resultSet = new MemoryResultSet.ListResultSet(
+                    listOf("devices", "isAligned"), Collections.nCopies(2, TSDataType.TEXT));
+            for (MemoryTimeseriesStore.Device device : page(store.devices(pattern(matcher.group(1))), matcher.group(2), matcher.group(3))) {
+                resultSet.addRow(Binary.valueOf(device.getName()), Binary.valueOf(String.valueOf(device.isAligned())));
+            }
+            return resultSet;
+        }
+        matcher = COUNT_DEVICES.matcher(sql);
+        if (matcher.matches()) {
+            MemoryResultSet.ListResultSet resultSet = new MemoryResultSet.ListResultSet(
+                    listOf("devices"), listOf(TSDataType.INT32));
+            resultSet.addRow(store.devices(pattern(matcher.group(1))).size());
+            return resultSet;
+        }
+        matcher = SHOW_TIMESERIES.matcher(sql);
+        if (matcher.matches()) {
+            MemoryResultSet.ListResultSet resultSet = new MemoryResultSet.ListResultSet(
+                    listOf("timeseries", "alias", "storage group", "dataType", "encoding", "compression", "tags", "attributes"),
+                    Collections.nCopies(8, TSDataType.TEXT));
+            for (MemoryTimeseriesStore.Series series : page(store.timeseries(pattern(matcher.group(1))), matcher.group(2), matcher.group(3))) {
+                List<String> nodes = MemoryTimeseriesStore.splitPath(series.getPath());
+                resultSet.addRow(Binary.valueOf(series.getPath()),
+                        series.getAlias() == null ? null : Binary.valueOf(series.getAlias()),
+                        Binary.valueOf(nodes.get(0) + "." + nodes.get(1)),
+                        Binary.valueOf(series.getDataType().toString()),
+                        Binary.valueOf(series.getEncoding().toString()),
+                        Binary.valueOf(series.getCompressor().toString()),
+                        null, null);
+            }
+            return resultSet;
+        }
+        matcher = COUNT_TIMESERIES.matcher(sql);
+        if (matcher.matches()) {
+            MemoryResultSet.ListResultSet resultSet = new MemoryResultSet.ListResultSet(
+                    listOf("count"), listOf(TSDataType.INT32));
+            resultSet.addRow(store.timeseries(pattern(matcher.group(1))).size());
+            return resultSet;
+        }
+        matcher = SELECT.matcher(sql);
+        if (matcher.matches()) {
+            return select(splitList(matcher.group(1)), store.getDevice(matcher.group(2).trim()), timeFilter(matcher.group(3)));
+        }
+        throw new StatementExecutionException("unsupported statement: " + sql);
+    }
+
+    private MemoryResultSet select(List<String> selectList, MemoryTimeseriesStore.Device device, long[] timeRange) {
+        List<MemoryTimeseriesStore.Series> allSeries = device == null ? Collections.emptyList() : device.getSeriesList();
+        boolean aggregation = false;
+        for (String item : selectList) {
+            String lower = item.toLowerCase(Locale.ROOT);
+            aggregation |= lower.startsWith("min_time(") || lower.startsWith("max_time(");
+        }
+        if (!aggregation) {
+            List<MemoryTimeseriesStore.Series> seriesList = new ArrayList<>();
+            for (String item : selectList) {
+                if ("*".equals(item)) {
+                    seriesList.addAll(allSeries);
+                } else if (device != null && device.getSeries(item) != null) {
+                    seriesList.add(device.getSeries(item));
+                }
+            }
+            return rawResult(seriesList, timeRange[0], timeRange[1]);
+        }
+        //min_time(*), max_time(*)：每个函数对每个序列输出一列
+        List<String> columnNames = new ArrayList<>();
+        List<TSDataType> dataTypes = new ArrayList<>();
+        List<Object> row = new ArrayList<>();
+        for (String item : selectList) {
+            String function = item.substring(0, item.indexOf('(')).trim().toLowerCase(Locale.ROOT);
+            String argument = item.substring(item.indexOf('(') + 1, item.lastIndexOf(')')).trim();
+            for (MemoryTimeseriesStore.Series series : allSeries) {
+                if (!"*".equals(argument) && device.getSeries(argument) != series) {
+                    continue;
+                }
+                long[] range = series.timeRange(timeRange[0], timeRange[1]);
+                columnNames.add(function + "(" + series.getPath() + ")");
+                dataTypes.add(TSDataType.INT64);
+                row.add(range == null ? null : "min_time".equals(function) ? range[0] : range[1]);
+            }
+        }
+        MemoryResultSet.ListResultSet resultSet = new MemoryResultSet.ListResultSet(columnNames, dataTypes);
+        resultSet.addRow(row.toArray());
+        return resultSet;
+    }
+
+    private static MemoryResultSet rawResult(List<MemoryTimeseriesStore.Series> seriesList, long startTime, long endTime) {
+        List<String> columnNames = new ArrayList<>();
+        List<TSDataType> dataTypes = new ArrayList<>();
+        for (MemoryTimeseriesStore.Series series : seriesList) {
+            columnNames.add(series.getPath());
+            dataTypes.add(series.getDataType());
+        }
+        return new MemoryResultSet.RawResultSet(seriesList, columnNames, dataTypes, startTime, endTime);
+    }
+
+    /**
+     * 解析 where 中 time 的条件
+     *
+     * @return [startTime, endTime)
+     */
+    private static long[] timeFilter(String where) throws StatementExecutionException {
+        long[] timeRange = {Long.MIN_VALUE, Long.MAX_VALUE};
+        if (where == null) {
+            return timeRange;
+        }
+        for (String condition : where.replace("(", " ").replace(")", " ").trim().split("(?i)\\s+and\\s+")) {
+            Matcher matcher = TIME_FILTER.matcher(condition.trim());
+            if (!matcher.matches()) {
+                throw new StatementExecutionException("unsupported where clause: " + where);
+            }
+            long value = Long.parseLong(matcher.group(2));
+            switch (matcher.group(1)) {
+                case ">=":
+                    timeRange[0] = Math.max(timeRange[0], value);
+                    break;
+                case ">":
+                    timeRange[0] = Math.max(timeRange[0], value + 1);
+                    break;
+                case "<":
+                    timeRange[1] = Math.min(timeRange[1], value);
+                    break;
+                case "<=":
+                    timeRange[1] = Math.min(timeRange[1], value + 1);
+                    break;
+                default:
+                    timeRange[0] = Math.max(timeRange[0], value);
+                    timeRange[1] = Math.min(timeRange[1], value + 1);
+            }
+        }
+        return timeRange;
+    }
+
+    private void insertStatement(Matcher matcher) throws StatementExecutionException {
+        String deviceId = matcher.group(1).trim();
+        boolean aligned = matcher.group(3) != null;
+        List<String> measurementList = splitList(matcher.group(2));
+        List<String> valueList = splitList(matcher.group(4));
+        if (measurementList.size() != valueList.size() || measurementList.size() < 2) {
+            throw new StatementExecutionException("the number of measurements and values is not equal");
+        }
+        MemoryTimeseriesStore.Device device = store.getDevice(deviceId);
+        List<String> measurements = new ArrayList<>();
+        List<TSDataType> dataTypes = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 1; i < measurementList.size(); i++) {
+            String value = valueList.get(i);
+            if ("null".equalsIgnoreCase(value)) {
+                continue;
+            }
+            MemoryTimeseriesStore.Series series = device == null ? null : device.getSeries(measurementList.get(i));
+            boolean quoted = value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'');
+            measurements.add(measurementList.get(i));
+            dataTypes.add(series != null ? series.getDataType() : inferType(value, quoted));
+            values.add(quoted ? value.substring(1, value.length() - 1) : value);
+        }
+        store.insert(deviceId, aligned, Long.parseLong(valueList.get(0)), measurements, dataTypes, values);
+    }
+
+    /**
+     * 序列不存在时按值推断类型：引号为TEXT，整数为INT64，小数为DOUBLE
+     */
+    private static TSDataType inferType(String value, boolean quoted) {
+        if (quoted) {
+            return TSDataType.TEXT;
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return TSDataType.BOOLEAN;
+        }
+        try {
+            Long.parseLong(value);
+            return TSDataType.INT64;
+        } catch (NumberFormatException e) {
+            try {
+                Double.parseDouble(value);
+                return TSDataType.DOUBLE;
+            } catch (NumberFormatException e1) {
+                return TSDataType.TEXT;
+            }
+        }
+    }
+
+    private void createAlignedStatement(Matcher matcher) throws StatementExecutionException {
+        String deviceId = matcher.group(1).trim();
+        List<String> failedList = new ArrayList<>();
+        for (String definition : splitList(matcher.group(2))) {
+            Matcher measurement = ALIGNED_MEASUREMENT.matcher(definition);
+            if (!measurement.matches()) {
+                throw new StatementExecutionException("illegal timeseries definition: " + definition);
+            }
+            TSDataType dataType = TSDataType.valueOf(measurement.group(2).toUpperCase(Locale.ROOT));
+            Map<String, String> attributes = attributes(measurement.group(3).trim().split("\\s+"));
+            try {
+                store.createTimeseries(deviceId + "." + measurement.group(1), dataType, encoding(attributes, dataType),
+                        compressor(attributes), null, true);
+            } catch (StatementExecutionException e) {
+                failedList.add(e.getMessage());
+            }
+        }
+        throwIfFailed(failedList);
+    }
+
+    private void createTimeseriesStatement(Matcher matcher) throws StatementExecutionException {
+        Map<String, String> attributes = attributes(matcher.group(2).split(","));
+        String dataType = attributes.get("datatype");
+        if (dataType == null) {
+            throw new StatementExecutionException("datatype is required: " + matcher.group(0));
+        }
+        TSDataType type = TSDataType.valueOf(dataType);
+        store.createTimeseries(matcher.group(1).trim(), type, encoding(attributes, type), compressor(attributes), null, false);
+    }
+
+    private static Map<String, String> attributes(String[] pairs) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String pair : pairs) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                attributes.put(pair.substring(0, index).trim().toLowerCase(Locale.ROOT),
+                        pair.substring(index + 1).trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        return attributes;
+    }
+
+    private static TSEncoding encoding(Map<String, String> attributes, TSDataType dataType) {
+        String encoding = attributes.get("encoding");
+        return encoding == null ? MemoryTimeseriesStore.defaultEncoding(dataType) : TSEncoding.valueOf(encoding);
+    }
+
+    private static CompressionType compressor(Map<String, String> attributes) {
+        String compressor = attributes.containsKey("compressor") ? attributes.get("compressor") : attributes.get("compression");
+        return compressor == null ? CompressionType.SNAPPY : CompressionType.valueOf(compressor);
+    }
+
+    private static String pattern(String pattern) {
+        return pattern == null ? "root.**" : pattern.trim();
+    }
+
+    private static <T> List<T> page(List<T> list, String limit, String offset) {
+        int from = offset == null ? 0 : Math.min(Integer.parseInt(offset), list.size());
+        int to = limit == null ? list.size() : (int) Math.min((long) from + Long.parseLong(limit), list.size());
+        return list.subList(from, to);
+    }
+
+    /**
+     * 按逗号切分，反引号、引号、括号内的逗号不切分
+     */
+    private static List<String> splitList(String text) {
+        List<String> list = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        char quote = 0;
+        int depth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '`' || c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                list.add(item.toString().trim());
+                item.setLength(0);
+                continue;
+            }
+            item.append(c);
+        }
+        list.add(item.toString().trim());
+        return list;
+    }
+
+    private static String trimStatement(String sql) {
+        String statement = sql.trim();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+        return statement;
+    }
+
+    @SafeVarargs
+    private static <T> List<T> listOf(T... values) {
+        List<T> list = new ArrayList<>(values.length);
+        Collections.addAll(list, values);
+        return list;
+    }
+}
@@ -0,0 +1,493 @@
+package org.apache.iotdb.utils.core.memory;
+
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * 内存中的时间序列存储，配合 MemorySession 代替 IoTDB server，用于测试和 benchmark
+ * 设备按路径排序，序列按创建顺序；每个序列的时间和值分别存放在数组中，按时间有序，相同时间覆盖
+ * latency 模拟每次请求（查询、写入、取下一页）的网络和server耗时，为0时不等待
+ */
+public class MemoryTimeseriesStore {
+
+    private final ConcurrentSkipListMap<String, Device> deviceMap = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong queryId = new AtomicLong();
+
+    private volatile long latencyNanos;
+
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * 收到的请求数，每次查询、写入、取下一页各算一次
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    long nextQueryId() {
+        return queryId.incrementAndGet();
+    }
+
+    /**
+     * 模拟一次请求的耗时
+     */
+    void request() {
+        requestCount.incrementAndGet();
+        long latency = latencyNanos;
+        if (latency <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + latency;
+        for (long remain = latency; remain > 0; remain = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remain);
+        }
+    }
+
+    public void createTimeseries(String path, TSDataType dataType, TSEncoding encoding, CompressionType compressor,
+                                 String alias, boolean aligned) throws StatementExecutionException {
+        List<String> nodes = splitPath(path);
+        if (nodes.size() < 3) {
+            throw new StatementExecutionException("illegal path: " + path);
+        }
+        String measurement = nodes.remove(nodes.size() - 1);
+        Device device = getOrCreateDevice(String.join(".", nodes), aligned);
+        synchronized (device) {
+            if (device.seriesMap.containsKey(unquote(measurement))) {
+                throw new StatementExecutionException("Path [" + path + "] already exist");
+            }
+            Series series = new Series(device.name + "." + measurement, dataType, encoding, compressor);
+            series.alias = alias;
+            device.seriesMap.put(unquote(measurement), series);
+        }
+    }
+
+    /**
+     * 写入一个设备的一行，序列不存在时按类型自动创建
+     */
+    public void insert(String deviceId, boolean aligned, long time, List<String> measurements,
+                       List<TSDataType> dataTypes, List<Object> values) throws StatementExecutionException {
+        Device device = getOrCreateDevice(deviceId, aligned);
+        for (int i = 0; i < measurements.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            Series series = getOrCreateSeries(device, measurements.get(i), dataTypes.get(i));
+            series.put(time, convert(value, series.dataType));
+        }
+    }
+
+    public void insertTablet(Tablet tablet, boolean aligned) throws StatementExecutionException {
+        Device device = getOrCreateDevice(tablet.deviceId, aligned);
+        List<MeasurementSchema> schemas = tablet.getSchemas();
+        for (int column = 0; column < schemas.size(); column++) {
+            MeasurementSchema schema = schemas.get(column);
+            Series series = getOrCreateSeries(device, schema.getMeasurementId(), schema.getType());
+            Object columnValues = tablet.values[column];
+            for (int row = 0; row < tablet.rowSize; row++) {
+                if (tablet.bitMaps != null && tablet.bitMaps[column] != null && tablet.bitMaps[column].isMarked(row)) {
+                    continue;
+                }
+                series.put(tablet.timestamps[row], convert(Array.get(columnValues, row), series.dataType));
+            }
+        }
+    }
+
+    /**
+     * 匹配路径的设备，按路径排序
+     */
+    public List<Device> devices(String pattern) {
+        List<String> patternNodes = unquote(splitPath(pattern));
+        List<Device> deviceList = new ArrayList<>();
+        for (Device device : deviceMap.values()) {
+            if (match(patternNodes, 0, device.nodes, 0)) {
+                deviceList.add(device);
+            }
+        }
+        return deviceList;
+    }
+
+    /**
+     * 匹配路径的序列
+     */
+    public List<Series> timeseries(String pattern) {
+        List<String> patternNodes = unquote(splitPath(pattern));
+        List<Series> seriesList = new ArrayList<>();
+        for (Device device : deviceMap.values()) {
+            synchronized (device) {
+                for (Map.Entry<String, Series> entry : device.seriesMap.entrySet()) {
+                    List<String> nodes = new ArrayList<>(device.nodes);
+                    nodes.add(entry.getKey());
+                    if (match(patternNodes, 0, nodes, 0)) {
+                        seriesList.add(entry.getValue());
+                    }
+                }
+            }
+        }
+        return seriesList;
+    }
+
+    public Device getDevice(String deviceId) {
+        return deviceMap.get(String.join(".", unquote(splitPath(deviceId))));
+    }
+
+    /**
+     * 读取一个序列的全部数据，TEXT 为 Binary，序列不存在时返回null
+     */
+    public TreeMap<Long, Object> read(String path) {
+        List<String> nodes = unquote(splitPath(path));
+        String measurement = nodes.remove(nodes.size() - 1);
+        Device device = deviceMap.get(String.join(".", nodes));
+        if (device == null) {
+            return null;
+        }
+        Series series = device.getSeries(measurement);
+        return series == null ? null : series.read();
+    }
+
+    public long pointCount() {
+        long count = 0;
+        for (Device device : deviceMap.values()) {
+            for (Series series : device.getSeriesList()) {
+                count += series.size();
+            }
+        }
+        return count;
+    }
+
+    public void clear() {
+        deviceMap.clear();
+    }
+
+    private Device getOrCreateDevice(String deviceId, boolean aligned) throws StatementExecutionException {
+        List<String> nodes = splitPath(deviceId);
+        if (nodes.size() < 2 || !"root".equals(nodes.get(0))) {
+            throw new StatementExecutionException("illegal device path: " + deviceId);
+        }
+        Device device = deviceMap.computeIfAbsent(String.join(".", unquote(nodes)), k -> new Device(deviceId, aligned));
+        if (device.aligned != aligned && !device.seriesMap.isEmpty()) {
+            throw new StatementExecutionException("device " + deviceId + " aligned is " + device.aligned);
+        }
+        return device;
+    }
+
+    private Series getOrCreateSeries(Device device, String measurement, TSDataType dataType) throws StatementExecutionException {
+        synchronized (device) {
+            String key = unquote(measurement);
+            Series series = device.seriesMap.get(key);
+            if (series == null) {
+                series = new Series(device.name + "." + measurement, dataType, defaultEncoding(dataType), CompressionType.SNAPPY);
+                device.seriesMap.put(key, series);
+            } else if (series.dataType != dataType) {
+                throw new StatementExecutionException("data type of " + series.path + " is " + series.dataType + ", not " + dataType);
+            }
+            return series;
+        }
+    }
+
+    /**
+     * 统一值的类型，TEXT 为 Binary；字符串形式的值（sql写入）按序列的类型解析
+     */
+    static Object convert(Object value, TSDataType dataType) throws StatementExecutionException {
+        try {
+            if (value instanceof String) {
+                String s = (String) value;
+                switch (dataType) {
+                    case BOOLEAN:
+                        return Boolean.parseBoolean(s);
+                    case INT32:
+                        return Integer.parseInt(s);
+                    case INT64:
+                        return Long.parseLong(s);
+                    case FLOAT:
+                        return Float.parseFloat(s);
+                    case DOUBLE:
+                        return Double.parseDouble(s);
+                    default:
+                        return Binary.valueOf(s);
+                }
+            }
+            if (value instanceof Binary) {
+                return dataType == TSDataType.TEXT ? value : convert(((Binary) value).getStringValue(), dataType);
+            }
+            switch (dataType) {
+                case BOOLEAN:
+                    return (Boolean) value;
+                case INT32:
+                    return ((Number) value).intValue();
+                case INT64:
+                    return ((Number) value).longValue();
+                case FLOAT:
+                    return ((Number) value).floatValue();
+                case DOUBLE:
+                    return ((Number) value).doubleValue();
+                default:
+                    return Binary.valueOf(String.valueOf(value));
+            }
+        } catch (ClassCastException | NumberFormatException e) {
+            throw new StatementExecutionException("value " + value + " is not " + dataType);
+        }
+    }
+
+    static TSEncoding defaultEncoding(TSDataType dataType) {
+        switch (dataType) {
+            case FLOAT:
+            case DOUBLE:
+                return TSEncoding.GORILLA;
+            case TEXT:
+                return TSEncoding.PLAIN;
+            default:
+                return TSEncoding.RLE;
+        }
+    }
+
+    /**
+     * 按 . 切分路径，反引号和引号内的 . 不切分
+     */
+    static List<String> splitPath(String path) {
+        List<String> nodes = new ArrayList<>();
+        StringBuilder node = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '`' || c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '.') {
+                nodes.add(node.toString());
+                node.setLength(0);
+                continue;
+            }
+            node.append(c);
+        }
+        nodes.add(node.toString());
+        return nodes;
+    }
+
+    static String unquote(String node) {
+        if (node.length() >= 2) {
+            char first = node.charAt(0);
+            if ((first == '`' || first == '"' || first == '\'') && node.charAt(node.length() - 1) == first) {
+                return node.substring(1, node.length() - 1);
+            }
+        }
+        return node;
+    }
+
+    private static List<String> unquote(List<String> nodes) {
+        List<String> result = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            result.add(unquote(node));
+        }
+        return result;
+    }
+
+    /**
+     * ** 匹配一个或多个节点，* 匹配一个节点，节点中的 * 匹配任意字符
+     */
+    private static boolean match(List<String> pattern, int p, List<String> nodes, int n) {
+        if (p == pattern.size()) {
+            return n == nodes.size();
+        }
+        if (n == nodes.size()) {
+            return false;
+        }
+        String node = pattern.get(p);
+        if ("**".equals(node)) {
+            for (int i = n + 1; i <= nodes.size(); i++) {
+                if (match(pattern, p + 1, nodes, i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node.indexOf('*') >= 0) {
+            String regex = Arrays.stream(node.split("\\*", -1)).map(Pattern::quote).reduce((a, b) -> a + ".*" + b).orElse("");
+            if (!nodes.get(n).matches(regex)) {
+                return false;
+            }
+        } else if (!node.equals(nodes.get(n))) {
+            return false;
+        }
+        return match(pattern, p + 1, nodes, n + 1);
+    }
+
+    public static class Device {
+
+        private final String name;
+
+        private final List<String> nodes;
+
+        private final boolean aligned;
+
+        private final LinkedHashMap<String, Series> seriesMap = new LinkedHashMap<>();
+
+        Device(String name, boolean aligned) {
+            this.name = name;
+            this.nodes = unquote(splitPath(name));
+            this.aligned = aligned;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isAligned() {
+            return aligned;
+        }
+
+        public synchronized List<Series> getSeriesList() {
+            return new ArrayList<>(seriesMap.values());
+        }
+
+        public synchronized Series getSeries(String measurement) {
+            return seriesMap.get(unquote(measurement));
+        }
+    }
+
+    /**
+     * 一个序列的数据，时间有序；乱序写入时插入到对应位置
+     */
+    public static class Series {
+
+        private final String path;
+
+        private final TSDataType dataType;
+
+        private final TSEncoding encoding;
+
+        private final CompressionType compressor;
+
+        private String alias;
+
+        private long[] times = new long[16];
+
+        private Object[] values = new Object[16];
+
+        private int size;
+
+        Series(String path, TSDataType dataType, TSEncoding encoding, CompressionType compressor) {
+            this.path = path;
+            this.dataType = dataType;
+            this.encoding = encoding;
+            this.compressor = compressor;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public TSDataType getDataType() {
+            return dataType;
+        }
+
+        public TSEncoding getEncoding() {
+            return encoding;
+        }
+
+        public CompressionType getCompressor() {
+            return compressor;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        synchronized void put(long time, Object value) {
+            int index = size;
+            if (size > 0 && times[size - 1] >= time) {
+                index = ceiling(time);
+                if (index < size && times[index] == time) {
+                    values[index] = value;
+                    return;
+                }
+            }
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(times, index, times, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            times[index] = time;
+            values[index] = value;
+            size++;
+        }
+
+        /**
+         * 复制时间在 [startTime, endTime) 内的数据，最多 limit 个
+         *
+         * @return 复制的个数
+         */
+        synchronized int copy(long startTime, long endTime, int limit, long[] timeBuffer, Object[] valueBuffer) {
+            int count = 0;
+            for (int i = ceiling(startTime); i < size && count < limit && times[i] < endTime; i++) {
+                timeBuffer[count] = times[i];
+                valueBuffer[count] = values[i];
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * [startTime, endTime) 内的最小和最大时间，没有数据返回null
+         */
+        synchronized long[] timeRange(long startTime, long endTime) {
+            int first = ceiling(startTime);
+            int last = ceiling(endTime) - 1;
+            if (first >= size || last < first) {
+                return null;
+            }
+            return new long[]{times[first], times[last]};
+        }
+
+        synchronized TreeMap<Long, Object> read() {
+            TreeMap<Long, Object> map = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put(times[i], values[i]);
+            }
+            return map;
+        }
+
+        /**
+         * 第一个时间大于等于 time 的下标
+         */
+        private int ceiling(long time) {
+            int index = Arrays.binarySearch(times, 0, size, time);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
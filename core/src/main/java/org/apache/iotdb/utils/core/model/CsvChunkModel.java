@@ -0,0 +1,44 @@
+package org.apache.iotdb.utils.core.model;
+
+import lombok.Data;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * csv文件的一个切片，同一文件的切片共用header和timeseries类型
+ * channel 为空时表示不能切分的输入流，整个流就是一个切片
+ */
+@Data
+public class CsvChunkModel {
+
+    private InputStream in;
+
+    //文件名，断点续传记录进度使用
+    private String fileName;
+
+    private FileChannel channel;
+
+    //起始位置（包含）
+    private long start;
+
+    //结束位置（不包含）
+    private long end;
+
+    private String[] headers;
+
+    private DeviceModel deviceModel;
+
+    //列名字典（不包含Time列），同一文件的切片共用，columnIndex[i] 为第i个header对应的列，Time列为-1
+    private String[] columnNames;
+
+    private int[] columnIndex;
+
+    //每列的类型，timeseries不存在时为null
+    private TSDataType[] dataTypes;
+
+    //同一文件未处理完的切片数，最后一个切片输出finish行并关闭文件
+    private AtomicInteger remainingChunk;
+}
@@ -18,4 +18,10 @@ public class DeviceModel implements Serializable {
     //是否是时间对齐的
     private boolean aligned;
 
+    /**
+     * 输出流（文件）对应的key，整个设备导出为一个文件时即为设备路径
+     */
+    public String streamKey() {
+        return deviceName;
+    }
 }
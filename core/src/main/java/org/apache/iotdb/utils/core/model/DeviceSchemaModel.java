@@ -0,0 +1,40 @@
+package org.apache.iotdb.utils.core.model;
+
+import lombok.Data;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备的元数据：是否对齐，以及设备下的timeseries（按 show timeseries 返回的顺序）
+ */
+@Data
+public class DeviceSchemaModel {
+
+    private String deviceName;
+
+    private boolean aligned;
+
+    private List<TimeseriesSchemaModel> timeseriesList = new ArrayList<>();
+
+    public DeviceModel toDeviceModel() {
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName(deviceName);
+        deviceModel.setAligned(aligned);
+        return deviceModel;
+    }
+
+    /**
+     * timeseries全路径和TSDataType的map
+     */
+    public Map<String, TSDataType> toTsDataTypeMap() {
+        Map<String, TSDataType> tsDataTypeMap = new HashMap<>();
+        for (TimeseriesSchemaModel timeseries : timeseriesList) {
+            tsDataTypeMap.put(timeseries.getTimeseries(), timeseries.getDataType());
+        }
+        return tsDataTypeMap;
+    }
+}
@@ -0,0 +1,30 @@
+package org.apache.iotdb.utils.core.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 按时间切片导出时，设备的一个时间片段
+ * 每个片段单独查询、单独输出为一个有序的分段文件
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DeviceSegmentModel extends DeviceModel {
+    public static final long serialVersionUID = 1L;
+    //片段序号，从0开始
+    private int segment;
+
+    //起始时间（包含）
+    private long startTime;
+
+    //结束时间（不包含）
+    private long endTime;
+
+    @Override
+    public String streamKey() {
+        if (segment == 0) {
+            return getDeviceName();
+        }
+        return getDeviceName() + "#" + segment;
+    }
+}
@@ -0,0 +1,470 @@
+package org.apache.iotdb.utils.core.model;
+
+import lombok.Data;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式的一批数据，数据源、channel、sink之间按批传递
+ * times 为时间列，values[i] 为第i列的基本类型数组（boolean[]/int[]/long[]/float[]/double[]/Binary[]），
+ * 列类型在第一个非空值写入时确定，整列为空时 dataTypes[i] 为null；
+ * bitMaps[i] 标记的位置为空值，与 Tablet 一致；
+ * columnNames 为列名字典，同一个流的所有batch共用一个数组，不要修改其中的元素
+ * 行式的 TimeSeriesRowModel 通过 toRowModels / fromRowModels 转换，供自定义的channel、sink使用
+ */
+@Data
+public class RowBatch {
+
+    //每个batch的单元格数量上限，列越多行数越少
+    public static final int CELL_BUDGET = 1 << 18;
+
+    public static final int MAX_ROWS = 15000;
+
+    private static final String FINISH_PREFIX = "finish,";
+
+    private DeviceModel deviceModel;
+
+    private String[] columnNames;
+
+    private TSDataType[] dataTypes;
+
+    private long[] times;
+
+    private Object[] values;
+
+    private BitMap[] bitMaps;
+
+    private int rowCount;
+
+    //导入时batch的来源，断点续传使用：文件名、文件中的切片（csv切片的起始位置，没有切分为0）、
+    //读取完这个batch后在切片中的位置（csv为行数，压缩文件为block数）
+    private String sourceFile;
+
+    private long sourcePart;
+
+    private long sourcePosition;
+
+    //无法转化为列式数据的sql语句，sink按顺序原样执行，此时batch没有数据
+    private List<String> statements;
+
+    public RowBatch(DeviceModel deviceModel, String[] columnNames, int capacity) {
+        this.deviceModel = deviceModel;
+        this.columnNames = columnNames;
+        this.dataTypes = new TSDataType[columnNames.length];
+        this.times = new long[capacity];
+        this.values = new Object[columnNames.length];
+        this.bitMaps = new BitMap[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            bitMaps[i] = new BitMap(Math.max(capacity, 1));
+            bitMaps[i].markAll();
+        }
+    }
+
+    /**
+     * 根据列数计算一个batch的行数
+     */
+    public static int batchRows(int columnSize) {
+        return Math.max(1, Math.min(MAX_ROWS, CELL_BUDGET / Math.max(columnSize, 1)));
+    }
+
+    /**
+     * 需要原样执行的sql语句
+     */
+    public static RowBatch statements(List<String> statements) {
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName("");
+        RowBatch batch = new RowBatch(deviceModel, new String[0], 0);
+        batch.setStatements(statements);
+        return batch;
+    }
+
+    /**
+     * 流结束标志，没有数据，设备名为 finish,streamKey
+     */
+    public static RowBatch finish(String streamKey) {
+        DeviceModel finishDeviceModel = new DeviceModel();
+        finishDeviceModel.setDeviceName(FINISH_PREFIX + streamKey);
+        return new RowBatch(finishDeviceModel, new String[0], 0);
+    }
+
+    public boolean isFinish() {
+        return deviceModel.getDeviceName().startsWith(FINISH_PREFIX);
+    }
+
+    public int getCapacity() {
+        return times.length;
+    }
+
+    public boolean isFull() {
+        return rowCount == times.length;
+    }
+
+    public int getColumnSize() {
+        return columnNames.length;
+    }
+
+    /**
+     * 追加一行，返回行号，该行的值默认全部为空
+     */
+    public int addRow(long time) {
+        times[rowCount] = time;
+        return rowCount++;
+    }
+
+    public boolean isNull(int column, int row) {
+        return bitMaps[column].isMarked(row);
+    }
+
+    /**
+     * 写入一个值，field 为空或没有类型时保持空值
+     */
+    public void put(int column, int row, Field field) {
+        if (field == null || field.getDataType() == null) {
+            return;
+        }
+        switch (field.getDataType()) {
+            case BOOLEAN:
+                putBoolean(column, row, field.getBoolV());
+                break;
+            case INT32:
+                putInt(column, row, field.getIntV());
+                break;
+            case INT64:
+                putLong(column, row, field.getLongV());
+                break;
+            case FLOAT:
+                putFloat(column, row, field.getFloatV());
+                break;
+            case DOUBLE:
+                putDouble(column, row, field.getDoubleV());
+                break;
+            case TEXT:
+                putBinary(column, row, field.getBinaryV());
+                break;
+            default:
+                throw new IllegalArgumentException(field.getDataType() + ": not support type");
+        }
+    }
+
+    public void put(int column, int row, FieldCopy field) {
+        if (field == null || field.getDataType() == null) {
+            return;
+        }
+        switch (field.getDataType()) {
+            case BOOLEAN:
+                putBoolean(column, row, field.getBoolV());
+                break;
+            case INT32:
+                putInt(column, row, field.getIntV());
+                break;
+            case INT64:
+                putLong(column, row, field.getLongV());
+                break;
+            case FLOAT:
+                putFloat(column, row, field.getFloatV());
+                break;
+            case DOUBLE:
+                putDouble(column, row, field.getDoubleV());
+                break;
+            case TEXT:
+                putBinary(column, row, field.getBinaryV());
+                break;
+            default:
+                throw new IllegalArgumentException(field.getDataType() + ": not support type");
+        }
+    }
+
+    public void putBoolean(int column, int row, boolean v) {
+        ((boolean[]) column(column, TSDataType.BOOLEAN))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    public void putInt(int column, int row, int v) {
+        ((int[]) column(column, TSDataType.INT32))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    public void putLong(int column, int row, long v) {
+        ((long[]) column(column, TSDataType.INT64))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    public void putFloat(int column, int row, float v) {
+        ((float[]) column(column, TSDataType.FLOAT))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    public void putDouble(int column, int row, double v) {
+        ((double[]) column(column, TSDataType.DOUBLE))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    public void putBinary(int column, int row, Binary v) {
+        if (v == null) {
+            return;
+        }
+        ((Binary[]) column(column, TSDataType.TEXT))[row] = v;
+        bitMaps[column].unmark(row);
+    }
+
+    /**
+     * 获取列数组，列类型还没确定时按 type 创建
+     */
+    public Object column(int column, TSDataType type) {
+        if (values[column] == null) {
+            dataTypes[column] = type;
+            values[column] = createColumn(type, times.length);
+        }
+        return values[column];
+    }
+
+    public Object getObjectValue(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        Object v = values[column];
+        switch (dataTypes[column]) {
+            case BOOLEAN:
+                return ((boolean[]) v)[row];
+            case INT32:
+                return ((int[]) v)[row];
+            case INT64:
+                return ((long[]) v)[row];
+            case FLOAT:
+                return ((float[]) v)[row];
+            case DOUBLE:
+                return ((double[]) v)[row];
+            case TEXT:
+                return ((Binary[]) v)[row];
+            default:
+                throw new IllegalArgumentException(dataTypes[column] + ": not support type");
+        }
+    }
+
+    /**
+     * 与 FieldCopy.getStringValue 相同的格式，空值返回 "null"
+     */
+    public String getStringValue(int column, int row) {
+        if (isNull(column, row)) {
+            return "null";
+        }
+        Object v = values[column];
+        switch (dataTypes[column]) {
+            case BOOLEAN:
+                return String.valueOf(((boolean[]) v)[row]);
+            case INT32:
+                return String.valueOf(((int[]) v)[row]);
+            case INT64:
+                return String.valueOf(((long[]) v)[row]);
+            case FLOAT:
+                return String.valueOf(((float[]) v)[row]);
+            case DOUBLE:
+                return String.valueOf(((double[]) v)[row]);
+            case TEXT:
+                return ((Binary[]) v)[row].toString();
+            default:
+                throw new IllegalArgumentException(dataTypes[column] + ": not support type");
+        }
+    }
+
+    public FieldCopy getField(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        FieldCopy field = new FieldCopy(dataTypes[column]);
+        Object v = values[column];
+        switch (dataTypes[column]) {
+            case BOOLEAN:
+                field.setBoolV(((boolean[]) v)[row]);
+                break;
+            case INT32:
+                field.setIntV(((int[]) v)[row]);
+                break;
+            case INT64:
+                field.setLongV(((long[]) v)[row]);
+                break;
+            case FLOAT:
+                field.setFloatV(((float[]) v)[row]);
+                break;
+            case DOUBLE:
+                field.setDoubleV(((double[]) v)[row]);
+                break;
+            case TEXT:
+                field.setBinaryV(((Binary[]) v)[row]);
+                break;
+            default:
+                throw new IllegalArgumentException(dataTypes[column] + ": not support type");
+        }
+        return field;
+    }
+
+    /**
+     * 不带设备前缀的列名，如 root.sg.d1.s1 转化为 s1
+     */
+    public String[] measurements() {
+        String prefix = deviceModel.getDeviceName() + ".";
+        String[] measurements = new String[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            measurements[i] = columnNames[i].replace(prefix, "");
+        }
+        return measurements;
+    }
+
+    /**
+     * 只保留时间在[startTime, endTime]内的行，为空表示不限制，行在数组内前移，不重新分配
+     */
+    public void retainTimeRange(Long startTime, Long endTime) {
+        if (startTime == null && endTime == null) {
+            return;
+        }
+        int size = 0;
+        for (int row = 0; row < rowCount; row++) {
+            long time = times[row];
+            if ((startTime != null && time < startTime) || (endTime != null && time > endTime)) {
+                continue;
+            }
+            if (size != row) {
+                times[size] = time;
+                for (int column = 0; column < columnNames.length; column++) {
+                    if (isNull(column, row)) {
+                        bitMaps[column].mark(size);
+                        continue;
+                    }
+                    if (dataTypes[column] == TSDataType.BOOLEAN) {
+                        boolean[] v = (boolean[]) values[column];
+                        v[size] = v[row];
+                    } else {
+                        System.arraycopy(values[column], row, values[column], size, 1);
+                    }
+                    bitMaps[column].unmark(size);
+                }
+            }
+            size++;
+        }
+        for (int column = 0; column < columnNames.length; column++) {
+            for (int row = size; row < rowCount; row++) {
+                bitMaps[column].mark(row);
+            }
+        }
+        rowCount = size;
+    }
+
+    /**
+     * 转化为Tablet，整列为空的列不写入；值数组直接交给Tablet，不复制，转化后batch不能再修改
+     */
+    public Tablet toTablet(String deviceId) {
+        List<MeasurementSchema> schemaList = new ArrayList<>();
+        List<Integer> columnList = new ArrayList<>();
+        for (int column = 0; column < columnNames.length; column++) {
+            if (dataTypes[column] != null) {
+                schemaList.add(new MeasurementSchema(columnNames[column], dataTypes[column]));
+                columnList.add(column);
+            }
+        }
+        Tablet tablet = new Tablet(deviceId, schemaList, 0);
+        tablet.timestamps = times;
+        tablet.values = new Object[columnList.size()];
+        tablet.bitMaps = new BitMap[columnList.size()];
+        //TEXT列空值位置也需要有对象，序列化时不会判断null
+        Binary empty = Binary.valueOf("");
+        for (int i = 0; i < columnList.size(); i++) {
+            int column = columnList.get(i);
+            if (dataTypes[column] == TSDataType.TEXT) {
+                Binary[] v = (Binary[]) values[column];
+                for (int row = 0; row < rowCount; row++) {
+                    if (v[row] == null) {
+                        v[row] = empty;
+                    }
+                }
+            }
+            tablet.values[i] = values[column];
+            tablet.bitMaps[i] = bitMaps[column];
+        }
+        tablet.rowSize = rowCount;
+        return tablet;
+    }
+
+    /**
+     * 转化为行，空值的IField的field为null；结束标志转化为一个没有数据的行
+     */
+    public List<TimeSeriesRowModel> toRowModels() {
+        List<TimeSeriesRowModel> rowModelList = new ArrayList<>(Math.max(rowCount, 1));
+        if (isFinish()) {
+            TimeSeriesRowModel finishRowModel = new TimeSeriesRowModel();
+            finishRowModel.setDeviceModel(deviceModel);
+            finishRowModel.setIFieldList(new ArrayList<>());
+            rowModelList.add(finishRowModel);
+            return rowModelList;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            TimeSeriesRowModel rowModel = new TimeSeriesRowModel();
+            rowModel.setTimestamp(String.valueOf(times[row]));
+            rowModel.setDeviceModel(deviceModel);
+            List<IField> iFieldList = new ArrayList<>(columnNames.length);
+            for (int column = 0; column < columnNames.length; column++) {
+                IField iField = new IField();
+                iField.setColumnName(columnNames[column]);
+                iField.setField(getField(column, row));
+                iFieldList.add(iField);
+            }
+            rowModel.setIFieldList(iFieldList);
+            rowModelList.add(rowModel);
+        }
+        return rowModelList;
+    }
+
+    /**
+     * 同一设备的多行转化为一个batch，列为所有行中出现过的列，按第一次出现的顺序
+     */
+    public static RowBatch fromRowModels(List<TimeSeriesRowModel> rowModelList) {
+        if (rowModelList.isEmpty()) {
+            throw new IllegalArgumentException("row model list is empty");
+        }
+        DeviceModel deviceModel = rowModelList.get(0).getDeviceModel();
+        if (deviceModel.getDeviceName().startsWith(FINISH_PREFIX)) {
+            return new RowBatch(deviceModel, new String[0], 0);
+        }
+        Map<String, Integer> columnIndexMap = new LinkedHashMap<>();
+        for (TimeSeriesRowModel rowModel : rowModelList) {
+            for (IField iField : rowModel.getIFieldList()) {
+                columnIndexMap.putIfAbsent(iField.getColumnName(), columnIndexMap.size());
+            }
+        }
+        RowBatch batch = new RowBatch(deviceModel, columnIndexMap.keySet().toArray(new String[0]), rowModelList.size());
+        for (TimeSeriesRowModel rowModel : rowModelList) {
+            int row = batch.addRow(Long.parseLong(rowModel.getTimestamp()));
+            for (IField iField : rowModel.getIFieldList()) {
+                batch.put(columnIndexMap.get(iField.getColumnName()), row, iField.getField());
+            }
+        }
+        return batch;
+    }
+
+    private static Object createColumn(TSDataType type, int capacity) {
+        switch (type) {
+            case BOOLEAN:
+                return new boolean[capacity];
+            case INT32:
+                return new int[capacity];
+            case INT64:
+                return new long[capacity];
+            case FLOAT:
+                return new float[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            case TEXT:
+                return new Binary[capacity];
+            default:
+                throw new IllegalArgumentException(type + ": not support type");
+        }
+    }
+}
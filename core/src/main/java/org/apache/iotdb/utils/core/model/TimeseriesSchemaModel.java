@@ -0,0 +1,22 @@
+package org.apache.iotdb.utils.core.model;
+
+import lombok.Data;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+/**
+ * show timeseries 返回的一条timeseries的元数据
+ */
+@Data
+public class TimeseriesSchemaModel {
+
+    //timeseries 全路径
+    private String timeseries;
+
+    private TSDataType dataType;
+
+    private TSEncoding encoding;
+
+    private CompressionType compressor;
+}
@@ -0,0 +1,152 @@
+package org.apache.iotdb.utils.core.parse;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析导出工具生成的insert语句：insert into <device>(time,m1,m2...) [aligned] values(t,v1,v2...)
+ * 只做语法上的切分，值保持为字符串，类型由timeseries决定；
+ * 路径中反引号内的字符、值中引号内的字符不作为分隔符。多行values、时间不是数字等其他格式返回null，按原语句执行
+ */
+public class InsertStatementParser {
+
+    private static final String INSERT_INTO = "insert into";
+
+    private static final String ALIGNED = "aligned";
+
+    private static final String VALUES = "values";
+
+    private InsertStatementParser() {
+    }
+
+    /**
+     * @param sql 一行sql，结尾的分号可有可无
+     * @return 不是可以识别的insert语句时返回null
+     */
+    public static InsertStatement parse(String sql) {
+        String s = sql.trim();
+        while (s.endsWith(";")) {
+            s = s.substring(0, s.length() - 1).trim();
+        }
+        if (!s.regionMatches(true, 0, INSERT_INTO, 0, INSERT_INTO.length())) {
+            return null;
+        }
+        int open = indexOutsideQuote(s, '(', INSERT_INTO.length());
+        if (open < 0) {
+            return null;
+        }
+        int close = indexOutsideQuote(s, ')', open + 1);
+        if (close < 0) {
+            return null;
+        }
+        String device = s.substring(INSERT_INTO.length(), open).trim();
+        List<String> columns = split(s.substring(open + 1, close));
+        if (device.isEmpty() || columns == null || columns.size() < 2 || !isTimeColumn(columns.get(0))) {
+            return null;
+        }
+
+        String rest = s.substring(close + 1).trim();
+        boolean aligned = false;
+        if (rest.regionMatches(true, 0, ALIGNED, 0, ALIGNED.length())) {
+            aligned = true;
+            rest = rest.substring(ALIGNED.length()).trim();
+        }
+        if (!rest.regionMatches(true, 0, VALUES, 0, VALUES.length())) {
+            return null;
+        }
+        rest = rest.substring(VALUES.length()).trim();
+        if (!rest.startsWith("(") || !rest.endsWith(")")) {
+            return null;
+        }
+        List<String> values = split(rest.substring(1, rest.length() - 1));
+        if (values == null || values.size() != columns.size()) {
+            return null;
+        }
+        long time;
+        try {
+            time = Long.parseLong(values.get(0));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        InsertStatement statement = new InsertStatement();
+        statement.setDevice(device);
+        statement.setAligned(aligned);
+        statement.setTime(time);
+        statement.setMeasurements(columns.subList(1, columns.size()));
+        statement.setValues(values.subList(1, values.size()));
+        return statement;
+    }
+
+    private static boolean isTimeColumn(String column) {
+        return "time".equalsIgnoreCase(column) || "timestamp".equalsIgnoreCase(column);
+    }
+
+    //引号、反引号之外的字符位置
+    private static int indexOutsideQuote(String s, char c, int from) {
+        char quote = 0;
+        for (int i = from; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '`' || ch == '"' || ch == '\'') {
+                quote = ch;
+            } else if (ch == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按引号之外的逗号切分，去掉两端空白；引号之外出现括号（多行values）或引号没有结束时返回null
+     */
+    private static List<String> split(String s) {
+        List<String> list = new ArrayList<>();
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '`' || ch == '"' || ch == '\'') {
+                quote = ch;
+            } else if (ch == '(' || ch == ')') {
+                return null;
+            } else if (ch == ',') {
+                list.add(s.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        if (quote != 0) {
+            return null;
+        }
+        list.add(s.substring(start).trim());
+        return list;
+    }
+
+    /**
+     * 一行insert语句
+     */
+    @Data
+    public static class InsertStatement {
+
+        private String device;
+
+        private boolean aligned;
+
+        private long time;
+
+        //不包含time列
+        private List<String> measurements;
+
+        //与measurements一一对应的值，保持语句中的字符串，TEXT带引号
+        private List<String> values;
+    }
+}
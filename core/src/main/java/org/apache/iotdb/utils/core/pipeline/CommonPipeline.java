@@ -6,119 +6,106 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
-import reactor.util.context.Context;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 @Data
 @Slf4j
 public class CommonPipeline implements Pipeline {
 
-    private List<Component> componentChain;
+    private List<PipelineBranch> branchList;
 
     private PipelineContext<IECommonModel> pipelineContext = new PipelineContext<>();
 
     private List<Disposable> disposableList = new ArrayList<>();
 
+    //结束时统计完成的行数，写入 PipelineResult
+    private Supplier<Long> finishedRowNum;
+
     /**
-     * 某些情况，需要等到任务执行结束，参考代码
-     * while (!disposable.isDisposed()){
-     * Thread.sleep(1000);
-     * }
+     * 按分支的依赖关系运行，没有依赖的分支同时开始，分支的依赖都结束后立即开始，不需要等待的线程
+     * 某个分支出错时记录异常，依赖它的分支仍然执行，所有分支结束后以 ON_ERROR 结束
+     * 需要等到任务执行结束时使用返回的 PipelineHandle：handle.join() 或 handle.completion()
      *
      * @return
      */
     @Override
-    public Disposable start() {
-        Iterator<Component> it = componentChain.iterator();
-        if (it.hasNext()) {
-            return syncRun(it, null);
+    public PipelineHandle start() {
+        PipelineHandle handle = new PipelineHandle();
+        long startTime = System.currentTimeMillis();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Map<String, Sinks.Empty<Void>> finishedMap = new HashMap<>();
+        List<Mono<Void>> branchMonoList = new ArrayList<>();
+        if (branchList != null) {
+            for (PipelineBranch branch : branchList) {
+                List<Mono<Void>> dependencyList = new ArrayList<>();
+                for (String dependency : branch.getDependencies()) {
+                    dependencyList.add(finishedMap.get(dependency).asMono());
+                }
+                Sinks.Empty<Void> finished = Sinks.empty();
+                finishedMap.put(branch.getName(), finished);
+                branchMonoList.add(Mono.when(dependencyList)
+                        .then(run(branch, error))
+                        .doFinally(signalType -> finished.tryEmitEmpty()));
+            }
         }
-        return null;
-    }
-
-    private Disposable syncRun(Iterator<Component> it, Disposable disposable) {
-        Component component = it.next();
-        Flux pipelineFlux = Flux.just("------------------pipeline start------------- \r\n");
-        if (disposable != null) {
-            Disposable finalDisposable = disposable;
-            pipelineFlux = pipelineFlux
-                    .publishOn(Schedulers.newSingle("single"))
-                    .flatMap(s -> {
-                        while (!finalDisposable.isDisposed()) {
-                            try {
-                                Thread.sleep(1000);
-                            } catch (InterruptedException e) {
-                                log.error("异常信息:", e);
-                            }
-                        }
-                        return Flux.just(s);
-                    });
-        }
-        pipelineFlux = pipelineFlux
-                .transform((Function<? super Flux, Flux>) component.execute())
-                .contextWrite(ctx -> ((Context) ctx).put("pipelineContext", pipelineContext));
-
-        if (it.hasNext()) {
-            disposable = pipelineFlux
-                    .subscribe();
-            disposableList.add(disposable);
-            return syncRun(it, disposable);
-        } else {
-            disposable = pipelineFlux
-                    .doFinally(type->{
-                        SignalType signalType = (SignalType) type;
-                        //提供回调
-                        IECommonModel ieCommonModel = pipelineContext.getModel();
-                        if(ieCommonModel.getConsumer() != null){
+        Disposable disposable = Mono.when(branchMonoList)
+                .then(Mono.defer(() -> error.get() == null ? Mono.<Void>empty() : Mono.<Void>error(error.get())))
+                .doFinally(signalType -> {
+                    //提供回调
+                    IECommonModel ieCommonModel = pipelineContext.getModel();
+                    if (ieCommonModel.getSessionPool() != null) {
+                        ieCommonModel.getSessionPool().close();
+                        ieCommonModel.setSessionPool(null);
+                    }
+                    try {
+                        if (ieCommonModel.getConsumer() != null) {
                             ieCommonModel.getConsumer().accept(signalType);
                         }
-                    })
-                    .subscribe();
-            disposableList.add(disposable);
-            return disposable;
-        }
+                    } finally {
+                        PipelineResult result = new PipelineResult();
+                        result.setSignalType(signalType);
+                        result.setError(error.get());
+                        result.setStartTime(startTime);
+                        result.setEndTime(System.currentTimeMillis());
+                        result.setFinishedRowNum(finishedRowNum == null ? null : finishedRowNum.get());
+                        handle.complete(result);
+                    }
+                })
+                .subscribe(null, e -> log.error("异常信息:", e));
+        handle.setSubscription(disposable);
+        disposableList.add(handle);
+        return handle;
     }
 
-
     /**
-     * 暂时没用到
-     * 某些情况，需要等到任务执行结果，参考代码
-     * while(true){
-     * List flags = disposableList.stream().map(s->{
-     * return s.isDisposed();
-     * }).collect(Collectors.toList());
-     * if(!flags.contains(false)){
-     * return;
-     * }
-     * try{
-     * Thread.sleep(1000);
-     * } catch (InterruptedException e) {
-     * }
-     * }
-     *
-     * @return
+     * 订阅时才组装分支，在 boundedElastic 上订阅，数据源在订阅时的阻塞查询不会影响同时开始的其他分支
+     * 出错时记录第一个异常后正常结束
      */
-    private List<Disposable> startParallel() {
-        List<Disposable> disposableList = componentChain.parallelStream().map(wrapper -> {
-            Flux pipelineFlux = Flux.just("------------------pipeline start------------- \r\n");
-            pipelineFlux = pipelineFlux
-                    .transform((Function<? super Flux, Flux>) wrapper.execute());
-            Disposable disposable = pipelineFlux
-                    .contextWrite(ctx -> ((Context) ctx).put("pipelineContext", pipelineContext))
-                    .doOnTerminate(() -> log.info("pipeline complate!"))
-                    .subscribe();
-            return disposable;
-        })
-                .collect(Collectors.toList());
-        return disposableList;
+    private Mono<Void> run(PipelineBranch branch, AtomicReference<Throwable> error) {
+        return Flux.defer(() -> execute(branch.getSource()))
+                .contextWrite(ctx -> ctx.put("pipelineContext", pipelineContext))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then()
+                .onErrorResume(e -> {
+                    log.error("分支 {} 异常信息:", branch.getName(), e);
+                    error.compareAndSet(null, e);
+                    return Mono.empty();
+                });
+    }
+
+    private Flux<Object> execute(Component component) {
+        Flux pipelineFlux = Flux.just("------------------pipeline start------------- \r\n");
+        return pipelineFlux.transform((Function<? super Flux, Flux>) component.execute());
     }
 
     @Override
@@ -129,6 +116,11 @@ public class CommonPipeline implements Pipeline {
     }
 
 
+    public CommonPipeline withFinishedRowNum(Supplier<Long> finishedRowNum) {
+        this.finishedRowNum = finishedRowNum;
+        return this;
+    }
+
     public CommonPipeline withContext(PipelineContext context) {
         this.pipelineContext = pipelineContext;
         return this;
@@ -0,0 +1,87 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ParallelFlux;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 一个数据源同时输出到多个sink
+ * 按rail广播：源的第i个rail只发给每个sink的第i个rail，同一设备仍然在同一个rail上；
+ * 所有sink都订阅后才开始，各sink共用背压，最慢的sink决定源的速度
+ */
+public class FanOutSink<T> extends PipeSink<T, Object> {
+
+    private final List<PipeSink<T, ?>> sinkList;
+
+    public FanOutSink(List<PipeSink<T, ?>> sinkList) {
+        this.sinkList = sinkList;
+    }
+
+    public List<PipeSink<T, ?>> getSinkList() {
+        return sinkList;
+    }
+
+    @Override
+    public Function<ParallelFlux<T>, ParallelFlux<Object>> doExecute() {
+        return flux -> {
+            int rails = flux.parallelism();
+            int size = sinkList.size();
+            //每个rail一个publish，等所有sink的对应rail都订阅后再连接
+            Flux<Tuple2<Integer, Flux<T>>> groups = flux.groups()
+                    .map(group -> Tuples.of(group.key(), group.publish().autoConnect(size)))
+                    .replay()
+                    .autoConnect(size * rails);
+            List<Flux<Object>> outputs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                List<Flux<T>> railList = new ArrayList<>(rails);
+                for (int rail = 0; rail < rails; rail++) {
+                    int key = rail;
+                    railList.add(groups.filter(group -> group.getT1() == key)
+                            .next()
+                            .flatMapMany(Tuple2::getT2));
+                }
+                Function<? super ParallelFlux<T>, ? extends ParallelFlux<?>> sink = sinkList.get(i).execute();
+                outputs.add(sink.apply(parallel(railList)).sequential().cast(Object.class));
+            }
+            return parallel(outputs);
+        };
+    }
+
+    /**
+     * 按顺序把每个Flux作为一个rail组成ParallelFlux，数组只用于传参，元素都是 Flux<T>
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> ParallelFlux<T> parallel(List<Flux<T>> railList) {
+        return ParallelFlux.from((Publisher<T>[]) railList.toArray(new Publisher<?>[0]));
+    }
+
+    /**
+     * 最慢的sink的进度
+     */
+    @Override
+    public Double[] rateOfProcess() {
+        return slowest().rateOfProcess();
+    }
+
+    @Override
+    public Long finishedRowNum() {
+        return slowest().finishedRowNum();
+    }
+
+    private PipeSink<T, ?> slowest() {
+        PipeSink<T, ?> slowest = sinkList.get(0);
+        for (PipeSink<T, ?> sink : sinkList) {
+            Long finished = sink.finishedRowNum();
+            if (finished != null && (slowest.finishedRowNum() == null || finished < slowest.finishedRowNum())) {
+                slowest = sink;
+            }
+        }
+        return slowest;
+    }
+}
@@ -1,8 +1,11 @@
 package org.apache.iotdb.utils.core.pipeline;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
 import reactor.core.publisher.ParallelFlux;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 
 @Slf4j
@@ -20,4 +23,36 @@ public abstract class PipeSink<T,R> implements Component <Function<ParallelFlux<
 
     public abstract Long finishedRowNum();
 
+    /**
+     * 把一个buffer按设备切分成连续的片段（subList，不复制数据）
+     * 数据源每个rail同一时间只处理一个设备的流（concatMap），同一设备的数据在rail上是连续的，
+     * 不需要再用map按设备重新分组；结束标志的key不同，单独成为一个片段
+     *
+     * @param rows
+     * @param keyFunction 设备对应的key，如 streamKey、deviceName
+     * @return
+     */
+    public static List<List<TimeSeriesRowModel>> splitByDevice(List<TimeSeriesRowModel> rows,
+                                                               Function<TimeSeriesRowModel, String> keyFunction) {
+        List<List<TimeSeriesRowModel>> runs = new ArrayList<>();
+        int start = 0;
+        String key = null;
+        for (int i = 0; i < rows.size(); i++) {
+            TimeSeriesRowModel row = rows.get(i);
+            //同一个流的行共用一个DeviceModel，先比较引用
+            if (i > start && row.getDeviceModel() == rows.get(i - 1).getDeviceModel()) {
+                continue;
+            }
+            String rowKey = keyFunction.apply(row);
+            if (i > start && !rowKey.equals(key)) {
+                runs.add(rows.subList(start, i));
+                start = i;
+            }
+            key = rowKey;
+        }
+        if (start < rows.size()) {
+            runs.add(rows.subList(start, rows.size()));
+        }
+        return runs;
+    }
 }
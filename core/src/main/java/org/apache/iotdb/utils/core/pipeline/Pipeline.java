@@ -1,7 +1,5 @@
 package org.apache.iotdb.utils.core.pipeline;
 
-import reactor.core.Disposable;
-
 import java.io.IOException;
 
 /**
@@ -9,7 +7,7 @@ import java.io.IOException;
  */
 public interface Pipeline {
 
-    Disposable start() throws IOException;
+    PipelineHandle start() throws IOException;
 
     void shutDown();
 
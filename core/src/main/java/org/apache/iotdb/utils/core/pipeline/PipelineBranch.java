@@ -0,0 +1,20 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * pipeline 中的一个分支，source -> channel -> sink
+ * dependencies 中的分支都结束后才开始，为空时和其他没有依赖的分支同时开始
+ */
+@Data
+public class PipelineBranch {
+
+    private String name;
+
+    private Component<?> source;
+
+    private List<String> dependencies = new ArrayList<>();
+}
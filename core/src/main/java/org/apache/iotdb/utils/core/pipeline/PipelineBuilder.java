@@ -1,43 +1,69 @@
 package org.apache.iotdb.utils.core.pipeline;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
 
+/**
+ * 每个 source 开始一个分支，默认依赖前一个分支，按声明的顺序执行
+ * sink 之后可以用 name/dependsOn 指定分支的名称和依赖，dependsOn() 不传参数时与其他分支同时执行；
+ * 依赖多个分支时（fan-in）所有依赖都结束后才开始，sinks 把一个数据源同时输出到多个sink（fan-out）
+ */
 public class PipelineBuilder{
 
-    private List<Component> componentChain;
+    private List<PipelineBranch> branchList = new ArrayList<>();
+
+    //未指定依赖的分支，build时设置为前一个分支；分支的名称和依赖会修改，按引用比较
+    private Set<PipelineBranch> defaultDependencies = Collections.newSetFromMap(new IdentityHashMap<>());
 
     private SourceBuilder sourceBuilder = new SourceBuilder();
     private ChannelBuilder channelBuilder = new ChannelBuilder();
     private SinkBuilder sinkBuilder = new SinkBuilder();
 
     public CommonPipeline build(){
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < branchList.size(); i++) {
+            PipelineBranch branch = branchList.get(i);
+            if (defaultDependencies.contains(branch) && i > 0) {
+                branch.getDependencies().add(branchList.get(i - 1).getName());
+            }
+            //只能依赖前面声明的分支，不会有环
+            for (String dependency : branch.getDependencies()) {
+                if (!names.contains(dependency)) {
+                    throw new IllegalArgumentException(branch.getName() + ": unknown or later dependency " + dependency);
+                }
+            }
+            if (!names.add(branch.getName())) {
+                throw new IllegalArgumentException("duplicate branch name " + branch.getName());
+            }
+        }
+        defaultDependencies.clear();
         CommonPipeline pipeline = new CommonPipeline();
-        pipeline.setComponentChain(componentChain);
+        pipeline.setBranchList(branchList);
         return pipeline;
     }
 
     public SourceBuilder source(PipeSource source){
-        if(componentChain == null){
-            componentChain = new ArrayList<>();
-        }
-        PipeComponent component;
-        component = source;
-        componentChain.add(component);
-        sourceBuilder.wrapper = component;
+        PipelineBranch branch = new PipelineBranch();
+        branch.setName("branch-" + branchList.size());
+        branch.setSource(source);
+        branchList.add(branch);
+        defaultDependencies.add(branch);
+        sourceBuilder.wrapper = source;
         return sourceBuilder;
     }
 
     public SourceBuilder source(Supplier<? extends PipeSource> supplier){
-        if(componentChain == null){
-            componentChain = new ArrayList<>();
-        }
-        PipeComponent wrapper;
-        wrapper = supplier.get();
-        componentChain.add(wrapper);
-        sourceBuilder.wrapper = wrapper;
-        return sourceBuilder;
+        return source(supplier.get());
+    }
+
+    private PipelineBranch currentBranch(){
+        return branchList.get(branchList.size() - 1);
     }
 
     private ChannelBuilder channel(PipeChannel channel, PipeComponent parent){
@@ -85,9 +111,25 @@ public class PipelineBuilder{
         public SinkBuilder sink(Supplier<? extends PipeSink> supplier){
             return PipelineBuilder.this.sink(supplier.get(),wrapper);
         }
+
+        @SafeVarargs
+        public final <T> SinkBuilder sinks(PipeSink<T, ?>... sinks){
+            return PipelineBuilder.this.sink(new FanOutSink<>(Arrays.asList(sinks)),wrapper);
+        }
     }
 
     public class SinkBuilder{
+        public SinkBuilder name(String name){
+            currentBranch().setName(name);
+            return this;
+        }
+
+        public SinkBuilder dependsOn(String... names){
+            defaultDependencies.remove(currentBranch());
+            currentBranch().getDependencies().addAll(Arrays.asList(names));
+            return this;
+        }
+
         public SourceBuilder source(PipeSource source){
             return PipelineBuilder.this.source(source);
         }
@@ -0,0 +1,84 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * pipeline 的运行句柄，所有pipeline结束（回调执行完）后 future 完成
+ * 等待结束不需要轮询 isDisposed，使用 join()/await() 或者 completion() 串联后续的任务
+ */
+public class PipelineHandle implements Disposable {
+
+    private final Disposable.Swap subscription = Disposables.swap();
+
+    private final CompletableFuture<PipelineResult> future = new CompletableFuture<>();
+
+    //以下两个方法由starter在订阅和结束时调用
+    public void setSubscription(Disposable disposable) {
+        subscription.update(disposable);
+    }
+
+    public void complete(PipelineResult result) {
+        future.complete(result);
+    }
+
+    /**
+     * 取消 future 不会停止pipeline，停止请使用 dispose()
+     */
+    public CompletableFuture<PipelineResult> future() {
+        return future;
+    }
+
+    /**
+     * 取消订阅不会停止pipeline
+     */
+    public Mono<PipelineResult> completion() {
+        return Mono.create(sink -> future.whenComplete((result, e) -> {
+            if (e != null) {
+                sink.error(e);
+            } else {
+                sink.success(result);
+            }
+        }));
+    }
+
+    public PipelineResult join() {
+        return future.join();
+    }
+
+    /**
+     * @return 超时返回null
+     */
+    public PipelineResult await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            return future.get(timeout, unit);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @Override
+    public void dispose() {
+        subscription.dispose();
+    }
+
+    /**
+     * 结束回调执行完之后才为true
+     */
+    @Override
+    public boolean isDisposed() {
+        return future.isDone();
+    }
+}
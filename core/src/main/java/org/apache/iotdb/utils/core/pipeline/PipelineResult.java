@@ -0,0 +1,32 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import lombok.Data;
+import reactor.core.publisher.SignalType;
+
+/**
+ * pipeline 运行结束后的汇总
+ */
+@Data
+public class PipelineResult {
+
+    //ON_COMPLETE 正常结束，ON_ERROR 出错，CANCEL 被shutDown
+    private SignalType signalType;
+
+    //第一个出错的pipeline的异常，出错后后面的pipeline仍会执行
+    private Throwable error;
+
+    private long startTime;
+
+    private long endTime;
+
+    //sink完成的行数，starter未提供时为空
+    private Long finishedRowNum;
+
+    public boolean isSuccess() {
+        return signalType == SignalType.ON_COMPLETE && error == null;
+    }
+
+    public long getElapsedMillis() {
+        return endTime - startTime;
+    }
+}
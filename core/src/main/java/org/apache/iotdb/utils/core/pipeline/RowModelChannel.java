@@ -0,0 +1,46 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 行式处理的channel适配器，数据源和sink之间传递的是RowBatch，
+ * 自定义的channel需要按行处理时继承这个类，实现 transform；
+ * batch 先转化为TimeSeriesRowModel，处理后再转化回RowBatch，结束标志不经过 transform
+ */
+public abstract class RowModelChannel extends TransformChannel<RowBatch, RowBatch> {
+
+    @Override
+    public Function<RowBatch, RowBatch> transformer(ContextView contextView) {
+        return batch -> {
+            if (batch.isFinish()) {
+                return batch;
+            }
+            List<TimeSeriesRowModel> rowModelList = new ArrayList<>(batch.getRowCount());
+            for (TimeSeriesRowModel rowModel : batch.toRowModels()) {
+                TimeSeriesRowModel result = transform(rowModel);
+                if (result != null) {
+                    rowModelList.add(result);
+                }
+            }
+            //全部被过滤时保留一个空的batch，列名字典不变
+            if (rowModelList.isEmpty()) {
+                return new RowBatch(batch.getDeviceModel(), batch.getColumnNames(), 0);
+            }
+            return RowBatch.fromRowModels(rowModelList);
+        };
+    }
+
+    /**
+     * 处理一行数据
+     *
+     * @param rowModel
+     * @return 处理后的行，返回null表示过滤掉这一行
+     */
+    public abstract TimeSeriesRowModel transform(TimeSeriesRowModel rowModel);
+}
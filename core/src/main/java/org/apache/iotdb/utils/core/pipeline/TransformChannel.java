@@ -0,0 +1,171 @@
+package org.apache.iotdb.utils.core.pipeline;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 同步转化的channel，每个元素直接调用一次转化函数，不再为每个元素创建publisher、读取上下文
+ * transformer 在每个rail订阅时调用一次，上下文在这里解析，返回的函数只被这个rail的线程使用，可以保存rail内的状态；
+ * 相邻的 TransformChannel 合并成一个阶段，函数依次调用，最后一个channel的下一个组件接着执行
+ * 转化函数返回null时丢弃这个元素
+ */
+public abstract class TransformChannel<T, R> extends PipeChannel<T, R, Function<ParallelFlux<T>, ParallelFlux<R>>> {
+
+    /**
+     * 每个rail调用一次
+     *
+     * @param contextView 订阅的上下文，包含 pipelineContext 等
+     * @return 处理单个元素的函数
+     */
+    public abstract Function<T, R> transformer(ContextView contextView);
+
+    @Override
+    public Function<ParallelFlux<T>, ParallelFlux<R>> doExecute() {
+        List<TransformChannel<?, ?>> stages = fusedStages();
+        TransformChannel<?, ?> last = stages.get(stages.size() - 1);
+        return flux -> {
+            ParallelFlux<Object> fused = (ParallelFlux<Object>) Operators.<T, Object>lift((scannable, actual) ->
+                    new TransformSubscriber<>(actual, contextView -> compose(stages, contextView))).apply(flux);
+            return fused.transform(TransformChannel.<ParallelFlux<Object>, ParallelFlux<R>>retype(last.doNext()));
+        };
+    }
+
+    /**
+     * 从当前channel开始，连续的 TransformChannel
+     */
+    public List<TransformChannel<?, ?>> fusedStages() {
+        List<TransformChannel<?, ?>> stages = new ArrayList<>();
+        Component<?> component = this;
+        while (component instanceof TransformChannel) {
+            TransformChannel<?, ?> stage = (TransformChannel<?, ?>) component;
+            stages.add(stage);
+            component = stage.getNext();
+        }
+        return stages;
+    }
+
+    private static <T> Function<T, Object> compose(List<TransformChannel<?, ?>> stages, ContextView contextView) {
+        List<Function<Object, Object>> functions = new ArrayList<>(stages.size());
+        for (TransformChannel<?, ?> stage : stages) {
+            functions.add(TransformChannel.<Object, Object>retype(stage.transformer(contextView)));
+        }
+        if (functions.size() == 1) {
+            return functions.get(0)::apply;
+        }
+        return value -> {
+            Object result = value;
+            for (Function<Object, Object> function : functions) {
+                if (result == null) {
+                    return null;
+                }
+                result = function.apply(result);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * 组装时每个channel的输出类型就是下一个组件的输入类型，合并后的阶段之间按Object传递
+     */
+    @SuppressWarnings("unchecked")
+    private static <A, B> Function<A, B> retype(Function<?, ?> function) {
+        return (Function<A, B>) function;
+    }
+
+    static final class TransformSubscriber<T, R> implements CoreSubscriber<T>, Subscription {
+
+        private final CoreSubscriber<? super R> actual;
+
+        private final Function<ContextView, Function<T, R>> factory;
+
+        private Function<T, R> transformer;
+
+        private Subscription s;
+
+        private boolean done;
+
+        TransformSubscriber(CoreSubscriber<? super R> actual, Function<ContextView, Function<T, R>> factory) {
+            this.actual = actual;
+            this.factory = factory;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (!Operators.validate(this.s, s)) {
+                return;
+            }
+            this.s = s;
+            try {
+                transformer = factory.apply(actual.currentContext());
+            } catch (Throwable e) {
+                s.cancel();
+                Operators.error(actual, Operators.onOperatorError(e, actual.currentContext()));
+                done = true;
+                return;
+            }
+            actual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                Operators.onNextDropped(t, actual.currentContext());
+                return;
+            }
+            R result;
+            try {
+                result = transformer.apply(t);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, t, actual.currentContext()));
+                return;
+            }
+            if (result == null) {
+                s.request(1);
+                return;
+            }
+            actual.onNext(result);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package org.apache.iotdb.utils.core.pipeline.context;
+
+import com.alibaba.fastjson.JSON;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.utils.core.compress.BlockIndexEntry;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导出的检查点日志，保存在导出目录下，每行一条json记录，只追加：
+ * OPEN   输出流（文件）创建并写完文件头，记录文件名、目录中的编号和文件头的结束位置
+ * COMMIT 一个batch写入文件并flush之后，记录写入的字节范围、行数和时间范围；csv/sql 在缓冲区写入文件之后记录
+ * DONE   输出流写完并关闭
+ * SPLIT  设备按时间切片的范围，继续导出时按相同的范围切片
+ * 继续导出（resume）时读取日志：已完成的流不再查询；未完成的流把文件截断到最后一次COMMIT的位置（去掉写了一半的block/行），
+ * 以追加的方式打开，从最后写入的时间之后继续查询。读取后重写为精简的日志，已完成的流只保留OPEN和DONE
+ * 日志在数据flush之后写入，进程崩溃时日志记录的位置不会超过文件实际的长度；文件比日志短（系统崩溃）时删除文件重新导出
+ */
+@Slf4j
+public class ExportCheckpoint implements Closeable {
+
+    public static final String JOURNAL_FILE = "EXPORT_CHECKPOINT.journal";
+
+    private static final String OPEN = "OPEN";
+
+    private static final String COMMIT = "COMMIT";
+
+    private static final String DONE = "DONE";
+
+    private static final String SPLIT = "SPLIT";
+
+    private final File journalFile;
+
+    private final Map<String, StreamCheckpoint> streamMap = new ConcurrentHashMap<>();
+
+    private final Map<String, List<long[]>> splitMap = new ConcurrentHashMap<>();
+
+    //本次运行中打开的输出流，COMMIT 时从channel读取写入位置
+    private final Map<String, FileChannel> channelMap = new ConcurrentHashMap<>();
+
+    //查询失败的流，关闭时不记录DONE，下次继续导出
+    private final Set<String> failedSet = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong fileNo = new AtomicLong();
+
+    private final boolean resumed;
+
+    private OutputStream journal;
+
+    private ExportCheckpoint(File journalFile, boolean resumed) {
+        this.journalFile = journalFile;
+        this.resumed = resumed;
+    }
+
+    /**
+     * 打开导出目录下的检查点日志
+     * resume 为true且日志存在时读取上次的进度，否则清空日志重新开始
+     */
+    public static ExportCheckpoint open(ExportModel exportModel) throws IOException {
+        File journalFile = new File(exportModel.getFileFolder(), JOURNAL_FILE);
+        boolean resume = Boolean.TRUE.equals(exportModel.getResume()) && journalFile.exists();
+        ExportCheckpoint checkpoint = new ExportCheckpoint(journalFile, resume);
+        if (resume) {
+            checkpoint.read();
+            checkpoint.recover();
+            checkpoint.compact();
+        } else {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+        checkpoint.journal = new FileOutputStream(journalFile, true);
+        return checkpoint;
+    }
+
+    /**
+     * 是否从上次的日志继续导出
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * 上次已经写完的流
+     */
+    public boolean isDone(String streamKey) {
+        StreamCheckpoint stream = streamMap.get(streamKey);
+        return stream != null && stream.isDone();
+    }
+
+    /**
+     * 上次没有写完、可以继续写入的流，文件已经截断到最后一次COMMIT的位置
+     */
+    public StreamCheckpoint resumable(String streamKey) {
+        StreamCheckpoint stream = streamMap.get(streamKey);
+        return stream == null || stream.isDone() ? null : stream;
+    }
+
+    /**
+     * 继续查询的起始时间（不包含），没有继续写入的流返回null
+     */
+    public Long resumeTime(String streamKey) {
+        StreamCheckpoint stream = resumable(streamKey);
+        return stream == null ? null : stream.getLastTime();
+    }
+
+    /**
+     * 日志中所有的流，按目录中的编号排序，用于重新生成目录文件
+     */
+    public List<StreamCheckpoint> streams() {
+        List<StreamCheckpoint> list = new ArrayList<>(streamMap.values());
+        list.sort(Comparator.comparingLong(StreamCheckpoint::getFileNo));
+        return list;
+    }
+
+    /**
+     * 新的输出流在目录中的编号，从上次日志中最大的编号之后开始
+     */
+    public long nextFileNo() {
+        return fileNo.incrementAndGet();
+    }
+
+    public List<long[]> getSplit(String deviceName) {
+        return splitMap.get(deviceName);
+    }
+
+    public void split(String deviceName, List<long[]> rangeList) {
+        splitMap.put(deviceName, rangeList);
+        CheckpointRecord record = new CheckpointRecord();
+        record.setType(SPLIT);
+        record.setKey(deviceName);
+        List<Long> bounds = new ArrayList<>(rangeList.size() * 2);
+        for (long[] range : rangeList) {
+            bounds.add(range[0]);
+            bounds.add(range[1]);
+        }
+        record.setBounds(bounds);
+        append(record);
+    }
+
+    /**
+     * 新的输出流写完文件头之后调用，channel 的位置为文件头的结束位置
+     */
+    public void open(String streamKey, String deviceName, long no, String fileName, FileChannel channel) throws IOException {
+        StreamCheckpoint stream = new StreamCheckpoint();
+        stream.setKey(streamKey);
+        stream.setDeviceName(deviceName);
+        stream.setFileNo(no);
+        stream.setFileName(fileName);
+        stream.setHeaderEnd(channel.position());
+        stream.setOffset(channel.position());
+        streamMap.put(streamKey, stream);
+        channelMap.put(streamKey, channel);
+        append(stream.toOpenRecord());
+    }
+
+    /**
+     * 以追加的方式重新打开了上次没有写完的流
+     */
+    public void resume(String streamKey, FileChannel channel) {
+        channelMap.put(streamKey, channel);
+    }
+
+    /**
+     * batch 写入并flush之后调用，同一个流的batch在同一个rail上按顺序提交
+     */
+    public void commit(RowBatch batch) throws IOException {
+        FileChannel channel = channelMap.get(batch.getDeviceModel().streamKey());
+        if (channel == null) {
+            return;
+        }
+        commit(record(batch, channel.position()));
+    }
+
+    /**
+     * batch 写入缓冲区时生成COMMIT记录，end 为batch在文件中的结束位置；数据写入文件之后调用 commit(record)
+     * @return 没有数据时返回null
+     */
+    public CheckpointRecord record(RowBatch batch, long end) {
+        if (batch.getRowCount() == 0) {
+            return null;
+        }
+        long[] times = batch.getTimes();
+        long minTime = times[0];
+        long maxTime = times[0];
+        for (int i = 1; i < batch.getRowCount(); i++) {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+        }
+        CheckpointRecord record = new CheckpointRecord();
+        record.setType(COMMIT);
+        record.setKey(batch.getDeviceModel().streamKey());
+        record.setEnd(end);
+        record.setRows(batch.getRowCount());
+        record.setMinTime(minTime);
+        record.setMaxTime(maxTime);
+        return record;
+    }
+
+    /**
+     * record 之前的数据已经写入文件，起始位置为上一次COMMIT的结束位置
+     */
+    public void commit(CheckpointRecord record) {
+        if (record == null) {
+            return;
+        }
+        StreamCheckpoint stream = streamMap.get(record.getKey());
+        if (stream == null || !channelMap.containsKey(record.getKey())) {
+            return;
+        }
+        record.setStart(stream.getOffset());
+        stream.apply(record);
+        append(record);
+    }
+
+    /**
+     * 查询失败，输出流仍然正常关闭，但不记录完成
+     */
+    public void fail(String streamKey) {
+        failedSet.add(streamKey);
+    }
+
+    /**
+     * 输出流关闭之后调用
+     */
+    public void done(String streamKey) {
+        channelMap.remove(streamKey);
+        StreamCheckpoint stream = streamMap.get(streamKey);
+        if (stream == null || stream.isDone() || failedSet.contains(streamKey)) {
+            return;
+        }
+        stream.finish();
+        CheckpointRecord record = new CheckpointRecord();
+        record.setType(DONE);
+        record.setKey(streamKey);
+        append(record);
+    }
+
+    private synchronized void append(CheckpointRecord record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write((JSON.toJSONString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * 读取日志，最后一行可能只写了一半，解析失败的行忽略
+     */
+    private void read() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                CheckpointRecord record;
+                try {
+                    record = JSON.parseObject(line, CheckpointRecord.class);
+                } catch (RuntimeException e) {
+                    log.warn("检查点日志中无法解析的记录：{}", line);
+                    continue;
+                }
+                if (record == null || record.getType() == null) {
+                    continue;
+                }
+                switch (record.getType()) {
+                    case OPEN:
+                        streamMap.put(record.getKey(), StreamCheckpoint.fromOpenRecord(record));
+                        break;
+                    case COMMIT:
+                        StreamCheckpoint stream = streamMap.get(record.getKey());
+                        if (stream != null) {
+                            stream.apply(record);
+                        }
+                        break;
+                    case DONE:
+                        StreamCheckpoint doneStream = streamMap.get(record.getKey());
+                        if (doneStream != null) {
+                            doneStream.finish();
+                        }
+                        break;
+                    case SPLIT:
+                        List<long[]> rangeList = new ArrayList<>();
+                        for (int i = 0; i + 1 < record.getBounds().size(); i += 2) {
+                            rangeList.add(new long[]{record.getBounds().get(i), record.getBounds().get(i + 1)});
+                        }
+                        splitMap.put(record.getKey(), rangeList);
+                        break;
+                    default:
+                }
+            }
+        }
+        for (StreamCheckpoint stream : streamMap.values()) {
+            fileNo.set(Math.max(fileNo.get(), stream.getFileNo()));
+        }
+    }
+
+    /**
+     * 未完成的流截断到最后一次COMMIT的位置；文件不存在或者比记录的短时删除文件，重新导出这个流
+     */
+    private void recover() {
+        for (StreamCheckpoint stream : new ArrayList<>(streamMap.values())) {
+            if (stream.isDone()) {
+                continue;
+            }
+            File file = new File(stream.getFileName());
+            try {
+                if (file.exists()) {
+                    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                        if (channel.size() >= stream.getOffset()) {
+                            channel.truncate(stream.getOffset());
+                            continue;
+                        }
+                    }
+                }
+                log.warn("{} 的长度小于检查点记录的位置 {}，重新导出", file, stream.getOffset());
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                log.error("异常信息:", e);
+            }
+            streamMap.remove(stream.getKey());
+        }
+    }
+
+    /**
+     * 重写为精简的日志，先写临时文件再替换，日志的大小与未完成的工作量相关
+     */
+    private void compact() throws IOException {
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<String, List<long[]>> entry : splitMap.entrySet()) {
+                CheckpointRecord record = new CheckpointRecord();
+                record.setType(SPLIT);
+                record.setKey(entry.getKey());
+                List<Long> bounds = new ArrayList<>();
+                for (long[] range : entry.getValue()) {
+                    bounds.add(range[0]);
+                    bounds.add(range[1]);
+                }
+                record.setBounds(bounds);
+                builder.append(JSON.toJSONString(record)).append("\n");
+            }
+            for (StreamCheckpoint stream : streams()) {
+                builder.append(JSON.toJSONString(stream.toOpenRecord())).append("\n");
+                if (stream.isDone()) {
+                    CheckpointRecord record = new CheckpointRecord();
+                    record.setType(DONE);
+                    record.setKey(stream.getKey());
+                    builder.append(JSON.toJSONString(record)).append("\n");
+                    continue;
+                }
+                //未完成的流保留每个block，重建压缩文件末尾的索引
+                for (int i = 0; i < stream.getBlockList().size(); i++) {
+                    BlockIndexEntry entry = stream.getBlockList().get(i);
+                    CheckpointRecord record = new CheckpointRecord();
+                    record.setType(COMMIT);
+                    record.setKey(stream.getKey());
+                    record.setStart(entry.getOffset());
+                    record.setEnd(stream.getBlockEndList().get(i));
+                    record.setRows(entry.getRowCount());
+                    record.setMinTime(entry.getMinTime());
+                    record.setMaxTime(entry.getMaxTime());
+                    builder.append(JSON.toJSONString(record)).append("\n");
+                }
+            }
+            out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 一个输出流的进度
+     */
+    @Data
+    public static class StreamCheckpoint {
+
+        private String key;
+
+        private String deviceName;
+
+        private long fileNo;
+
+        private String fileName;
+
+        //文件头的结束位置
+        private long headerEnd;
+
+        //最后一次COMMIT的结束位置，继续写入的位置
+        private long offset;
+
+        //已写入的最大时间，没有写入数据时为null
+        private Long lastTime;
+
+        private boolean done;
+
+        //已写入的block，继续写入压缩文件时用于重建索引
+        private List<BlockIndexEntry> blockList = new ArrayList<>();
+
+        //每个block的结束位置，与blockList一一对应
+        private List<Long> blockEndList = new ArrayList<>();
+
+        private static StreamCheckpoint fromOpenRecord(CheckpointRecord record) {
+            StreamCheckpoint stream = new StreamCheckpoint();
+            stream.setKey(record.getKey());
+            stream.setDeviceName(record.getDevice());
+            stream.setFileNo(record.getFileNo());
+            stream.setFileName(record.getFileName());
+            stream.setHeaderEnd(record.getEnd());
+            stream.setOffset(record.getEnd());
+            return stream;
+        }
+
+        private CheckpointRecord toOpenRecord() {
+            CheckpointRecord record = new CheckpointRecord();
+            record.setType(OPEN);
+            record.setKey(key);
+            record.setDevice(deviceName);
+            record.setFileNo(fileNo);
+            record.setFileName(fileName);
+            record.setEnd(headerEnd);
+            return record;
+        }
+
+        //完成后不再需要block信息
+        private void finish() {
+            done = true;
+            blockList = new ArrayList<>();
+            blockEndList = new ArrayList<>();
+        }
+
+        private void apply(CheckpointRecord record) {
+            offset = record.getEnd();
+            lastTime = lastTime == null ? record.getMaxTime() : Math.max(lastTime, record.getMaxTime());
+            blockList.add(new BlockIndexEntry(record.getStart(), record.getRows(), record.getMinTime(), record.getMaxTime()));
+            blockEndList.add(record.getEnd());
+        }
+    }
+
+    /**
+     * 日志中的一条记录，不同类型使用的字段不同，空字段不输出
+     */
+    @Data
+    public static class CheckpointRecord {
+
+        private String type;
+
+        private String key;
+
+        private String device;
+
+        private Long fileNo;
+
+        private String fileName;
+
+        private Long start;
+
+        private Long end;
+
+        private Integer rows;
+
+        private Long minTime;
+
+        private Long maxTime;
+
+        private List<Long> bounds;
+    }
+}
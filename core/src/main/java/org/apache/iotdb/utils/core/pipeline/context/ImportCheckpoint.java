@@ -0,0 +1,312 @@
+package org.apache.iotdb.utils.core.pipeline.context;
+
+import com.alibaba.fastjson.JSON;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 导入的检查点日志，保存在导入目录下，每行一条json记录，只追加：
+ * COMMIT 一个batch写入成功（insert返回）之后，记录文件、切片和读取到的位置（csv为切片中的行数，压缩文件为block数）
+ * DONE   文件的所有batch都写入成功
+ * 继续导入（resume）时读取日志：已完成的文件不再读取；未完成的文件跳过已经写入的行/block，从下一个batch开始写入。
+ * 写入失败的文件不再记录进度，下次从最后一次成功的位置重新写入。读取后重写为精简的日志，每个切片只保留最后的位置
+ */
+@Slf4j
+public class ImportCheckpoint implements Closeable {
+
+    public static final String JOURNAL_FILE = "IMPORT_CHECKPOINT.journal";
+
+    private static final String COMMIT = "COMMIT";
+
+    private static final String DONE = "DONE";
+
+    private final File journalFile;
+
+    private final Map<String, FileCheckpoint> fileMap = new ConcurrentHashMap<>();
+
+    //本次运行打开的文件，数据源通过输入流查找文件名
+    private final Map<InputStream, String> fileNameMap = new ConcurrentHashMap<>();
+
+    private final boolean resumed;
+
+    private OutputStream journal;
+
+    private ImportCheckpoint(File journalFile, boolean resumed) {
+        this.journalFile = journalFile;
+        this.resumed = resumed;
+    }
+
+    /**
+     * 打开导入目录下的检查点日志
+     * resume 为true且日志存在时读取上次的进度，否则清空日志重新开始
+     */
+    public static ImportCheckpoint open(ImportModel importModel) throws IOException {
+        File journalFile = new File(importModel.getFileFolder(), JOURNAL_FILE);
+        boolean resume = Boolean.TRUE.equals(importModel.getResume()) && journalFile.exists();
+        ImportCheckpoint checkpoint = new ImportCheckpoint(journalFile, resume);
+        if (resume) {
+            checkpoint.read();
+            checkpoint.compact();
+        } else {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+        checkpoint.journal = new FileOutputStream(journalFile, true);
+        return checkpoint;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * 排除上次已经导入完成的文件
+     */
+    public FilenameFilter pending(FilenameFilter filter) {
+        return (dir, name) -> filter.accept(dir, name) && !isDone(name);
+    }
+
+    public boolean isDone(String fileName) {
+        FileCheckpoint file = fileMap.get(fileName);
+        return file != null && file.isDone();
+    }
+
+    /**
+     * 记录输入流对应的文件名
+     */
+    public void track(InputStream in, String fileName) {
+        fileNameMap.put(in, fileName);
+    }
+
+    public String fileName(InputStream in) {
+        return fileNameMap.get(in);
+    }
+
+    /**
+     * 切片中已经写入的位置，数据源从这个位置之后开始输出
+     */
+    public long position(String fileName, long part) {
+        FileCheckpoint file = fileMap.get(fileName);
+        if (file == null) {
+            return 0;
+        }
+        Long position = file.getPositionMap().get(part);
+        return position == null ? 0 : position;
+    }
+
+    /**
+     * 数据源输出batch时调用，记录文件还没有写入的batch数
+     */
+    public void emit(RowBatch batch) {
+        if (batch.isFinish() || batch.getSourceFile() == null) {
+            return;
+        }
+        FileCheckpoint file = file(batch.getSourceFile());
+        synchronized (file) {
+            file.inflight++;
+        }
+    }
+
+    /**
+     * batch 写入成功之后调用，同一切片的batch在同一个rail上按顺序提交
+     */
+    public void commit(RowBatch batch) {
+        if (batch.getSourceFile() == null) {
+            return;
+        }
+        FileCheckpoint file = file(batch.getSourceFile());
+        boolean done;
+        synchronized (file) {
+            file.inflight--;
+            if (file.isFailed()) {
+                return;
+            }
+            file.getPositionMap().merge(batch.getSourcePart(), batch.getSourcePosition(), Math::max);
+            CheckpointRecord record = new CheckpointRecord();
+            record.setType(COMMIT);
+            record.setFile(batch.getSourceFile());
+            record.setPart(batch.getSourcePart());
+            record.setPosition(batch.getSourcePosition());
+            append(record);
+            done = file.tryFinish();
+        }
+        if (done) {
+            appendDone(batch.getSourceFile());
+        }
+    }
+
+    /**
+     * batch 写入失败，这个文件之后不再记录进度，下次继续导入时从最后一次成功的位置开始
+     */
+    public void fail(RowBatch batch) {
+        if (batch.getSourceFile() == null) {
+            return;
+        }
+        FileCheckpoint file = file(batch.getSourceFile());
+        synchronized (file) {
+            file.inflight--;
+            file.setFailed(true);
+        }
+    }
+
+    /**
+     * 文件的结束标志到达sink时调用，其他rail上的batch都写入后记录完成
+     */
+    public void finish(RowBatch batch) {
+        if (batch.getSourceFile() == null) {
+            return;
+        }
+        FileCheckpoint file = file(batch.getSourceFile());
+        boolean done;
+        synchronized (file) {
+            file.setFinished(true);
+            done = file.tryFinish();
+        }
+        if (done) {
+            appendDone(batch.getSourceFile());
+        }
+    }
+
+    private FileCheckpoint file(String fileName) {
+        return fileMap.computeIfAbsent(fileName, name -> new FileCheckpoint());
+    }
+
+    private void appendDone(String fileName) {
+        CheckpointRecord record = new CheckpointRecord();
+        record.setType(DONE);
+        record.setFile(fileName);
+        append(record);
+    }
+
+    private synchronized void append(CheckpointRecord record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write((JSON.toJSONString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("异常信息:", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * 读取日志，最后一行可能只写了一半，解析失败的行忽略
+     */
+    private void read() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                CheckpointRecord record;
+                try {
+                    record = JSON.parseObject(line, CheckpointRecord.class);
+                } catch (RuntimeException e) {
+                    log.warn("检查点日志中无法解析的记录：{}", line);
+                    continue;
+                }
+                if (record == null || record.getType() == null || record.getFile() == null) {
+                    continue;
+                }
+                FileCheckpoint file = file(record.getFile());
+                if (COMMIT.equals(record.getType()) && record.getPart() != null && record.getPosition() != null) {
+                    file.getPositionMap().merge(record.getPart(), record.getPosition(), Math::max);
+                } else if (DONE.equals(record.getType())) {
+                    file.setDone(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 重写日志，完成的文件只保留DONE，未完成的文件每个切片保留最后的位置
+     */
+    private void compact() throws IOException {
+        File tmpFile = new File(journalFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            for (Map.Entry<String, FileCheckpoint> entry : fileMap.entrySet()) {
+                FileCheckpoint file = entry.getValue();
+                if (file.isDone()) {
+                    CheckpointRecord record = new CheckpointRecord();
+                    record.setType(DONE);
+                    record.setFile(entry.getKey());
+                    out.write((JSON.toJSONString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                    continue;
+                }
+                for (Map.Entry<Long, Long> position : file.getPositionMap().entrySet()) {
+                    CheckpointRecord record = new CheckpointRecord();
+                    record.setType(COMMIT);
+                    record.setFile(entry.getKey());
+                    record.setPart(position.getKey());
+                    record.setPosition(position.getValue());
+                    out.write((JSON.toJSONString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 一个文件的进度
+     */
+    @Data
+    public static class FileCheckpoint {
+
+        //切片 -> 已经写入的位置
+        private Map<Long, Long> positionMap = new ConcurrentHashMap<>();
+
+        //已经输出还没有写入的batch数
+        private int inflight;
+
+        //结束标志已经到达sink
+        private boolean finished;
+
+        private boolean failed;
+
+        private boolean done;
+
+        //结束标志已到达且所有batch都写入成功时标记完成，只返回一次true
+        private boolean tryFinish() {
+            if (done || failed || !finished || inflight > 0) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+
+    @Data
+    public static class CheckpointRecord {
+
+        private String type;
+
+        private String file;
+
+        private Long part;
+
+        private Long position;
+    }
+}
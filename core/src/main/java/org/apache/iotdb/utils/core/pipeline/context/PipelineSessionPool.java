@@ -0,0 +1,188 @@
+package org.apache.iotdb.utils.core.pipeline.context;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.utils.core.pipeline.context.model.IECommonModel;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * pipeline 的session池，各个rail上的查询/写入各自借用一个连接，不再共用一个session
+ * 连接通过 sessionFactory 创建，最多 maxSize 个（默认等于并行度），用完归还；
+ * 没有空闲连接时以 Mono 的方式等待归还，不阻塞rail的线程
+ * 没有配置 sessionFactory 时所有请求共用 model 的session，与之前的行为一致
+ */
+@Slf4j
+public class PipelineSessionPool {
+
+    private final SessionFactory sessionFactory;
+
+    private final Session sharedSession;
+
+    private final int maxSize;
+
+    private final Deque<Session> idleSessions = new ArrayDeque<>();
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private final List<Session> allSessions = new ArrayList<>();
+
+    private int createdSize;
+
+    private boolean closed;
+
+    public PipelineSessionPool(SessionFactory sessionFactory, Session sharedSession, int maxSize) {
+        this.sessionFactory = sessionFactory;
+        this.sharedSession = sharedSession;
+        this.maxSize = Math.max(maxSize, 1);
+    }
+
+    /**
+     * 获取model上的session池，没有时按并行度创建
+     */
+    public static PipelineSessionPool getOrCreate(IECommonModel model) {
+        synchronized (model) {
+            if (model.getSessionPool() == null) {
+                int parallelism = model.getParallelism() <= 0 ? Schedulers.DEFAULT_POOL_SIZE : model.getParallelism();
+                model.setSessionPool(new PipelineSessionPool(model.getSessionFactory(), model.getSession(), parallelism));
+            }
+            return model.getSessionPool();
+        }
+    }
+
+    /**
+     * 借用一个session执行function，function返回的流结束（完成、异常、取消）后归还
+     */
+    public <T> Flux<T> withSession(Function<Session, ? extends Publisher<T>> function) {
+        if (sessionFactory == null) {
+            return Flux.defer(() -> function.apply(sharedSession));
+        }
+        return Flux.usingWhen(borrow(), function, session -> Mono.fromRunnable(() -> release(session)));
+    }
+
+    public Mono<Session> borrow() {
+        if (sessionFactory == null) {
+            return Mono.justOrEmpty(sharedSession);
+        }
+        return Mono.create(sink -> {
+            boolean create = false;
+            synchronized (this) {
+                if (closed) {
+                    sink.error(new IllegalStateException("session pool is closed"));
+                    return;
+                }
+                Session session = idleSessions.poll();
+                if (session != null) {
+                    sink.success(session);
+                    return;
+                }
+                if (createdSize < maxSize) {
+                    createdSize++;
+                    create = true;
+                } else {
+                    Waiter waiter = new Waiter(sink);
+                    waiters.add(waiter);
+                    sink.onCancel(() -> {
+                        if (waiter.done.compareAndSet(false, true)) {
+                            synchronized (this) {
+                                waiters.remove(waiter);
+                            }
+                        }
+                    });
+                }
+            }
+            if (create) {
+                //建立连接放在锁外面
+                try {
+                    Session session = sessionFactory.create();
+                    synchronized (this) {
+                        allSessions.add(session);
+                    }
+                    sink.success(session);
+                } catch (IoTDBConnectionException | StatementExecutionException e) {
+                    synchronized (this) {
+                        createdSize--;
+                    }
+                    log.error("异常信息:", e);
+                    sink.error(e);
+                }
+            }
+        });
+    }
+
+    public void release(Session session) {
+        if (sessionFactory == null || session == null) {
+            return;
+        }
+        while (true) {
+            Waiter waiter;
+            synchronized (this) {
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    idleSessions.add(session);
+                    return;
+                }
+            }
+            //等待者已经取消时交给下一个
+            if (waiter.done.compareAndSet(false, true)) {
+                waiter.sink.success(session);
+                return;
+            }
+        }
+    }
+
+    public synchronized int createdSize() {
+        return createdSize;
+    }
+
+    /**
+     * 关闭池中创建的session，共用的session由调用方关闭
+     */
+    public void close() {
+        List<Session> sessions;
+        List<Waiter> pending;
+        synchronized (this) {
+            closed = true;
+            sessions = new ArrayList<>(allSessions);
+            pending = new ArrayList<>(waiters);
+            allSessions.clear();
+            idleSessions.clear();
+            waiters.clear();
+        }
+        for (Waiter waiter : pending) {
+            if (waiter.done.compareAndSet(false, true)) {
+                waiter.sink.error(new IllegalStateException("session pool is closed"));
+            }
+        }
+        for (Session session : sessions) {
+            try {
+                session.close();
+            } catch (IoTDBConnectionException e) {
+                log.error("异常信息:", e);
+            }
+        }
+    }
+
+    private static class Waiter {
+
+        private final MonoSink<Session> sink;
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Waiter(MonoSink<Session> sink) {
+            this.sink = sink;
+        }
+    }
+}
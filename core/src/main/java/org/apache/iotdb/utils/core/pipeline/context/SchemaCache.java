@@ -0,0 +1,286 @@
+package org.apache.iotdb.utils.core.pipeline.context;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.utils.core.model.DeviceSchemaModel;
+import org.apache.iotdb.utils.core.model.TimeseriesSchemaModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.IECommonModel;
+import org.apache.iotdb.utils.core.service.ExportPipelineService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备元数据缓存，导入、导出pipeline的各个阶段共用，避免每个设备单独执行 show devices / show timeseries
+ * 第一次使用时按页批量加载（show devices、show timeseries 加 limit/offset），
+ * 缓存中没有的设备（加载之后才创建的）再单独查询
+ * persistSchema 为true时，缓存和加载的设备路径、序列数一起保存在 fileFolder 下的 SCHEMA.json，
+ * 再次运行时路径和 count timeseries 的结果都一致才直接读取，否则重新加载
+ */
+@Slf4j
+public class SchemaCache {
+
+    public static final String SCHEMA_FILE = "SCHEMA.json";
+
+    private static final int PAGE_SIZE = 10000;
+
+    private static final String PATTERN_KEY = "pattern";
+
+    private static final String COUNT_KEY = "timeseriesCount";
+
+    private static final String TIME_KEY = "createTime";
+
+    private static final String DEVICES_KEY = "devices";
+
+    private final ConcurrentHashMap<String, DeviceSchemaModel> deviceMap = new ConcurrentHashMap<>();
+
+    /**
+     * 获取model上的缓存，第一次调用时加载
+     *
+     * @param model
+     * @param devicePattern 需要加载的设备的路径，如 root.** 、root.sg.**
+     * @param session       加载时使用的session
+     * @return
+     */
+    public static SchemaCache getOrLoad(IECommonModel model, String devicePattern, Session session)
+            throws StatementExecutionException, IoTDBConnectionException {
+        synchronized (model) {
+            if (model.getSchemaCache() != null) {
+                return model.getSchemaCache();
+            }
+            SchemaCache schemaCache = new SchemaCache();
+            File schemaFile = model.getFileFolder() == null ? null : new File(model.getFileFolder(), SCHEMA_FILE);
+            boolean persist = Boolean.TRUE.equals(model.getPersistSchema()) && schemaFile != null;
+            long timeseriesCount = persist ? countTimeseries(session, devicePattern) : -1;
+            if (persist && schemaFile.exists()) {
+                try {
+                    if (schemaCache.read(schemaFile, devicePattern, timeseriesCount)) {
+                        model.setSchemaCache(schemaCache);
+                        return schemaCache;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("异常信息:", e);
+                }
+                schemaCache.deviceMap.clear();
+            }
+            schemaCache.load(session, devicePattern);
+            if (persist) {
+                try {
+                    schemaCache.write(schemaFile, devicePattern, timeseriesCount);
+                } catch (IOException e) {
+                    log.error("异常信息:", e);
+                }
+            }
+            model.setSchemaCache(schemaCache);
+            return schemaCache;
+        }
+    }
+
+    /**
+     * 获取设备元数据，缓存中没有时单独查询
+     * session 可能被多个rail共用，查询时锁住session
+     *
+     * @return 设备不存在时返回null
+     */
+    public DeviceSchemaModel getDeviceSchema(String deviceName, Session session)
+            throws StatementExecutionException, IoTDBConnectionException {
+        DeviceSchemaModel deviceSchema = deviceMap.get(deviceName);
+        if (deviceSchema != null) {
+            return deviceSchema;
+        }
+        SchemaCache single = new SchemaCache();
+        synchronized (session) {
+            single.loadDevices(session, ExportPipelineService.formatPath(deviceName), false);
+            single.loadTimeseries(session, ExportPipelineService.formatPath(deviceName) + ".*", false);
+        }
+        deviceSchema = single.deviceMap.get(deviceName);
+        //不缓存不存在的设备，导入时设备可能稍后由结构文件创建
+        if (deviceSchema != null) {
+            deviceMap.put(deviceName, deviceSchema);
+        }
+        return deviceSchema;
+    }
+
+    /**
+     * 只查缓存，不访问session
+     */
+    public DeviceSchemaModel getCachedDeviceSchema(String deviceName) {
+        return deviceMap.get(deviceName);
+    }
+
+    public void put(DeviceSchemaModel deviceSchema) {
+        deviceMap.put(deviceSchema.getDeviceName(), deviceSchema);
+    }
+
+    public int size() {
+        return deviceMap.size();
+    }
+
+    public Collection<DeviceSchemaModel> devices() {
+        return deviceMap.values();
+    }
+
+    public void load(Session session, String devicePattern) throws StatementExecutionException, IoTDBConnectionException {
+        String pattern = ExportPipelineService.formatPath(devicePattern);
+        synchronized (session) {
+            loadDevices(session, pattern, true);
+            loadTimeseries(session, pattern + ".*", true);
+        }
+    }
+
+    private void loadDevices(Session session, String pattern, boolean paged) throws StatementExecutionException, IoTDBConnectionException {
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            StringBuilder sql = new StringBuilder();
+            sql.append("show devices ").append(pattern);
+            if (paged) {
+                sql.append(" limit ").append(PAGE_SIZE).append(" offset ").append(offset);
+            }
+            SessionDataSet dataSet = session.executeQueryStatement(sql.toString());
+            List<String> columnNameList = dataSet.getColumnNames();
+            int devicePosition = columnNameList.indexOf("devices");
+            int alignedPosition = columnNameList.indexOf("isAligned");
+            int count = 0;
+            while (dataSet.hasNext()) {
+                RowRecord record = dataSet.next();
+                String deviceName = record.getFields().get(devicePosition).getStringValue();
+                DeviceSchemaModel deviceSchema = deviceMap.computeIfAbsent(deviceName, k -> newDevice(deviceName));
+                if (alignedPosition >= 0) {
+                    deviceSchema.setAligned(Boolean.parseBoolean(record.getFields().get(alignedPosition).getStringValue()));
+                }
+                count++;
+            }
+            dataSet.closeOperationHandle();
+            if (!paged || count < PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private void loadTimeseries(Session session, String pattern, boolean paged) throws StatementExecutionException, IoTDBConnectionException {
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            StringBuilder sql = new StringBuilder();
+            sql.append("show timeseries ").append(pattern);
+            if (paged) {
+                sql.append(" limit ").append(PAGE_SIZE).append(" offset ").append(offset);
+            }
+            SessionDataSet dataSet = session.executeQueryStatement(sql.toString());
+            List<String> columnNameList = dataSet.getColumnNames();
+            int timeseriesPosition = columnNameList.indexOf("timeseries");
+            int dataTypePosition = columnNameList.indexOf("dataType");
+            int encodingPosition = columnNameList.indexOf("encoding");
+            int compressionPosition = columnNameList.indexOf("compression");
+            int count = 0;
+            while (dataSet.hasNext()) {
+                RowRecord record = dataSet.next();
+                count++;
+                String timeseries = record.getFields().get(timeseriesPosition).getStringValue();
+                String deviceName = deviceOf(timeseries);
+                DeviceSchemaModel deviceSchema = deviceMap.get(deviceName);
+                if (deviceSchema == null) {
+                    //两次查询之间新建的设备，不完整，留给单独查询
+                    continue;
+                }
+                TimeseriesSchemaModel timeseriesSchema = new TimeseriesSchemaModel();
+                timeseriesSchema.setTimeseries(timeseries);
+                timeseriesSchema.setDataType(TSDataType.valueOf(record.getFields().get(dataTypePosition).getStringValue()));
+                if (encodingPosition >= 0) {
+                    timeseriesSchema.setEncoding(TSEncoding.valueOf(record.getFields().get(encodingPosition).getStringValue()));
+                }
+                if (compressionPosition >= 0) {
+                    timeseriesSchema.setCompressor(CompressionType.valueOf(record.getFields().get(compressionPosition).getStringValue()));
+                }
+                deviceSchema.getTimeseriesList().add(timeseriesSchema);
+            }
+            dataSet.closeOperationHandle();
+            if (!paged || count < PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 查询 pattern 下的序列数，用于判断保存的元数据是否过期
+     */
+    private static long countTimeseries(Session session, String devicePattern)
+            throws StatementExecutionException, IoTDBConnectionException {
+        long count = 0;
+        synchronized (session) {
+            SessionDataSet dataSet = session.executeQueryStatement("count timeseries " + ExportPipelineService.formatPath(devicePattern) + ".*");
+            while (dataSet.hasNext()) {
+                count += Long.parseLong(dataSet.next().getFields().get(0).getStringValue());
+            }
+            dataSet.closeOperationHandle();
+        }
+        return count;
+    }
+
+    /**
+     * 序列路径去掉最后一个节点，反引号中的 . 不作为分隔符
+     */
+    public static String deviceOf(String timeseries) {
+        boolean quoted = false;
+        for (int i = timeseries.length() - 1; i >= 0; i--) {
+            char c = timeseries.charAt(i);
+            if (c == '`') {
+                quoted = !quoted;
+            } else if (c == '.' && !quoted) {
+                return timeseries.substring(0, i);
+            }
+        }
+        return timeseries;
+    }
+
+    public void write(File file, String devicePattern, long timeseriesCount) throws IOException {
+        JSONObject json = new JSONObject(true);
+        json.put(PATTERN_KEY, devicePattern);
+        json.put(COUNT_KEY, timeseriesCount);
+        json.put(TIME_KEY, System.currentTimeMillis());
+        json.put(DEVICES_KEY, new ArrayList<>(deviceMap.values()));
+        Files.write(file.toPath(), json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取保存的元数据，加载路径或序列数与当前不一致时不读取
+     *
+     * @return 是否读取
+     */
+    public boolean read(File file, String devicePattern, long timeseriesCount) throws IOException {
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        if (!json.trim().startsWith("{")) {
+            log.info("元数据文件格式已过期，重新加载：{}", file);
+            return false;
+        }
+        JSONObject object = JSON.parseObject(json);
+        if (!devicePattern.equals(object.getString(PATTERN_KEY)) || timeseriesCount != object.getLongValue(COUNT_KEY)) {
+            log.info("元数据文件与当前不一致，重新加载：{}，路径 {}，序列数 {}，当前路径 {}，当前序列数 {}", file,
+                    object.getString(PATTERN_KEY), object.getLongValue(COUNT_KEY), devicePattern, timeseriesCount);
+            return false;
+        }
+        for (DeviceSchemaModel deviceSchema : object.getJSONArray(DEVICES_KEY).toJavaList(DeviceSchemaModel.class)) {
+            put(deviceSchema);
+        }
+        log.info("使用已保存的元数据：{}，保存时间 {}，设备数 {}", file, object.getLongValue(TIME_KEY), deviceMap.size());
+        return true;
+    }
+
+    private static DeviceSchemaModel newDevice(String deviceName) {
+        DeviceSchemaModel deviceSchema = new DeviceSchemaModel();
+        deviceSchema.setDeviceName(deviceName);
+        return deviceSchema;
+    }
+}
@@ -0,0 +1,15 @@
+package org.apache.iotdb.utils.core.pipeline.context;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+
+/**
+ * 创建一个新的、已经open的session
+ * 用于需要独立连接的并发查询/写入，使用方负责close
+ */
+@FunctionalInterface
+public interface SessionFactory {
+
+    Session create() throws IoTDBConnectionException, StatementExecutionException;
+}
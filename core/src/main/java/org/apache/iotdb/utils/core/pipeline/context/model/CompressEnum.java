@@ -1,6 +1,6 @@
 package org.apache.iotdb.utils.core.pipeline.context.model;
 
 public enum CompressEnum {
-    SQL,CSV,SNAPPY,GZIP,LZ4
+    SQL,CSV,SNAPPY,GZIP,LZ4,LZ4HC,NONE
 
 }
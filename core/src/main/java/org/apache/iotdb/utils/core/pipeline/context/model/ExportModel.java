@@ -1,6 +1,8 @@
 package org.apache.iotdb.utils.core.pipeline.context.model;
 
+import com.alibaba.fastjson.annotation.JSONField;
 import lombok.Data;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 
 import java.util.List;
 
@@ -12,4 +14,29 @@ public class ExportModel extends IECommonModel{
     private String whereClause;
 
     private List<String> measurementList;
+
+    //单个设备按时间范围切分的片数，每片输出一个分段文件，小于等于1时不切分
+    private Integer timeSliceNum;
+
+    //压缩文件格式版本，1 列数据为序列化的String[]，2 按类型编码的列，为空时使用2
+    private Short compressVersion;
+
+    //压缩级别，GZIP 0~9，LZ4HC 1~17，为空使用算法的默认级别
+    private Integer compressLevel;
+
+    //为true时按导出目录下的检查点日志继续上次中断的导出，跳过已完成的设备
+    private Boolean resume;
+
+    //csv/sql 每个文件的写缓冲区大小（字节），缓冲区满时写入文件，为空时1MB
+    private Integer flushSize;
+
+    //csv/sql 缓冲区距离上次写入文件超过该时间（毫秒）时写入，为空时1000
+    private Long flushInterval;
+
+    //csv/sql 文件的fsync策略，为空时NONE
+    private FileSyncEnum fileSync;
+
+    //检查点日志，ExportStarter 启动时打开
+    @JSONField(serialize = false)
+    private ExportCheckpoint checkpoint;
 }
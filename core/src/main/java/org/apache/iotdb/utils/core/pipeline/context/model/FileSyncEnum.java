@@ -0,0 +1,11 @@
+package org.apache.iotdb.utils.core.pipeline.context.model;
+
+/**
+ * 导出文件的fsync策略
+ * NONE  只写入操作系统缓存，由系统决定何时落盘
+ * CLOSE 文件关闭（设备导出完成）时fsync
+ * FLUSH 每次把缓冲区写入文件后fsync，检查点记录的位置在系统崩溃后仍然有效
+ */
+public enum FileSyncEnum {
+    NONE,CLOSE,FLUSH
+}
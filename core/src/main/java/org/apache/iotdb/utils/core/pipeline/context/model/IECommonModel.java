@@ -4,6 +4,9 @@ import com.alibaba.fastjson.annotation.JSONField;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import lombok.Data;
 import org.apache.iotdb.session.Session;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineSessionPool;
+import org.apache.iotdb.utils.core.pipeline.context.SchemaCache;
+import org.apache.iotdb.utils.core.pipeline.context.SessionFactory;
 import reactor.core.publisher.SignalType;
 
 import java.util.function.Consumer;
@@ -14,6 +17,14 @@ public class IECommonModel extends PipelineModel{
     @JSONField(serialize = false)
     private Session session;
 
+    //创建独立连接的工厂，为空时所有查询共用session
+    @JSONField(serialize = false)
+    private SessionFactory sessionFactory;
+
+    //按并行度从sessionFactory创建的session池，各rail借用独立的连接，pipeline结束后关闭
+    @JSONField(serialize = false)
+    private PipelineSessionPool sessionPool;
+
     @JSONField(serialzeFeatures = {SerializerFeature.WriteEnumUsingToString})
     private CompressEnum compressEnum;
 
@@ -26,6 +37,13 @@ public class IECommonModel extends PipelineModel{
 
     private Boolean needTimeseriesStructure;
 
+    //为true时元数据缓存保存到fileFolder下的SCHEMA.json，再次运行时直接读取
+    private Boolean persistSchema;
+
+    //设备元数据缓存，pipeline各阶段共用，第一次使用时加载
+    @JSONField(serialize = false)
+    private SchemaCache schemaCache;
+
     @JSONField(serialize = false)
     @Deprecated
     private Boolean zipCompress;
@@ -1,10 +1,32 @@
 package org.apache.iotdb.utils.core.pipeline.context.model;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import lombok.Data;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 
 @Data
 public class ImportModel extends IECommonModel{
 
     private String fileName;
 
+    //写入方式，为空时使用 TABLET
+    @JSONField(serialzeFeatures = {SerializerFeature.WriteEnumUsingToString})
+    private InsertStrategyEnum insertStrategyEnum;
+
+    //导入的时间范围（包含），为空不限制；带索引的压缩文件直接跳过范围之外的block
+    private Long startTime;
+
+    private Long endTime;
+
+    //csv文件按字节数切分后并发解析，为空时使用64M，小于等于0不切分
+    private Long csvChunkSize;
+
+    //为true时按导入目录下的检查点日志继续上次中断的导入，跳过已经写入的文件和batch
+    private Boolean resume;
+
+    //检查点日志，ImportStarter 启动时打开
+    @JSONField(serialize = false)
+    private ImportCheckpoint checkpoint;
+
 }
@@ -0,0 +1,10 @@
+package org.apache.iotdb.utils.core.pipeline.context.model;
+
+/**
+ * 导入数据时的写入方式
+ * TABLET   每个batch构造列式的Tablet，rail上连续的batch合并为一次insertTablets/insertAlignedTablets写入，默认方式
+ * RECORDS  按行写入，insertRecordsOfOneDevice/insertAlignedRecordsOfOneDevice
+ */
+public enum InsertStrategyEnum {
+    TABLET,RECORDS
+}
@@ -0,0 +1,36 @@
+package org.apache.iotdb.utils.core.pipeline.in.channel;
+
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
+import lombok.Data;
+import reactor.util.context.ContextView;
+
+import java.util.function.Function;
+
+/**
+ * 与 FieldColumnFormatChannel 相同，处理的是RowBatch
+ */
+@Data
+public class FieldColumnFormatBatchChannel extends TransformChannel<RowBatch, RowBatch> {
+
+    private String name;
+
+    public FieldColumnFormatBatchChannel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 把 root.test.test.cli.ali.dd 格式的timeseries，转化为 dd，即不带前缀的格式
+     * 只替换batch的列名字典，不处理每个值；字典由同一个流的batch共用，所以生成新的数组
+     * @return
+     */
+    @Override
+    public Function<RowBatch, RowBatch> transformer(ContextView contextView) {
+        return batch -> {
+            if (!batch.isFinish()) {
+                batch.setColumnNames(batch.measurements());
+            }
+            return batch;
+        };
+    }
+}
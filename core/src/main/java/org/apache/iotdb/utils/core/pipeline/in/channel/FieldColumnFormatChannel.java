@@ -2,21 +2,17 @@ package org.apache.iotdb.utils.core.pipeline.in.channel;
 
 import org.apache.iotdb.utils.core.model.IField;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
-import org.apache.iotdb.utils.core.pipeline.PipeChannel;
-import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
-import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
 import lombok.Data;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.ContextView;
 
-import java.util.List;
 import java.util.function.Function;
 
 /**
  *
  */
 @Data
-public class FieldColumnFormatChannel extends PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class FieldColumnFormatChannel extends TransformChannel<TimeSeriesRowModel, TimeSeriesRowModel> {
 
     private String name;
 
@@ -26,27 +22,31 @@ public class FieldColumnFormatChannel extends PipeChannel<TimeSeriesRowModel, Ti
 
     /**
      * 把 root.test.test.cli.ali.dd 格式的timeseries，转化为 dd，即不带前缀的格式
+     * 同一个rail上设备的数据是连续的，前缀只在设备变化时生成一次
      * @return
      */
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
-        return flux -> flux
-                .flatMap(s -> {
-                    return Flux.deferContextual(contextView -> {
-                        PipelineContext<ImportModel> pcontext = contextView.get("pipelineContext");
-                        ImportModel importModel = pcontext.getModel();
-                        List<IField> list = s.getIFieldList();
-                        list.stream().forEach(ifield->{
-                            if(ifield.getField() !=null){
-                                StringBuilder builder = new StringBuilder();
-                                builder.append(s.getDeviceModel().getDeviceName())
-                                        .append(".");
-                                ifield.setColumnName(ifield.getColumnName().replace(builder.toString(),""));
-                            }
-                        });
-                        return ParallelFlux.from(Flux.just(s));
-                    });
-                })
-                .transform(doNext());
+    public Function<TimeSeriesRowModel, TimeSeriesRowModel> transformer(ContextView contextView) {
+        String[] prefix = new String[2];
+        return s -> {
+            String deviceName = s.getDeviceModel().getDeviceName();
+            if (!deviceName.equals(prefix[0])) {
+                prefix[0] = deviceName;
+                prefix[1] = deviceName + ".";
+            }
+            for (IField ifield : s.getIFieldList()) {
+                if (ifield.getField() != null) {
+                    ifield.setColumnName(removePrefix(ifield.getColumnName(), prefix[1]));
+                }
+            }
+            return s;
+        };
+    }
+
+    private String removePrefix(String columnName, String prefix) {
+        if (columnName.startsWith(prefix) && columnName.indexOf(prefix, prefix.length()) < 0) {
+            return columnName.substring(prefix.length());
+        }
+        return columnName.replace(prefix, "");
     }
 }
@@ -1,33 +1,36 @@
 package org.apache.iotdb.utils.core.pipeline.in.sink;
 
-import org.apache.iotdb.utils.core.model.FieldCopy;
-import org.apache.iotdb.utils.core.model.IField;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineSessionPool;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
 import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.service.ImportPipelineService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.session.Session;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.GroupedFlux;
 import reactor.core.publisher.ParallelFlux;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Data
 @Slf4j
-public class InRowModelFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> {
+public class InRowModelFileSink extends PipeSink<RowBatch, RowBatch> {
 
     private String name;
 
@@ -37,91 +40,222 @@ public class InRowModelFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesR
 
     private AtomicLong finishedRowNum = new AtomicLong();
 
+    private ImportPipelineService importPipelineService;
+
+    //一次insertTablets的数据点数上限
+    private static final long GROUP_CELL_BUDGET = 4L * RowBatch.CELL_BUDGET;
+
     /**
-     * 把每条'rails'里的数据做一个buffer，批处理插入功能
-     * rails 轨道，对应的是一条线程，目前是一个文件一个线程
-     * 一下数据代表的是iotdb java原生导入接口对应的入参
+     * 数据源每个rail按文件（切片）输出RowBatch，每个batch是同一设备的连续数据，批处理插入功能
+     * rails 轨道，对应的是一条线程，目前是一个文件一个线程，每组batch从session池借用独立的连接写入
+     * 默认每个batch直接转化为一个Tablet（共用batch的基本类型数组和bitMap），rail上连续的batch合并为一组，
+     * 不同设备的Tablet一次insertTablets/insertAlignedTablets写入；一组数据点数超过 GROUP_CELL_BUDGET、
+     * 遇到结束标志或者sql语句时写入这一组
+     * InsertStrategyEnum.RECORDS 时按行写入，以下数据代表的是iotdb java原生导入接口对应的入参
      * String deviceId；    设备路径
      * List<Long> timeSeriesList = new ArrayList<>();   一行对应的timeseries
      * List<List<String>> measurementsList = new ArrayList<>();  一样对应的measurement，List<String>  一列对应的measurement
      * List<List<TSDataType>> typesList = new ArrayList<>();    同上
      * List<List<Object>> valuesList = new ArrayList<>();      同上
+     * sql文件中无法转化为batch的语句（batch.statements）按顺序原样执行
+     * 写入成功（insert返回）之后在检查点日志中记录batch在文件中的位置，写入失败的文件不再记录进度
      *
      * @return
      */
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
+    public Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>> doExecute() {
         return sink -> sink
-                .transformGroups((Function<GroupedFlux<Integer, TimeSeriesRowModel>, Publisher<? extends TimeSeriesRowModel>>) integerTimeSeriesRowModelGroupedFlux ->
-                        integerTimeSeriesRowModelGroupedFlux
-                                .buffer(10000, 10000)
-                                .flatMap(allList -> {
-                                    return Flux.deferContextual(contextView -> {
-                                        PipelineContext<ImportModel> context = contextView.get("pipelineContext");
-                                        totalFileNum = contextView.get("totalSize");
-                                        ImportModel importModel = context.getModel();
-                                        Session session = importModel.getSession();
-                                        //reactor 线程任务窃取会导致出现不同的deviceId对应的数据
-                                        Map<String, List<TimeSeriesRowModel>> groupMap = allList.stream()
-                                                .collect(Collectors.toMap(k -> k.getDeviceModel().getDeviceName(), p -> {
-                                                    List<TimeSeriesRowModel> result = new ArrayList();
-                                                    result.add(p);
-                                                    return result;
-                                                }, (o, n) -> {
-                                                    o.addAll(n);
-                                                    return o;
-                                                }));
-                                        for(String groupKey : groupMap.keySet()){
-                                            if (groupKey.startsWith("finish")) {
+                .transformGroups((Function<GroupedFlux<Integer, RowBatch>, Publisher<? extends RowBatch>>) integerRowBatchGroupedFlux ->
+                        //上下文和session池在每个rail解析一次
+                        Flux.deferContextual(contextView -> {
+                            PipelineContext<ImportModel> context = contextView.get("pipelineContext");
+                            totalFileNum = contextView.get("totalSize");
+                            ImportModel importModel = context.getModel();
+                            PipelineSessionPool sessionPool = PipelineSessionPool.getOrCreate(importModel);
+                            ImportCheckpoint checkpoint = importModel.getCheckpoint();
+                            boolean tabletStrategy = importModel.getInsertStrategyEnum() != InsertStrategyEnum.RECORDS;
+                            //当前组的数据点数，每个rail一个
+                            long[] groupCells = new long[1];
+                            return integerRowBatchGroupedFlux
+                                    .bufferUntil(batch -> {
+                                        if (!tabletStrategy || batch.isFinish() || batch.getStatements() != null) {
+                                            groupCells[0] = 0;
+                                            return true;
+                                        }
+                                        groupCells[0] += (long) batch.getRowCount() * Math.max(1, batch.getColumnSize());
+                                        if (groupCells[0] >= GROUP_CELL_BUDGET) {
+                                            groupCells[0] = 0;
+                                            return true;
+                                        }
+                                        return false;
+                                    })
+                                    //结束标志和sql语句只会是一组的最后一个
+                                    .concatMap(group -> {
+                                        RowBatch last = group.get(group.size() - 1);
+                                        boolean special = last.isFinish() || last.getStatements() != null;
+                                        List<RowBatch> dataList = special ? group.subList(0, group.size() - 1) : group;
+                                        Flux<RowBatch> written = dataList.isEmpty() ? Flux.empty()
+                                                : sessionPool.withSession(session -> Flux.fromIterable(writeBatches(session, dataList, tabletStrategy, checkpoint)));
+                                        if (!special) {
+                                            return written;
+                                        }
+                                        return written.concatWith(Flux.defer(() -> {
+                                            if (last.isFinish()) {
                                                 finishedFileNum.incrementAndGet();
-                                                continue;
-                                            }
-                                            List<TimeSeriesRowModel> list = groupMap.get(groupKey);
-                                            String deviceId = list.get(0).getDeviceModel().getDeviceName();
-                                            Boolean isAligned = list.get(0).getDeviceModel().isAligned();
-
-                                            List<Long> timeSeriesList = new ArrayList<>();
-                                            List<List<String>> measurementsList = new ArrayList<>();
-                                            List<List<TSDataType>> typesList = new ArrayList<>();
-                                            List<List<Object>> valuesList = new ArrayList<>();
-
-                                            list.stream().forEach(rowModel -> {
-                                                List<String> rowMeasurementList = new ArrayList<>();
-                                                List<TSDataType> rowDataTypeList = new ArrayList<>();
-                                                List<Object> rowValueList = new ArrayList<>();
-                                                timeSeriesList.add(Long.parseLong(rowModel.getTimestamp()));
-                                                for (IField iField : rowModel.getIFieldList()) {
-                                                    if (iField.getField() != null) {
-                                                        FieldCopy field = iField.getField();
-                                                        rowMeasurementList.add(iField.getColumnName());
-                                                        rowDataTypeList.add(field.getDataType());
-                                                        if (field.getDataType() == TSDataType.TEXT) {
-                                                            rowValueList.add(field.getStringValue());
-                                                        } else {
-                                                            rowValueList.add(field.getObjectValue(field.getDataType()));
-                                                        }
-                                                    }
-                                                }
-                                                measurementsList.add(rowMeasurementList);
-                                                typesList.add(rowDataTypeList);
-                                                valuesList.add(rowValueList);
-                                            });
-                                            try {
-                                                if (isAligned) {
-                                                    session.insertAlignedRecordsOfOneDevice(deviceId, timeSeriesList, measurementsList, typesList, valuesList);
-                                                } else {
-                                                    session.insertRecordsOfOneDevice(deviceId, timeSeriesList, measurementsList, typesList, valuesList);
+                                                if (checkpoint != null) {
+                                                    checkpoint.finish(last);
                                                 }
-                                            } catch (IoTDBConnectionException | StatementExecutionException e) {
-                                                log.error("异常信息:",e);
+                                                return Flux.just(last);
                                             }
-                                            finishedRowNum.addAndGet(list.size());
-                                        }
-                                        return Flux.fromIterable(allList);
-                                    });
-                                }));
+                                            return sessionPool.withSession(session -> {
+                                                boolean success = executeStatements(session, last.getStatements());
+                                                commit(checkpoint, last, success);
+                                                finishedRowNum.addAndGet(last.getStatements().size());
+                                                return Flux.just(last);
+                                            });
+                                        }));
+                                    }, 1);
+                        }));
+
 
+    }
+
+    /**
+     * 写入一组数据batch，同一设备在组内出现多次时分多次insertTablets，保证同一设备按顺序写入
+     */
+    private List<RowBatch> writeBatches(Session session, List<RowBatch> batchList, boolean tabletStrategy, ImportCheckpoint checkpoint) {
+        if (!tabletStrategy) {
+            for (RowBatch batch : batchList) {
+                boolean success = batch.getRowCount() == 0
+                        || insertRecords(session, batch.getDeviceModel().getDeviceName(), batch.getDeviceModel().isAligned(), batch);
+                commit(checkpoint, batch, success);
+                if (success) {
+                    finishedRowNum.addAndGet(batch.getRowCount());
+                }
+            }
+            return batchList;
+        }
+        Map<String, Tablet> tabletMap = new HashMap<>();
+        Map<String, Tablet> alignedTabletMap = new HashMap<>();
+        List<RowBatch> pendingList = new ArrayList<>();
+        List<RowBatch> alignedPendingList = new ArrayList<>();
+        for (RowBatch batch : batchList) {
+            if (batch.getRowCount() == 0) {
+                commit(checkpoint, batch, true);
+                continue;
+            }
+            String deviceId = batch.getDeviceModel().getDeviceName();
+            if (tabletMap.containsKey(deviceId) || alignedTabletMap.containsKey(deviceId)) {
+                insertTablets(session, tabletMap, pendingList, false, checkpoint);
+                insertTablets(session, alignedTabletMap, alignedPendingList, true, checkpoint);
+            }
+            if (batch.getDeviceModel().isAligned()) {
+                alignedTabletMap.put(deviceId, batch.toTablet(deviceId));
+                alignedPendingList.add(batch);
+            } else {
+                tabletMap.put(deviceId, batch.toTablet(deviceId));
+                pendingList.add(batch);
+            }
+        }
+        insertTablets(session, tabletMap, pendingList, false, checkpoint);
+        insertTablets(session, alignedTabletMap, alignedPendingList, true, checkpoint);
+        return batchList;
+    }
+
+    /**
+     * 对齐和非对齐的Tablet分别写入，一次写入失败只影响这一次的batch，失败的行不计入已完成行数
+     */
+    private void insertTablets(Session session, Map<String, Tablet> tabletMap, List<RowBatch> pendingList,
+                               boolean aligned, ImportCheckpoint checkpoint) {
+        if (tabletMap.isEmpty()) {
+            return;
+        }
+        boolean success = true;
+        try {
+            if (aligned) {
+                session.insertAlignedTablets(tabletMap);
+            } else {
+                session.insertTablets(tabletMap);
+            }
+        } catch (IoTDBConnectionException | StatementExecutionException e) {
+            log.error("异常信息:",e);
+            success = false;
+        }
+        for (RowBatch batch : pendingList) {
+            commit(checkpoint, batch, success);
+            if (success) {
+                finishedRowNum.addAndGet(batch.getRowCount());
+            }
+        }
+        tabletMap.clear();
+        pendingList.clear();
+    }
+
+    private void commit(ImportCheckpoint checkpoint, RowBatch batch, boolean success) {
+        if (checkpoint == null) {
+            return;
+        }
+        if (success) {
+            checkpoint.commit(batch);
+        } else {
+            checkpoint.fail(batch);
+        }
+    }
+
+    private boolean executeStatements(Session session, List<String> statements) {
+        boolean success = true;
+        for (String statement : statements) {
+            try {
+                session.executeNonQueryStatement(statement);
+            } catch (IoTDBConnectionException | StatementExecutionException e) {
+                log.error("异常信息:",e);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * 按行写入，一行对应的measurement、类型、值分别组成list
+     */
+    private boolean insertRecords(Session session, String deviceId, boolean isAligned, RowBatch batch) {
+        List<Long> timeSeriesList = new ArrayList<>();
+        List<List<String>> measurementsList = new ArrayList<>();
+        List<List<TSDataType>> typesList = new ArrayList<>();
+        List<List<Object>> valuesList = new ArrayList<>();
 
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            List<String> rowMeasurementList = new ArrayList<>();
+            List<TSDataType> rowDataTypeList = new ArrayList<>();
+            List<Object> rowValueList = new ArrayList<>();
+            timeSeriesList.add(batch.getTimes()[row]);
+            for (int column = 0; column < batch.getColumnSize(); column++) {
+                if (!batch.isNull(column, row)) {
+                    TSDataType dataType = batch.getDataTypes()[column];
+                    rowMeasurementList.add(batch.getColumnNames()[column]);
+                    rowDataTypeList.add(dataType);
+                    if (dataType == TSDataType.TEXT) {
+                        rowValueList.add(batch.getStringValue(column, row));
+                    } else {
+                        rowValueList.add(batch.getObjectValue(column, row));
+                    }
+                }
+            }
+            measurementsList.add(rowMeasurementList);
+            typesList.add(rowDataTypeList);
+            valuesList.add(rowValueList);
+        }
+        try {
+            if (isAligned) {
+                session.insertAlignedRecordsOfOneDevice(deviceId, timeSeriesList, measurementsList, typesList, valuesList);
+            } else {
+                session.insertRecordsOfOneDevice(deviceId, timeSeriesList, measurementsList, typesList, valuesList);
+            }
+            return true;
+        } catch (IoTDBConnectionException | StatementExecutionException e) {
+            log.error("异常信息:",e);
+            return false;
+        }
     }
 
     @Override
@@ -141,5 +275,8 @@ public class InRowModelFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesR
 
     public InRowModelFileSink(String name){
         this.name = name;
+        if (this.importPipelineService == null) {
+            this.importPipelineService = ImportPipelineService.importPipelineService();
+        }
     }
 }
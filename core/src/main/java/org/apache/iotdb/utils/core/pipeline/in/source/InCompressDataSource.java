@@ -1,10 +1,18 @@
 package org.apache.iotdb.utils.core.pipeline.in.source;
 
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.compress.BlockReader;
+import org.apache.iotdb.utils.core.compress.BlockIndex;
+import org.apache.iotdb.utils.core.compress.ColumnBlockCodec;
+import org.apache.iotdb.utils.core.compress.CompressBuffers;
+import org.apache.iotdb.utils.core.compress.CompressHeader;
+import org.apache.iotdb.utils.core.compress.MappedBlockReader;
+import org.apache.iotdb.utils.core.compress.MappedFile;
+import org.apache.iotdb.utils.core.compress.StreamBlockReader;
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.FieldCopy;
-import org.apache.iotdb.utils.core.model.IField;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
@@ -12,27 +20,22 @@ import org.apache.iotdb.utils.core.service.ImportPipelineService;
 import org.apache.iotdb.utils.core.utils.ToByteArrayUtils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import net.jpountz.lz4.LZ4Factory;
-import net.jpountz.lz4.LZ4FastDecompressor;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
-import org.apache.iotdb.session.SessionDataSet;
-import org.apache.iotdb.tsfile.compress.ICompressor;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.Field;
-import org.apache.iotdb.tsfile.read.common.RowRecord;
-import org.xerial.snappy.Snappy;
+import org.apache.iotdb.tsfile.utils.Binary;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.ParallelFlux;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -41,7 +44,7 @@ import java.util.function.Function;
 
 @Data
 @Slf4j
-public class InCompressDataSource extends PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class InCompressDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -49,6 +52,9 @@ public class InCompressDataSource extends PipeSource<String, TimeSeriesRowModel,
 
     private Scheduler scheduler;
 
+    //带索引的文件，block并发解码使用的线程
+    private Scheduler decodeScheduler;
+
     private static final String CATALOG_COMPRESS = "CATALOG_COMPRESS.CATALOG";
 
     private ConcurrentHashMap<String, List<InputStream>> COMPRESS_MAP = new ConcurrentHashMap<>();
@@ -58,21 +64,23 @@ public class InCompressDataSource extends PipeSource<String, TimeSeriesRowModel,
     private int parallelism;
 
     @Override
-    public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> flux
                 .flatMap(s -> Flux.deferContextual(contextView -> {
                     PipelineContext<ImportModel> context = contextView.get("pipelineContext");
                     ImportModel importModel = context.getModel();
-                    FilenameFilter filenameFilter = initFileFilter(importModel);
+                    FilenameFilter filenameFilter = importPipelineService.pendingFilter(initFileFilter(importModel), importModel);
                     totalSize[0] = importPipelineService.getFileArray(filenameFilter,importModel.getFileFolder()).length;
                     return  importPipelineService.parseFluxFileName(filenameFilter,COMPRESS_MAP);
                 }))
                 .parallel(parallelism)
                 .runOn(scheduler)
-                .flatMap(this::parseTimeSeriesRowModel)
+                //每个rail同一时间只解析一个文件，同一设备的数据在rail上是连续的
+                .concatMap(this::parseRowBatch)
                 .transform(doNext())
                 .sequential()
                 .doFinally(signalType -> {
+                    decodeScheduler.dispose();
                     for(String key : COMPRESS_MAP.keySet()){
                         COMPRESS_MAP.get(key).forEach(inputStream -> {
                             if(inputStream != null){
@@ -91,194 +99,291 @@ public class InCompressDataSource extends PipeSource<String, TimeSeriesRowModel,
     }
 
     /**
-     * 读取csv文件，把数据转化为TimeSeriesRowModel流
-     * fileHeaderMap  timeseries和csv中所在position的map
-     * tsDataTypeMap  timeseries和TSDataType的map
-     * 根据timeseries获取数据对应的类型以及其对应的值  record.get(fileHeaderMap.get(header))
+     * 读取压缩文件，把数据转化为RowBatch流，每个block对应一个batch
+     * 文件通过内存映射读取，header、长度直接在映射区域解析，压缩数据从映射区域直接解压
+     * v2 格式带block索引时，跳过导入时间范围之外的block，其余block由多个线程并发解码，按顺序输出
+     * 没有索引时按顺序读取，v1 格式根据timeseries的类型把字符串解析为对应的值
+     * 继续导入时跳过已经写入的block（顺序读取时不解压），每个batch记录读取完后的block数
      * @param in
      * @return
      */
-    public Flux<TimeSeriesRowModel> parseTimeSeriesRowModel(InputStream in) {
+    public Flux<RowBatch> parseRowBatch(InputStream in) {
         return Flux.deferContextual(context ->{
             PipelineContext<ImportModel> pcontext = context.get("pipelineContext");
             ImportModel importModel = pcontext.getModel();
-            return Flux.create((Consumer<FluxSink<TimeSeriesRowModel>>) sink -> {
-                try {
-                    Pair<String[],String> pair = parseCompressHeader(in);
-                    String[] timeseries = pair.getLeft();
-                    String deviceName = null;
-                    if(timeseries.length != 0){
-                        deviceName = timeseries[0].substring(0,timeseries[0].lastIndexOf("."));
-                    }
-
-                    StringBuilder sql = new StringBuilder();
-                    sql.append(" show devices ")
-                            .append(ExportPipelineService.formatPath(deviceName));
-                    SessionDataSet alignedSet = importModel.getSession().executeQueryStatement(sql.toString());
-
-                    List<String> columnNameList = alignedSet.getColumnNames();
-                    DeviceModel deviceModel = new DeviceModel();
-                    if (alignedSet.hasNext()){
-                        RowRecord record = alignedSet.next();
-                        int position = columnNameList.indexOf("isAligned");
-                        String aligned = record.getFields().get(position).getStringValue();
-                        deviceModel.setDeviceName(deviceName);
-                        deviceModel.setAligned(Boolean.parseBoolean(aligned));
-                    }
-                    sql.delete(0,sql.length());
-                    sql.append("show timeseries ")
-                            .append(ExportPipelineService.formatPath(deviceName))
-                            .append(".*");
-                    SessionDataSet timeseriesSet = importModel.getSession().executeQueryStatement(sql.toString());
-                    columnNameList = timeseriesSet.getColumnNames();
-                    Map<String, TSDataType> tsDataTypeMap = new HashMap<>();
-                    while (timeseriesSet.hasNext()){
-                        RowRecord record = timeseriesSet.next();
-                        int position = columnNameList.indexOf("timeseries");
-                        String measurement = record.getFields().get(position).getStringValue();
-                        position = columnNameList.indexOf("dataType");
-                        String type = record.getFields().get(position).getStringValue();
-                        tsDataTypeMap.put(measurement,importPipelineService.parseTsDataType(type));
-                    }
-
-                    while (true){
-                        List<TimeSeriesRowModel> rowModelList = new ArrayList<>();
-                        List<String[]> data = parseCompressData(in,pair.getLeft().length + 1,pair.getRight());
-                        if(data.size() == 0){
-                            break;
-                        }
-                        for(String times : data.get(0)){
-                            TimeSeriesRowModel rowModel = new TimeSeriesRowModel();
-                            rowModel.setTimestamp(times);
-                            rowModel.setDeviceModel(deviceModel);
-                            rowModelList.add(rowModel);
-                        }
-
-                        for(int i = 1; i< data.size() ; i++){
-                            String[] v = data.get(i);
-                            for(int j = 0; j< v.length; j++){
-                                TimeSeriesRowModel rowModel = rowModelList.get(j);
-                                if(rowModel.getIFieldList() == null){
-                                    rowModel.setIFieldList(new ArrayList<>());
-                                }
-                                String value = v[j];
-                                String measurement = timeseries[i-1];
-                                TSDataType type = tsDataTypeMap.get(timeseries[i-1]);
-                                IField iField = new IField();
-                                iField.setColumnName(measurement);
-                                if(value == null){
-                                    iField.setField(null);
-                                }else{
-                                    Field field = new Field(type);
-                                    field = importPipelineService.generateFieldValue(field,value);
-                                    iField.setField(FieldCopy.copy(field));
+            ImportCheckpoint checkpoint = importModel.getCheckpoint();
+            String fileName = checkpoint == null ? null : checkpoint.fileName(in);
+            long skip = fileName == null ? 0 : checkpoint.position(fileName, 0);
+            Flux<RowBatch> rowFlux;
+            String deviceName = null;
+            try {
+                MappedFile mappedFile = null;
+                BlockReader reader;
+                if (in instanceof FileInputStream) {
+                    mappedFile = new MappedFile(((FileInputStream) in).getChannel());
+                    reader = new MappedBlockReader(mappedFile);
+                } else {
+                    reader = new StreamBlockReader(in);
+                }
+                CompressHeader header = parseCompressHeader(reader);
+                String[] timeseries = header.getTimeseries();
+                if(timeseries.length != 0){
+                    deviceName = timeseries[0].substring(0,timeseries[0].lastIndexOf("."));
+                }
+                DeviceModel deviceModel = importPipelineService.queryDeviceModel(deviceName,importModel);
+                BlockIndex blockIndex = null;
+                if (header.getVersion() == ColumnBlockCodec.VERSION_2 && mappedFile != null) {
+                    blockIndex = BlockIndex.read(((FileInputStream) in).getChannel());
+                }
+                if (blockIndex != null) {
+                    rowFlux = parseIndexedBlock(mappedFile,blockIndex,header,deviceModel,importModel,skip);
+                } else {
+                    String name = deviceName;
+                    rowFlux = Flux.create((Consumer<FluxSink<RowBatch>>) sink -> {
+                        try {
+                            long blockNo = 0;
+                            while (blockNo < skip && skipBlock(reader, timeseries.length + 1)) {
+                                blockNo++;
+                            }
+                            if (header.getVersion() == ColumnBlockCodec.VERSION_2) {
+                                while (true) {
+                                    RowBatch batch = parseColumnBatch(reader, timeseries, deviceModel, header.getCompressType());
+                                    if (batch == null) {
+                                        break;
+                                    }
+                                    batch.retainTimeRange(importModel.getStartTime(), importModel.getEndTime());
+                                    batch.setSourcePosition(++blockNo);
+                                    sink.next(batch);
                                 }
-                                rowModel.getIFieldList().add(iField);
+                            } else {
+                                parseStringBlock(reader, header, name, deviceModel, importModel, sink, blockNo);
                             }
+                            sink.complete();
+                        } catch (IOException |StatementExecutionException | IoTDBConnectionException e) {
+                            sink.error(e);
                         }
-                        for (TimeSeriesRowModel rowModel : rowModelList) {
-                            sink.next(rowModel);
-                        }
-                    }
-                    sink.complete();
-                    TimeSeriesRowModel finishRowModel = new TimeSeriesRowModel();
-                    DeviceModel finishDeviceModel = new DeviceModel();
-                    StringBuilder builder = new StringBuilder();
-                    builder.append("finish,")
-                            .append(deviceName);
-                    finishDeviceModel.setDeviceName(builder.toString());
-                    finishRowModel.setDeviceModel(finishDeviceModel);
-                    finishRowModel.setIFieldList(new ArrayList<>());
-                    sink.next(finishRowModel);
-                    sink.complete();
-                } catch (IOException |StatementExecutionException | IoTDBConnectionException e) {
-                    sink.error(e);
-                } finally {
-                    try {
-                        if (in != null) {
-                            in.close();
-                        }
-                    } catch (IOException e) {
-                        log.error("异常信息:",e);
-                    }
+                    });
                 }
-            });
+            } catch (IOException |StatementExecutionException | IoTDBConnectionException e) {
+                closeInputStream(in);
+                return Flux.error(e);
+            }
+            RowBatch finish = RowBatch.finish(deviceName);
+            finish.setSourceFile(fileName);
+            rowFlux = rowFlux.doOnNext(batch -> batch.setSourceFile(fileName));
+            if (checkpoint != null) {
+                rowFlux = rowFlux.doOnNext(checkpoint::emit);
+            }
+            return rowFlux
+                    .concatWith(Flux.just(finish))
+                    .doFinally(signalType -> closeInputStream(in));
         });
     }
 
+    /**
+     * 根据索引读取block，并发解码，跳过前skip个已经写入的block
+     */
+    private Flux<RowBatch> parseIndexedBlock(MappedFile mappedFile,BlockIndex blockIndex,CompressHeader header,
+                                                      DeviceModel deviceModel,ImportModel importModel,long skip){
+        List<Integer> blockNoList = new ArrayList<>();
+        for(int i = (int) Math.min(skip, blockIndex.getEntries().size()); i < blockIndex.getEntries().size(); i++){
+            if(blockIndex.getEntries().get(i).overlaps(importModel.getStartTime(),importModel.getEndTime())){
+                blockNoList.add(i);
+            }
+        }
+        return Flux.fromIterable(blockNoList)
+                .flatMapSequential(i -> Mono.fromCallable(() -> {
+                    long offset = blockIndex.getEntries().get(i).getOffset();
+                    BlockReader reader = new MappedBlockReader(mappedFile,offset,offset + blockIndex.blockLength(i));
+                    RowBatch batch = parseColumnBatch(reader,header.getTimeseries(),deviceModel,header.getCompressType());
+                    batch.retainTimeRange(importModel.getStartTime(),importModel.getEndTime());
+                    batch.setSourcePosition(i + 1);
+                    return batch;
+                }).subscribeOn(decodeScheduler),parallelism,1);
+    }
+
+    /**
+     * v1 格式，列数据为字符串，根据timeseries的类型解析，写入batch的列数组
+     */
+    private void parseStringBlock(BlockReader reader,CompressHeader header,String deviceName,DeviceModel deviceModel,
+                                  ImportModel importModel,FluxSink<RowBatch> sink,long blockNo)
+            throws IOException, StatementExecutionException, IoTDBConnectionException {
+        String[] timeseries = header.getTimeseries();
+        Map<String, TSDataType> tsDataTypeMap = importPipelineService.queryTsDataTypeMap(deviceName,importModel);
+        //每列复用一个Field解析字符串
+        Field[] fields = new Field[timeseries.length];
+        for(int i = 0; i < timeseries.length; i++){
+            fields[i] = new Field(tsDataTypeMap.get(timeseries[i]));
+        }
+
+        while (true){
+            List<String[]> data = parseCompressData(reader,timeseries.length + 1,header.getCompressType());
+            if(data.size() == 0){
+                break;
+            }
+            String[] times = data.get(0);
+            RowBatch batch = new RowBatch(deviceModel,timeseries,times.length);
+            for(String time : times){
+                batch.addRow(Long.parseLong(time));
+            }
+            for(int i = 1; i< data.size() ; i++){
+                String[] v = data.get(i);
+                for(int j = 0; j< v.length; j++){
+                    if(v[j] != null){
+                        batch.put(i - 1,j,importPipelineService.generateFieldValue(fields[i - 1],v[j]));
+                    }
+                }
+            }
+            batch.retainTimeRange(importModel.getStartTime(),importModel.getEndTime());
+            batch.setSourcePosition(++blockNo);
+            sink.next(batch);
+        }
+    }
+
+    private void closeInputStream(InputStream in){
+        try {
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.error("异常信息:",e);
+        }
+    }
+
     public FilenameFilter initFileFilter(ImportModel importModel){
         return (dir, name) -> {
-            switch (importModel.getCompressEnum()){
-                case SNAPPY:
-                    if (!name.toLowerCase().endsWith(".snappy.bin")) {
-                        return false;
-                    }
-                    return true;
-                case GZIP:
-                    if (!name.toLowerCase().endsWith(".gz.bin")) {
-                        return false;
-                    }
-                    return true;
-                case LZ4:
-                    if (!name.toLowerCase().endsWith(".lz4.bin")) {
-                        return false;
-                    }
-                    return true;
-                default:
-                    if (!name.toLowerCase().endsWith(".bin")) {
-                        return false;
-                    }
-                    return true;
+            if (BlockCompressors.contains(importModel.getCompressEnum())) {
+                return name.toLowerCase().endsWith(BlockCompressors.get(importModel.getCompressEnum()).fileSuffix());
             }
+            return name.toLowerCase().endsWith(".bin");
         };
     }
 
     //解析header， 获取设备对应的measurement属性
-    public Pair<String[],String> parseCompressHeader(InputStream in) throws IOException {
-        byte[] b = new byte[12];
-        in.read(b,0,12);
+    public CompressHeader parseCompressHeader(InputStream in) throws IOException {
+        return parseCompressHeader(new StreamBlockReader(in));
+    }
 
-        String mo = new String(ArrayUtils.subarray(b,0,4));
-        short version = ToByteArrayUtils.byteArrayToShort(ArrayUtils.subarray(b,4,6));
-        String compressType = new String(ArrayUtils.subarray(b,6,8));
-        int length = ToByteArrayUtils.byteArrayToInt(ArrayUtils.subarray(b,8,12));
+    public CompressHeader parseCompressHeader(BlockReader reader) throws IOException {
+        // 模数 4byte  版本 2byte 压缩格式 2byte header长度 4byte
+        ByteBuffer b = readFully(reader,12);
+        b.position(b.position() + 4);
+        short version = b.getShort();
+        byte[] compressType = new byte[2];
+        b.get(compressType);
+        int length = b.getInt();
 
         byte[] tb = new byte[length];
-        in.read(tb,0,length);
-        String[] header = (String[]) ToByteArrayUtils.convertToObject(tb);
-        return Pair.of(header,compressType);
+        readFully(reader,length).get(tb);
+        CompressHeader header = new CompressHeader();
+        header.setVersion(version);
+        header.setCompressType(new String(compressType));
+        header.setTimeseries((String[]) ToByteArrayUtils.convertToObject(tb));
+        return header;
+    }
+
+    /**
+     * 读取一个v2格式的block，列数据直接解码到batch的基本类型数组
+     * @param reader
+     * @param timeseries 列名字典，同一个文件的batch共用
+     * @param deviceModel
+     * @param compressType
+     * @return 文件读取完毕时返回null
+     */
+    public RowBatch parseColumnBatch(BlockReader reader,String[] timeseries,DeviceModel deviceModel,String compressType) throws IOException {
+        if(!readBlockMarker(reader)){
+            return null;
+        }
+        long[] times = ColumnBlockCodec.decodeTime(readCompressData(reader,compressType));
+        RowBatch batch = new RowBatch(deviceModel,timeseries,times.length);
+        for(long time : times){
+            batch.addRow(time);
+        }
+        for(int i = 0; i < timeseries.length; i++){
+            ColumnBlockCodec.decodeColumn(readCompressData(reader,compressType),batch,i);
+            if(batch.getDataTypes()[i] == TSDataType.TEXT){
+                Binary[] values = (Binary[]) batch.getValues()[i];
+                for(int j = 0; j < batch.getRowCount(); j++){
+                    if(!batch.isNull(i,j)){
+                        values[j] = unquote(values[j]);
+                    }
+                }
+            }
+        }
+        return batch;
     }
 
+    //导出时TEXT两端加了引号，与 generateFieldValue 一样去掉
+    private Binary unquote(Binary binary){
+        byte[] bytes = binary.getValues();
+        if(bytes.length >= 2 && bytes[0] == '"' && bytes[bytes.length - 1] == '"'){
+            return new Binary(Arrays.copyOfRange(bytes,1,bytes.length - 1));
+        }
+        return binary;
+    }
+
+    /**
+     * 跳过一个block，只读取长度，不解压
+     * @param columnSize 包含时间列的列数
+     * @return 文件读取完毕时返回false
+     */
+    private boolean skipBlock(BlockReader reader,int columnSize) throws IOException {
+        if(!readBlockMarker(reader)){
+            return false;
+        }
+        for(int i = 0; i < columnSize; i++){
+            ByteBuffer lengths = readFully(reader,8);
+            lengths.getInt();
+            readFully(reader,lengths.getInt());
+        }
+        return true;
+    }
+
+    //读取 "block" 标记，文件结束或遇到索引时返回false
+    private boolean readBlockMarker(BlockReader reader) throws IOException {
+        ByteBuffer marker = reader.read(5);
+        if(marker == null){
+            return false;
+        }
+        byte[] index = BlockIndex.INDEX_MARKER.getBytes();
+        for(int i = 0; i < index.length; i++){
+            if(marker.get(marker.position() + i) != index[i]){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //读取 原始长度 + 压缩后长度 + 压缩数据，解压到线程复用的缓冲区，下次读取前有效
+    private ByteBuffer readCompressData(BlockReader reader,String compressType) throws IOException {
+        ByteBuffer lengths = readFully(reader,8);
+        int originalLength = lengths.getInt();
+        int compressedLength = lengths.getInt();
+        ByteBuffer compressed = readFully(reader,compressedLength);
+        ByteBuffer original = CompressBuffers.directBuffer(originalLength);
+        BlockCompressors.get(compressType).uncompress(compressed,original,originalLength);
+        return original;
+    }
+
+    private ByteBuffer readFully(BlockReader reader,int length) throws IOException {
+        ByteBuffer buffer = reader.read(length);
+        if(buffer == null){
+            throw new EOFException("unexpected end of compressed file");
+        }
+        return buffer;
+    }
 
     public List<String[]> parseCompressData(InputStream in,int lopSize,String compressType) throws IOException {
-        byte[] block = new byte[5];
-        int flag = in.read(block,0,5);
+        return parseCompressData(new StreamBlockReader(in),lopSize,compressType);
+    }
+
+    public List<String[]> parseCompressData(BlockReader reader,int lopSize,String compressType) throws IOException {
         List<String[]> data = new ArrayList<>();
-        if(flag != -1){
+        if(readBlockMarker(reader)){
             for(int i = 0; i < lopSize; i++){
-                byte[] b = new byte[8];
-                in.read(b,0,8);
-                int originalLength = ToByteArrayUtils.byteArrayToInt(ArrayUtils.subarray(b,0,4));
-                int compressedLength = ToByteArrayUtils.byteArrayToInt(ArrayUtils.subarray(b,4,8));
-                byte[] compressedValue = new byte[compressedLength];
-                in.read(compressedValue,0,compressedLength);
-                byte[] originalBytes;
-                switch(compressType){
-                    case "01":
-                        originalBytes = Snappy.uncompress(compressedValue);
-                        break;
-                    case "02":
-                        originalBytes = ICompressor.GZIPCompress.uncompress(compressedValue);
-                        break;
-                    case "03":
-                        LZ4Factory factory = LZ4Factory.fastestInstance();
-                        LZ4FastDecompressor decompressor = factory.fastDecompressor();
-                        originalBytes = new byte[originalLength];
-                        decompressor.decompress(compressedValue,originalBytes);
-                        break;
-                    default:
-                        throw new IllegalStateException("Unexpected value: " + compressType);
-                }
+                ByteBuffer buffer = readCompressData(reader,compressType);
+                byte[] originalBytes = new byte[buffer.remaining()];
+                buffer.get(originalBytes);
                 String[] originalArr = (String[]) ToByteArrayUtils.convertToObject(originalBytes);
                 data.add(originalArr);
             }
@@ -294,6 +399,7 @@ public class InCompressDataSource extends PipeSource<String, TimeSeriesRowModel,
         this.name = name;
         this.parallelism = parallelism <= 0 ? Schedulers.DEFAULT_POOL_SIZE : parallelism;
         this.scheduler = Schedulers.newParallel("compress-pipeline-thread",this.parallelism);
+        this.decodeScheduler = Schedulers.newParallel("compress-decode-thread",this.parallelism);
         if(this.importPipelineService == null){
             this.importPipelineService = ImportPipelineService.importPipelineService();
         }
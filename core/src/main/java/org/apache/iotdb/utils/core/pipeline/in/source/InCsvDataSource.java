@@ -1,38 +1,39 @@
 package org.apache.iotdb.utils.core.pipeline.in.source;
 
+import org.apache.iotdb.utils.core.model.CsvChunkModel;
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.FieldCopy;
-import org.apache.iotdb.utils.core.model.IField;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
-import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import org.apache.iotdb.utils.core.service.ImportPipelineService;
+import org.apache.iotdb.utils.core.utils.CsvFileSplitter;
+import org.apache.iotdb.utils.core.utils.FileRangeInputStream;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.*;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
-import org.apache.iotdb.session.SessionDataSet;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.Field;
-import org.apache.iotdb.tsfile.read.common.RowRecord;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.ParallelFlux;
+import reactor.core.publisher.SynchronousSink;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 @Data
 @Slf4j
-public class InCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class InCsvDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -48,19 +49,27 @@ public class InCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Func
 
     private int parallelism;
 
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
     @Override
-    public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> flux
                 .flatMap(s -> Flux.deferContextual(contextView -> {
                     PipelineContext<ImportModel> context = contextView.get("pipelineContext");
                     ImportModel importModel = context.getModel();
-                    FilenameFilter filenameFilter = initFileFilter(importModel);
+                    FilenameFilter filenameFilter = importPipelineService.pendingFilter(initFileFilter(importModel), importModel);
                     totalSize[0] = importPipelineService.getFileArray(filenameFilter,importModel.getFileFolder()).length;
                     return importPipelineService.parseFluxFileName(filenameFilter,COMPRESS_MAP);
                 }))
                 .parallel(parallelism)
                 .runOn(scheduler)
-                .flatMap(this::parseTimeSeriesRowModel)
+                .flatMap(this::splitCsvFile)
+                //大文件切片后重新分配到各个rail上，同一文件的切片并发解析
+                .sequential()
+                .parallel(parallelism)
+                .runOn(scheduler)
+                //每个rail同一时间只解析一个切分块，同一设备的数据在rail上是连续的
+                .concatMap(this::parseRowBatch)
                 .transform(doNext())
                 .sequential()
                 .doFinally(signalType -> {
@@ -82,122 +91,230 @@ public class InCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Func
     }
 
     /**
-     * 读取csv文件，把数据转化为TimeSeriesRowModel流
-     * fileHeaderMap  timeseries和csv中所在position的map
-     * tsDataTypeMap  timeseries和TSDataType的map
-     * 根据timeseries获取数据对应的类型以及其对应的值  record.get(fileHeaderMap.get(header))
+     * 读取csv文件的header，查询设备和timeseries类型，把文件切分为多个切片
+     * 文件按 csvChunkSize 切分，切分点对齐到记录边界；同一设备的行分布在不同切片中，
+     * 每行都带有时间戳，Tablet 写入前会按时间排序，所以切片之间的顺序不影响结果
      * @param in
      * @return
      */
-    public Flux<TimeSeriesRowModel> parseTimeSeriesRowModel(InputStream in) {
+    public Flux<CsvChunkModel> splitCsvFile(InputStream in) {
+        return Flux.deferContextual(context -> {
+            PipelineContext<ImportModel> pcontext = context.get("pipelineContext");
+            ImportModel importModel = pcontext.getModel();
+            try {
+                FileChannel channel = null;
+                byte[] headerBytes;
+                long headerEnd = 0;
+                if (in instanceof FileInputStream) {
+                    channel = ((FileInputStream) in).getChannel();
+                    headerEnd = CsvFileSplitter.headerEnd(channel);
+                    ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+                    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                    }
+                    headerBytes = buffer.array();
+                } else {
+                    headerBytes = readLine(in);
+                }
+                String[] headers = parseHeader(new String(headerBytes, importModel.getCharSet()));
+
+                String entityPath = null;
+                for (String header : headers) {
+                    if (!"Time".equals(header)) {
+                        entityPath = header.substring(0, header.lastIndexOf("."));
+                    }
+                }
+                //存在entitypath为空的情况,也就是csv中只有time一列的时候
+                if (entityPath == null) {
+                    closeInputStream(in);
+                    return Flux.empty();
+                }
+                DeviceModel deviceModel = importPipelineService.queryDeviceModel(entityPath, importModel);
+                Map<String, TSDataType> tsDataTypeMap = importPipelineService.queryTsDataTypeMap(entityPath, importModel);
+                //列名字典和列类型，同一文件的所有切片共用
+                List<String> columnNameList = new ArrayList<>();
+                int[] columnIndex = new int[headers.length];
+                for (int i = 0; i < headers.length; i++) {
+                    if ("Time".equals(headers[i])) {
+                        columnIndex[i] = -1;
+                    } else {
+                        columnIndex[i] = columnNameList.size();
+                        columnNameList.add(headers[i]);
+                    }
+                }
+                String[] columnNames = columnNameList.toArray(new String[0]);
+                TSDataType[] dataTypes = new TSDataType[columnNames.length];
+                for (int i = 0; i < columnNames.length; i++) {
+                    dataTypes[i] = tsDataTypeMap.get(columnNames[i]);
+                }
+
+                List<long[]> rangeList;
+                if (channel != null) {
+                    Long chunkSize = importModel.getCsvChunkSize() == null ? DEFAULT_CHUNK_SIZE : importModel.getCsvChunkSize();
+                    rangeList = CsvFileSplitter.split(channel, headerEnd, chunkSize);
+                } else {
+                    rangeList = Collections.singletonList(new long[2]);
+                }
+                String fileName = importModel.getCheckpoint() == null ? null : importModel.getCheckpoint().fileName(in);
+                AtomicInteger remainingChunk = new AtomicInteger(rangeList.size());
+                List<CsvChunkModel> chunkList = new ArrayList<>();
+                for (long[] range : rangeList) {
+                    CsvChunkModel chunk = new CsvChunkModel();
+                    chunk.setIn(in);
+                    chunk.setFileName(fileName);
+                    chunk.setChannel(channel);
+                    chunk.setStart(range[0]);
+                    chunk.setEnd(range[1]);
+                    chunk.setHeaders(headers);
+                    chunk.setDeviceModel(deviceModel);
+                    chunk.setColumnNames(columnNames);
+                    chunk.setColumnIndex(columnIndex);
+                    chunk.setDataTypes(dataTypes);
+                    chunk.setRemainingChunk(remainingChunk);
+                    chunkList.add(chunk);
+                }
+                return Flux.fromIterable(chunkList);
+            } catch (IOException | StatementExecutionException | IoTDBConnectionException e) {
+                closeInputStream(in);
+                return Flux.error(e);
+            }
+        });
+    }
+
+    /**
+     * 解析csv切片，把数据转化为RowBatch流
+     * Flux.generate 每次下游请求解析一个batch的行，值根据列类型直接写入batch的列数组
+     * 最后一个切片解析完后输出结束标志并关闭文件
+     * 继续导入时跳过切片中已经写入的行，每个batch记录读取完后在切片中的行数
+     * @param chunk
+     * @return
+     */
+    public Flux<RowBatch> parseRowBatch(CsvChunkModel chunk) {
         return Flux.deferContextual(context ->{
             PipelineContext<ImportModel> pcontext = context.get("pipelineContext");
             ImportModel importModel = pcontext.getModel();
-            return Flux.create((Consumer<FluxSink<TimeSeriesRowModel>>) sink -> {
+            String[] columnNames = chunk.getColumnNames();
+            int[] columnIndex = chunk.getColumnIndex();
+            TSDataType[] dataTypes = chunk.getDataTypes();
+            int batchRows = RowBatch.batchRows(columnNames.length);
+            ImportCheckpoint checkpoint = importModel.getCheckpoint();
+            //切片中已经读取的行数
+            long[] position = new long[1];
+            Flux<RowBatch> batchFlux = Flux.generate(() -> {
                 try {
-                    CSVParser parser = CSVFormat.Builder.create(CSVFormat.DEFAULT)
-                            .setHeader()
-                            .setSkipHeaderRecord(true)
-                            .setQuote('\\')
-                            .setEscape('\\')
-                            .setIgnoreEmptyLines(true)
-                            .setQuoteMode(QuoteMode.NONE)
-                            .build()
-                            .parse(new InputStreamReader(in,importModel.getCharSet()));
-                    Iterator<CSVRecord> it = parser.iterator();
-
-                    Map<String, Integer> fileHeaderMap = parser.getHeaderMap();
-                    String entityPath = null;
-                    for(String header : fileHeaderMap.keySet()){
-                        if("Time".equals(header)){
-                            continue;
-                        }else{
-                            entityPath = header.substring(0,header.lastIndexOf("."));
+                    InputStream chunkIn = chunk.getChannel() == null ? chunk.getIn()
+                            : new FileRangeInputStream(chunk.getChannel(), chunk.getStart(), chunk.getEnd());
+                    Iterator<CSVRecord> iterator = csvFormat().parse(new InputStreamReader(chunkIn, importModel.getCharSet())).iterator();
+                    if (checkpoint != null && chunk.getFileName() != null) {
+                        long skip = checkpoint.position(chunk.getFileName(), chunk.getStart());
+                        while (position[0] < skip && iterator.hasNext()) {
+                            iterator.next();
+                            position[0]++;
                         }
                     }
-                    //存在entitypath为空的情况,也就是csv中只有time一列的时候
-                    if(entityPath != null){
-                        StringBuilder sql = new StringBuilder();
-                        sql.append(" show devices ")
-                                .append(ExportPipelineService.formatPath(entityPath));
-                        SessionDataSet alignedSet = importModel.getSession().executeQueryStatement(sql.toString());
-
-                        List<String> columnNameList = alignedSet.getColumnNames();
-                        DeviceModel deviceModel = new DeviceModel();
-                        if (alignedSet.hasNext()){
-                            RowRecord record = alignedSet.next();
-                            int position = columnNameList.indexOf("isAligned");
-                            String aligned = record.getFields().get(position).getStringValue();
-                            deviceModel.setDeviceName(entityPath);
-                            deviceModel.setAligned(Boolean.parseBoolean(aligned));
-                        }
-                        sql.delete(0,sql.length());
-                        sql.append("show timeseries ")
-                                .append(ExportPipelineService.formatPath(entityPath))
-                                .append(".*");
-                        SessionDataSet timeseriesSet = importModel.getSession().executeQueryStatement(sql.toString());
-                        columnNameList = timeseriesSet.getColumnNames();
-                        Map<String, TSDataType> tsDataTypeMap = new HashMap<>();
-                        while (timeseriesSet.hasNext()){
-                            RowRecord record = timeseriesSet.next();
-                            int position = columnNameList.indexOf("timeseries");
-                            String timeseries = record.getFields().get(position).getStringValue();
-                            position = columnNameList.indexOf("dataType");
-                            String type = record.getFields().get(position).getStringValue();
-                            tsDataTypeMap.put(timeseries,importPipelineService.parseTsDataType(type));
+                    return iterator;
+                } catch (IOException e) {
+                    closeInputStream(chunk.getIn());
+                    throw e;
+                }
+            }, (Iterator<CSVRecord> iterator, SynchronousSink<RowBatch> sink) -> {
+                try {
+                    if (iterator.hasNext()) {
+                        RowBatch batch = new RowBatch(chunk.getDeviceModel(), columnNames, batchRows);
+                        //每列复用一个Field解析字符串
+                        Field[] fields = new Field[columnNames.length];
+                        for (int i = 0; i < fields.length; i++) {
+                            fields[i] = new Field(dataTypes[i]);
                         }
-                        while(it.hasNext()){
-                            TimeSeriesRowModel timeSeriesRowModel = new TimeSeriesRowModel();
-                            timeSeriesRowModel.setDeviceModel(deviceModel);
-                            CSVRecord record = it.next();
-                            for(String header : fileHeaderMap.keySet()){
-                                if("Time".equals(header)){
-                                    timeSeriesRowModel.setTimestamp(record.get(fileHeaderMap.get(header)));
+                        while (!batch.isFull() && iterator.hasNext()) {
+                            CSVRecord record = iterator.next();
+                            position[0]++;
+                            int row = -1;
+                            for (int i = 0; i < columnIndex.length; i++) {
+                                if (columnIndex[i] == -1) {
+                                    row = batch.addRow(Long.parseLong(record.get(i)));
+                                    break;
+                                }
+                            }
+                            for (int i = 0; i < columnIndex.length; i++) {
+                                int column = columnIndex[i];
+                                if (column == -1 || dataTypes[column] == null) {
                                     continue;
                                 }
-                                IField iField = new IField();
-                                iField.setColumnName(header);
-                                Field field = new Field(tsDataTypeMap.get(header));
                                 try{
-                                    field = importPipelineService.generateFieldValue(field,record.get(fileHeaderMap.get(header)));
+                                    batch.put(column, row, importPipelineService.generateFieldValue(fields[column], record.get(i)));
                                 }catch (Exception e){
                                     log.error("异常信息:",e);
                                 }
-
-                                iField.setField(FieldCopy.copy(field));
-                                if(timeSeriesRowModel.getIFieldList() == null){
-                                    timeSeriesRowModel.setIFieldList(new ArrayList<>());
-                                }
-                                timeSeriesRowModel.getIFieldList().add(iField);
                             }
-                            sink.next(timeSeriesRowModel);
                         }
-                        TimeSeriesRowModel finishRowModel = new TimeSeriesRowModel();
-                        DeviceModel finishDeviceModel = new DeviceModel();
-                        StringBuilder builder = new StringBuilder();
-                        builder.append("finish,")
-                                .append(deviceModel.getDeviceName());
-                        finishDeviceModel.setDeviceName(builder.toString());
-                        finishRowModel.setDeviceModel(finishDeviceModel);
-                        finishRowModel.setIFieldList(new ArrayList<>());
-                        sink.next(finishRowModel);
+                        batch.setSourceFile(chunk.getFileName());
+                        batch.setSourcePart(chunk.getStart());
+                        batch.setSourcePosition(position[0]);
+                        sink.next(batch);
+                        return iterator;
+                    }
+                    if (chunk.getRemainingChunk().decrementAndGet() == 0) {
+                        RowBatch finish = RowBatch.finish(chunk.getDeviceModel().getDeviceName());
+                        finish.setSourceFile(chunk.getFileName());
+                        sink.next(finish);
+                        closeInputStream(chunk.getIn());
                     }
                     sink.complete();
-                } catch (IOException | StatementExecutionException | IoTDBConnectionException e) {
+                } catch (RuntimeException e) {
+                    closeInputStream(chunk.getIn());
                     sink.error(e);
-                }finally {
-                    try {
-                        if (in != null) {
-                            in.close();
-                        }
-                    } catch (IOException e) {
-                        log.error("异常信息:",e);
-                    }
                 }
+                return iterator;
             });
+            return checkpoint == null ? batchFlux : batchFlux.doOnNext(checkpoint::emit);
         });
     }
 
+    private CSVFormat csvFormat() {
+        return CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                .setQuote('\\')
+                .setEscape('\\')
+                .setIgnoreEmptyLines(true)
+                .setQuoteMode(QuoteMode.NONE)
+                .build();
+    }
+
+    private String[] parseHeader(String headerLine) throws IOException {
+        Iterator<CSVRecord> it = csvFormat().parse(new StringReader(headerLine)).iterator();
+        if (!it.hasNext()) {
+            return new String[0];
+        }
+        CSVRecord record = it.next();
+        String[] headers = new String[record.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = record.get(i);
+        }
+        return headers;
+    }
+
+    //逐字节读取第一行，不会多读，剩余的数据由解析切片时继续读取
+    private byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+            if (b == '\n') {
+                break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void closeInputStream(InputStream in){
+        try {
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.error("异常信息:",e);
+        }
+    }
+
     public FilenameFilter initFileFilter(ImportModel importModel){
         return (dir, name) -> {
             switch (importModel.getCompressEnum()){
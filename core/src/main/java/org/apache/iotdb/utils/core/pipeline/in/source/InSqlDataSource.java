@@ -1,18 +1,36 @@
 package org.apache.iotdb.utils.core.pipeline.in.source;
 
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.parse.InsertStatementParser;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import org.apache.iotdb.utils.core.service.ImportPipelineService;
+import org.apache.iotdb.utils.core.utils.ChannelLineReader;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
+import reactor.core.publisher.SynchronousSink;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
@@ -22,7 +40,7 @@ import java.util.function.Function;
  * @Date: create in 2022/6/29 9:59
  */
 @Slf4j
-public class InSqlDataSource extends PipeSource<String, String, Function<ParallelFlux<String>, ParallelFlux<String>>> {
+public class InSqlDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -39,7 +57,7 @@ public class InSqlDataSource extends PipeSource<String, String, Function<Paralle
     private int parallelism;
 
     @Override
-    public Function<Flux<String>, Flux<String>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> {
             return flux
                     .flatMap(s -> {
@@ -58,13 +76,15 @@ public class InSqlDataSource extends PipeSource<String, String, Function<Paralle
                                     return true;
                                 }
                             };
+                            fileFilter = importPipelineService.pendingFilter(fileFilter, importModel);
                             totalSize[0] = importPipelineService.getFileArray(fileFilter,importModel.getFileFolder()).length;
                             return importPipelineService.parseFluxFileName(fileFilter,COMPRESS_MAP);
                         });
                     })
                     .parallel(parallelism)
                     .runOn(scheduler)
-                    .flatMap(this::parseFluxSqlString)  // 通过inputstream  读取sqlString
+                    //每个rail同一时间只解析一个文件，语句按文件中的顺序写入
+                    .concatMap(this::parseRowBatch)
                     .transform(doNext())
                     .sequential()
                     .doFinally(signalType -> {
@@ -87,52 +107,261 @@ public class InSqlDataSource extends PipeSource<String, String, Function<Paralle
     }
 
     /**
-     * 读取txt文本中的sql，以每一条sql为元素构建flux
+     * 读取sql文件，把数据转化为RowBatch流
+     * 导出工具生成的 insert into <device>(time,...) [aligned] values(...) 在客户端解析，根据timeseries的类型转化为值，
+     * 同一设备连续的行组成一个batch，由sink通过insertTablet/insertRecordsOfOneDevice批量写入；
+     * 无法识别的语句、timeseries不存在或值无法解析的语句按原样执行，执行前先输出前面的batch，保持文件中的顺序
+     * 继续导入时跳过已经写入的行，每个batch记录读取完后的行数
+     * 文件通过channel按块读取，整块解码，见 ChannelLineReader
      *
      * @param inputStream
      * @return
      */
-    public Flux<String> parseFluxSqlString(InputStream inputStream) {
-        return Flux.create(fluxSink -> {
-            try {
-                StringBuilder sql = new StringBuilder();
-                int i;
-                while ((i = inputStream.read()) != -1) {
-                    if (i == '\n') {
-                        String s = sql.toString().replace(";", "");
-                        String s1 = s.substring(0, s.indexOf("("));
-                        s1 = ExportPipelineService.formatPath(s1);
-                        String needFormat = s.substring(s.indexOf("(") + 1, s.indexOf(")"));
-                        String s3 = s.substring(s.indexOf(")"), s.length());
-                        StringBuilder result = new StringBuilder();
-                        result.append(s1)
-                                .append("(")
-                                .append(importPipelineService.formatPath(needFormat))
-                                .append(s3);
-                        sql.delete(0,sql.length());
-                        fluxSink.next(result.toString());
-                    } else if (i == '\r') {
-
+    public Flux<RowBatch> parseRowBatch(InputStream inputStream) {
+        return Flux.deferContextual(context -> {
+            PipelineContext<ImportModel> pcontext = context.get("pipelineContext");
+            ImportModel importModel = pcontext.getModel();
+            ImportCheckpoint checkpoint = importModel.getCheckpoint();
+            String fileName = checkpoint == null ? null : checkpoint.fileName(inputStream);
+            long skip = fileName == null ? 0 : checkpoint.position(fileName, 0);
+            //每次请求只解析到下一个batch，sink 写入慢时不会把整个文件读入内存
+            Flux<RowBatch> batchFlux = Flux.generate(() -> {
+                ReadableByteChannel channel = inputStream instanceof FileInputStream
+                        ? ((FileInputStream) inputStream).getChannel() : Channels.newChannel(inputStream);
+                SqlBatchBuilder builder = new SqlBatchBuilder(importModel, fileName,
+                        new ChannelLineReader(channel, Charset.forName(importModel.getCharSet())));
+                //已经写入的行只查找换行符，不解码
+                while (builder.line < skip && builder.reader.skipLine()) {
+                    builder.line++;
+                }
+                return builder;
+            }, (SqlBatchBuilder builder, SynchronousSink<RowBatch> sink) -> {
+                try {
+                    RowBatch batch = builder.nextBatch();
+                    if (batch == null) {
+                        sink.complete();
                     } else {
-                        sql = sql.append((char) i) ;
+                        sink.next(batch);
                     }
+                } catch (IOException | StatementExecutionException | IoTDBConnectionException e) {
+                    sink.error(e);
                 }
-                fluxSink.next("finish");
-                fluxSink.complete();
-            } catch (IOException e) {
-                fluxSink.error(e);
-            } finally {
+                return builder;
+            }, builder -> {
                 try {
-                    if (inputStream != null) {
-                        inputStream.close();
-                    }
+                    builder.reader.close();
+                    inputStream.close();
                 } catch (IOException e) {
                     log.error("异常信息:",e);
                 }
-            }
+            });
+            return checkpoint == null ? batchFlux : batchFlux.doOnNext(checkpoint::emit);
         });
     }
 
+    /**
+     * 无法解析的语句按原样执行，只格式化设备路径和measurement，time列和值保持不变
+     */
+    public String formatStatement(String sql) {
+        String s = sql.trim();
+        while (s.endsWith(";")) {
+            s = s.substring(0, s.length() - 1).trim();
+        }
+        InsertStatementParser.InsertStatement statement = InsertStatementParser.parse(s);
+        if (statement == null) {
+            return s;
+        }
+        int open = s.indexOf(statement.getDevice()) + statement.getDevice().length();
+        String columns = String.join(",", statement.getMeasurements());
+        return "insert into " + ExportPipelineService.formatPath(statement.getDevice())
+                + "(time," + ImportPipelineService.formatPath(columns) + ")"
+                + s.substring(s.indexOf(')', open) + 1);
+    }
+
+    /**
+     * 一个文件的解析状态，把连续的同一设备的语句组成batch
+     */
+    private class SqlBatchBuilder {
+
+        private final ImportModel importModel;
+
+        private final String fileName;
+
+        private final ChannelLineReader reader;
+
+        //已经生成、还没有输出的batch，一行语句最多生成两个
+        private final Deque<RowBatch> readyQueue = new ArrayDeque<>();
+
+        //设备路径 -> 列，每个文件查询一次
+        private final Map<String, DeviceColumns> deviceColumnsMap = new HashMap<>();
+
+        private RowBatch batch;
+
+        private List<String> statementList = new ArrayList<>();
+
+        //已经读取的行数，以及当前batch/语句包含的最后一行
+        private long line;
+
+        private long batchLine;
+
+        private boolean finished;
+
+        SqlBatchBuilder(ImportModel importModel, String fileName, ChannelLineReader reader) {
+            this.importModel = importModel;
+            this.fileName = fileName;
+            this.reader = reader;
+        }
+
+        /**
+         * 读取到下一个完整的batch；文件结束时输出剩余的数据和结束标志
+         * @return 全部输出后返回null
+         */
+        RowBatch nextBatch() throws IOException, StatementExecutionException, IoTDBConnectionException {
+            while (readyQueue.isEmpty() && !finished) {
+                String sql = reader.readLine();
+                if (sql == null) {
+                    flush();
+                    RowBatch finish = RowBatch.finish(fileName);
+                    finish.setSourceFile(fileName);
+                    readyQueue.add(finish);
+                    finished = true;
+                    break;
+                }
+                line++;
+                if (!sql.trim().isEmpty()) {
+                    accept(sql);
+                }
+            }
+            return readyQueue.poll();
+        }
+
+        private void accept(String sql) throws StatementExecutionException, IoTDBConnectionException {
+            InsertStatementParser.InsertStatement statement = InsertStatementParser.parse(sql);
+            if (statement == null || !addRow(statement)) {
+                flushBatch();
+                statementList.add(formatStatement(sql));
+                batchLine = line;
+                if (statementList.size() >= RowBatch.MAX_ROWS) {
+                    flushStatements();
+                }
+                return;
+            }
+            batchLine = line;
+        }
+
+        /**
+         * 转化为batch中的一行，timeseries不存在或值无法解析时返回false
+         */
+        private boolean addRow(InsertStatementParser.InsertStatement statement) throws StatementExecutionException, IoTDBConnectionException {
+            DeviceColumns deviceColumns = deviceColumnsMap.get(statement.getDevice());
+            if (deviceColumns == null) {
+                deviceColumns = new DeviceColumns(statement.getDevice(),
+                        importPipelineService.queryTsDataTypeMap(statement.getDevice(), importModel));
+                deviceColumnsMap.put(statement.getDevice(), deviceColumns);
+            }
+            List<String> measurements = statement.getMeasurements();
+            List<String> values = statement.getValues();
+            int[] columns = new int[measurements.size()];
+            //先解析到每列复用的Field，全部成功后再写入batch
+            for (int i = 0; i < measurements.size(); i++) {
+                Integer column = deviceColumns.columnIndexMap.get(statement.getDevice() + "." + measurements.get(i));
+                if (column == null) {
+                    return false;
+                }
+                columns[i] = column;
+                String value = values.get(i);
+                if ("null".equalsIgnoreCase(value)) {
+                    columns[i] = -1;
+                    continue;
+                }
+                Field field = deviceColumns.fields[column];
+                if (field.getDataType() == TSDataType.TEXT && !(value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))) {
+                    return false;
+                }
+                try {
+                    importPipelineService.generateFieldValue(field, value);
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }
+
+            if (batch != null && (batch.getDeviceModel() != deviceColumns.deviceModel(statement.isAligned()) || batch.isFull())) {
+                flushBatch();
+            }
+            flushStatements();
+            if (batch == null) {
+                batch = new RowBatch(deviceColumns.deviceModel(statement.isAligned()), deviceColumns.columnNames,
+                        RowBatch.batchRows(deviceColumns.columnNames.length));
+            }
+            int row = batch.addRow(statement.getTime());
+            for (int column : columns) {
+                if (column != -1) {
+                    batch.put(column, row, deviceColumns.fields[column]);
+                }
+            }
+            return true;
+        }
+
+        private void flush() {
+            flushBatch();
+            flushStatements();
+        }
+
+        private void flushBatch() {
+            if (batch != null) {
+                next(batch);
+                batch = null;
+            }
+        }
+
+        private void flushStatements() {
+            if (!statementList.isEmpty()) {
+                next(RowBatch.statements(statementList));
+                statementList = new ArrayList<>();
+            }
+        }
+
+        private void next(RowBatch rowBatch) {
+            rowBatch.setSourceFile(fileName);
+            rowBatch.setSourcePosition(batchLine);
+            readyQueue.add(rowBatch);
+        }
+    }
+
+    /**
+     * 设备的列字典和类型，列为设备下所有的timeseries
+     */
+    private static class DeviceColumns {
+
+        private final String[] columnNames;
+
+        private final Map<String, Integer> columnIndexMap = new HashMap<>();
+
+        //每列复用一个Field解析字符串
+        private final Field[] fields;
+
+        private final DeviceModel alignedModel = new DeviceModel();
+
+        private final DeviceModel nonAlignedModel = new DeviceModel();
+
+        DeviceColumns(String deviceName, Map<String, TSDataType> tsDataTypeMap) {
+            columnNames = tsDataTypeMap.keySet().toArray(new String[0]);
+            fields = new Field[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnIndexMap.put(columnNames[i], i);
+                fields[i] = new Field(tsDataTypeMap.get(columnNames[i]));
+            }
+            alignedModel.setDeviceName(deviceName);
+            alignedModel.setAligned(true);
+            nonAlignedModel.setDeviceName(deviceName);
+        }
+
+        //按语句中是否有aligned写入
+        DeviceModel deviceModel(boolean aligned) {
+            return aligned ? alignedModel : nonAlignedModel;
+        }
+    }
+
     public InSqlDataSource(String name) {
         this(name,Schedulers.DEFAULT_POOL_SIZE);
     }
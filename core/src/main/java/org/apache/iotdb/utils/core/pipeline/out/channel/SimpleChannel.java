@@ -2,9 +2,8 @@ package org.apache.iotdb.utils.core.pipeline.out.channel;
 
 import org.apache.iotdb.utils.core.model.IField;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
-import org.apache.iotdb.utils.core.pipeline.PipeChannel;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.ParallelFlux;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
+import reactor.util.context.ContextView;
 
 import java.util.function.Function;
 
@@ -13,7 +12,7 @@ import java.util.function.Function;
  * @Description:
  * @Date: create in 2022/7/19 11:20
  */
-public class SimpleChannel extends PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class SimpleChannel extends TransformChannel<TimeSeriesRowModel, TimeSeriesRowModel> {
 
     private String name;
 
@@ -22,14 +21,12 @@ public class SimpleChannel extends PipeChannel<TimeSeriesRowModel, TimeSeriesRow
     }
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
-        return flux -> flux
-                .flatMap(s -> {
-//                    s.getIFieldList()
-//                            .forEach(this::sqlFileTransformer);
-                    return ParallelFlux.from(Flux.just(s));
-                })
-                .transform(doNext());
+    public Function<TimeSeriesRowModel, TimeSeriesRowModel> transformer(ContextView contextView) {
+        return s -> {
+//            s.getIFieldList()
+//                    .forEach(this::sqlFileTransformer);
+            return s;
+        };
     }
 
 
@@ -0,0 +1,48 @@
+package org.apache.iotdb.utils.core.pipeline.out.channel;
+
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
+import lombok.Data;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import reactor.util.context.ContextView;
+
+import java.util.function.Function;
+
+/**
+ * 转化数据，主要处理字符串
+ * 按列处理batch，TEXT列的非空值加上双引号，空值保持为空
+ */
+@Data
+public class StringFormatBatchChannel extends TransformChannel<RowBatch, RowBatch> {
+
+    private String name;
+
+    public StringFormatBatchChannel(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Function<RowBatch, RowBatch> transformer(ContextView contextView) {
+        return this::quoteText;
+    }
+
+    private RowBatch quoteText(RowBatch batch) {
+        for (int column = 0; column < batch.getColumnSize(); column++) {
+            if (batch.getDataTypes()[column] != TSDataType.TEXT) {
+                continue;
+            }
+            Binary[] values = (Binary[]) batch.getValues()[column];
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                if (!batch.isNull(column, row)) {
+                    StringBuilder value = new StringBuilder();
+                    value.append("\"")
+                            .append(values[row].getStringValue())
+                            .append("\"");
+                    values[row] = Binary.valueOf(value.toString());
+                }
+            }
+        }
+        return batch;
+    }
+}
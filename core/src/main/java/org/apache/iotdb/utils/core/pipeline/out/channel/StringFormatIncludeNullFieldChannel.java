@@ -2,15 +2,12 @@ package org.apache.iotdb.utils.core.pipeline.out.channel;
 
 import org.apache.iotdb.utils.core.model.IField;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
-import org.apache.iotdb.utils.core.pipeline.PipeChannel;
-import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
-import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import lombok.Data;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.ContextView;
 
 import java.util.function.Function;
 
@@ -18,7 +15,7 @@ import java.util.function.Function;
  * 转化数据，主要处理字符串
  */
 @Data
-public class StringFormatIncludeNullFieldChannel extends PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class StringFormatIncludeNullFieldChannel extends TransformChannel<TimeSeriesRowModel, TimeSeriesRowModel> {
 
     private String name;
 
@@ -32,21 +29,13 @@ public class StringFormatIncludeNullFieldChannel extends PipeChannel<TimeSeriesR
     }
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
-        return flux -> flux
-                .flatMap(s -> {
-                    return Flux.deferContextual(contextView -> {
-                        PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
-                        ExportModel exportModel = pcontext.getModel();
-                        s.getIFieldList()
-                                .stream()
-                                .forEach(iField -> {
-                                    otherFileTransformer(iField);
-                                });
-                        return ParallelFlux.from(Flux.just(s));
-                    });
-                })
-                .transform(doNext());
+    public Function<TimeSeriesRowModel, TimeSeriesRowModel> transformer(ContextView contextView) {
+        return s -> {
+            for (IField iField : s.getIFieldList()) {
+                otherFileTransformer(iField);
+            }
+            return s;
+        };
     }
 
     private void otherFileTransformer(IField iField){
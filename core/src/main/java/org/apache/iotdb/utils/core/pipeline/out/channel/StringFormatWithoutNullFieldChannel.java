@@ -2,12 +2,11 @@ package org.apache.iotdb.utils.core.pipeline.out.channel;
 
 import org.apache.iotdb.utils.core.model.IField;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
-import org.apache.iotdb.utils.core.pipeline.PipeChannel;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
 import lombok.Data;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.ContextView;
 
 import java.util.function.Function;
 
@@ -15,7 +14,7 @@ import java.util.function.Function;
  * 转化数据，主要处理字符串
  */
 @Data
-public class StringFormatWithoutNullFieldChannel extends PipeChannel<TimeSeriesRowModel, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class StringFormatWithoutNullFieldChannel extends TransformChannel<TimeSeriesRowModel, TimeSeriesRowModel> {
 
     private String name;
 
@@ -24,14 +23,12 @@ public class StringFormatWithoutNullFieldChannel extends PipeChannel<TimeSeriesR
     }
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
-        return flux -> flux
-                .flatMap(s -> {
-                    s.getIFieldList()
-                            .forEach(this::sqlFileTransformer);
-                    return ParallelFlux.from(Flux.just(s));
-                })
-                .transform(doNext());
+    public Function<TimeSeriesRowModel, TimeSeriesRowModel> transformer(ContextView contextView) {
+        return s -> {
+            s.getIFieldList()
+                    .forEach(this::sqlFileTransformer);
+            return s;
+        };
     }
 
 
@@ -1,6 +1,7 @@
 package org.apache.iotdb.utils.core.pipeline.out.sink;
 
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.PipeSink;
@@ -13,18 +14,14 @@ import reactor.core.publisher.GroupedFlux;
 import reactor.core.publisher.ParallelFlux;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Data
 @Slf4j
-public class OutCompressFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> {
+public class OutCompressFileSink extends PipeSink<RowBatch, RowBatch> {
 
     private String name;
 
@@ -37,59 +34,57 @@ public class OutCompressFileSink extends PipeSink<TimeSeriesRowModel, TimeSeries
     private AtomicLong finishedRowNum = new AtomicLong();
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
+    public Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>> doExecute() {
         return sink -> sink
-                .transformGroups((Function<GroupedFlux<Integer, TimeSeriesRowModel>, Publisher<? extends TimeSeriesRowModel>>) integerTimeSeriesRowModelGroupedFlux ->
-                        integerTimeSeriesRowModelGroupedFlux
-                                .buffer(15000, 15000)
-                                .flatMap(allList -> {
-                                    return Flux.deferContextual(contextView -> {
-                                        ConcurrentHashMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
-                                        Integer[] totalSize = contextView.get("totalSize");
+                .transformGroups((Function<GroupedFlux<Integer, RowBatch>, Publisher<? extends RowBatch>>) integerRowBatchGroupedFlux ->
+                        //上下文在每个rail解析一次；结束标志和数据在同一个rail上，写入和关闭文件在同一个阶段
+                        Flux.deferContextual(contextView -> {
+                            ConcurrentHashMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
+                            Integer[] totalSize = contextView.get("totalSize");
+                            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+                            ExportModel exportModel = pcontext.getModel();
+                            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+                            return integerRowBatchGroupedFlux
+                                    .map(batch -> {
                                         totalFileNum = totalSize[0];
-                                        PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
-                                        ExportModel exportModel = pcontext.getModel();
-                                        Map<String, List<TimeSeriesRowModel>> groupMap = allList.stream()
-                                                .collect(Collectors.toMap(k -> k.getDeviceModel().getDeviceName(), p -> {
-                                                    List<TimeSeriesRowModel> result = new ArrayList();
-                                                    result.add(p);
-                                                    return result;
-                                                }, (o, n) -> {
-                                                    o.addAll(n);
-                                                    return o;
-                                                }));
-                                        for (String groupKey : groupMap.keySet()) {
-                                            if (groupKey.startsWith("finish")) {
-                                                finishedFileNum.incrementAndGet();
-                                                continue;
+                                        if (batch.isFinish()) {
+                                            closeOutputStream(outputStreamMap, batch, checkpoint);
+                                            finishedFileNum.incrementAndGet();
+                                            return batch;
+                                        }
+                                        //每个batch压缩为一个block
+                                        OutputStream sout = outputStreamMap.get(batch.getDeviceModel().streamKey());
+                                        exportPipelineService.compressBlock(batch,sout,exportModel);
+                                        //block写入并flush之后记录检查点
+                                        if (checkpoint != null) {
+                                            try {
+                                                checkpoint.commit(batch);
+                                            } catch (IOException e) {
+                                                log.error("异常信息:",e);
                                             }
-                                            //TODO: 压缩文本，outstream写入  exportModel.getcompressEnum
-                                            List<TimeSeriesRowModel> groupList = groupMap.get(groupKey);
-                                            OutputStream sout = outputStreamMap.get(groupKey);
-                                            exportPipelineService.compressBlock(groupList,sout,exportModel);
-                                            finishedRowNum.addAndGet(groupList.size());
                                         }
-                                        return Flux.fromIterable(allList);
+                                        finishedRowNum.addAndGet(batch.getRowCount());
+                                        return batch;
                                     });
-                                })
-                ).flatMap(timeSeriesRowModel -> {
-                    return Flux.deferContextual(contextView -> {
-                        String deviceName = timeSeriesRowModel.getDeviceModel().getDeviceName();
-                        if (deviceName.startsWith("finish")) {
-                            ConcurrentHashMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
-                            deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
-                            OutputStream outputStream = outputStreamMap.get(deviceName);
-                            outputStreamMap.remove(deviceName);
-                            try {
-                                outputStream.flush();
-                                outputStream.close();
-                            } catch (IOException e) {
-                                log.error("outputStream 关闭异常：",e);
-                            }
-                        }
-                        return Flux.just(timeSeriesRowModel);
-                    });
-                });
+                        }));
+    }
+
+    private void closeOutputStream(ConcurrentHashMap<String, OutputStream> outputStreamMap, RowBatch batch, ExportCheckpoint checkpoint) {
+        String deviceName = batch.getDeviceModel().getDeviceName();
+        deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
+        OutputStream outputStream = outputStreamMap.remove(deviceName);
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            outputStream.flush();
+            outputStream.close();
+            if (checkpoint != null) {
+                checkpoint.done(deviceName);
+            }
+        } catch (IOException e) {
+            log.error("outputStream 关闭异常：",e);
+        }
     }
 
     @Override
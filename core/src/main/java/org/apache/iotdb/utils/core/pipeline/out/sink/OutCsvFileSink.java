@@ -1,8 +1,10 @@
 package org.apache.iotdb.utils.core.pipeline.out.sink;
 
-import org.apache.iotdb.utils.core.model.IField;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVPrinter;
@@ -14,16 +16,14 @@ import reactor.core.publisher.ParallelFlux;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Data
 @Slf4j
-public class OutCsvFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> {
+public class OutCsvFileSink extends PipeSink<RowBatch, RowBatch> {
 
     private String name;
 
@@ -38,66 +38,66 @@ public class OutCsvFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowMo
     }
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
+    public Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>> doExecute() {
         return sink -> sink
-                .transformGroups((Function<GroupedFlux<Integer, TimeSeriesRowModel>, Publisher<? extends TimeSeriesRowModel>>) integerTimeSeriesRowModelGroupedFlux ->
-                        integerTimeSeriesRowModelGroupedFlux
-                                .buffer(15000, 15000)
-                                .flatMap(allList -> {
-                                    return Flux.deferContextual(contextView -> {
-                                        ConcurrentHashMap<String, CSVPrinter> outputStreamMap = contextView.get("outputStreamMap");
-                                        Integer[] totalSize = contextView.get("totalSize");
+                .transformGroups((Function<GroupedFlux<Integer, RowBatch>, Publisher<? extends RowBatch>>) integerRowBatchGroupedFlux ->
+                        //上下文在每个rail解析一次；结束标志和数据在同一个rail上，写入和关闭文件在同一个阶段
+                        Flux.deferContextual(contextView -> {
+                            ConcurrentHashMap<String, CSVPrinter> outputStreamMap = contextView.get("outputStreamMap");
+                            ConcurrentHashMap<String, SinkFileWriter> fileWriterMap = contextView.get("fileWriterMap");
+                            Integer[] totalSize = contextView.get("totalSize");
+                            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+                            ExportCheckpoint checkpoint = pcontext.getModel().getCheckpoint();
+                            return integerRowBatchGroupedFlux
+                                    .map(batch -> {
                                         totalFileNum = totalSize[0];
-                                        Map<String, List<TimeSeriesRowModel>> groupMap = allList.stream()
-                                                .collect(Collectors.toMap(k -> k.getDeviceModel().getDeviceName(), p -> {
-                                                    List<TimeSeriesRowModel> result = new ArrayList();
-                                                    result.add(p);
-                                                    return result;
-                                                }, (o, n) -> {
-                                                    o.addAll(n);
-                                                    return o;
-                                                }));
-
-                                        for (String groupKey : groupMap.keySet()) {
-                                            if (groupKey.startsWith("finish")) {
-                                                String deviceName = groupKey.substring(groupKey.indexOf(",")+1,groupKey.length());
-                                                finishedFileNum.incrementAndGet();
-                                                continue;
+                                        if (batch.isFinish()) {
+                                            closePrinter(outputStreamMap, fileWriterMap, batch, checkpoint);
+                                            finishedFileNum.incrementAndGet();
+                                            return batch;
+                                        }
+                                        //同一rail上设备的数据是连续的，printer只被这个rail使用
+                                        String streamKey = batch.getDeviceModel().streamKey();
+                                        CSVPrinter printer = outputStreamMap.get(streamKey);
+                                        try {
+                                            for (int row = 0; row < batch.getRowCount(); row++) {
+                                                printer.printRecord(generateCsvString(batch, row));
                                             }
-                                            List<TimeSeriesRowModel> groupList = groupMap.get(groupKey);
-                                            CSVPrinter printer = outputStreamMap.get(groupKey);
-                                            groupList.forEach(s -> {
-                                                List<String> list = generateCsvString(s);
-                                                try {
-                                                    printer.printRecord(list);
-                                                    printer.flush();
-                                                } catch (IOException e) {
-                                                    log.error("异常信息:",e);
-                                                }
-                                            });
-                                            finishedRowNum.addAndGet(groupList.size());
+                                            //字符编码后写入文件缓冲区，达到大小或时间阈值时才写入文件
+                                            printer.flush();
+                                            //缓冲区写入文件之后记录检查点
+                                            if (checkpoint != null) {
+                                                SinkFileWriter writer = fileWriterMap.get(streamKey);
+                                                ExportCheckpoint.CheckpointRecord record = checkpoint.record(batch, writer.position());
+                                                writer.afterWrite(() -> checkpoint.commit(record));
+                                            }
+                                        } catch (IOException e) {
+                                            log.error("异常信息:",e);
                                         }
-                                        return Flux.fromIterable(allList);
+                                        finishedRowNum.addAndGet(batch.getRowCount());
+                                        return batch;
                                     });
-                                })
-                ).flatMap(timeSeriesRowModel -> {
-                    return Flux.deferContextual(contextView -> {
-                        String deviceName = timeSeriesRowModel.getDeviceModel().getDeviceName();
-                        if (deviceName.startsWith("finish")) {
-                            ConcurrentHashMap<String, CSVPrinter> outputStreamMap = contextView.get("outputStreamMap");
-                            deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
-                            CSVPrinter csvPrinter = outputStreamMap.get(deviceName);
-                            outputStreamMap.remove(deviceName);
-                            try {
-                                csvPrinter.flush();
-                                csvPrinter.close();
-                            } catch (IOException e) {
-                                log.error("csvPrinter 关闭异常：",e);
-                            }
-                        }
-                        return Flux.just(timeSeriesRowModel);
-                    });
-                });
+                        }));
+    }
+
+    private void closePrinter(ConcurrentHashMap<String, CSVPrinter> outputStreamMap, ConcurrentHashMap<String, SinkFileWriter> fileWriterMap,
+                              RowBatch batch, ExportCheckpoint checkpoint) {
+        String deviceName = batch.getDeviceModel().getDeviceName();
+        deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
+        CSVPrinter csvPrinter = outputStreamMap.remove(deviceName);
+        fileWriterMap.remove(deviceName);
+        if (csvPrinter == null) {
+            return;
+        }
+        try {
+            //关闭时缓冲区全部写入文件，并记录检查点
+            csvPrinter.close();
+            if (checkpoint != null) {
+                checkpoint.done(deviceName);
+            }
+        } catch (IOException e) {
+            log.error("csvPrinter 关闭异常：",e);
+        }
     }
 
     @Override
@@ -115,15 +115,14 @@ public class OutCsvFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowMo
         return finishedRowNum.get();
     }
 
-    public List<String> generateCsvString(TimeSeriesRowModel timeSeriesRowModel) {
-        List<String> value = new ArrayList<>();
-        value.add(String.valueOf(timeSeriesRowModel.getTimestamp()));
-        for (int i = 0; i < timeSeriesRowModel.getIFieldList().size(); i++) {
-            IField iField = timeSeriesRowModel.getIFieldList().get(i);
-            if (iField.getField() != null && iField.getField().getObjectValue(iField.getField().getDataType()) != null) {
-                value.add(String.valueOf(iField.getField().getObjectValue(iField.getField().getDataType())));
-            } else {
+    public List<String> generateCsvString(RowBatch batch, int row) {
+        List<String> value = new ArrayList<>(batch.getColumnSize() + 1);
+        value.add(String.valueOf(batch.getTimes()[row]));
+        for (int i = 0; i < batch.getColumnSize(); i++) {
+            if (batch.isNull(i, row)) {
                 value.add("");
+            } else {
+                value.add(batch.getStringValue(i, row));
             }
         }
         return value;
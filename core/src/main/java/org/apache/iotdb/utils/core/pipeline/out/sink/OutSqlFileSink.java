@@ -1,10 +1,11 @@
 package org.apache.iotdb.utils.core.pipeline.out.sink;
 
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
-import org.apache.iotdb.utils.core.pipeline.PipeSink;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
@@ -14,19 +15,14 @@ import reactor.core.publisher.ParallelFlux;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Data
 @Slf4j
-public class OutSqlFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> {
+public class OutSqlFileSink extends PipeSink<RowBatch, RowBatch> {
 
     private String name;
 
@@ -37,70 +33,66 @@ public class OutSqlFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowMo
     private AtomicLong finishedRowNum = new AtomicLong();
 
     @Override
-    public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
+    public Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>> doExecute() {
         return sink -> sink
-                .transformGroups((Function<GroupedFlux<Integer, TimeSeriesRowModel>, Publisher<? extends TimeSeriesRowModel>>) integerTimeSeriesRowModelGroupedFlux ->
-                        integerTimeSeriesRowModelGroupedFlux
-                                .buffer(15000, 15000)
-                                .flatMap(allList -> {
-                                    return Flux.deferContextual(contextView -> {
-                                        ConcurrentMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
-                                        Integer[] totalSize = contextView.get("totalSize");
+                .transformGroups((Function<GroupedFlux<Integer, RowBatch>, Publisher<? extends RowBatch>>) integerRowBatchGroupedFlux ->
+                        //上下文在每个rail解析一次；结束标志和数据在同一个rail上，写入和关闭文件在同一个阶段
+                        Flux.deferContextual(contextView -> {
+                            ConcurrentMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
+                            Integer[] totalSize = contextView.get("totalSize");
+                            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+                            ExportCheckpoint checkpoint = pcontext.getModel().getCheckpoint();
+                            return integerRowBatchGroupedFlux
+                                    .map(batch -> {
                                         totalFileNum = totalSize[0];
-                                        PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
-                                        Map<String, List<TimeSeriesRowModel>> groupMap = allList.stream()
-                                                .collect(Collectors.toMap(k -> k.getDeviceModel().getDeviceName(), p -> {
-                                                    List<TimeSeriesRowModel> result = new ArrayList();
-                                                    result.add(p);
-                                                    return result;
-                                                }, (o, n) -> {
-                                                    o.addAll(n);
-                                                    return o;
-                                                }));
-                                        for (String groupKey : groupMap.keySet()) {
-                                            if (groupKey.startsWith("finish")) {
-                                                String deviceName = groupKey.substring(groupKey.indexOf(",") + 1, groupKey.length());
-                                                finishedFileNum.incrementAndGet();
-                                                continue;
+                                        if (batch.isFinish()) {
+                                            closeOutputStream(outputStreamMap, batch, checkpoint);
+                                            finishedFileNum.incrementAndGet();
+                                            return batch;
+                                        }
+                                        SinkFileWriter writer = (SinkFileWriter) outputStreamMap.get(batch.getDeviceModel().streamKey());
+                                        //去掉设备前缀的measurement，每个batch只计算一次
+                                        String[] measurements = batch.measurements();
+                                        try {
+                                            //写入文件缓冲区，达到大小或时间阈值时才写入文件
+                                            for (int row = 0; row < batch.getRowCount(); row++) {
+                                                writer.write(generateSqlString(batch, measurements, row).getBytes());
                                             }
-                                            List<TimeSeriesRowModel> groupList = groupMap.get(groupKey);
-                                            groupList.forEach(s -> {
-                                                String value = generateSqlString(s);
-                                                OutputStream outputStream = outputStreamMap.get(groupKey);
-                                                try {
-                                                    outputStream.write(value.getBytes());
-                                                    outputStream.flush();
-                                                } catch (IOException e) {
-                                                    log.error("异常信息:",e);
-                                                }
-                                            });
-                                            finishedRowNum.addAndGet(groupList.size());
+                                            writer.flush();
+                                            //缓冲区写入文件之后记录检查点
+                                            if (checkpoint != null) {
+                                                ExportCheckpoint.CheckpointRecord record = checkpoint.record(batch, writer.position());
+                                                writer.afterWrite(() -> checkpoint.commit(record));
+                                            }
+                                        } catch (IOException e) {
+                                            log.error("异常信息:",e);
                                         }
-                                        return Flux.fromIterable(allList);
+                                        finishedRowNum.addAndGet(batch.getRowCount());
+                                        return batch;
                                     });
-                                })
-                ).flatMap(timeSeriesRowModel -> {
-                    return Flux.deferContextual(contextView -> {
-                        String deviceName = timeSeriesRowModel.getDeviceModel().getDeviceName();
-                        if (deviceName.startsWith("finish")) {
-                            ConcurrentHashMap<String, OutputStream> outputStreamMap = contextView.get("outputStreamMap");
-                            deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
-                            OutputStream outputStream = outputStreamMap.get(deviceName);
-                            outputStreamMap.remove(deviceName);
-                            try {
-                                outputStream.flush();
-                                outputStream.close();
-                            } catch (IOException e) {
-                                log.error("outputStream 关闭异常：",e);
-                            }
-                        }
-                        return Flux.just(timeSeriesRowModel);
-                    });
-                });
+                        }));
+    }
+
+    private void closeOutputStream(ConcurrentMap<String, OutputStream> outputStreamMap, RowBatch batch, ExportCheckpoint checkpoint) {
+        String deviceName = batch.getDeviceModel().getDeviceName();
+        deviceName = deviceName.substring(deviceName.indexOf(",")+1,deviceName.length());
+        OutputStream outputStream = outputStreamMap.remove(deviceName);
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            //关闭时缓冲区全部写入文件，并记录检查点
+            outputStream.close();
+            if (checkpoint != null) {
+                checkpoint.done(deviceName);
+            }
+        } catch (IOException e) {
+            log.error("outputStream 关闭异常：",e);
+        }
     }
 
-    public String generateSqlString(TimeSeriesRowModel timeSeriesRowModel) {
-        DeviceModel deviceModel = timeSeriesRowModel.getDeviceModel();
+    public String generateSqlString(RowBatch batch, String[] measurements, int row) {
+        DeviceModel deviceModel = batch.getDeviceModel();
         StringBuilder sql = new StringBuilder();
         StringBuilder timeseries = new StringBuilder();
         StringBuilder values = new StringBuilder();
@@ -108,15 +100,15 @@ public class OutSqlFileSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowMo
                 .append(deviceModel.getDeviceName());
         timeseries.append("(time");
         values.append(" values (")
-                .append(timeSeriesRowModel.getTimestamp());
-        timeSeriesRowModel.getIFieldList().forEach(column -> {
-            if (column.getField() != null) {
+                .append(batch.getTimes()[row]);
+        for (int i = 0; i < batch.getColumnSize(); i++) {
+            if (!batch.isNull(i, row)) {
                 timeseries.append(",")
-                        .append(column.getColumnName().replace(deviceModel.getDeviceName() + ".", ""));
+                        .append(measurements[i]);
                 values.append(",")
-                        .append(column.getField().getObjectValue(column.getField().getDataType()));
+                        .append(batch.getStringValue(i, row));
             }
-        });
+        }
         timeseries.append(") ");
         values.append(");");
         sql.append(timeseries);
@@ -0,0 +1,190 @@
+package org.apache.iotdb.utils.core.pipeline.out.sink;
+
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSyncEnum;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 导出文件的输出流，每个设备的文件一个，数据先写入缓冲区：
+ * 缓冲区满、或者 flush 时距离上次写入文件超过时间阈值才写入文件；close（设备导出完成）时写入全部数据
+ * flush 不一定写入文件，CSVPrinter 等每个batch调用flush，不会每个batch一次系统调用；需要立即写入时调用 flushBuffer
+ * 检查点通过 afterWrite 登记在数据写入文件（按策略fsync）之后执行的操作，记录的位置不会超过文件实际的长度
+ * 同一个文件只在一个rail上写入，不是线程安全的
+ */
+public class SinkFileWriter extends OutputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
+    private final FileOutputStream outputStream;
+
+    private final FileChannel channel;
+
+    private final int bufferSize;
+
+    private final long flushIntervalNanos;
+
+    private final FileSyncEnum sync;
+
+    //第一次写入时分配，关闭后释放
+    private ByteBuffer buffer;
+
+    private long lastWriteNanos = System.nanoTime();
+
+    //等待数据写入文件的操作，按文件中的位置排序
+    private final Deque<PendingAction> pendingActions = new ArrayDeque<>();
+
+    private boolean closed;
+
+    public SinkFileWriter(FileOutputStream outputStream, int bufferSize, long flushIntervalMillis, FileSyncEnum sync) {
+        this.outputStream = outputStream;
+        this.channel = outputStream.getChannel();
+        this.bufferSize = bufferSize;
+        this.flushIntervalNanos = flushIntervalMillis * 1000_000L;
+        this.sync = sync == null ? FileSyncEnum.NONE : sync;
+    }
+
+    /**
+     * 按导出参数创建，参数为空时使用默认值
+     */
+    public static SinkFileWriter of(FileOutputStream outputStream, ExportModel exportModel) {
+        int bufferSize = exportModel.getFlushSize() == null || exportModel.getFlushSize() <= 0
+                ? DEFAULT_BUFFER_SIZE : exportModel.getFlushSize();
+        long flushInterval = exportModel.getFlushInterval() == null || exportModel.getFlushInterval() < 0
+                ? DEFAULT_FLUSH_INTERVAL : exportModel.getFlushInterval();
+        return new SinkFileWriter(outputStream, bufferSize, flushInterval, exportModel.getFileSync());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 达到时间阈值时写入文件，否则只保留在缓冲区
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!closed && System.nanoTime() - lastWriteNanos >= flushIntervalNanos) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * 立即把缓冲区写入文件
+     */
+    public void flushBuffer() throws IOException {
+        if (!closed) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * 已写入的数据（包括缓冲区中的）在文件中的结束位置
+     */
+    public long position() throws IOException {
+        return channel.position() + (buffer == null ? 0 : buffer.position());
+    }
+
+    /**
+     * 当前位置之前的数据写入文件之后执行action；没有缓冲的数据时立即执行
+     */
+    public void afterWrite(Runnable action) throws IOException {
+        long position = position();
+        if (position <= channel.position()) {
+            action.run();
+            return;
+        }
+        pendingActions.add(new PendingAction(position, action));
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 写入全部数据并关闭文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBuffer();
+            if (sync == FileSyncEnum.CLOSE) {
+                channel.force(false);
+            }
+        } finally {
+            closed = true;
+            buffer = null;
+            outputStream.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("file writer is closed");
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        lastWriteNanos = System.nanoTime();
+        if (buffer == null || buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        if (sync == FileSyncEnum.FLUSH) {
+            channel.force(false);
+        }
+        long position = channel.position();
+        while (!pendingActions.isEmpty() && pendingActions.peekFirst().position <= position) {
+            pendingActions.pollFirst().action.run();
+        }
+    }
+
+    private static class PendingAction {
+
+        private final long position;
+
+        private final Runnable action;
+
+        PendingAction(long position, Runnable action) {
+            this.position = position;
+            this.action = action;
+        }
+    }
+}
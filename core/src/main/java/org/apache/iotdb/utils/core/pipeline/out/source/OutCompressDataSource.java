@@ -1,10 +1,13 @@
 package org.apache.iotdb.utils.core.pipeline.out.source;
 
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.compress.ColumnBlockCodec;
+import org.apache.iotdb.utils.core.compress.CompressFileOutputStream;
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
-import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
@@ -17,7 +20,6 @@ import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
@@ -27,7 +29,7 @@ import java.util.function.Function;
 
 @Data
 @Slf4j
-public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class OutCompressDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -46,7 +48,7 @@ public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel
     private int parallelism;
 
     @Override
-    public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> flux
                 .flatMap(s-> {
                     String catalog = CATALOG_COMPRESS;
@@ -57,8 +59,14 @@ public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel
                 .parallel(parallelism)
                 .runOn(scheduler)
                 .flatMap(exportPipelineService::parseTimeseries)
+                .flatMap(exportPipelineService::splitTimeRange)
+                //时间切片后重新分配到各个rail上，同一设备的片段并发查询
+                .sequential()
+                .parallel(parallelism)
+                .runOn(scheduler)
                 .flatMap(s-> this.initOutputStream(s,fileNo,COMPRESS_PRINTER_MAP))
-                .flatMap(exportPipelineService::parseToRowModel)
+                //每个rail同一时间只输出一个设备（片段）的流，sink按连续的片段写入，文件只被一个rail使用
+                .concatMap(exportPipelineService::parseToRowBatch)
                 .transform(doNext())
                 .sequential()
                 .doFinally(signalType -> {
@@ -81,6 +89,7 @@ public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel
 
     /**
      * 初始化设备实体对应的outputStream
+     * 上次已经导出完的流不创建文件；没有导出完的流以追加的方式打开，不再写入文件头和目录，已写入的block加入索引
      * @param pair
      * @return
      */
@@ -88,24 +97,33 @@ public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel
         return Flux.deferContextual(contextView -> {
             PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
+            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+            String streamKey = pair.getLeft().streamKey();
+            if (checkpoint != null && checkpoint.isDone(streamKey)) {
+                return Flux.just(pair);
+            }
+            boolean withIndex = exportPipelineService.getCompressVersion(exportModel) == ColumnBlockCodec.VERSION_2;
             try {
+                ExportCheckpoint.StreamCheckpoint resumable = checkpoint == null ? null : checkpoint.resumable(streamKey);
+                if (resumable != null) {
+                    CompressFileOutputStream resumed = new CompressFileOutputStream(new File(resumable.getFileName()),
+                            withIndex, resumable.getBlockList());
+                    outputStreamMap.put(streamKey, resumed);
+                    checkpoint.resume(streamKey, resumed.getChannel());
+                    return Flux.just(pair);
+                }
                 String fileName;
-                OutputStream out;
-                long no = fileNo.incrementAndGet();
+                CompressFileOutputStream out;
+                long no = checkpoint == null ? fileNo.incrementAndGet() : checkpoint.nextFileNo();
                 if (exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG) {
                     fileName = exportModel.getFileFolder()  + no;
                 } else {
-                    fileName = exportModel.getFileFolder()  + pair.getLeft().getDeviceName();
+                    fileName = exportModel.getFileFolder()  + pair.getLeft().streamKey();
                 }
 
-                if(exportModel.getCompressEnum() == CompressEnum.SNAPPY){
-                    fileName = fileName + ".snappy.bin";
-                }else if(exportModel.getCompressEnum() == CompressEnum.GZIP){
-                    fileName = fileName + ".gz.bin";
-                }else{
-                    fileName = fileName + ".lz4.bin";
-                }
-                out = new FileOutputStream(new File(fileName));
+                fileName = fileName + BlockCompressors.get(exportModel.getCompressEnum()).fileSuffix();
+                //v2 格式在文件末尾写入block索引
+                out = new CompressFileOutputStream(new File(fileName), withIndex);
 
                 if(exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG){
                     StringBuilder catalogRecord = new StringBuilder();
@@ -116,7 +134,11 @@ public class OutCompressDataSource extends PipeSource<String, TimeSeriesRowModel
                     outputStreamMap.get("CATALOG").write(catalogRecord.toString().getBytes());
                 }
                 exportPipelineService.compressHeader(pair.getRight(),out,exportModel);
-                outputStreamMap.put(String.valueOf(pair.getLeft().getDeviceName()), out);
+                outputStreamMap.put(pair.getLeft().streamKey(), out);
+                if (checkpoint != null) {
+                    out.flush();
+                    checkpoint.open(streamKey, pair.getLeft().getDeviceName(), no, fileName, out.getChannel());
+                }
             } catch (IOException e) {
                 log.error("异常信息:",e);
             }
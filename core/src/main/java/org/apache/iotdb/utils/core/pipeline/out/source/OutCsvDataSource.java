@@ -1,11 +1,13 @@
 package org.apache.iotdb.utils.core.pipeline.out.source;
 
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.out.sink.SinkFileWriter;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +29,7 @@ import java.util.function.Function;
 
 @Data
 @Slf4j
-public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class OutCsvDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -35,6 +37,9 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
 
     private ConcurrentHashMap<String, CSVPrinter> CSV_PRINTER_MAP = new ConcurrentHashMap<>();
 
+    //printer 底层的文件输出流，sink 用于在数据写入文件之后记录检查点
+    private ConcurrentHashMap<String, SinkFileWriter> FILE_WRITER_MAP = new ConcurrentHashMap<>();
+
     private OutputStream[] outputStreams = new OutputStream[1];
 
     private static final String CATALOG_CSV = "CATALOG_CSV.CATALOG";
@@ -48,7 +53,7 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
     private int parallelism;
 
     @Override
-    public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> flux
                 .flatMap(s -> this.parseFileSinkStrategy(outputStreams, CATALOG_CSV))
                 .flatMap(s -> exportPipelineService.countDeviceNum(s, totalSize))
@@ -56,8 +61,14 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                 .parallel(parallelism)
                 .runOn(scheduler)
                 .flatMap(exportPipelineService::parseTimeseries)
+                .flatMap(exportPipelineService::splitTimeRange)
+                //时间切片后重新分配到各个rail上，同一设备的片段并发查询
+                .sequential()
+                .parallel(parallelism)
+                .runOn(scheduler)
                 .flatMap(s -> this.initOutputStream(s, fileNo, CSV_PRINTER_MAP, outputStreams[0]))
-                .flatMap(exportPipelineService::parseToRowModel)
+                //每个rail同一时间只输出一个设备（片段）的流，sink按连续的片段写入，文件只被一个rail使用
+                .concatMap(exportPipelineService::parseToRowBatch)
                 .transform(doNext())
                 .sequential()
                 .doFinally(signalType -> {
@@ -77,6 +88,7 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                 .contextWrite(context -> {
                     context = context.put("totalSize", totalSize);
                     context = context.put("outputStreamMap", CSV_PRINTER_MAP);
+                    context = context.put("fileWriterMap", FILE_WRITER_MAP);
                     return context;
                 });
     }
@@ -105,6 +117,7 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                     outputStream[0] = new FileOutputStream(catalogFilePath);
                     String header = "FILE_NAME,ENTITY_PATH\r\n";
                     outputStream[0].write(header.getBytes());
+                    exportPipelineService.writeResumedCatalog(exportModel, outputStream[0]);
                 } catch (IOException e) {
                     log.error("异常信息:", e);
                 }
@@ -115,6 +128,7 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
 
     /**
      * 初始化设备实体对应的outputStream
+     * 上次已经导出完的流不创建文件；没有导出完的流以追加的方式打开，不再写入表头和目录
      *
      * @param pair
      * @return
@@ -124,14 +138,27 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
         return Flux.deferContextual(contextView -> {
             PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
-            FileOutputStream outputStream = null;
+            SinkFileWriter outputStream = null;
+            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+            String streamKey = pair.getLeft().streamKey();
+            if (checkpoint != null && checkpoint.isDone(streamKey)) {
+                return Flux.just(pair);
+            }
             try {
+                ExportCheckpoint.StreamCheckpoint resumable = checkpoint == null ? null : checkpoint.resumable(streamKey);
+                if (resumable != null) {
+                    outputStream = SinkFileWriter.of(new FileOutputStream(resumable.getFileName(), true), exportModel);
+                    outputStreamMap.put(streamKey, csvPrinter(outputStream, exportModel));
+                    FILE_WRITER_MAP.put(streamKey, outputStream);
+                    checkpoint.resume(streamKey, outputStream.getChannel());
+                    return Flux.just(pair);
+                }
                 String fileName;
-                long no = fileNo.incrementAndGet();
+                long no = checkpoint == null ? fileNo.incrementAndGet() : checkpoint.nextFileNo();
                 if (exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG) {
                     fileName = exportModel.getFileFolder() + no + ".csv";
                 } else {
-                    fileName = exportModel.getFileFolder() + pair.getLeft().getDeviceName() + ".csv";
+                    fileName = exportModel.getFileFolder() + pair.getLeft().streamKey() + ".csv";
                 }
                 if (exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG) {
                     StringBuilder catalogRecord = new StringBuilder();
@@ -141,21 +168,20 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                             .append("\r\n");
                     catalogOutStream.write(catalogRecord.toString().getBytes());
                 }
-                outputStream = new FileOutputStream(new File(fileName));
+                outputStream = SinkFileWriter.of(new FileOutputStream(new File(fileName)), exportModel);
                 List<String> headerList = new ArrayList<>();
                 headerList.add("Time");
                 headerList.addAll(pair.getRight());
-                CSVPrinter printer =
-                        CSVFormat.Builder.create(CSVFormat.DEFAULT)
-                                .setHeader()
-                                .setSkipHeaderRecord(true)
-                                .setEscape('\\')
-                                .setQuoteMode(QuoteMode.NONE)
-                                .build()
-                                .print(new OutputStreamWriter(outputStream, exportModel.getCharSet()));
+                CSVPrinter printer = csvPrinter(outputStream, exportModel);
                 printer.printRecord(headerList);
                 printer.flush();
-                outputStreamMap.put(String.valueOf(pair.getLeft().getDeviceName()), printer);
+                //文件头写入文件，检查点记录文件头的结束位置
+                outputStream.flushBuffer();
+                outputStreamMap.put(pair.getLeft().streamKey(), printer);
+                FILE_WRITER_MAP.put(pair.getLeft().streamKey(), outputStream);
+                if (checkpoint != null) {
+                    checkpoint.open(streamKey, pair.getLeft().getDeviceName(), no, fileName, outputStream.getChannel());
+                }
             } catch (IOException e) {
                 log.error("异常信息:", e);
             }
@@ -163,6 +189,16 @@ public class OutCsvDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
         });
     }
 
+    private CSVPrinter csvPrinter(OutputStream outputStream, ExportModel exportModel) throws IOException {
+        return CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setEscape('\\')
+                .setQuoteMode(QuoteMode.NONE)
+                .build()
+                .print(new OutputStreamWriter(outputStream, exportModel.getCharSet()));
+    }
+
     public OutCsvDataSource(String name) {
         this(name, Schedulers.DEFAULT_POOL_SIZE);
     }
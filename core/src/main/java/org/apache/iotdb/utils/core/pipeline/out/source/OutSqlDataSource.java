@@ -1,11 +1,13 @@
 package org.apache.iotdb.utils.core.pipeline.out.source;
 
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.out.sink.SinkFileWriter;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +25,7 @@ import java.util.function.Function;
 
 @Data
 @Slf4j
-public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>>> {
+public class OutSqlDataSource extends PipeSource<String, RowBatch, Function<ParallelFlux<RowBatch>, ParallelFlux<RowBatch>>> {
 
     private String name;
 
@@ -42,7 +44,7 @@ public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
     private int parallelism;
 
     @Override
-    public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
+    public Function<Flux<String>, Flux<RowBatch>> doExecute() {
         return flux -> flux
                 .flatMap(s-> exportPipelineService.parseFileSinkStrategy(OUTPUT_STREAM_MAP,CATALOG_SQL))
                 .flatMap(s-> exportPipelineService.countDeviceNum(s,totalSize))
@@ -50,8 +52,14 @@ public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                 .parallel(parallelism)
                 .runOn(scheduler)
                 .flatMap(exportPipelineService::parseTimeseries)
+                .flatMap(exportPipelineService::splitTimeRange)
+                //时间切片后重新分配到各个rail上，同一设备的片段并发查询
+                .sequential()
+                .parallel(parallelism)
+                .runOn(scheduler)
                 .flatMap(s-> this.initOutputStream(s,fileNo,OUTPUT_STREAM_MAP))
-                .flatMap(exportPipelineService::parseToRowModel)
+                //每个rail同一时间只输出一个设备（片段）的流，sink按连续的片段写入，文件只被一个rail使用
+                .concatMap(exportPipelineService::parseToRowBatch)
                 .transform(doNext())
                 .sequential()
                 .doFinally(signalType -> {
@@ -74,6 +82,7 @@ public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
 
     /**
      * 初始化设备实体对应的outputStream
+     * 上次已经导出完的流不创建文件；没有导出完的流以追加的方式打开，不再写入目录
      * @param pair
      * @return
      */
@@ -81,20 +90,32 @@ public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
         return Flux.deferContextual(contextView -> {
             PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
-            FileOutputStream outputStream = null;
+            SinkFileWriter outputStream = null;
+            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+            String streamKey = pair.getLeft().streamKey();
+            if (checkpoint != null && checkpoint.isDone(streamKey)) {
+                return Flux.just(pair);
+            }
             try {
+                ExportCheckpoint.StreamCheckpoint resumable = checkpoint == null ? null : checkpoint.resumable(streamKey);
+                if (resumable != null) {
+                    outputStream = SinkFileWriter.of(new FileOutputStream(resumable.getFileName(), true), exportModel);
+                    outputStreamMap.put(streamKey, outputStream);
+                    checkpoint.resume(streamKey, outputStream.getChannel());
+                    return Flux.just(pair);
+                }
                 File file = new File(exportModel.getFileFolder());
                 String fileName;
-                long no = fileNo.incrementAndGet();
+                long no = checkpoint == null ? fileNo.incrementAndGet() : checkpoint.nextFileNo();
                 if(exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG){
                     fileName = exportModel.getFileFolder() + no;
                 }else{
-                    fileName = exportModel.getFileFolder() + pair.getLeft().getDeviceName();
+                    fileName = exportModel.getFileFolder() + pair.getLeft().streamKey();
                 }
                 fileName = fileName + ".sql";
                 file = new File(fileName);
-                outputStream = new FileOutputStream(file);
-                outputStreamMap.put(String.valueOf(pair.getLeft().getDeviceName()), outputStream);
+                outputStream = SinkFileWriter.of(new FileOutputStream(file), exportModel);
+                outputStreamMap.put(pair.getLeft().streamKey(), outputStream);
                 if(exportModel.getFileSinkStrategyEnum() == FileSinkStrategyEnum.EXTRA_CATALOG){
                     StringBuilder catalogRecord = new StringBuilder();
                     catalogRecord.append(no)
@@ -103,6 +124,9 @@ public class OutSqlDataSource extends PipeSource<String, TimeSeriesRowModel, Fun
                             .append("\r\n");
                     outputStreamMap.get("CATALOG").write(catalogRecord.toString().getBytes());
                 }
+                if (checkpoint != null) {
+                    checkpoint.open(streamKey, pair.getLeft().getDeviceName(), no, fileName, outputStream.getChannel());
+                }
             } catch (IOException e) {
                 log.error("异常信息:",e);
             }
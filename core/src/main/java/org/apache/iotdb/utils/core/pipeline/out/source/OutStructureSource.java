@@ -5,6 +5,7 @@ import org.apache.iotdb.utils.core.model.FieldCopy;
 import org.apache.iotdb.utils.core.model.IField;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineSessionPool;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.PipeSource;
 import org.apache.iotdb.utils.core.service.ExportPipelineService;
@@ -48,12 +49,12 @@ public class OutStructureSource extends PipeSource<String, TimeSeriesRowModel, F
     public Function<Flux<String>, Flux<TimeSeriesRowModel>> doExecute() {
         return flux -> flux
                 .flatMap(s -> this.generateCsvPrinter(TIMESERIES_STRUCTURE))
-                .flatMap(s -> exportPipelineService.parseToDeviceModel())
-                .parallel(1)
-                .runOn(scheduler)
-                .flatMap(this::parseToRowModel)
-                .transform(doNext())
-                .sequential()
+                .flatMap(s -> withSession(session -> exportPipelineService.parseToDeviceModel(session)
+                        .parallel(1)
+                        .runOn(scheduler)
+                        .flatMap(deviceModel -> parseToRowModel(deviceModel, session))
+                        .transform(doNext())
+                        .sequential()))
                 .doFinally(signalType -> {
                     try {
                         for (CSVPrinter printer : csvPrinters) {
@@ -109,18 +110,33 @@ public class OutStructureSource extends PipeSource<String, TimeSeriesRowModel, F
     }
 
 
+    /**
+     * 整个结构导出借用session池中的一个session，可以和数据导出同时执行
+     * 没有配置 sessionFactory 时为model的session
+     */
+    private Flux<TimeSeriesRowModel> withSession(Function<Session, Flux<TimeSeriesRowModel>> function) {
+        return Flux.deferContextual(contextView -> {
+            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+            return PipelineSessionPool.getOrCreate(pcontext.getModel()).withSession(function);
+        });
+    }
+
+    public Flux<TimeSeriesRowModel> parseToRowModel(DeviceModel deviceModel) {
+        return Flux.deferContextual(contextView -> {
+            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+            return parseToRowModel(deviceModel, pcontext.getModel().getSession());
+        });
+    }
+
     /**
      * 通过entity 解析出其对应的entity实体,并把实体对应的row作为stream流
      * show timeseries 返回的record里面的类型全部是txt
      * @param deviceModel
      * @return
      */
-    public Flux<TimeSeriesRowModel> parseToRowModel(DeviceModel deviceModel) {
+    public Flux<TimeSeriesRowModel> parseToRowModel(DeviceModel deviceModel, Session session) {
         return Flux.deferContextual(contextView -> {
-            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
-            ExportModel exportModel = pcontext.getModel();
             return Flux.create((Consumer<FluxSink<TimeSeriesRowModel>>) sink -> {
-                Session session = exportModel.getSession();
                 StringBuilder buffer = new StringBuilder();
                 buffer.append("show timeseries ")
                         .append(exportPipelineService.formatPath(deviceModel.getDeviceName()))
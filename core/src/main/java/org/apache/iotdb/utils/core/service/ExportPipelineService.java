@@ -1,17 +1,27 @@
 package org.apache.iotdb.utils.core.service;
 
+import org.apache.iotdb.utils.core.compress.BlockCompressor;
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.compress.BlockIndexEntry;
+import org.apache.iotdb.utils.core.compress.ByteArrayBuilder;
+import org.apache.iotdb.utils.core.compress.ColumnBlockCodec;
+import org.apache.iotdb.utils.core.compress.CompressFileOutputStream;
 import org.apache.iotdb.utils.core.model.DeviceModel;
-import org.apache.iotdb.utils.core.model.FieldCopy;
-import org.apache.iotdb.utils.core.model.IField;
+import org.apache.iotdb.utils.core.model.DeviceSchemaModel;
+import org.apache.iotdb.utils.core.model.DeviceSegmentModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
 import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.model.TimeseriesSchemaModel;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineSessionPool;
+import org.apache.iotdb.utils.core.pipeline.context.SchemaCache;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
 import org.apache.iotdb.utils.core.utils.IotDBKeyWords;
+import org.apache.iotdb.utils.core.utils.TimeAlignedRowMerger;
 import org.apache.iotdb.utils.core.utils.ToByteArrayUtils;
 import lombok.extern.slf4j.Slf4j;
-import net.jpountz.lz4.LZ4Compressor;
-import net.jpountz.lz4.LZ4Factory;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
@@ -22,18 +32,15 @@ import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.session.Session;
 import org.apache.iotdb.session.SessionDataSet;
-import org.apache.iotdb.tsfile.compress.ICompressor;
 import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
-import org.xerial.snappy.Snappy;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -47,8 +54,18 @@ public class ExportPipelineService {
 
     private static final int T_LIMIT = 999;
 
+    //列编码、压缩输出的缓冲区，按线程复用
+    private static final ThreadLocal<ByteArrayBuilder> ENCODE_BUFFER = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private static final ThreadLocal<ByteArrayBuilder> COMPRESS_BUFFER = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
     private static ExportPipelineService exportPipelineService;
 
+    //不需要加反引号的路径节点，正则只编译一次
+    private static final Pattern PATH_NODE = Pattern.compile("^[\\w._:@#{}$\\u2E80-\\u9FFF\"\'*\\\\]+$");
+
+    private static final Pattern ONLY_NUM = Pattern.compile("^[0-9]+$");
+
     private ExportPipelineService() {
 
     }
@@ -84,6 +101,7 @@ public class ExportPipelineService {
                     FileOutputStream out = new FileOutputStream(new File(catalogFilePath));
                     String header = "FILE_NAME,ENTITY_PATH\r\n";
                     out.write(header.getBytes());
+                    writeResumedCatalog(exportModel, out);
                     outputStreamMap.put("CATALOG", out);
                 } catch (IOException e) {
                     log.error("异常信息:", e);
@@ -93,44 +111,70 @@ public class ExportPipelineService {
         });
     }
 
+    /**
+     * 继续导出时目录文件重新生成，先写入检查点日志中已经创建的文件，新的文件在后面追加
+     */
+    public void writeResumedCatalog(ExportModel exportModel, OutputStream out) throws IOException {
+        ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+        if (checkpoint == null || !checkpoint.isResumed()) {
+            return;
+        }
+        StringBuilder catalogRecord = new StringBuilder();
+        for (ExportCheckpoint.StreamCheckpoint stream : checkpoint.streams()) {
+            catalogRecord.append(stream.getFileNo())
+                    .append(",")
+                    .append(stream.getDeviceName())
+                    .append("\r\n");
+        }
+        out.write(catalogRecord.toString().getBytes());
+    }
+
     /**
      * 通过pcontext中的条件，主要是查询对应的path（ep:root.**）,
      * 来解析出DeviceModel 包含设备实体path，isAligned
      */
     public Flux<DeviceModel> parseToDeviceModel() {
+        return parseToDeviceModel(null);
+    }
+
+    /**
+     * @param session 查询使用的session，为空时使用model的session
+     */
+    public Flux<DeviceModel> parseToDeviceModel(Session session) {
         return Flux.deferContextual(context -> {
             PipelineContext<ExportModel> pcontext = context.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
-            return Flux.create(sink -> {
-                StringBuilder sqlBuilder = new StringBuilder();
-                sqlBuilder.append("show devices ")
-                        .append(formatPath(exportModel.getIotdbPath()));
-                String sql = sqlBuilder.toString();
+            StringBuilder sqlBuilder = new StringBuilder();
+            sqlBuilder.append("show devices ")
+                    .append(formatPath(exportModel.getIotdbPath()));
+            String sql = sqlBuilder.toString();
+            //每次请求输出一个设备，结果集在完成或取消时关闭
+            return Flux.<DeviceModel, SessionDataSet[]>generate(() -> new SessionDataSet[1], (deviceData, sink) -> {
                 try {
-                    SessionDataSet deviceData = exportModel.getSession().executeQueryStatement(sql);
-                    sink.onRequest(n -> {
-                        for (int i = 0; i < n; i++) {
-                            try {
-                                if (deviceData.hasNext()) {
-                                    RowRecord rowRecord = deviceData.next();
-                                    int positon = deviceData.getColumnNames().indexOf("devices");
-                                    String deviceFullName = rowRecord.getFields().get(positon).getStringValue();
-                                    positon = deviceData.getColumnNames().indexOf("isAligned");
-                                    String isAligned = rowRecord.getFields().get(positon).getStringValue();
-                                    DeviceModel deviceModel = new DeviceModel();
-                                    deviceModel.setDeviceName(deviceFullName);
-                                    deviceModel.setAligned(Boolean.parseBoolean(isAligned));
-                                    sink.next(deviceModel);
-                                } else {
-                                    sink.complete();
-                                }
-                            } catch (StatementExecutionException | IoTDBConnectionException e) {
-                                log.error("异常信息:", e);
-                            }
-                        }
-                    });
+                    if (deviceData[0] == null) {
+                        deviceData[0] = (session == null ? exportModel.getSession() : session).executeQueryStatement(sql);
+                    }
+                    if (deviceData[0].hasNext()) {
+                        RowRecord rowRecord = deviceData[0].next();
+                        int positon = deviceData[0].getColumnNames().indexOf("devices");
+                        String deviceFullName = rowRecord.getFields().get(positon).getStringValue();
+                        positon = deviceData[0].getColumnNames().indexOf("isAligned");
+                        String isAligned = rowRecord.getFields().get(positon).getStringValue();
+                        DeviceModel deviceModel = new DeviceModel();
+                        deviceModel.setDeviceName(deviceFullName);
+                        deviceModel.setAligned(Boolean.parseBoolean(isAligned));
+                        sink.next(deviceModel);
+                        return deviceData;
+                    }
                 } catch (StatementExecutionException | IoTDBConnectionException e) {
                     log.error("异常信息对应的SQL：{}", sql);
+                    log.error("异常信息:", e);
+                }
+                sink.complete();
+                return deviceData;
+            }, deviceData -> {
+                if (deviceData[0] != null) {
+                    closeDataSet(new ArrayList<>(Arrays.asList(deviceData[0])));
                 }
             });
         });
@@ -169,80 +213,252 @@ public class ExportPipelineService {
         return Flux.deferContextual(contextView -> {
             PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
-            List<String> timeseriesList = new ArrayList<>();
-            Session session = exportModel.getSession();
-            try {
-                StringBuilder buffer = new StringBuilder();
-                buffer.append(" show timeseries ")
-                        .append(formatPath(deviceModel.getDeviceName()))
-                        .append(".*");
-                String sql = buffer.toString();
-                SessionDataSet timeseriesSet = session.executeQueryStatement(sql);
-                while (timeseriesSet.hasNext()) {
-                    RowRecord record = timeseriesSet.next();
-                    int position = timeseriesSet.getColumnNames().indexOf("timeseries");
-                    String measurement = record.getFields().get(position).getStringValue();
-                    timeseriesList.add(measurement);
-                }
-                //过滤
-                if (exportModel.getMeasurementList() != null && exportModel.getMeasurementList().size() > 0) {
-                    List<String> queryMeasurementList = exportModel.getMeasurementList().stream().map(s -> {
-                        StringBuilder builder = new StringBuilder();
-                        builder.append(deviceModel.getDeviceName())
-                                .append(".")
-                                .append(s);
-                        return builder.toString();
-                    }).collect(Collectors.toList());
-                    timeseriesList.retainAll(queryMeasurementList);
-                }
-            } catch (StatementExecutionException | IoTDBConnectionException e) {
-                log.error("异常信息:", e);
+            //缓存命中时不需要借用session
+            SchemaCache cache = exportModel.getSchemaCache();
+            DeviceSchemaModel cached = cache == null ? null : cache.getCachedDeviceSchema(deviceModel.getDeviceName());
+            if (cached != null) {
+                return Flux.just(Pair.of(deviceModel, filterTimeseries(deviceModel, cached, exportModel)));
             }
-            return Flux.just(Pair.of(deviceModel, timeseriesList));
+            return PipelineSessionPool.getOrCreate(exportModel).withSession(session -> {
+                DeviceSchemaModel deviceSchema = null;
+                try {
+                    SchemaCache schemaCache = SchemaCache.getOrLoad(exportModel, exportModel.getIotdbPath(), session);
+                    deviceSchema = schemaCache.getDeviceSchema(deviceModel.getDeviceName(), session);
+                } catch (StatementExecutionException | IoTDBConnectionException e) {
+                    log.error("异常信息:", e);
+                }
+                return Flux.just(Pair.of(deviceModel, filterTimeseries(deviceModel, deviceSchema, exportModel)));
+            });
         });
     }
 
     /**
-     * 通过entity 解析出其对应的entity实体,并把实体对应的row作为stream流
+     * 设备下的timeseries，按measurementList过滤
+     */
+    private List<String> filterTimeseries(DeviceModel deviceModel, DeviceSchemaModel deviceSchema, ExportModel exportModel) {
+        List<String> timeseriesList = new ArrayList<>();
+        if (deviceSchema != null) {
+            for (TimeseriesSchemaModel timeseries : deviceSchema.getTimeseriesList()) {
+                timeseriesList.add(timeseries.getTimeseries());
+            }
+        }
+        //过滤
+        if (exportModel.getMeasurementList() != null && exportModel.getMeasurementList().size() > 0) {
+            List<String> queryMeasurementList = exportModel.getMeasurementList().stream().map(s -> {
+                StringBuilder builder = new StringBuilder();
+                builder.append(deviceModel.getDeviceName())
+                        .append(".")
+                        .append(s);
+                return builder.toString();
+            }).collect(Collectors.toList());
+            timeseriesList.retainAll(queryMeasurementList);
+        }
+        return timeseriesList;
+    }
+
+    /**
+     * 按时间切片：timeSliceNum 大于1时，根据设备数据的最小/最大时间（受whereClause约束）
+     * 把设备切分为多个时间片段，每个片段作为独立的流并发查询，输出为单独的有序分段文件
      *
      * @param pair
      * @return
      */
-    public Flux<TimeSeriesRowModel> parseToRowModel(Pair<DeviceModel, List<String>> pair) {
+    public Flux<Pair<DeviceModel, List<String>>> splitTimeRange(Pair<DeviceModel, List<String>> pair) {
         return Flux.deferContextual(contextView -> {
             PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
             ExportModel exportModel = pcontext.getModel();
-            return Flux.create((Consumer<FluxSink<TimeSeriesRowModel>>) sink -> {
-                Session session = exportModel.getSession();
+            Integer sliceNum = exportModel.getTimeSliceNum();
+            if (sliceNum == null || sliceNum <= 1 || pair.getRight().size() == 0) {
+                return Flux.just(pair);
+            }
+            DeviceModel deviceModel = pair.getLeft();
+            //继续导出时按上次的范围切片，不再查询时间范围
+            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+            List<long[]> rangeList = checkpoint == null ? null : checkpoint.getSplit(deviceModel.getDeviceName());
+            if (rangeList != null) {
+                return Flux.fromIterable(toSegments(pair, rangeList, contextView.get("totalSize")));
+            }
+            return PipelineSessionPool.getOrCreate(exportModel).withSession(session -> {
+                long[] timeRange;
                 try {
-                    createStreamData(pair.getLeft(), pair.getRight(), session, sink, exportModel);
+                    timeRange = queryTimeRange(deviceModel, exportModel, session);
                 } catch (StatementExecutionException | IoTDBConnectionException e) {
                     log.error("异常信息:", e);
+                    return Flux.just(pair);
                 }
+                if (timeRange == null) {
+                    return Flux.just(pair);
+                }
+                List<long[]> splitList = splitRange(timeRange, sliceNum);
+                if (splitList == null) {
+                    return Flux.just(pair);
+                }
+                if (checkpoint != null) {
+                    checkpoint.split(deviceModel.getDeviceName(), splitList);
+                }
+                return Flux.fromIterable(toSegments(pair, splitList, contextView.get("totalSize")));
             });
         });
     }
 
+    /**
+     * 把[minTime, maxTime]切分为最多sliceNum个[startTime, endTime)
+     * maxTime 为 Long.MAX_VALUE 或者跨度超出long时返回null，不切分
+     */
+    public static List<long[]> splitRange(long[] timeRange, int sliceNum) {
+        long end;
+        long span;
+        try {
+            end = Math.addExact(timeRange[1], 1);
+            span = Math.subtractExact(end, timeRange[0]);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        int num = (int) Math.min(sliceNum, span);
+        long step = span / num + (span % num == 0 ? 0 : 1);
+        List<long[]> rangeList = new ArrayList<>();
+        //按相对minTime的偏移计算，偏移不超过span，不会溢出
+        for (long offset = 0, length; offset < span; offset += length) {
+            length = Math.min(step, span - offset);
+            long startTime = timeRange[0] + offset;
+            rangeList.add(new long[]{startTime, startTime + length});
+        }
+        return rangeList;
+    }
+
+    private List<Pair<DeviceModel, List<String>>> toSegments(Pair<DeviceModel, List<String>> pair, List<long[]> rangeList,
+                                                             Integer[] totalSize) {
+        DeviceModel deviceModel = pair.getLeft();
+        List<Pair<DeviceModel, List<String>>> segmentList = new ArrayList<>();
+        for (int i = 0; i < rangeList.size(); i++) {
+            DeviceSegmentModel segmentModel = new DeviceSegmentModel();
+            segmentModel.setDeviceName(deviceModel.getDeviceName());
+            segmentModel.setAligned(deviceModel.isAligned());
+            segmentModel.setSegment(i);
+            segmentModel.setStartTime(rangeList.get(i)[0]);
+            segmentModel.setEndTime(rangeList.get(i)[1]);
+            segmentList.add(Pair.of(segmentModel, pair.getRight()));
+        }
+        //每个片段对应一个文件，进度统计的总文件数要相应增加
+        synchronized (totalSize) {
+            totalSize[0] = totalSize[0] + segmentList.size() - 1;
+        }
+        return segmentList;
+    }
 
     /**
-     * 创建row流
+     * 查询设备数据的时间范围
+     *
+     * @return [minTime, maxTime]，没有数据时返回null
+     */
+    private long[] queryTimeRange(DeviceModel deviceModel, ExportModel exportModel, Session session)
+            throws StatementExecutionException, IoTDBConnectionException {
+        StringBuilder sqlBuffer = new StringBuilder();
+        sqlBuffer.append("select min_time(*), max_time(*) from ")
+                .append(formatPath(deviceModel.getDeviceName()));
+        if (exportModel.getWhereClause() != null && !"".equals(exportModel.getWhereClause())) {
+            sqlBuffer.append(" where ")
+                    .append(exportModel.getWhereClause());
+        }
+        SessionDataSet rangeSet = session.executeQueryStatement(sqlBuffer.toString());
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        List<String> columnNameList = rangeSet.getColumnNames();
+        while (rangeSet.hasNext()) {
+            List<Field> fields = rangeSet.next().getFields();
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                if (field == null || field.getDataType() == null) {
+                    continue;
+                }
+                String columnName = columnNameList.get(columnNameList.size() - fields.size() + i);
+                if (columnName.startsWith("min_time")) {
+                    minTime = Math.min(minTime, field.getLongV());
+                } else if (columnName.startsWith("max_time")) {
+                    maxTime = Math.max(maxTime, field.getLongV());
+                }
+            }
+        }
+        rangeSet.closeOperationHandle();
+        if (minTime > maxTime) {
+            return null;
+        }
+        return new long[]{minTime, maxTime};
+    }
+
+    /**
+     * 通过entity 解析出其对应的entity实体,并把实体对应的数据作为RowBatch流
+     * 每个流从session池借用一个连接（配置了sessionFactory时），流结束后归还
+     *
+     * @param pair
+     * @return
+     */
+    public Flux<RowBatch> parseToRowBatch(Pair<DeviceModel, List<String>> pair) {
+        return Flux.deferContextual(contextView -> {
+            PipelineContext<ExportModel> pcontext = contextView.get("pipelineContext");
+            ExportModel exportModel = pcontext.getModel();
+            //上次已经导出完的流不再查询，只输出结束标志
+            ExportCheckpoint checkpoint = exportModel.getCheckpoint();
+            if (checkpoint != null && checkpoint.isDone(pair.getLeft().streamKey())) {
+                return Flux.just(RowBatch.finish(pair.getLeft().streamKey()));
+            }
+            return PipelineSessionPool.getOrCreate(exportModel).withSession(session ->
+                    createStreamData(pair.getLeft(), pair.getRight(), session, exportModel));
+        });
+    }
+
+
+    /**
+     * 创建RowBatch流
+     * Flux.generate 每次下游请求只生成一个batch，下游处理慢时不再从server拉取数据；
+     * 状态：第一次请求时执行查询 -> 归并的行直接写入batch的列数组，batch满了输出 -> 输出结束标志并完成
+     * 查询异常时记录日志，输出已有的数据和结束标志，保证文件能正常关闭；流取消时关闭结果集
      *
      * @param deviceModel
      * @param timeseries
      * @param session
-     * @param sink
      * @param exportModel
-     * @throws StatementExecutionException
-     * @throws IoTDBConnectionException
-     * @throws FileNotFoundException
+     * @return
      */
-    private void createStreamData(DeviceModel deviceModel, List<String> timeseries,
-                                  Session session, FluxSink<TimeSeriesRowModel> sink, ExportModel exportModel)
-            throws StatementExecutionException, IoTDBConnectionException {
+    private Flux<RowBatch> createStreamData(DeviceModel deviceModel, List<String> timeseries,
+                                           Session session, ExportModel exportModel) {
+        return Flux.generate(RowStreamState::new, (state, sink) -> {
+            if (!state.failed) {
+                RowBatch batch = null;
+                try {
+                    if (state.merger == null) {
+                        openRowStream(state, deviceModel, timeseries, session, exportModel);
+                    }
+                    if (state.merger.hasNext()) {
+                        batch = new RowBatch(deviceModel, state.columnNames, RowBatch.batchRows(state.columnNames.length));
+                        while (!batch.isFull() && state.merger.hasNext()) {
+                            long timestamp = state.merger.next(state.rowGroup);
+                            conformToRowData(batch, state.rowGroup, state.groupOffset, timestamp);
+                        }
+                    }
+                } catch (StatementExecutionException | IoTDBConnectionException e) {
+                    log.error("异常信息:", e);
+                    state.failed = true;
+                    if (exportModel.getCheckpoint() != null) {
+                        exportModel.getCheckpoint().fail(deviceModel.streamKey());
+                    }
+                }
+                if (batch != null && batch.getRowCount() > 0) {
+                    sink.next(batch);
+                    return state;
+                }
+            }
+            closeDataSet(state.dataSetList);
+            sink.next(RowBatch.finish(deviceModel.streamKey()));
+            sink.complete();
+            return state;
+        }, state -> closeDataSet(state.dataSetList));
+    }
 
+    private void openRowStream(RowStreamState state, DeviceModel deviceModel, List<String> timeseries,
+                               Session session, ExportModel exportModel)
+            throws StatementExecutionException, IoTDBConnectionException {
         List<List<String>> groupTimeseriesList = ListUtils.partition(timeseries, T_LIMIT);
-        List<SessionDataSet> dataSetList = new ArrayList<>();
-
         for (List<String> l : groupTimeseriesList) {
             StringBuilder timeseriesBuffer = new StringBuilder();
             for (String s : l) {
@@ -258,170 +474,85 @@ public class ExportPipelineService {
                     .append(timeseriesBuffer.toString())
                     .append(" from ")
                     .append(formatPath(deviceModel.getDeviceName()));
-            if (exportModel.getWhereClause() != null && !"".equals(exportModel.getWhereClause())) {
-                sqlBuffer.append(" where ")
-                        .append(exportModel.getWhereClause());
-            }
+            sqlBuffer.append(generateWhereClause(deviceModel, exportModel));
             String sql = sqlBuffer.toString();
-            SessionDataSet deviceDetials = null;
             try {
-                deviceDetials = session.executeQueryStatement(sql);
-            } catch (Exception e) {
-                System.out.println(sql);
+                state.dataSetList.add(session.executeQueryStatement(sql));
+            } catch (StatementExecutionException | IoTDBConnectionException e) {
+                log.error("异常信息对应的SQL：{}", sql);
                 throw e;
             }
-            dataSetList.add(deviceDetials);
         }
 
-        ConcurrentHashMap<Long, List<IField>[]> sinkPoolMap = new ConcurrentHashMap<>();
-        sink.onRequest(n -> {
-            Long mark = 0l;  //时间戳标志，sinkpoolMap根据此生成流,如果有小于此值得数据，sink.next会一次性添加多个stream流数据
-            Long stopMark = 0L; //结束标志，当一个时间戳连续出现两次的时候，表示读取完毕,单组数据遍历完毕
-            int loopMark = 0; //假设一个时间序列按列分为了2组，首先遍历第一组 loopMark=0，当第一组遍历完成后，第二组也许比第一组数据多一些，在遍历第二组 loopMark=1
-            boolean stopFlag = false;
-            if (dataSetList == null || dataSetList.size() == 0) {
-                stopFlag = true;
-            }
-            int j = 0;
-            try {
-                //如果列数大于1000，拼接row数据
-                while (true) {
-                    for (int i = 0; i < dataSetList.size(); i++) {
-                        SessionDataSet set = dataSetList.get(i);
-                        mark = recursionSessionData(i, loopMark, mark, dataSetList.size(), set, sinkPoolMap);
-                        if (i == dataSetList.size() - 1) {
-                            if (stopMark == mark) {
-                                if (loopMark == dataSetList.size() - 1) {
-                                    stopFlag = true;
-                                }
-                                loopMark++;
-                            }
-                            stopMark = mark;
-                            for (Long key : sinkPoolMap.keySet().stream().sorted().collect(Collectors.toList())) {
-                                if (key <= mark) {
-                                    if (j == n) {
-                                        return;
-                                    }
-                                    try {
-
-                                        TimeSeriesRowModel rowModel = conformToRowData(sinkPoolMap.get(key), groupTimeseriesList, deviceModel, key);
-                                        sinkPoolMap.remove(key);
-                                        j++;
-                                        sink.next(rowModel);
-                                    } catch (Exception e) {
-                                        log.error("异常信息:",e);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    if (stopFlag) {
-                        //流结束标志
-                        TimeSeriesRowModel finishRowModel = new TimeSeriesRowModel();
-                        DeviceModel finishDeviceModel = new DeviceModel();
-                        StringBuilder builder = new StringBuilder();
-                        builder.append("finish,")
-                                .append(deviceModel.getDeviceName());
-                        finishDeviceModel.setDeviceName(builder.toString());
-                        finishRowModel.setDeviceModel(finishDeviceModel);
-                        finishRowModel.setIFieldList(new ArrayList<>());
-                        sink.next(finishRowModel);
-                        sink.complete();
-                        break;
-                    }
-                }
-            } catch (StatementExecutionException | IoTDBConnectionException e) {
-                log.error("异常信息:", e);
-            }
-        });
+        //各组的列依次拼接为列名字典，groupOffset 为每组第一列在字典中的下标
+        List<TimeAlignedRowMerger.RowCursor> cursorList = new ArrayList<>();
+        List<String> columnNameList = new ArrayList<>();
+        state.groupOffset = new int[state.dataSetList.size()];
+        for (int i = 0; i < state.dataSetList.size(); i++) {
+            SessionDataSet set = state.dataSetList.get(i);
+            List<String> columnName = set.getColumnNames();
+            state.groupOffset[i] = columnNameList.size();
+            columnNameList.addAll(columnName.subList(1, columnName.size()));
+            cursorList.add(TimeAlignedRowMerger.cursorOf(set));
+        }
+        state.columnNames = columnNameList.toArray(new String[0]);
+        state.merger = new TimeAlignedRowMerger(cursorList);
+        state.rowGroup = new RowRecord[state.merger.groupSize()];
     }
 
     /**
-     * 把结果转化为TimeSeriesRowModel类型，
-     * 填充了空的Filed
-     *
-     * @param lists
-     * @param groupTimeseriesList
-     * @param deviceModel
-     * @param timestamp
-     * @return
+     * 生成查询条件，时间片段在whereClause的基础上加上片段的时间范围，
+     * 继续导出的流加上最后写入的时间
      */
-    private TimeSeriesRowModel conformToRowData(List<IField>[] lists, List<List<String>> groupTimeseriesList, DeviceModel deviceModel, Long timestamp) {
-        TimeSeriesRowModel model = new TimeSeriesRowModel();
-        model.setDeviceModel(deviceModel);
-        model.setTimestamp(String.valueOf(timestamp));
-        for (int i = 0; i < groupTimeseriesList.size(); i++) {
-            List<String> timeseriesList = groupTimeseriesList.get(i);
-
-            if (model.getIFieldList() == null) {
-                model.setIFieldList(new ArrayList<>());
-            }
-            if (lists[i] != null) {
-                model.getIFieldList().addAll(lists[i]);
-            } else {
-                List<IField> fillingEmptyIFieldList = timeseriesList.stream().map(s -> {
-                    IField iField = new IField();
-                    iField.setColumnName(s);
-                    return iField;
-                }).collect(Collectors.toList());
-                model.getIFieldList().addAll(fillingEmptyIFieldList);
-            }
+    private String generateWhereClause(DeviceModel deviceModel, ExportModel exportModel) {
+        List<String> conditionList = new ArrayList<>();
+        if (deviceModel instanceof DeviceSegmentModel) {
+            DeviceSegmentModel segmentModel = (DeviceSegmentModel) deviceModel;
+            conditionList.add("time >= " + segmentModel.getStartTime());
+            conditionList.add("time < " + segmentModel.getEndTime());
+        }
+        Long resumeTime = exportModel.getCheckpoint() == null ? null : exportModel.getCheckpoint().resumeTime(deviceModel.streamKey());
+        if (resumeTime != null) {
+            conditionList.add("time > " + resumeTime);
+        }
+        if (exportModel.getWhereClause() != null && !"".equals(exportModel.getWhereClause())) {
+            conditionList.add(conditionList.isEmpty() ? exportModel.getWhereClause() : "(" + exportModel.getWhereClause() + ")");
         }
-        return model;
+        return conditionList.isEmpty() ? "" : " where " + String.join(" and ", conditionList);
     }
 
+    private void closeDataSet(List<SessionDataSet> dataSetList) {
+        for (SessionDataSet set : dataSetList) {
+            try {
+                set.closeOperationHandle();
+            } catch (StatementExecutionException | IoTDBConnectionException e) {
+                log.error("异常信息:", e);
+            }
+        }
+        //结束和取消时都会调用，避免重复关闭
+        dataSetList.clear();
+    }
 
     /**
-     * 递归遍历方法
+     * 把归并后的一行写入batch，值直接写入列数组，不创建行对象；
+     * 该时间戳没有数据的分组保持空值
      *
-     * @param loopi       表示第几组数据
-     * @param loopMark    表示从第几组数据获取标志时间戳
-     * @param mark        数据时间戳
-     * @param size        一共有几组数据
-     * @param set         遍历的当前组数据
-     * @param sinkPoolMap
-     * @return
-     * @throws StatementExecutionException
-     * @throws IoTDBConnectionException
+     * @param batch
+     * @param rowGroup
+     * @param groupOffset
+     * @param timestamp
      */
-    private Long recursionSessionData(int loopi, int loopMark, Long mark, int size, SessionDataSet set, ConcurrentHashMap<Long, List<IField>[]> sinkPoolMap)
-            throws StatementExecutionException, IoTDBConnectionException {
-        if (set.hasNext()) {
-            RowRecord rowRecord = set.next();
-            List<String> columnName = set.getColumnNames();
-            columnName.remove(0);
-            List<IField> fieldList = columnName
-                    .stream()
-                    .map(clname -> {
-                        int position = columnName.indexOf(clname);
-                        Field field = rowRecord.getFields().get(position);
-                        IField iField = new IField();
-                        iField.setField(FieldCopy.copy(field));
-                        iField.setColumnName(clname);
-                        return iField;
-                    }).collect(Collectors.toList());
-            //以loopMark对应的数据为时间基准
-            if (loopi == loopMark) {
-                mark = rowRecord.getTimestamp();
+    private void conformToRowData(RowBatch batch, RowRecord[] rowGroup, int[] groupOffset, long timestamp) {
+        int row = batch.addRow(timestamp);
+        for (int i = 0; i < rowGroup.length; i++) {
+            if (rowGroup[i] == null) {
+                continue;
             }
-            if (sinkPoolMap.get(rowRecord.getTimestamp()) != null) {
-                if (mark != 0 && rowRecord.getTimestamp() < mark) {
-                    recursionSessionData(loopi, loopMark, mark, size, set, sinkPoolMap);
-                }
-                List<IField>[] array = sinkPoolMap.get(rowRecord.getTimestamp());
-                array[loopi] = fieldList;
-                sinkPoolMap.putIfAbsent(rowRecord.getTimestamp(), array);
-            } else {
-                if (mark != 0 && rowRecord.getTimestamp() < mark) {
-                    recursionSessionData(loopi, loopMark, mark, size, set, sinkPoolMap);
-                }
-                List<IField>[] array = new List[size];
-                array[loopi] = fieldList;
-                sinkPoolMap.put(rowRecord.getTimestamp(), array);
+            List<Field> fields = rowGroup[i].getFields();
+            for (int k = 0; k < fields.size(); k++) {
+                batch.put(groupOffset[i] + k, row, fields.get(k));
             }
-            return mark;
         }
-        return mark;
     }
 
     /**
@@ -472,8 +603,9 @@ public class ExportPipelineService {
      * @return
      */
     public static String formatPath(String sql) {
-        String regx = "^[\\w._:@#{}$\\u2E80-\\u9FFF\"\'*\\\\]+$";
-        String regxOnlyNum = "^[0-9]+$";
+        if (!needFormat(sql, '.', PATH_NODE)) {
+            return sql;
+        }
         char[] arr = sql.toCharArray();
         StringBuilder formatedSql = new StringBuilder();
         StringBuilder buffer = new StringBuilder();
@@ -509,7 +641,7 @@ public class ExportPipelineService {
                         if (i == arr.length - 1) {
                             buffer.append(arr[i]);
                         }
-                        if (!Pattern.matches(regx, buffer.toString()) || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase()) || Pattern.matches(regxOnlyNum, buffer.toString())) {
+                        if (!PATH_NODE.matcher(buffer).matches() || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase()) || ONLY_NUM.matcher(buffer).matches()) {
                             if (i == arr.length - 1) {
                                 if (buffer.toString().startsWith("`") && buffer.toString().endsWith("`")) {
                                     formatedSql.append(buffer);
@@ -533,9 +665,9 @@ public class ExportPipelineService {
                         buffer.delete(0, buffer.length());
                     }
                 } else {
-                    if (!Pattern.matches(regx, buffer.toString()) || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase())) {
+                    if (!PATH_NODE.matcher(buffer).matches() || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase())) {
                         buffer.append("`").append(arr[i]).append("`");
-                    } else if (Pattern.matches(regxOnlyNum, buffer.toString())) {
+                    } else if (ONLY_NUM.matcher(buffer).matches()) {
                         buffer.append("`").append(arr[i]).append("`");
                     } else {
                         buffer.append(arr[i]);
@@ -549,18 +681,42 @@ public class ExportPipelineService {
         return formatedSql.toString();
     }
 
+    /**
+     * 按separator切分的每个节点都不需要加反引号时返回false，formatPath 直接返回原字符串；
+     * 包含引号、反引号、转义符时不能简单切分，按需要格式化处理
+     */
+    public static boolean needFormat(String path, char separator, Pattern nodePattern) {
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i < path.length()) {
+                char c = path.charAt(i);
+                if (c == '`' || c == '"' || c == '\'' || c == '\\') {
+                    return true;
+                }
+                if (c != separator) {
+                    continue;
+                }
+            }
+            String node = path.substring(start, i);
+            if (node.isEmpty() || !nodePattern.matcher(node).matches() || ONLY_NUM.matcher(node).matches()
+                    || IotDBKeyWords.validateKeyWords(node.toUpperCase())) {
+                return true;
+            }
+            start = i + 1;
+        }
+        return false;
+    }
+
     public static String formatMeasurement(String measurement) {
-        String regx = "^[\\w._:@#{}$\\u2E80-\\u9FFF\"\'*\\\\]+$";
-        String regxOnlyNum = "^[0-9]+$";
         StringBuilder builder = new StringBuilder();
         builder.append("`").append(measurement).append("`");
         if (measurement.startsWith("`") && measurement.endsWith("`")) {
             return measurement;
         }
-        if (!Pattern.matches(regx, measurement)) {
+        if (!PATH_NODE.matcher(measurement).matches()) {
             return builder.toString();
         }
-        if (Pattern.matches(regxOnlyNum, measurement)) {
+        if (ONLY_NUM.matcher(measurement).matches()) {
             return builder.toString();
         }
         if (IotDBKeyWords.validateKeyWords(measurement.toUpperCase())) {
@@ -598,7 +754,7 @@ public class ExportPipelineService {
     public void compressHeader(List<String> timeSeries, OutputStream outputStream, ExportModel model) throws IOException {
         // 模数 4byte  版本 2byte 压缩格式 2byte
         String mo = "LOLI";
-        short version = 1;
+        short version = getCompressVersion(model);
         String compressType = getCompressType(model);
         // mo version compressType
         byte[] mvc = ArrayUtils.addAll(mo.getBytes(), ToByteArrayUtils.shortToBytes(version));
@@ -614,52 +770,31 @@ public class ExportPipelineService {
         outputStream.write(header);
     }
 
+    public short getCompressVersion(ExportModel model) {
+        if (model.getCompressVersion() == null) {
+            return ColumnBlockCodec.VERSION_2;
+        }
+        return model.getCompressVersion();
+    }
+
     public String getCompressType(ExportModel model) {
-        String compressType;
-        switch (model.getCompressEnum()) {
-            case SNAPPY:
-                compressType = "01";
-                break;
-            case GZIP:
-                compressType = "02";
-                break;
-            case LZ4:
-                compressType = "03";
-                break;
-            default:
-                throw new IllegalArgumentException("compressEnum is illegal");
-        }
-        return compressType;
+        return BlockCompressors.get(model.getCompressEnum()).typeCode();
     }
 
     public void compressBlock(List<TimeSeriesRowModel> groupList, OutputStream outputStream, ExportModel exportModel){
+        compressBlock(RowBatch.fromRowModels(groupList), outputStream, exportModel);
+    }
+
+    public void compressBlock(RowBatch batch, OutputStream outputStream, ExportModel exportModel){
+        if (getCompressVersion(exportModel) == ColumnBlockCodec.VERSION_2) {
+            compressColumnBlock(batch, outputStream, exportModel);
+            return;
+        }
         //TODO: time 列表
-        List<String> timeList = new ArrayList<>();
-        //measurement 列表
-        List<List<String>> list = groupList.stream().map(s -> {
-            timeList.add(s.getTimestamp());
-            return s.getIFieldList().stream().map(IField::getField).collect(Collectors.toList());
-        }).collect(ArrayList::new,
-                (k, v) -> {
-                    if (k.size() == 0) {
-                        for (int i = 0; i < v.size(); i++) {
-                            k.add(new ArrayList<>());
-                        }
-                    }
-                    for (int i = 0; i < v.size(); i++) {
-                        FieldCopy fieldCopy = v.get(i);
-                        List<String> objectList = k.get(i);
-                        if (fieldCopy == null || fieldCopy.getObjectValue(fieldCopy.getDataType()) == null) {
-                            objectList.add(null);
-                        } else {
-                            objectList.add(String.valueOf(fieldCopy.getObjectValue(fieldCopy.getDataType())));
-                        }
-                    }
-                }, (k, v) -> {
-                    for (int i = 0; i < k.size(); i++) {
-                        k.get(i).addAll(v.get(i));
-                    }
-                });
+        List<String> timeList = new ArrayList<>(batch.getRowCount());
+        for (int i = 0; i < batch.getRowCount(); i++) {
+            timeList.add(String.valueOf(batch.getTimes()[i]));
+        }
 
         String blockHeader = "block";
         try{
@@ -671,11 +806,59 @@ public class ExportPipelineService {
 
         writeCompressData(timeList, outputStream, exportModel);
 
-        for (int i = 0; i< list.size(); i++) {
-            List<String> measurementList = list.get(i);
+        //measurement 列表
+        for (int i = 0; i < batch.getColumnSize(); i++) {
+            List<String> measurementList = new ArrayList<>(batch.getRowCount());
+            for (int j = 0; j < batch.getRowCount(); j++) {
+                measurementList.add(batch.isNull(i, j) ? null : batch.getStringValue(i, j));
+            }
             writeCompressData(measurementList, outputStream, exportModel);
         }
+        //整个block一次写入文件
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+    }
 
+    public void compressColumnBlock(List<TimeSeriesRowModel> groupList, OutputStream outputStream, ExportModel exportModel) {
+        compressColumnBlock(RowBatch.fromRowModels(groupList), outputStream, exportModel);
+    }
+
+    /**
+     * v2 格式的block，时间列和每个数据列按类型编码后分别压缩，列数据直接从batch的基本类型数组编码
+     * 输出流为 CompressFileOutputStream 时记录block的位置、行数、时间范围，用于文件末尾的索引
+     */
+    public void compressColumnBlock(RowBatch batch, OutputStream outputStream, ExportModel exportModel) {
+        int rowCount = batch.getRowCount();
+        long[] times = batch.getTimes();
+        ByteArrayBuilder builder = ENCODE_BUFFER.get();
+        builder.reset();
+        long offset = outputStream instanceof CompressFileOutputStream ? ((CompressFileOutputStream) outputStream).getPosition() : -1;
+        try {
+            outputStream.write("block".getBytes());
+            ColumnBlockCodec.encodeTime(times, rowCount, builder);
+            writeCompressData(builder.getBuffer(), builder.size(), outputStream, exportModel);
+
+            for (int i = 0; i < batch.getColumnSize(); i++) {
+                builder.reset();
+                ColumnBlockCodec.encodeColumn(batch, i, builder);
+                writeCompressData(builder.getBuffer(), builder.size(), outputStream, exportModel);
+            }
+            if (offset >= 0 && rowCount > 0) {
+                long minTime = times[0];
+                long maxTime = times[0];
+                for (int i = 1; i < rowCount; i++) {
+                    minTime = Math.min(minTime, times[i]);
+                    maxTime = Math.max(maxTime, times[i]);
+                }
+                ((CompressFileOutputStream) outputStream).addBlockIndex(new BlockIndexEntry(offset, rowCount, minTime, maxTime));
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            log.error("", e);
+        }
     }
 
     public void writeCompressData(List<String> list, OutputStream out, ExportModel exportModel) {
@@ -684,26 +867,51 @@ public class ExportPipelineService {
         ar = list.toArray(ar);
         byte[] originalBytes = ToByteArrayUtils.getByteArray(ar);
         try {
-            byte[] nowBytes;
-            switch (exportModel.getCompressEnum()){
-                case SNAPPY:
-                    nowBytes = Snappy.compress(originalBytes);
-                    break;
-                case LZ4:
-                    LZ4Factory factory = LZ4Factory.fastestInstance();
-                    LZ4Compressor compressor = factory.fastCompressor();
-                    nowBytes = compressor.compress(originalBytes);
-                    break;
-                default:
-                    nowBytes = ICompressor.GZIPCompress.compress(originalBytes);
-            }
-            out.write(ToByteArrayUtils.intToBytes(originalBytes.length));
-            out.write(ToByteArrayUtils.intToBytes(nowBytes.length));
-            out.write(nowBytes);
-            out.flush();
+            writeCompressData(originalBytes, originalBytes.length, out, exportModel);
         } catch (IOException e) {
             log.error("", e);
         }
 
     }
+
+    /**
+     * 压缩 originalBytes 的 [0, length)，写入 原始长度 + 压缩后长度 + 压缩数据
+     */
+    public void writeCompressData(byte[] originalBytes, int length, OutputStream out, ExportModel exportModel) throws IOException {
+        BlockCompressor compressor = BlockCompressors.get(exportModel.getCompressEnum(), exportModel.getCompressLevel());
+        ByteArrayBuilder buffer = COMPRESS_BUFFER.get();
+        buffer.ensureCapacity(8 + compressor.maxCompressedLength(length));
+        byte[] dest = buffer.getBuffer();
+        int compressedLength = compressor.compress(originalBytes, 0, length, dest, 8);
+        putInt(dest, 0, length);
+        putInt(dest, 4, compressedLength);
+        out.write(dest, 0, 8 + compressedLength);
+    }
+
+    //与 ToByteArrayUtils.intToBytes 相同的大端序，直接写入数组
+    private static void putInt(byte[] b, int offset, int v) {
+        b[offset] = (byte) (v >>> 24);
+        b[offset + 1] = (byte) (v >>> 16);
+        b[offset + 2] = (byte) (v >>> 8);
+        b[offset + 3] = (byte) v;
+    }
+
+    /**
+     * createStreamData 的流状态，Flux.generate 保证同一时刻只有一个线程访问
+     */
+    private static class RowStreamState {
+
+        private final List<SessionDataSet> dataSetList = new ArrayList<>();
+
+        private String[] columnNames;
+
+        private int[] groupOffset;
+
+        private TimeAlignedRowMerger merger;
+
+        private RowRecord[] rowGroup;
+
+        //查询异常后不再读取，输出结束标志
+        private boolean failed;
+    }
 }
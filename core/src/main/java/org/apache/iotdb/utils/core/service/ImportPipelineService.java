@@ -1,9 +1,14 @@
 package org.apache.iotdb.utils.core.service;
 
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.DeviceSchemaModel;
 import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.SchemaCache;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.core.utils.IotDBKeyWords;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.utils.Binary;
@@ -11,7 +16,9 @@ import reactor.core.publisher.Flux;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
@@ -28,6 +35,11 @@ public class ImportPipelineService {
 
     private static ImportPipelineService importPipelineService;
 
+    //不需要加反引号的measurement，正则只编译一次
+    private static final Pattern MEASUREMENT = Pattern.compile("^[\\w._:@#{}$\\u2E80-\\u9FFF\"\' *\\\\]+$");
+
+    private static final Pattern ONLY_NUM = Pattern.compile("^[0-9]+$");
+
     private ImportPipelineService() {
 
     }
@@ -56,6 +68,9 @@ public class ImportPipelineService {
                 for (int i = 0; i < fileArray.length; i++) {
                     File file = fileArray[i];
                     InputStream in = new FileInputStream(file);
+                    if (importModel.getCheckpoint() != null) {
+                        importModel.getCheckpoint().track(in, file.getName());
+                    }
                     inputStreamList.add(in);
                 }
             } catch (IOException e) {
@@ -66,6 +81,16 @@ public class ImportPipelineService {
         });
     }
 
+    /**
+     * 继续导入时排除已经完成的文件
+     */
+    public FilenameFilter pendingFilter(FilenameFilter filter, ImportModel importModel) {
+        if (importModel.getCheckpoint() == null) {
+            return filter;
+        }
+        return importModel.getCheckpoint().pending(filter);
+    }
+
     public File[] getFileArray(FilenameFilter filter,String dic){
         File fileDic = new File(dic);
         if (!fileDic.exists()) {
@@ -80,8 +105,9 @@ public class ImportPipelineService {
     }
 
     public static String formatPath(String sql){
-        String regx = "^[\\w._:@#{}$\\u2E80-\\u9FFF\"\' *\\\\]+$";
-        String regxOnlyNum = "^[0-9]+$";
+        if (!ExportPipelineService.needFormat(sql, ',', MEASUREMENT)) {
+            return sql;
+        }
         char[] arr = sql.toCharArray();
         StringBuilder formatedSql = new StringBuilder();
         StringBuilder buffer = new StringBuilder();
@@ -117,7 +143,7 @@ public class ImportPipelineService {
                         if(i == arr.length-1){
                             buffer.append(arr[i]);
                         }
-                        if(!Pattern.matches(regx,buffer.toString()) || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase()) || Pattern.matches(regxOnlyNum,buffer.toString())){
+                        if(!MEASUREMENT.matcher(buffer).matches() || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase()) || ONLY_NUM.matcher(buffer).matches()){
                             if(i == arr.length -1){
                                 if(buffer.toString().startsWith("`") && buffer.toString().endsWith("`")){
                                     formatedSql.append(buffer);
@@ -141,9 +167,9 @@ public class ImportPipelineService {
                         buffer.delete(0,buffer.length());
                     }
                 }else{
-                    if(!Pattern.matches(regx,buffer.toString()) || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase())){
+                    if(!MEASUREMENT.matcher(buffer).matches() || IotDBKeyWords.validateKeyWords(buffer.toString().toUpperCase())){
                         buffer.append("`").append(arr[i]).append("`");
-                    }else if(Pattern.matches(regxOnlyNum,buffer.toString())){
+                    }else if(ONLY_NUM.matcher(buffer).matches()){
                         buffer.append("`").append(arr[i]).append("`");
                     }else {
                         buffer.append(arr[i]);
@@ -189,6 +215,27 @@ public class ImportPipelineService {
         return field;
     }
 
+    /**
+     * 查询设备是否为对齐设备，设备不存在时返回空的DeviceModel
+     */
+    public DeviceModel queryDeviceModel(String deviceName, ImportModel importModel) throws StatementExecutionException, IoTDBConnectionException {
+        DeviceSchemaModel deviceSchema = queryDeviceSchema(deviceName, importModel);
+        return deviceSchema == null ? new DeviceModel() : deviceSchema.toDeviceModel();
+    }
+
+    /**
+     * 查询设备下timeseries和TSDataType的map
+     */
+    public Map<String, TSDataType> queryTsDataTypeMap(String deviceName, ImportModel importModel) throws StatementExecutionException, IoTDBConnectionException {
+        DeviceSchemaModel deviceSchema = queryDeviceSchema(deviceName, importModel);
+        return deviceSchema == null ? new HashMap<>() : deviceSchema.toTsDataTypeMap();
+    }
+
+    private DeviceSchemaModel queryDeviceSchema(String deviceName, ImportModel importModel) throws StatementExecutionException, IoTDBConnectionException {
+        SchemaCache schemaCache = SchemaCache.getOrLoad(importModel, "root.**", importModel.getSession());
+        return schemaCache.getDeviceSchema(deviceName, importModel.getSession());
+    }
+
     public TSDataType parseTsDataType(String type) {
         switch (type) {
             case "TEXT":
@@ -0,0 +1,221 @@
+package org.apache.iotdb.utils.core.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按行读取文件，从channel按块读取到复用的缓冲区，在字节中查找换行符，
+ * 一次把块中所有完整的行解码为字符，再按行切分；行尾的 \r 去掉
+ * 只适用于换行符是单字节且不会出现在多字节字符中的编码（utf8、gbk等），其他编码使用 BufferedReader
+ */
+public class ChannelLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+
+    private final BufferedReader fallbackReader;
+
+    private final CharsetDecoder decoder;
+
+    //读取到的字节，position之前是已经处理的行
+    private ByteBuffer buffer;
+
+    private CharBuffer chars;
+
+    //已经解码、还没有返回的行
+    private final List<String> lines = new ArrayList<>();
+
+    private int lineIndex;
+
+    private boolean eof;
+
+    public ChannelLineReader(ReadableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        if (supports(charset)) {
+            this.fallbackReader = null;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.buffer.limit(0);
+            this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        } else {
+            this.fallbackReader = new BufferedReader(Channels.newReader(channel, charset.newDecoder(), BUFFER_SIZE));
+            this.decoder = null;
+        }
+    }
+
+    /**
+     * 换行符编码为单字节 \n
+     */
+    public static boolean supports(Charset charset) {
+        byte[] bytes = "\n".getBytes(charset);
+        return bytes.length == 1 && bytes[0] == '\n';
+    }
+
+    /**
+     * @return 文件结束时返回null
+     */
+    public String readLine() throws IOException {
+        if (fallbackReader != null) {
+            return fallbackReader.readLine();
+        }
+        while (lineIndex == lines.size()) {
+            lines.clear();
+            lineIndex = 0;
+            if (!decodeLines()) {
+                return null;
+            }
+        }
+        return lines.get(lineIndex++);
+    }
+
+    /**
+     * 跳过一行，不解码
+     * @return 文件结束时返回false
+     */
+    public boolean skipLine() throws IOException {
+        if (fallbackReader != null) {
+            return fallbackReader.readLine() != null;
+        }
+        if (lineIndex < lines.size()) {
+            lineIndex++;
+            return true;
+        }
+        while (true) {
+            int newline = indexOfNewline(buffer.position(), buffer.limit());
+            if (newline >= 0) {
+                buffer.position(newline + 1);
+                return true;
+            }
+            if (!fill()) {
+                //最后一行没有换行符
+                boolean remaining = buffer.hasRemaining();
+                buffer.position(buffer.limit());
+                return remaining;
+            }
+        }
+    }
+
+    /**
+     * 解码缓冲区中所有完整的行，文件结束时最后一行可以没有换行符
+     * @return 没有更多的行时返回false
+     */
+    private boolean decodeLines() throws IOException {
+        int end = lastNewline(buffer.position(), buffer.limit());
+        while (end < 0) {
+            if (!fill()) {
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+                end = buffer.limit() - 1;
+                break;
+            }
+            end = lastNewline(buffer.position(), buffer.limit());
+        }
+        ByteBuffer region = buffer.duplicate();
+        region.limit(end + 1);
+        buffer.position(end + 1);
+        decode(region);
+        int start = 0;
+        int length = chars.limit();
+        for (int i = 0; i < length; i++) {
+            if (chars.get(i) == '\n') {
+                lines.add(line(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            lines.add(line(start, length));
+        }
+        return true;
+    }
+
+    private String line(int start, int end) {
+        if (end > start && chars.get(end - 1) == '\r') {
+            end--;
+        }
+        return new String(chars.array(), chars.arrayOffset() + start, end - start);
+    }
+
+    private void decode(ByteBuffer region) throws IOException {
+        int capacity = (int) Math.ceil(region.remaining() * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(capacity);
+        }
+        chars.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(region, chars, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        decoder.flush(chars);
+        chars.flip();
+    }
+
+    /**
+     * 未处理的字节移到缓冲区开头，从channel读取更多数据；一行超过缓冲区大小时扩容
+     * @return 文件结束时返回false
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int read = channel.read(buffer);
+        buffer.flip();
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    private int indexOfNewline(int from, int to) {
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset();
+        for (int i = from; i < to; i++) {
+            if (array[offset + i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int lastNewline(int from, int to) {
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset();
+        for (int i = to - 1; i >= from; i--) {
+            if (array[offset + i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 不关闭channel，由打开文件的一方关闭
+     */
+    @Override
+    public void close() throws IOException {
+        lines.clear();
+    }
+}
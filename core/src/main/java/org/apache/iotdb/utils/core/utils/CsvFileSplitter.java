@@ -0,0 +1,89 @@
+package org.apache.iotdb.utils.core.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把一个csv文件按字节范围切分，切分点对齐到换行符之后，每个范围都是完整的记录
+ * 导入时csv的引号和转义符都是 \ ，值中的换行只能以转义的形式出现（导出的文件写为 \n，
+ * 手工编辑的文件可能是 \ 加换行符），所以前面有奇数个 \ 的换行符不是记录的边界
+ */
+public class CsvFileSplitter {
+
+    private static final int SCAN_SIZE = 64 * 1024;
+
+    private static final byte ESCAPE = '\\';
+
+    private CsvFileSplitter() {
+
+    }
+
+    /**
+     * 第一行（header）之后的位置，文件只有一行时返回文件大小
+     */
+    public static long headerEnd(FileChannel channel) throws IOException {
+        return nextLineStart(channel, 0);
+    }
+
+    /**
+     * 把 [start, size) 按 chunkSize 切分，至少返回一个范围
+     *
+     * @param chunkSize 每个范围的字节数，小于等于0时不切分
+     * @return 每个元素为 {起始位置, 结束位置}
+     */
+    public static List<long[]> split(FileChannel channel, long start, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<long[]> rangeList = new ArrayList<>();
+        long position = start;
+        while (chunkSize > 0 && size - position > chunkSize) {
+            long end = nextLineStart(channel, position + chunkSize);
+            rangeList.add(new long[]{position, end});
+            position = end;
+        }
+        if (position < size || rangeList.isEmpty()) {
+            rangeList.add(new long[]{position, size});
+        }
+        return rangeList;
+    }
+
+    /**
+     * position 之后（包含）第一个没有被转义的换行符的下一个位置，没有时返回文件大小
+     */
+    public static long nextLineStart(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        //换行符之前连续的转义符个数，position 之前的转义符也要算上
+        int escapeCount = 0;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        for (long i = position - 1; i >= 0; i--) {
+            one.clear();
+            if (channel.read(one, i) <= 0 || one.get(0) != ESCAPE) {
+                break;
+            }
+            escapeCount++;
+        }
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == ESCAPE) {
+                    escapeCount++;
+                    continue;
+                }
+                if (b == '\n' && (escapeCount & 1) == 0) {
+                    return position + i + 1;
+                }
+                escapeCount = 0;
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,154 @@
+package org.apache.iotdb.utils.core.utils;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多路归并：一个设备的时间序列按 T_LIMIT 分成多组查询，每组一个有序的结果集，
+ * 用以时间戳为key的小顶堆把多组结果拼接成完整的行，每个不同的时间戳只输出一次。
+ * 每组只缓存一行（堆顶候选），内存与组数成正比，与数据偏移无关。
+ */
+public class TimeAlignedRowMerger {
+
+    /**
+     * 单组数据的游标，按时间升序返回RowRecord
+     */
+    public interface RowCursor {
+
+        boolean hasNext() throws StatementExecutionException, IoTDBConnectionException;
+
+        RowRecord next() throws StatementExecutionException, IoTDBConnectionException;
+    }
+
+    private final RowCursor[] cursors;
+
+    private final RowRecord[] heads;
+
+    private final long[] headTimes;
+
+    //堆中存放的是组的下标，按 headTimes 排序
+    private final int[] heap;
+
+    private int heapSize;
+
+    public TimeAlignedRowMerger(List<? extends RowCursor> cursorList)
+            throws StatementExecutionException, IoTDBConnectionException {
+        int size = cursorList.size();
+        this.cursors = cursorList.toArray(new RowCursor[size]);
+        this.heads = new RowRecord[size];
+        this.headTimes = new long[size];
+        this.heap = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (advance(i)) {
+                push(i);
+            }
+        }
+    }
+
+    public static RowCursor cursorOf(SessionDataSet dataSet) {
+        return new RowCursor() {
+            @Override
+            public boolean hasNext() throws StatementExecutionException, IoTDBConnectionException {
+                return dataSet.hasNext();
+            }
+
+            @Override
+            public RowRecord next() throws StatementExecutionException, IoTDBConnectionException {
+                return dataSet.next();
+            }
+        };
+    }
+
+    public int groupSize() {
+        return cursors.length;
+    }
+
+    public boolean hasNext() {
+        return heapSize > 0;
+    }
+
+    /**
+     * 输出下一个时间戳对应的行
+     *
+     * @param rowGroup 长度为组数的数组，调用后第i位为第i组在该时间戳的数据，没有数据的组为null；
+     *                 数组会被复用，调用方需要在下次调用前消费掉
+     * @return 时间戳
+     */
+    public long next(RowRecord[] rowGroup) throws StatementExecutionException, IoTDBConnectionException {
+        if (heapSize == 0) {
+            throw new IllegalStateException("no more rows");
+        }
+        Arrays.fill(rowGroup, null);
+        long time = headTimes[heap[0]];
+        while (heapSize > 0 && headTimes[heap[0]] == time) {
+            int group = pop();
+            rowGroup[group] = heads[group];
+            if (advance(group)) {
+                push(group);
+            }
+        }
+        return time;
+    }
+
+    private boolean advance(int group) throws StatementExecutionException, IoTDBConnectionException {
+        if (cursors[group].hasNext()) {
+            RowRecord record = cursors[group].next();
+            heads[group] = record;
+            headTimes[group] = record.getTimestamp();
+            return true;
+        }
+        heads[group] = null;
+        return false;
+    }
+
+    private void push(int group) {
+        int i = heapSize++;
+        heap[i] = group;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (less(heap[i], heap[parent])) {
+                swap(i, parent);
+                i = parent;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heap[0] = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = right < heapSize && less(heap[right], heap[left]) ? right : left;
+            if (less(heap[smallest], heap[i])) {
+                swap(i, smallest);
+                i = smallest;
+            } else {
+                break;
+            }
+        }
+        return top;
+    }
+
+    //时间戳相同时按组下标排序，保证输出稳定
+    private boolean less(int a, int b) {
+        return headTimes[a] < headTimes[b] || (headTimes[a] == headTimes[b] && a < b);
+    }
+
+    private void swap(int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
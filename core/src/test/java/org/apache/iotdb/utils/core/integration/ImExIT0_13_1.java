@@ -18,7 +18,6 @@ import org.junit.After;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import reactor.core.Disposable;
 
 import java.io.File;
 
@@ -71,33 +70,21 @@ public class ImExIT0_13_1 extends CommonScript {
         String resourceFilePath = getResourceFilePath();
         String resourceSource = resourceFilePath + "\\" + "file0_13_1";
         importModel.setFileFolder(resourceSource);
-        Disposable disposable = importStarter.start(importModel);
-        while (!disposable.isDisposed()){
-            Thread.sleep(1000);
-        }
+        importStarter.start(importModel).join();
         checkCSV(exportModel);
 
         ExportStarter starter = new ExportStarter();
-        disposable = starter.start(exportModel);
-        while (!disposable.isDisposed()){
-            Thread.sleep(1000);
-        }
+        starter.start(exportModel).join();
         CompressEnum gzip = CompressEnum.GZIP;
         exportModel = initExportModel(gzip);
-        disposable = starter.start(exportModel);
-        while (!disposable.isDisposed()){
-            Thread.sleep(1000);
-        }
+        starter.start(exportModel).join();
         checkCSV(exportModel);
 
         session.executeNonQueryStatement(delSqlAli);
         Thread.sleep(2000);
         importStarter = new ImportStarter();
         importModel = initImportModel(gzip);
-        disposable= importStarter.start(importModel);
-        while (!disposable.isDisposed()){
-            Thread.sleep(1000);
-        }
+        importStarter.start(importModel).join();
         checkCSV(exportModel);
     }
 
@@ -0,0 +1,57 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.utils.core.compress.BlockCompressor;
+import org.apache.iotdb.utils.core.compress.BlockCompressors;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BlockCompressorsTest {
+
+    private static final byte[] DATA = repeat("root.sg.d1.s1,1660000000000,3.1415926;", 200);
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (CompressEnum compressEnum : Arrays.asList(CompressEnum.SNAPPY, CompressEnum.GZIP, CompressEnum.LZ4, CompressEnum.LZ4HC, CompressEnum.NONE)) {
+            for (Integer level : new Integer[]{null, 1, 9}) {
+                BlockCompressor compressor = BlockCompressors.get(compressEnum, level);
+                assertEquals(compressor.typeCode(), BlockCompressors.get(compressEnum).typeCode());
+                // 偏移量不为0，验证只使用指定区间
+                byte[] dest = new byte[3 + compressor.maxCompressedLength(DATA.length - 5)];
+                int length = compressor.compress(DATA, 5, DATA.length - 5, dest, 3);
+                byte[] original = new byte[DATA.length + 2];
+                BlockCompressors.get(compressor.typeCode()).uncompress(dest, 3, length, original, 2, DATA.length - 5);
+                assertArrayEquals(Arrays.copyOfRange(DATA, 5, DATA.length), Arrays.copyOfRange(original, 2, DATA.length - 3));
+            }
+        }
+    }
+
+    @Test
+    public void testGzipCompatibility() throws Exception {
+        BlockCompressor compressor = BlockCompressors.get(CompressEnum.GZIP);
+        byte[] dest = new byte[compressor.maxCompressedLength(DATA.length)];
+        int length = compressor.compress(DATA, 0, DATA.length, dest, 0);
+        assertArrayEquals(DATA, IUnCompressor.getUnCompressor(CompressionType.GZIP).uncompress(Arrays.copyOf(dest, length)));
+
+        byte[] compressed = ICompressor.GZIPCompress.compress(DATA);
+        byte[] original = new byte[DATA.length];
+        compressor.uncompress(compressed, 0, compressed.length, original, 0, DATA.length);
+        assertArrayEquals(DATA, original);
+    }
+
+    private static byte[] repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(s).append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.utils.core.utils.ChannelLineReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelLineReaderTest {
+
+    private ChannelLineReader reader(String text, Charset charset) {
+        return new ChannelLineReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(charset))), charset);
+    }
+
+    @Test
+    public void testReadLine() throws IOException {
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, Charset.forName("GBK"), StandardCharsets.UTF_16}) {
+            ChannelLineReader reader = reader("第一行\r\n\nsecond,值\n最后一行", charset);
+            assertEquals("第一行", reader.readLine());
+            assertEquals("", reader.readLine());
+            assertEquals("second,值", reader.readLine());
+            assertEquals("最后一行", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testSkipLine() throws IOException {
+        ChannelLineReader reader = reader("a\nb\nc\n", StandardCharsets.UTF_8);
+        assertTrue(reader.skipLine());
+        assertTrue(reader.skipLine());
+        assertEquals("c", reader.readLine());
+        assertFalse(reader.skipLine());
+    }
+
+    @Test
+    public void testLongLine() throws IOException {
+        //超过缓冲区大小的行
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            builder.append("数据");
+        }
+        String line = builder.toString();
+        ChannelLineReader reader = reader(line + "\n" + line, StandardCharsets.UTF_8);
+        assertEquals(line, reader.readLine());
+        assertEquals(line, reader.readLine());
+        assertNull(reader.readLine());
+    }
+}
@@ -0,0 +1,322 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.utils.core.compress.BlockIndex;
+import org.apache.iotdb.utils.core.compress.BlockIndexEntry;
+import org.apache.iotdb.utils.core.compress.BlockReader;
+import org.apache.iotdb.utils.core.compress.ByteArrayBuilder;
+import org.apache.iotdb.utils.core.compress.ColumnBlockCodec;
+import org.apache.iotdb.utils.core.compress.CompressFileOutputStream;
+import org.apache.iotdb.utils.core.compress.DirectBufferPool;
+import org.apache.iotdb.utils.core.compress.MappedBlockReader;
+import org.apache.iotdb.utils.core.compress.MappedFile;
+import org.apache.iotdb.utils.core.compress.StreamBlockReader;
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.FieldCopy;
+import org.apache.iotdb.utils.core.model.IField;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.in.source.InCompressDataSource;
+import org.apache.iotdb.utils.core.service.ExportPipelineService;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnBlockCodecTest {
+
+    private static final TSDataType[] TYPES = {
+            TSDataType.BOOLEAN, TSDataType.INT32, TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.TEXT
+    };
+
+    @Test
+    public void testTimeRoundTrip() {
+        long[] times = {-5, 0, 1000, 2000, 3000, 2999, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 1};
+        ByteArrayBuilder builder = new ByteArrayBuilder(4);
+        ColumnBlockCodec.encodeTime(times, times.length, builder);
+        assertArrayEquals(times, ColumnBlockCodec.decodeTime(ByteBuffer.wrap(builder.toByteArray())));
+    }
+
+    @Test
+    public void testColumnRoundTrip() {
+        int rowCount = 19;
+        String[] columnNames = new String[TYPES.length + 1];
+        for (int c = 0; c < columnNames.length; c++) {
+            columnNames[c] = "s" + c;
+        }
+        RowBatch batch = new RowBatch(new DeviceModel(), columnNames, rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            batch.addRow(i);
+            for (int c = 0; c < TYPES.length; c++) {
+                if ((i + c) % 3 != 1) {
+                    batch.put(c, i, field(TYPES[c], i));
+                }
+            }
+        }
+        RowBatch decoded = new RowBatch(new DeviceModel(), columnNames, rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            decoded.addRow(i);
+        }
+        //最后一列全部为空
+        for (int c = 0; c < columnNames.length; c++) {
+            ByteArrayBuilder builder = new ByteArrayBuilder();
+            ColumnBlockCodec.encodeColumn(batch, c, builder);
+            ColumnBlockCodec.decodeColumn(ByteBuffer.wrap(builder.toByteArray()), decoded, c);
+            assertEquals(batch.getDataTypes()[c], decoded.getDataTypes()[c]);
+            for (int i = 0; i < rowCount; i++) {
+                assertEquals(batch.isNull(c, i), decoded.isNull(c, i));
+                assertEquals(batch.getStringValue(c, i), decoded.getStringValue(c, i));
+            }
+        }
+    }
+
+    @Test
+    public void testColumnLayout() {
+        //INT32 [1, null, -1]：类型、有空值标志、非空bitmap 0b101、zigzag varint
+        RowBatch batch = new RowBatch(new DeviceModel(), new String[]{"s"}, 3);
+        for (int i = 0; i < 3; i++) {
+            batch.addRow(i);
+        }
+        FieldCopy one = new FieldCopy(TSDataType.INT32);
+        one.setIntV(1);
+        FieldCopy minusOne = new FieldCopy(TSDataType.INT32);
+        minusOne.setIntV(-1);
+        batch.put(0, 0, one);
+        batch.put(0, 2, minusOne);
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        ColumnBlockCodec.encodeColumn(batch, 0, builder);
+        assertArrayEquals(new byte[]{TSDataType.INT32.serialize(), 1, 5, 2, 1}, builder.toByteArray());
+
+        //整列为空只写 -1
+        RowBatch empty = new RowBatch(new DeviceModel(), new String[]{"s"}, 3);
+        empty.addRow(0);
+        builder = new ByteArrayBuilder();
+        ColumnBlockCodec.encodeColumn(empty, 0, builder);
+        assertArrayEquals(new byte[]{-1}, builder.toByteArray());
+    }
+
+    @Test
+    public void testBlockRoundTrip() throws Exception {
+        List<String> timeseries = new ArrayList<>();
+        for (TSDataType type : TYPES) {
+            timeseries.add("root.sg.d1." + type.name().toLowerCase());
+        }
+        List<TimeSeriesRowModel> rows = new ArrayList<>();
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName("root.sg.d1");
+        for (int i = 0; i < 100; i++) {
+            TimeSeriesRowModel row = new TimeSeriesRowModel();
+            row.setTimestamp(String.valueOf(1000L + i * 10));
+            row.setDeviceModel(deviceModel);
+            List<IField> fields = new ArrayList<>();
+            for (int c = 0; c < TYPES.length; c++) {
+                IField iField = new IField();
+                iField.setColumnName(timeseries.get(c));
+                if ((i + c) % 4 != 0) {
+                    iField.setField(field(TYPES[c], i));
+                }
+                fields.add(iField);
+            }
+            row.setIFieldList(fields);
+            rows.add(row);
+        }
+        ExportPipelineService service = ExportPipelineService.exportPipelineService();
+        InCompressDataSource source = new InCompressDataSource("test", 1);
+        try {
+            for (CompressEnum compressEnum : Arrays.asList(CompressEnum.SNAPPY, CompressEnum.GZIP, CompressEnum.LZ4, CompressEnum.LZ4HC, CompressEnum.NONE)) {
+                for (short version : new short[]{ColumnBlockCodec.VERSION_1, ColumnBlockCodec.VERSION_2}) {
+                    ExportModel model = new ExportModel();
+                    model.setCompressEnum(compressEnum);
+                    model.setCompressVersion(version);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    service.compressHeader(timeseries, out, model);
+                    service.compressBlock(rows.subList(0, 60), out, model);
+                    service.compressBlock(rows.subList(60, 100), out, model);
+
+                    InputStream in = new ByteArrayInputStream(out.toByteArray());
+                    assertEquals(version, source.parseCompressHeader(in).getVersion());
+                    List<String> values = new ArrayList<>();
+                    if (version == ColumnBlockCodec.VERSION_2) {
+                        BlockReader reader = new StreamBlockReader(in);
+                        RowBatch batch;
+                        while ((batch = source.parseColumnBatch(reader, timeseries.toArray(new String[0]), deviceModel, service.getCompressType(model))) != null) {
+                            for (TimeSeriesRowModel row : batch.toRowModels()) {
+                                values.add(toString(row));
+                            }
+                        }
+                    } else {
+                        List<String[]> data;
+                        while ((data = source.parseCompressData(in, timeseries.size() + 1, service.getCompressType(model))).size() != 0) {
+                            for (int j = 0; j < data.get(0).length; j++) {
+                                StringBuilder builder = new StringBuilder(data.get(0)[j]);
+                                for (int c = 1; c < data.size(); c++) {
+                                    builder.append(',').append(data.get(c)[j]);
+                                }
+                                values.add(builder.toString());
+                            }
+                        }
+                    }
+                    assertEquals(rows.size(), values.size());
+                    for (int i = 0; i < rows.size(); i++) {
+                        assertEquals(toString(rows.get(i)), values.get(i));
+                    }
+                }
+            }
+        } finally {
+            source.getScheduler().dispose();
+        }
+    }
+
+    @Test
+    public void testBlockIndex() throws Exception {
+        List<String> timeseries = Arrays.asList("root.sg.d1.s1");
+        List<TimeSeriesRowModel> rows = new ArrayList<>();
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName("root.sg.d1");
+        for (int i = 0; i < 90; i++) {
+            TimeSeriesRowModel row = new TimeSeriesRowModel();
+            row.setTimestamp(String.valueOf(i));
+            row.setDeviceModel(deviceModel);
+            IField iField = new IField();
+            iField.setColumnName(timeseries.get(0));
+            iField.setField(field(TSDataType.INT64, i));
+            row.setIFieldList(new ArrayList<>(Arrays.asList(iField)));
+            rows.add(row);
+        }
+        ExportPipelineService service = ExportPipelineService.exportPipelineService();
+        InCompressDataSource source = new InCompressDataSource("test", 1);
+        File file = File.createTempFile("block-index", ".bin");
+        try {
+            ExportModel model = new ExportModel();
+            model.setCompressEnum(CompressEnum.LZ4);
+            try (CompressFileOutputStream out = new CompressFileOutputStream(file, true)) {
+                service.compressHeader(timeseries, out, model);
+                for (int i = 0; i < 90; i += 30) {
+                    service.compressBlock(rows.subList(i, i + 30), out, model);
+                }
+            }
+            try (FileInputStream in = new FileInputStream(file)) {
+                BlockIndex blockIndex = BlockIndex.read(in.getChannel());
+                assertEquals(3, blockIndex.getEntries().size());
+                BlockIndexEntry entry = blockIndex.getEntries().get(1);
+                assertEquals(30, entry.getRowCount());
+                assertEquals(30, entry.getMinTime());
+                assertEquals(59, entry.getMaxTime());
+                assertTrue(entry.overlaps(59L, null));
+                assertFalse(entry.overlaps(null, 29L));
+
+                ByteBuffer buffer = ByteBuffer.allocate(blockIndex.blockLength(1));
+                BlockIndex.readFully(in.getChannel(), buffer, entry.getOffset());
+                String[] columnNames = timeseries.toArray(new String[0]);
+                RowBatch batch = source.parseColumnBatch(new StreamBlockReader(new ByteArrayInputStream(buffer.array())), columnNames, deviceModel, service.getCompressType(model));
+                assertEquals(30L, batch.getTimes()[0]);
+                batch.retainTimeRange(40L, 41L);
+                assertEquals(2, batch.getRowCount());
+
+                //顺序读取遇到索引时结束
+                source.parseCompressHeader(in);
+                BlockReader streamReader = new StreamBlockReader(in);
+                int count = 0;
+                while ((batch = source.parseColumnBatch(streamReader, columnNames, deviceModel, service.getCompressType(model))) != null) {
+                    count += batch.getRowCount();
+                }
+                assertEquals(90, count);
+
+                //内存映射读取，分区很小时数据跨分区单独映射
+                BlockReader reader = new MappedBlockReader(new MappedFile(in.getChannel(), 64, 16));
+                assertEquals(timeseries, Arrays.asList(source.parseCompressHeader(reader).getTimeseries()));
+                count = 0;
+                while ((batch = source.parseColumnBatch(reader, columnNames, deviceModel, service.getCompressType(model))) != null) {
+                    assertEquals(count, batch.getTimes()[0]);
+                    assertEquals(-1L * count * 1000000007L, ((long[]) batch.getValues()[0])[0]);
+                    count += batch.getRowCount();
+                }
+                assertEquals(90, count);
+            }
+        } finally {
+            source.getScheduler().dispose();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFileOutputStream() throws Exception {
+        //超过一个堆外缓冲区大小的block，flush 时一次写入
+        byte[] payload = new byte[DirectBufferPool.CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (i * 31);
+        }
+        File file = File.createTempFile("compress-out", ".bin");
+        try {
+            try (CompressFileOutputStream out = new CompressFileOutputStream(file, false)) {
+                out.write("block".getBytes());
+                out.write(payload);
+                assertEquals(0, out.getChannel().position());
+                out.flush();
+                assertEquals(out.getPosition(), out.getChannel().position());
+                out.write('x');
+            }
+            //追加写入从文件末尾开始
+            try (CompressFileOutputStream out = new CompressFileOutputStream(file, false, new ArrayList<>())) {
+                assertEquals(5 + payload.length + 1, out.getPosition());
+                out.write('y');
+            }
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            assertEquals(5 + payload.length + 2, bytes.length);
+            assertEquals("block", new String(bytes, 0, 5));
+            assertArrayEquals(payload, Arrays.copyOfRange(bytes, 5, 5 + payload.length));
+            assertEquals('x', bytes[bytes.length - 2]);
+            assertEquals('y', bytes[bytes.length - 1]);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private String toString(TimeSeriesRowModel row) {
+        StringBuilder builder = new StringBuilder(row.getTimestamp());
+        for (IField iField : row.getIFieldList()) {
+            builder.append(',').append(iField.getField() == null ? null : iField.getField().getStringValue());
+        }
+        return builder.toString();
+    }
+
+    private FieldCopy field(TSDataType type, int i) {
+        FieldCopy field = new FieldCopy(type);
+        switch (type) {
+            case BOOLEAN:
+                field.setBoolV(i % 2 == 0);
+                break;
+            case INT32:
+                field.setIntV(i % 2 == 0 ? -i : i * 100000);
+                break;
+            case INT64:
+                field.setLongV(-1L * i * 1000000007L);
+                break;
+            case FLOAT:
+                field.setFloatV(i * 1.5f);
+                break;
+            case DOUBLE:
+                field.setDoubleV(i / 3.0);
+                break;
+            default:
+                field.setBinaryV(Binary.valueOf("值," + i));
+        }
+        return field;
+    }
+}
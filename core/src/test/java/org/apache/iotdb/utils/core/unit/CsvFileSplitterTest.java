@@ -0,0 +1,144 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.QuoteMode;
+import org.apache.iotdb.utils.core.utils.CsvFileSplitter;
+import org.apache.iotdb.utils.core.utils.FileRangeInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CsvFileSplitterTest {
+
+    @Test
+    public void testSplitAlignedToLines() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            body.append(1000 + i).append(",").append(i * 7).append(",值").append(i).append("\r\n");
+        }
+        String header = "Time,root.sg.d1.s1,root.sg.d1.s2\n";
+        File file = File.createTempFile("csv-split", ".csv");
+        try {
+            Files.write(file.toPath(), (header + body).getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long headerEnd = CsvFileSplitter.headerEnd(channel);
+                assertEquals(header.length(), headerEnd);
+                for (long chunkSize : new long[]{1, 37, 1024, 0, Long.MAX_VALUE}) {
+                    List<long[]> rangeList = CsvFileSplitter.split(channel, headerEnd, chunkSize);
+                    assertTrue(chunkSize != 1 || rangeList.size() == 500);
+                    StringBuilder joined = new StringBuilder();
+                    long expectedStart = headerEnd;
+                    for (long[] range : rangeList) {
+                        assertEquals(expectedStart, range[0]);
+                        expectedStart = range[1];
+                        String chunk = read(new FileRangeInputStream(channel, range[0], range[1]));
+                        assertTrue(chunk.endsWith("\n"));
+                        joined.append(chunk);
+                    }
+                    assertEquals(channel.size(), expectedStart);
+                    assertEquals(body.toString(), joined.toString());
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEscapedNewline() throws Exception {
+        //TEXT 值中有转义的换行符，以及以转义的 \ 结尾的值
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            body.append(1000 + i).append(",");
+            if (i % 3 == 0) {
+                body.append("a\\\nb").append(i);
+            } else if (i % 3 == 1) {
+                body.append("c").append(i).append("\\\\");
+            } else {
+                body.append("d").append(i);
+            }
+            body.append("\n");
+        }
+        String header = "Time,root.sg.d1.s1\n";
+        File file = File.createTempFile("csv-split", ".csv");
+        try {
+            Files.write(file.toPath(), (header + body).getBytes(StandardCharsets.UTF_8));
+            List<List<String>> expected = parse(body.toString());
+            assertEquals(60, expected.size());
+            assertEquals("a\nb0", expected.get(0).get(1));
+            assertEquals("c1\\", expected.get(1).get(1));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long headerEnd = CsvFileSplitter.headerEnd(channel);
+                //每个切分点都落在记录边界上，各个范围分别解析的结果和整个文件相同
+                for (long chunkSize = 1; chunkSize < 40; chunkSize++) {
+                    List<List<String>> actual = new ArrayList<>();
+                    for (long[] range : CsvFileSplitter.split(channel, headerEnd, chunkSize)) {
+                        actual.addAll(parse(read(new FileRangeInputStream(channel, range[0], range[1]))));
+                    }
+                    assertEquals(String.valueOf(chunkSize), expected, actual);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testHeaderOnly() throws Exception {
+        File file = File.createTempFile("csv-split", ".csv");
+        try {
+            Files.write(file.toPath(), "Time,root.sg.d1.s1".getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long headerEnd = CsvFileSplitter.headerEnd(channel);
+                assertEquals(channel.size(), headerEnd);
+                List<long[]> rangeList = CsvFileSplitter.split(channel, headerEnd, 16);
+                assertEquals(1, rangeList.size());
+                assertEquals(rangeList.get(0)[0], rangeList.get(0)[1]);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 和 InCsvDataSource 相同的格式
+     */
+    private List<List<String>> parse(String csv) throws Exception {
+        CSVFormat format = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                .setQuote('\\')
+                .setEscape('\\')
+                .setIgnoreEmptyLines(true)
+                .setQuoteMode(QuoteMode.NONE)
+                .build();
+        List<List<String>> recordList = new ArrayList<>();
+        for (CSVRecord record : format.parse(new StringReader(csv))) {
+            List<String> values = new ArrayList<>();
+            record.forEach(values::add);
+            recordList.add(values);
+        }
+        return recordList;
+    }
+
+    private String read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[7];
+        int n;
+        while ((n = in.read(b, 0, b.length)) != -1) {
+            out.write(b, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package org.apache.iotdb.utils.core.unit;
+
+import com.alibaba.fastjson.JSON;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.utils.core.ExportStarter;
+import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
+import org.apache.iotdb.utils.core.pipeline.context.ExportCheckpoint;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportCheckpointTest {
+
+    private static final int ROWS = 10000;
+
+    //64列时每个batch 4096 行，每个设备3个batch
+    private static final int COLUMNS = 64;
+
+    @Test
+    public void testResume() throws Exception {
+        MemoryTimeseriesStore source = store();
+        for (CompressEnum compressEnum : Arrays.asList(CompressEnum.CSV, CompressEnum.SQL, CompressEnum.SNAPPY)) {
+            File folder = Files.createTempDirectory("export-checkpoint").toFile();
+            try {
+                export(source, folder, compressEnum, false);
+                File journal = new File(folder, ExportCheckpoint.JOURNAL_FILE);
+                Map<String, List<String>> streamLines = streamLines(journal);
+                assertEquals(3, streamLines.size());
+                for (List<String> lines : streamLines.values()) {
+                    assertTrue(lines.get(lines.size() - 1).contains("DONE"));
+                }
+
+                //模拟导出中断：第一个设备已完成，第二个设备只提交了一个batch且文件末尾有写了一半的数据，第三个设备还没有开始
+                List<String> keys = new ArrayList<>(streamLines.keySet());
+                List<String> journalLines = new ArrayList<>(streamLines.get(keys.get(0)));
+                journalLines.addAll(streamLines.get(keys.get(1)).subList(0, 2));
+                journalLines.add("{\"type\":\"COMM");
+                Files.write(journal.toPath(), String.join("\n", journalLines).getBytes(StandardCharsets.UTF_8));
+                File doneFile = dataFile(streamLines.get(keys.get(0)).get(0));
+                long doneModified = doneFile.lastModified();
+                long doneLength = doneFile.length();
+                try (FileOutputStream out = new FileOutputStream(dataFile(streamLines.get(keys.get(1)).get(0)), true)) {
+                    out.write("half written".getBytes());
+                }
+
+                Thread.sleep(10);
+                export(source, folder, compressEnum, true);
+                assertEquals(doneModified, doneFile.lastModified());
+                assertEquals(doneLength, doneFile.length());
+                for (List<String> lines : streamLines(journal).values()) {
+                    assertTrue(lines.get(lines.size() - 1).contains("DONE"));
+                }
+
+                MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+                ImportModel importModel = new ImportModel();
+                importModel.setCompressEnum(compressEnum);
+                importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+                importModel.setNeedTimeseriesStructure(true);
+                importModel.setCharSet("utf8");
+                importModel.setFileFolder(folder.getAbsolutePath());
+                importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+                importModel.setSession(new MemorySession(target));
+                importModel.setSessionFactory(() -> new MemorySession(target));
+                assertSuccess(new ImportStarter().start(importModel).await(60, TimeUnit.SECONDS));
+
+                assertEquals(compressEnum.toString(), source.pointCount(), target.pointCount());
+                for (MemoryTimeseriesStore.Series series : source.timeseries("root.**")) {
+                    assertEquals(compressEnum + " " + series.getPath(), source.read(series.getPath()), target.read(series.getPath()));
+                }
+            } finally {
+                for (File file : folder.listFiles()) {
+                    file.delete();
+                }
+                folder.delete();
+            }
+        }
+    }
+
+    private static void export(MemoryTimeseriesStore source, File folder, CompressEnum compressEnum, boolean resume) throws InterruptedException {
+        ExportModel exportModel = new ExportModel();
+        exportModel.setIotdbPath("root.sg.**");
+        exportModel.setCompressEnum(compressEnum);
+        exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        exportModel.setNeedTimeseriesStructure(true);
+        exportModel.setCharSet("utf8");
+        exportModel.setFileFolder(folder.getAbsolutePath());
+        exportModel.setParallelism(2);
+        exportModel.setResume(resume);
+        exportModel.setSession(new MemorySession(source));
+        exportModel.setSessionFactory(() -> new MemorySession(source));
+        assertSuccess(new ExportStarter().start(exportModel).await(60, TimeUnit.SECONDS));
+    }
+
+    private static void assertSuccess(PipelineResult result) {
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+    }
+
+    /**
+     * 日志中每个流的记录，按OPEN的顺序
+     */
+    private static Map<String, List<String>> streamLines(File journal) throws IOException {
+        Map<String, List<String>> streamLines = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8)) {
+            ExportCheckpoint.CheckpointRecord record = JSON.parseObject(line, ExportCheckpoint.CheckpointRecord.class);
+            streamLines.computeIfAbsent(record.getKey(), key -> new ArrayList<>()).add(line);
+        }
+        return streamLines;
+    }
+
+    private static File dataFile(String openLine) {
+        return new File(JSON.parseObject(openLine, ExportCheckpoint.CheckpointRecord.class).getFileName());
+    }
+
+    /**
+     * d2 对齐，每7行一个空值
+     */
+    private static MemoryTimeseriesStore store() throws Exception {
+        MemoryTimeseriesStore store = new MemoryTimeseriesStore();
+        MemorySession session = new MemorySession(store);
+        List<MeasurementSchema> schemaList = new ArrayList<>();
+        for (int i = 0; i < COLUMNS; i++) {
+            schemaList.add(new MeasurementSchema("s" + i, TSDataType.INT64));
+        }
+        for (int device = 1; device <= 3; device++) {
+            Tablet tablet = new Tablet("root.sg.d" + device, schemaList, ROWS);
+            tablet.initBitMaps();
+            for (int row = 0; row < ROWS; row++) {
+                tablet.timestamps[row] = row;
+                for (int i = 0; i < COLUMNS; i++) {
+                    ((long[]) tablet.values[i])[row] = row * 100L + i;
+                    if ((row + i) % 7 == 0) {
+                        tablet.bitMaps[i].mark(row);
+                    }
+                }
+            }
+            tablet.rowSize = ROWS;
+            if (device == 2) {
+                session.insertAlignedTablet(tablet, true);
+            } else {
+                session.insertTablet(tablet, true);
+            }
+        }
+        return store;
+    }
+}
@@ -0,0 +1,220 @@
+package org.apache.iotdb.utils.core.unit;
+
+import com.alibaba.fastjson.JSON;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.utils.core.ExportStarter;
+import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
+import org.apache.iotdb.utils.core.pipeline.context.ImportCheckpoint;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImportCheckpointTest {
+
+    private static final int ROWS = 10000;
+
+    //64列时每个batch 4096 行，每个文件3个batch
+    private static final int COLUMNS = 64;
+
+    private static final int BATCH_ROWS = 4096;
+
+    @Test
+    public void testResume() throws Exception {
+        MemoryTimeseriesStore source = store();
+        for (CompressEnum compressEnum : Arrays.asList(CompressEnum.CSV, CompressEnum.SNAPPY)) {
+            File folder = export(source, compressEnum);
+            try {
+                importData(new MemoryTimeseriesStore(), folder, compressEnum, null, false);
+                File journal = new File(folder, ImportCheckpoint.JOURNAL_FILE);
+                Map<String, List<String>> fileLines = fileLines(journal);
+                assertEquals(3, fileLines.size());
+                assertAllDone(journal);
+
+                //模拟导入中断：第一个文件已完成，第二个文件只写入了第一个batch，第三个文件还没有开始
+                List<String> files = new ArrayList<>(fileLines.keySet());
+                List<String> journalLines = new ArrayList<>(fileLines.get(files.get(0)));
+                journalLines.add(fileLines.get(files.get(1)).get(0));
+                journalLines.add("{\"type\":\"COMM");
+                Files.write(journal.toPath(), String.join("\n", journalLines).getBytes(StandardCharsets.UTF_8));
+
+                MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+                importData(target, folder, compressEnum, null, true);
+                assertAllDone(journal);
+                List<String> skipped = devices(folder, files.get(0));
+                List<String> partial = devices(folder, files.get(1));
+                for (MemoryTimeseriesStore.Series series : source.timeseries("root.**")) {
+                    String device = series.getPath().substring(0, series.getPath().lastIndexOf('.'));
+                    if (skipped.contains(device)) {
+                        assertTrue(series.getPath(), target.read(series.getPath()).isEmpty());
+                    } else if (partial.contains(device)) {
+                        assertEquals(series.getPath(), source.read(series.getPath()).tailMap((long) BATCH_ROWS), target.read(series.getPath()));
+                    } else {
+                        assertEquals(series.getPath(), source.read(series.getPath()), target.read(series.getPath()));
+                    }
+                }
+            } finally {
+                delete(folder);
+            }
+        }
+    }
+
+    @Test
+    public void testResumeChunkedCsv() throws Exception {
+        MemoryTimeseriesStore source = store();
+        File folder = export(source, CompressEnum.CSV);
+        try {
+            //切片后同一文件的batch在不同的rail上写入，所有切片都写入后才记录完成
+            MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+            importData(target, folder, CompressEnum.CSV, 200_000L, false);
+            File journal = new File(folder, ImportCheckpoint.JOURNAL_FILE);
+            assertAllDone(journal);
+            assertEquals(source.pointCount(), target.pointCount());
+
+            //所有切片都已写入但没有记录完成，继续导入时不再写入数据
+            List<String> journalLines = new ArrayList<>();
+            for (String line : Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.contains("DONE")) {
+                    journalLines.add(line);
+                }
+            }
+            Files.write(journal.toPath(), String.join("\n", journalLines).getBytes(StandardCharsets.UTF_8));
+            MemoryTimeseriesStore empty = new MemoryTimeseriesStore();
+            importData(empty, folder, CompressEnum.CSV, 200_000L, true);
+            assertAllDone(journal);
+            assertEquals(3, fileLines(journal).size());
+            assertEquals(0, empty.pointCount());
+        } finally {
+            delete(folder);
+        }
+    }
+
+    private static File export(MemoryTimeseriesStore source, CompressEnum compressEnum) throws IOException, InterruptedException {
+        File folder = Files.createTempDirectory("import-checkpoint").toFile();
+        ExportModel exportModel = new ExportModel();
+        exportModel.setIotdbPath("root.sg.**");
+        exportModel.setCompressEnum(compressEnum);
+        exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        exportModel.setNeedTimeseriesStructure(true);
+        exportModel.setCharSet("utf8");
+        exportModel.setFileFolder(folder.getAbsolutePath());
+        exportModel.setParallelism(2);
+        exportModel.setSession(new MemorySession(source));
+        exportModel.setSessionFactory(() -> new MemorySession(source));
+        assertSuccess(new ExportStarter().start(exportModel).await(60, TimeUnit.SECONDS));
+        return folder;
+    }
+
+    private static void importData(MemoryTimeseriesStore target, File folder, CompressEnum compressEnum, Long csvChunkSize, boolean resume) throws InterruptedException {
+        ImportModel importModel = new ImportModel();
+        importModel.setCompressEnum(compressEnum);
+        importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        importModel.setNeedTimeseriesStructure(true);
+        importModel.setCharSet("utf8");
+        importModel.setFileFolder(folder.getAbsolutePath());
+        importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+        importModel.setCsvChunkSize(csvChunkSize);
+        importModel.setParallelism(2);
+        importModel.setResume(resume);
+        importModel.setSession(new MemorySession(target));
+        importModel.setSessionFactory(() -> new MemorySession(target));
+        assertSuccess(new ImportStarter().start(importModel).await(60, TimeUnit.SECONDS));
+    }
+
+    private static void assertSuccess(PipelineResult result) {
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+    }
+
+    private static void assertAllDone(File journal) throws IOException {
+        for (List<String> lines : fileLines(journal).values()) {
+            assertTrue(lines.toString(), lines.get(lines.size() - 1).contains("DONE"));
+        }
+    }
+
+    /**
+     * 日志中每个文件的记录
+     */
+    private static Map<String, List<String>> fileLines(File journal) throws IOException {
+        Map<String, List<String>> fileLines = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8)) {
+            ImportCheckpoint.CheckpointRecord record = JSON.parseObject(line, ImportCheckpoint.CheckpointRecord.class);
+            fileLines.computeIfAbsent(record.getFile(), file -> new ArrayList<>()).add(line);
+        }
+        return fileLines;
+    }
+
+    /**
+     * 目录文件中文件对应的设备
+     */
+    private static List<String> devices(File folder, String fileName) throws IOException {
+        String no = fileName.substring(0, fileName.indexOf('.') < 0 ? fileName.length() : fileName.indexOf('.'));
+        List<String> devices = new ArrayList<>();
+        for (File file : folder.listFiles()) {
+            if (!file.getName().endsWith(".CATALOG")) {
+                continue;
+            }
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] catalog = line.split(",", 2);
+                if (catalog.length == 2 && catalog[0].equals(no)) {
+                    devices.add(catalog[1]);
+                }
+            }
+        }
+        return devices;
+    }
+
+    private static void delete(File folder) {
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    private static MemoryTimeseriesStore store() throws Exception {
+        MemoryTimeseriesStore store = new MemoryTimeseriesStore();
+        MemorySession session = new MemorySession(store);
+        List<MeasurementSchema> schemaList = new ArrayList<>();
+        for (int i = 0; i < COLUMNS; i++) {
+            schemaList.add(new MeasurementSchema("s" + i, TSDataType.INT64));
+        }
+        for (int device = 1; device <= 3; device++) {
+            Tablet tablet = new Tablet("root.sg.d" + device, schemaList, ROWS);
+            for (int row = 0; row < ROWS; row++) {
+                tablet.timestamps[row] = row;
+                for (int i = 0; i < COLUMNS; i++) {
+                    ((long[]) tablet.values[i])[row] = row * 100L + i;
+                }
+            }
+            tablet.rowSize = ROWS;
+            if (device == 2) {
+                session.insertAlignedTablet(tablet, true);
+            } else {
+                session.insertTablet(tablet, true);
+            }
+        }
+        return store;
+    }
+}
@@ -0,0 +1,52 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.utils.core.parse.InsertStatementParser;
+import org.apache.iotdb.utils.core.pipeline.in.source.InSqlDataSource;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InsertStatementParserTest {
+
+    @Test
+    public void testParse() {
+        //OutSqlFileSink 生成的格式
+        InsertStatementParser.InsertStatement statement =
+                InsertStatementParser.parse(" insert into root.sg.d1(time,s1,`s,2`,s3)  values (10,1.5,\"a,b\",true);");
+        assertEquals("root.sg.d1", statement.getDevice());
+        assertFalse(statement.isAligned());
+        assertEquals(10L, statement.getTime());
+        assertEquals(Arrays.asList("s1", "`s,2`", "s3"), statement.getMeasurements());
+        assertEquals(Arrays.asList("1.5", "\"a,b\"", "true"), statement.getValues());
+
+        statement = InsertStatementParser.parse("INSERT INTO root.sg.`d(2)`(Time,s1) aligned  values(-1,'x')");
+        assertEquals("root.sg.`d(2)`", statement.getDevice());
+        assertTrue(statement.isAligned());
+        assertEquals(-1L, statement.getTime());
+        assertEquals(Arrays.asList("'x'"), statement.getValues());
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(InsertStatementParser.parse("create timeseries root.sg.d1.s1 with datatype=INT32"));
+        assertNull(InsertStatementParser.parse("insert into root.sg.d1(time,s1) values(1,1),(2,2)"));
+        assertNull(InsertStatementParser.parse("insert into root.sg.d1(time,s1,s2) values(1,1)"));
+        assertNull(InsertStatementParser.parse("insert into root.sg.d1(time,s1) values(2022-09-01T00:00:00,1)"));
+        assertNull(InsertStatementParser.parse("insert into root.sg.d1(s1,s2) values(1,1)"));
+        assertNull(InsertStatementParser.parse("insert into root.sg.d1(time,s1) values(1,\"open)"));
+    }
+
+    @Test
+    public void testFormatStatement() {
+        InSqlDataSource source = new InSqlDataSource("sql source", 1);
+        //只格式化设备路径和measurement，time列和值不变
+        assertEquals("insert into root.sg.`123`(time,s1,`456`) aligned values(1,2,\"a.b\")",
+                source.formatStatement(" insert into root.sg.123(time,s1,456) aligned values(1,2,\"a.b\");"));
+        assertEquals("flush", source.formatStatement("flush;"));
+    }
+}
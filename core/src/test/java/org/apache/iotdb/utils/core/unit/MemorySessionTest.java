@@ -0,0 +1,317 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.utils.core.ExportStarter;
+import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.IECommonModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.in.sink.InRowModelFileSink;
+import org.apache.iotdb.utils.core.service.ExportPipelineService;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemorySessionTest {
+
+    private static final int ROWS = 1000;
+
+    @Test
+    public void testQuery() throws Exception {
+        MemorySession session = new MemorySession(store());
+        //每页3行，结果需要多次取页
+        session.setFetchSize(3);
+
+        SessionDataSet devices = session.executeQueryStatement("show devices root.sg.** limit 1 offset 1");
+        assertTrue(devices.hasNext());
+        RowRecord device = devices.next();
+        assertEquals("root.sg.d2", device.getFields().get(0).getStringValue());
+        assertEquals("true", device.getFields().get(1).getStringValue());
+        assertFalse(devices.hasNext());
+
+        SessionDataSet count = session.executeQueryStatement("count devices root.**");
+        assertEquals("2", count.next().getFields().get(count.getColumnNames().indexOf("devices")).getStringValue());
+
+        SessionDataSet timeseries = session.executeQueryStatement("show timeseries root.sg.d1.*");
+        int timeseriesNum = 0;
+        while (timeseries.hasNext()) {
+            timeseries.next();
+            timeseriesNum++;
+        }
+        assertEquals(6, timeseriesNum);
+
+        SessionDataSet data = session.executeQueryStatement("select s_int,`s_text` from root.sg.d1 where time >= 10 and time < 20 and (time > 10)");
+        assertEquals(Arrays.asList("Time", "root.sg.d1.s_int", "root.sg.d1.s_text"), data.getColumnNames());
+        List<Long> times = new ArrayList<>();
+        while (data.hasNext()) {
+            RowRecord record = data.next();
+            times.add(record.getTimestamp());
+            int i = (int) record.getTimestamp();
+            if (i % 7 == 0) {
+                assertNull(record.getFields().get(0).getDataType());
+            } else {
+                assertEquals(i, record.getFields().get(0).getIntV());
+            }
+            assertEquals("text_" + i, record.getFields().get(1).getStringValue());
+        }
+        assertEquals(Arrays.asList(11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), times);
+
+        SessionDataSet range = session.executeQueryStatement("select min_time(*), max_time(*) from root.sg.d2 where time >= 100");
+        RowRecord rangeRecord = range.next();
+        assertEquals(100L, rangeRecord.getFields().get(0).getLongV());
+        assertEquals(ROWS - 1L, rangeRecord.getFields().get(rangeRecord.getFields().size() - 1).getLongV());
+
+        session.executeNonQueryStatement("insert into root.sg.d3(time,a,b) values (1,2.5,\"x,y\");");
+        assertEquals(TSDataType.DOUBLE, session.getStore().getDevice("root.sg.d3").getSeries("a").getDataType());
+        assertEquals("x,y", session.getStore().read("root.sg.d3.b").get(1L).toString());
+    }
+
+    @Test
+    public void testExportImportRoundTrip() throws Exception {
+        MemoryTimeseriesStore source = store();
+        for (CompressEnum compressEnum : Arrays.asList(CompressEnum.CSV, CompressEnum.SQL, CompressEnum.SNAPPY, CompressEnum.GZIP)) {
+            File folder = Files.createTempDirectory("memory-session").toFile();
+            try {
+                ExportModel exportModel = new ExportModel();
+                exportModel.setIotdbPath("root.sg.**");
+                exportModel.setCompressEnum(compressEnum);
+                exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+                exportModel.setNeedTimeseriesStructure(true);
+                exportModel.setCharSet("utf8");
+                exportModel.setFileFolder(folder.getAbsolutePath());
+                exportModel.setParallelism(2);
+                exportModel.setSession(new MemorySession(source));
+                exportModel.setSessionFactory(() -> new MemorySession(source));
+                run(exportModel, new ExportStarter()::start);
+
+                MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+                ImportModel importModel = new ImportModel();
+                importModel.setCompressEnum(compressEnum);
+                importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+                importModel.setNeedTimeseriesStructure(true);
+                importModel.setCharSet("utf8");
+                importModel.setFileFolder(folder.getAbsolutePath());
+                importModel.setParallelism(2);
+                importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+                importModel.setSession(new MemorySession(target));
+                importModel.setSessionFactory(() -> new MemorySession(target));
+                run(importModel, new ImportStarter()::start);
+
+                assertEquals(compressEnum.toString(), source.pointCount(), target.pointCount());
+                for (MemoryTimeseriesStore.Series series : source.timeseries("root.**")) {
+                    assertEquals(series.getPath(), series.getDataType(), target.timeseries(series.getPath()).get(0).getDataType());
+                    assertEquals(compressEnum + " " + series.getPath(), source.read(series.getPath()), target.read(series.getPath()));
+                }
+                assertTrue(target.getDevice("root.sg.d2").isAligned());
+                if (compressEnum == CompressEnum.SQL) {
+                    //insert语句在客户端解析后批量写入，不是每行一次请求
+                    assertTrue(String.valueOf(target.getRequestCount()), target.getRequestCount() < ROWS / 10);
+                }
+            } finally {
+                for (File file : folder.listFiles()) {
+                    file.delete();
+                }
+                folder.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testTimeSliceRange() throws Exception {
+        List<long[]> rangeList = ExportPipelineService.splitRange(new long[]{0, 9}, 4);
+        assertEquals(4, rangeList.size());
+        assertArrayEquals(new long[]{0, 3}, rangeList.get(0));
+        assertArrayEquals(new long[]{9, 10}, rangeList.get(3));
+        rangeList = ExportPipelineService.splitRange(new long[]{Long.MAX_VALUE - 9, Long.MAX_VALUE - 1}, 4);
+        assertEquals(Long.MAX_VALUE, rangeList.get(rangeList.size() - 1)[1]);
+        //结束时间+1 或跨度超出long时不切分
+        assertNull(ExportPipelineService.splitRange(new long[]{0, Long.MAX_VALUE}, 4));
+        assertNull(ExportPipelineService.splitRange(new long[]{Long.MIN_VALUE, 0}, 4));
+
+        //d1 时间跨度超出long，d2 正常切片，导出后数据完整
+        MemoryTimeseriesStore source = new MemoryTimeseriesStore();
+        MemorySession session = new MemorySession(source);
+        for (long time : new long[]{Long.MIN_VALUE + 1, -5, 0, 7, Long.MAX_VALUE - 1}) {
+            session.executeNonQueryStatement("insert into root.sg.d1(time,s) values (" + time + "," + time + ")");
+        }
+        for (long time = 0; time < 100; time++) {
+            session.executeNonQueryStatement("insert into root.sg.d2(time,s) values (" + time + "," + time + ")");
+        }
+        File folder = Files.createTempDirectory("memory-session").toFile();
+        try {
+            ExportModel exportModel = new ExportModel();
+            exportModel.setIotdbPath("root.sg.**");
+            exportModel.setCompressEnum(CompressEnum.SNAPPY);
+            exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+            exportModel.setNeedTimeseriesStructure(true);
+            exportModel.setCharSet("utf8");
+            exportModel.setFileFolder(folder.getAbsolutePath());
+            exportModel.setParallelism(2);
+            exportModel.setTimeSliceNum(4);
+            exportModel.setSession(new MemorySession(source));
+            exportModel.setSessionFactory(() -> new MemorySession(source));
+            run(exportModel, new ExportStarter()::start);
+
+            MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+            ImportModel importModel = new ImportModel();
+            importModel.setCompressEnum(CompressEnum.SNAPPY);
+            importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+            importModel.setNeedTimeseriesStructure(true);
+            importModel.setCharSet("utf8");
+            importModel.setFileFolder(folder.getAbsolutePath());
+            importModel.setParallelism(2);
+            importModel.setSession(new MemorySession(target));
+            importModel.setSessionFactory(() -> new MemorySession(target));
+            run(importModel, new ImportStarter()::start);
+
+            assertEquals(source.read("root.sg.d1.s"), target.read("root.sg.d1.s"));
+            assertEquals(source.read("root.sg.d2.s"), target.read("root.sg.d2.s"));
+        } finally {
+            for (File file : folder.listFiles()) {
+                file.delete();
+            }
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testTabletSinkGroupsDevices() {
+        MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+        ImportModel importModel = new ImportModel();
+        importModel.setParallelism(1);
+        importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+        importModel.setSession(new MemorySession(target));
+        importModel.setSessionFactory(() -> new MemorySession(target));
+        PipelineContext<ImportModel> context = new PipelineContext<>();
+        context.setModel(importModel);
+
+        //20个小设备，d0 两个batch，其他设备一个batch，d5 对齐
+        List<RowBatch> batchList = new ArrayList<>();
+        for (int device = 0; device < 20; device++) {
+            DeviceModel deviceModel = new DeviceModel();
+            deviceModel.setDeviceName("root.sg.d" + device);
+            deviceModel.setAligned(device == 5);
+            for (int part = 0; part < (device == 0 ? 2 : 1); part++) {
+                RowBatch batch = new RowBatch(deviceModel, new String[]{"s"}, 10);
+                for (int i = 0; i < 10; i++) {
+                    batch.putLong(0, batch.addRow(part * 10 + i), device * 100L + part * 10 + i);
+                }
+                batchList.add(batch);
+            }
+        }
+        batchList.add(RowBatch.finish("root.sg.d19"));
+        List<RowBatch> output = Flux.fromIterable(batchList)
+                .parallel(1)
+                .transform(new InRowModelFileSink("sink").execute())
+                .sequential()
+                .contextWrite(ctx -> ctx.put("pipelineContext", context).put("totalSize", new Integer[]{1}))
+                .collectList()
+                .block();
+
+        assertEquals(batchList.size(), output.size());
+        assertEquals(210, target.pointCount());
+        assertEquals(19L, target.read("root.sg.d0.s").get(19L));
+        assertTrue(target.getDevice("root.sg.d5").isAligned());
+        //d0 的第二个batch开始新的insertTablets，之后所有设备一次写入，对齐设备单独一次
+        assertEquals(3, target.getRequestCount());
+    }
+
+    @Test
+    public void testTabletSinkFailureIsolated() throws Exception {
+        MemoryTimeseriesStore target = new MemoryTimeseriesStore();
+        //d0 已经是对齐设备，非对齐写入失败
+        target.createTimeseries("root.sg.d0.s", TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY, null, true);
+        ImportModel importModel = new ImportModel();
+        importModel.setParallelism(1);
+        importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+        importModel.setSession(new MemorySession(target));
+        importModel.setSessionFactory(() -> new MemorySession(target));
+        PipelineContext<ImportModel> context = new PipelineContext<>();
+        context.setModel(importModel);
+
+        List<RowBatch> batchList = new ArrayList<>();
+        for (int device = 0; device < 2; device++) {
+            DeviceModel deviceModel = new DeviceModel();
+            deviceModel.setDeviceName("root.sg.d" + device);
+            deviceModel.setAligned(device == 1);
+            RowBatch batch = new RowBatch(deviceModel, new String[]{"s"}, 10);
+            for (int i = 0; i < 10; i++) {
+                batch.putLong(0, batch.addRow(i), i);
+            }
+            batchList.add(batch);
+        }
+        InRowModelFileSink sink = new InRowModelFileSink("sink");
+        Flux.fromIterable(batchList)
+                .parallel(1)
+                .transform(sink.execute())
+                .sequential()
+                .contextWrite(ctx -> ctx.put("pipelineContext", context).put("totalSize", new Integer[]{1}))
+                .collectList()
+                .block();
+
+        //非对齐的insertTablets失败不影响对齐设备，失败的行不计入完成行数
+        assertEquals(10, target.read("root.sg.d1.s").size());
+        assertTrue(target.read("root.sg.d0.s").isEmpty());
+        assertEquals(Long.valueOf(10), sink.finishedRowNum());
+    }
+
+    private static <T extends IECommonModel> void run(T model, Function<T, PipelineHandle> starter) throws InterruptedException {
+        PipelineResult result = starter.apply(model).await(60, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+    }
+
+    /**
+     * d1 不对齐，六种类型，INT32 每7行一个空值；d2 对齐
+     */
+    private static MemoryTimeseriesStore store() throws Exception {
+        MemoryTimeseriesStore store = new MemoryTimeseriesStore();
+        MemorySession session = new MemorySession(store);
+        List<String> d1 = Arrays.asList("s_bool", "s_int", "s_long", "s_float", "s_double", "s_text");
+        List<TSDataType> d1Types = Arrays.asList(TSDataType.BOOLEAN, TSDataType.INT32, TSDataType.INT64,
+                TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.TEXT);
+        List<String> d2 = Arrays.asList("a", "b");
+        List<TSDataType> d2Types = Arrays.asList(TSDataType.INT64, TSDataType.TEXT);
+        for (int i = 0; i < ROWS; i++) {
+            List<Object> values = Arrays.asList(i % 2 == 0, i % 7 == 0 ? null : i, i * 1000L, i / 4f, i / 3.0, "text_" + i);
+            session.insertRecordsOfOneDevice("root.sg.d1", list((long) i), list(d1), list(d1Types), list(values));
+            session.insertAlignedRecordsOfOneDevice("root.sg.d2", list((long) i), list(d2), list(d2Types),
+                    list(Arrays.asList(-i, "b" + i)));
+        }
+        return store;
+    }
+
+    private static <T> List<T> list(T value) {
+        List<T> list = new ArrayList<>();
+        list.add(value);
+        return list;
+    }
+}
@@ -0,0 +1,52 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipeSinkTest {
+
+    @Test
+    public void testSplitByDevice() {
+        DeviceModel d1 = device("root.sg.d1");
+        DeviceModel d2 = device("root.sg.d2");
+        List<TimeSeriesRowModel> rows = new ArrayList<>();
+        rows.add(row(d1));
+        rows.add(row(d1));
+        rows.add(row(device("finish,root.sg.d1")));
+        rows.add(row(d2));
+        //不同的DeviceModel对象，同一个设备
+        rows.add(row(device("root.sg.d2")));
+        rows.add(row(d1));
+        List<List<TimeSeriesRowModel>> runs = PipeSink.splitByDevice(rows, r -> r.getDeviceModel().streamKey());
+        List<Integer> sizes = new ArrayList<>();
+        for (List<TimeSeriesRowModel> run : runs) {
+            sizes.add(run.size());
+            for (TimeSeriesRowModel row : run) {
+                assertEquals(run.get(0).getDeviceModel().streamKey(), row.getDeviceModel().streamKey());
+            }
+        }
+        assertEquals(Arrays.asList(2, 1, 2, 1), sizes);
+        assertTrue(PipeSink.splitByDevice(new ArrayList<>(), r -> r.getDeviceModel().streamKey()).isEmpty());
+    }
+
+    private DeviceModel device(String name) {
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName(name);
+        return deviceModel;
+    }
+
+    private TimeSeriesRowModel row(DeviceModel deviceModel) {
+        TimeSeriesRowModel row = new TimeSeriesRowModel();
+        row.setDeviceModel(deviceModel);
+        return row;
+    }
+}
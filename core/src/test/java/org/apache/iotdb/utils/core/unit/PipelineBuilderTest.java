@@ -0,0 +1,194 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.utils.core.pipeline.CommonPipeline;
+import org.apache.iotdb.utils.core.pipeline.PipeChannel;
+import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.pipeline.PipeSource;
+import org.apache.iotdb.utils.core.pipeline.PipelineBuilder;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineBuilderTest {
+
+    @Test
+    public void testFanOut() throws InterruptedException {
+        RecordSink first = new RecordSink();
+        RecordSink second = new RecordSink();
+        PipelineResult result = start(new PipelineBuilder()
+                .source(new RangeSource("numbers", 1000, Duration.ZERO, null))
+                .channel(new PassChannel())
+                .sinks(first, second)
+                .build());
+        assertTrue(result.isSuccess());
+        for (RecordSink sink : new RecordSink[]{first, second}) {
+            assertEquals(1000, sink.values.size());
+            assertEquals(999 * 1000 / 2, sink.values.stream().mapToInt(Integer::intValue).sum());
+            //广播后每个sink的rail数和源相同，同一个key的数据只出现在一个rail上
+            for (Integer key : sink.rails.keySet()) {
+                assertEquals(1, sink.rails.get(key).size());
+            }
+        }
+    }
+
+    @Test
+    public void testDependencies() throws InterruptedException {
+        List<String> events = new CopyOnWriteArrayList<>();
+        PipelineResult result = start(new PipelineBuilder()
+                .source(new RangeSource("slow", 10, Duration.ofMillis(30), events))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .name("slow")
+                .source(new RangeSource("fast", 10, Duration.ZERO, events))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .name("fast")
+                .dependsOn()
+                .source(new RangeSource("join", 10, Duration.ZERO, events))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .dependsOn("slow", "fast")
+                .build());
+        assertTrue(result.isSuccess());
+        //没有依赖的分支同时开始，fast 在 slow 结束前已经结束；join 在两个分支都结束后开始
+        assertTrue(events.toString(), events.indexOf("fast end") < events.indexOf("slow end"));
+        assertTrue(events.toString(), events.indexOf("join start") > events.indexOf("slow end"));
+        assertTrue(events.toString(), events.indexOf("join start") > events.indexOf("fast end"));
+    }
+
+    @Test
+    public void testDefaultDependency() throws InterruptedException {
+        List<String> events = new CopyOnWriteArrayList<>();
+        PipelineResult result = start(new PipelineBuilder()
+                .source(new RangeSource("first", 10, Duration.ofMillis(10), events))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .name("first")
+                .source(new RangeSource("second", 10, Duration.ZERO, events))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .name("second")
+                .build());
+        assertTrue(result.isSuccess());
+        //命名后仍然默认依赖前一个分支
+        assertEquals(Arrays.asList("first start", "first end", "second start", "second end"), events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        new PipelineBuilder()
+                .source(new RangeSource("numbers", 1, Duration.ZERO, null))
+                .channel(new PassChannel())
+                .sink(new RecordSink())
+                .dependsOn("later")
+                .build();
+    }
+
+    private static PipelineResult start(CommonPipeline pipeline) throws InterruptedException {
+        pipeline.withContext(() -> {
+            PipelineContext<ExportModel> context = new PipelineContext<>();
+            context.setModel(new ExportModel());
+            return context;
+        });
+        PipelineResult result = pipeline.start().await(30, TimeUnit.SECONDS);
+        assertNotNull(result);
+        return result;
+    }
+
+    /**
+     * 输出 0 到 count-1，按 key=值%4 分到4个rail，每个值之间间隔 delay
+     */
+    private static class RangeSource extends PipeSource<String, Integer, Function<ParallelFlux<Integer>, ParallelFlux<Integer>>> {
+
+        private final String name;
+
+        private final int count;
+
+        private final Duration delay;
+
+        private final List<String> events;
+
+        RangeSource(String name, int count, Duration delay, List<String> events) {
+            this.name = name;
+            this.count = count;
+            this.delay = delay;
+            this.events = events;
+        }
+
+        @Override
+        public Function<Flux<String>, Flux<Integer>> doExecute() {
+            return flux -> flux
+                    .doOnNext(s -> event("start"))
+                    .flatMap(s -> delay.isZero() ? Flux.range(0, count) : Flux.range(0, count).delayElements(delay))
+                    .groupBy(i -> i % 4)
+                    .flatMap(group -> group)
+                    .parallel(4)
+                    .runOn(Schedulers.parallel())
+                    .transform(doNext())
+                    .sequential()
+                    .doOnComplete(() -> event("end"));
+        }
+
+        private void event(String event) {
+            if (events != null) {
+                events.add(name + " " + event);
+            }
+        }
+    }
+
+    private static class PassChannel extends PipeChannel<Integer, Integer, Function<ParallelFlux<Integer>, ParallelFlux<Integer>>> {
+
+        @Override
+        public Function<ParallelFlux<Integer>, ParallelFlux<Integer>> doExecute() {
+            return flux -> flux.transform(doNext());
+        }
+    }
+
+    private static class RecordSink extends PipeSink<Integer, Integer> {
+
+        private final List<Integer> values = new CopyOnWriteArrayList<>();
+
+        //值%4 -> 收到该key的rail
+        private final Map<Integer, Set<Integer>> rails = new ConcurrentHashMap<>();
+
+        private final AtomicLong finished = new AtomicLong();
+
+        @Override
+        public Function<ParallelFlux<Integer>, ParallelFlux<Integer>> doExecute() {
+            return flux -> flux.transformGroups(group -> group.doOnNext(i -> {
+                values.add(i);
+                rails.computeIfAbsent(i % 4, key -> ConcurrentHashMap.newKeySet()).add(group.key());
+                finished.incrementAndGet();
+            }));
+        }
+
+        @Override
+        public Double[] rateOfProcess() {
+            return new Double[]{0d, 0d};
+        }
+
+        @Override
+        public Long finishedRowNum() {
+            return finished.get();
+        }
+    }
+}
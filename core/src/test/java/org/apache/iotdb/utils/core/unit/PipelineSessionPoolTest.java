@@ -0,0 +1,53 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineSessionPool;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineSessionPoolTest {
+
+    @Test
+    public void testBorrowUpToMaxSize() {
+        //session 未open，只用来区分不同的连接
+        PipelineSessionPool pool = new PipelineSessionPool(() -> new Session("127.0.0.1", 6667), null, 2);
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+        Set<Session> sessions = ConcurrentHashMap.newKeySet();
+        List<Integer> result = Flux.range(0, 20)
+                .flatMap(i -> pool.withSession(session -> {
+                    sessions.add(session);
+                    maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                    return Mono.delay(Duration.ofMillis(5), Schedulers.parallel())
+                            .doOnNext(l -> inUse.decrementAndGet())
+                            .thenReturn(i);
+                }))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertEquals(20, result.size());
+        assertEquals(2, pool.createdSize());
+        assertEquals(2, sessions.size());
+        assertTrue(maxInUse.get() <= 2);
+        pool.close();
+    }
+
+    @Test
+    public void testSharedSessionWithoutFactory() {
+        Session shared = new Session("127.0.0.1", 6667);
+        PipelineSessionPool pool = new PipelineSessionPool(null, shared, 2);
+        assertSame(shared, pool.withSession(Flux::just).blockFirst());
+        assertEquals(0, pool.createdSize());
+    }
+}
@@ -0,0 +1,113 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.FieldCopy;
+import org.apache.iotdb.utils.core.model.IField;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchTest {
+
+    private static final String[] COLUMNS = {"root.sg.d1.s1", "root.sg.d1.s2", "root.sg.d1.s3"};
+
+    @Test
+    public void testRowModelAdapter() {
+        RowBatch batch = batch(5);
+        List<TimeSeriesRowModel> rows = batch.toRowModels();
+        assertEquals(5, rows.size());
+        assertEquals("2", rows.get(2).getTimestamp());
+        assertEquals("root.sg.d1.s2", rows.get(2).getIFieldList().get(1).getColumnName());
+        assertNull(rows.get(1).getIFieldList().get(1).getField());
+        //整列为空
+        assertNull(rows.get(0).getIFieldList().get(2).getField());
+
+        RowBatch copy = RowBatch.fromRowModels(rows);
+        assertArrayEquals(COLUMNS, copy.getColumnNames());
+        assertEquals(5, copy.getRowCount());
+        for (int row = 0; row < 5; row++) {
+            assertEquals(batch.getTimes()[row], copy.getTimes()[row]);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                assertEquals(batch.isNull(column, row), copy.isNull(column, row));
+                assertEquals(batch.getStringValue(column, row), copy.getStringValue(column, row));
+            }
+        }
+
+        RowBatch finish = RowBatch.finish("root.sg.d1#1");
+        assertTrue(finish.isFinish());
+        assertTrue(RowBatch.fromRowModels(finish.toRowModels()).isFinish());
+        assertFalse(batch.isFinish());
+    }
+
+    @Test
+    public void testRetainTimeRange() {
+        RowBatch batch = batch(10);
+        batch.retainTimeRange(3L, 6L);
+        assertEquals(4, batch.getRowCount());
+        for (int row = 0; row < 4; row++) {
+            long time = row + 3;
+            assertEquals(time, batch.getTimes()[row]);
+            assertEquals(time % 2 == 1, batch.isNull(1, row));
+            assertEquals(time * 10, ((long[]) batch.getValues()[0])[row]);
+        }
+        assertTrue(batch.isNull(0, 5));
+    }
+
+    @Test
+    public void testToTablet() {
+        RowBatch batch = batch(4);
+        batch.setColumnNames(batch.measurements());
+        Tablet tablet = batch.toTablet("root.sg.d1");
+        assertEquals(4, tablet.rowSize);
+        assertEquals(2, tablet.getSchemas().size());
+        assertEquals("s1", tablet.getSchemas().get(0).getMeasurementId());
+        assertEquals(TSDataType.TEXT, tablet.getSchemas().get(1).getType());
+        assertTrue(tablet.bitMaps[1].isMarked(1));
+        assertEquals("", ((Binary[]) tablet.values[1])[1].getStringValue());
+    }
+
+    //s1 INT64 全部有值，s2 TEXT 奇数行为空，s3 全部为空
+    private RowBatch batch(int rowCount) {
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName("root.sg.d1");
+        List<TimeSeriesRowModel> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            TimeSeriesRowModel row = new TimeSeriesRowModel();
+            row.setTimestamp(String.valueOf(i));
+            row.setDeviceModel(deviceModel);
+            List<IField> fields = new ArrayList<>();
+            FieldCopy s1 = new FieldCopy(TSDataType.INT64);
+            s1.setLongV(i * 10L);
+            fields.add(field(COLUMNS[0], s1));
+            FieldCopy s2 = null;
+            if (i % 2 == 0) {
+                s2 = new FieldCopy(TSDataType.TEXT);
+                s2.setBinaryV(Binary.valueOf("v" + i));
+            }
+            fields.add(field(COLUMNS[1], s2));
+            fields.add(field(COLUMNS[2], null));
+            row.setIFieldList(fields);
+            rows.add(row);
+        }
+        return RowBatch.fromRowModels(rows);
+    }
+
+    private IField field(String columnName, FieldCopy field) {
+        IField iField = new IField();
+        iField.setColumnName(columnName);
+        iField.setField(field);
+        return iField;
+    }
+}
@@ -0,0 +1,102 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.model.DeviceSchemaModel;
+import org.apache.iotdb.utils.core.model.TimeseriesSchemaModel;
+import org.apache.iotdb.utils.core.pipeline.context.SchemaCache;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaCacheTest {
+
+    @Test
+    public void testPersistedSchema() throws Exception {
+        File folder = Files.createTempDirectory("schema-cache").toFile();
+        File file = new File(folder, SchemaCache.SCHEMA_FILE);
+        try {
+            MemoryTimeseriesStore store = new MemoryTimeseriesStore();
+            store.createTimeseries("root.sg.d1.s1", TSDataType.DOUBLE, TSEncoding.GORILLA, CompressionType.SNAPPY, null, true);
+            MemorySession session = new MemorySession(store);
+            SchemaCache.getOrLoad(model(folder), "root.**", session);
+            assertTrue(file.exists());
+
+            //路径和序列数一致时读取文件，只执行 count timeseries（一次查询加一次取页）
+            long requestCount = store.getRequestCount();
+            ExportModel model = model(folder);
+            SchemaCache schemaCache = SchemaCache.getOrLoad(model, "root.**", session);
+            assertSame(schemaCache, SchemaCache.getOrLoad(model, "root.**", session));
+            assertEquals(2, store.getRequestCount() - requestCount);
+            assertEquals(1, schemaCache.size());
+            DeviceSchemaModel loaded = schemaCache.getCachedDeviceSchema("root.sg.d1");
+            assertTrue(loaded.isAligned());
+            TimeseriesSchemaModel timeseries = loaded.getTimeseriesList().get(0);
+            assertEquals("root.sg.d1.s1", timeseries.getTimeseries());
+            assertEquals(TSEncoding.GORILLA, timeseries.getEncoding());
+            assertEquals(CompressionType.SNAPPY, timeseries.getCompressor());
+            assertEquals(TSDataType.DOUBLE, loaded.toTsDataTypeMap().get("root.sg.d1.s1"));
+
+            //新建序列后重新加载
+            store.createTimeseries("root.sg.d2.s1", TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY, null, false);
+            assertEquals(2, SchemaCache.getOrLoad(model(folder), "root.**", session).size());
+            //加载路径不同时重新加载
+            assertEquals(1, SchemaCache.getOrLoad(model(folder), "root.sg.d2", session).size());
+        } finally {
+            file.delete();
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testPagedLoad() throws Exception {
+        //超过一页（10000）的设备和序列，d0 的 measurement 带 .
+        int deviceNum = 10005;
+        MemoryTimeseriesStore store = new MemoryTimeseriesStore();
+        store.createTimeseries("root.sg.d0.`s.0`", TSDataType.INT32, TSEncoding.RLE, CompressionType.SNAPPY, null, false);
+        for (int i = 1; i < deviceNum; i++) {
+            store.createTimeseries("root.sg.d" + i + ".s", TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY, null, false);
+        }
+        MemorySession session = new MemorySession(store);
+        SchemaCache schemaCache = SchemaCache.getOrLoad(new ExportModel(), "root.**", session);
+        //show devices、show timeseries 都需要取第二页
+        assertEquals(deviceNum, schemaCache.size());
+        assertEquals("root.sg.d0.`s.0`", schemaCache.getCachedDeviceSchema("root.sg.d0").getTimeseriesList().get(0).getTimeseries());
+        assertEquals(1, schemaCache.getCachedDeviceSchema("root.sg.d" + (deviceNum - 1)).getTimeseriesList().size());
+
+        //加载之后创建的设备单独查询并缓存，不存在的设备不缓存
+        store.createTimeseries("root.sg.new.s", TSDataType.TEXT, TSEncoding.PLAIN, CompressionType.SNAPPY, null, true);
+        DeviceSchemaModel deviceSchema = schemaCache.getDeviceSchema("root.sg.new", session);
+        assertTrue(deviceSchema.isAligned());
+        assertEquals(TSDataType.TEXT, deviceSchema.toTsDataTypeMap().get("root.sg.new.s"));
+        assertSame(deviceSchema, schemaCache.getDeviceSchema("root.sg.new", session));
+        assertNull(schemaCache.getDeviceSchema("root.sg.missing", session));
+        assertNull(schemaCache.getCachedDeviceSchema("root.sg.missing"));
+        assertNotSame(deviceSchema, schemaCache.getCachedDeviceSchema("root.sg.d1"));
+    }
+
+    @Test
+    public void testDeviceOf() {
+        assertEquals("root.sg.d1", SchemaCache.deviceOf("root.sg.d1.s1"));
+        assertEquals("root.sg.d1", SchemaCache.deviceOf("root.sg.d1.`s.1`"));
+        assertEquals("root.sg.`d.1`", SchemaCache.deviceOf("root.sg.`d.1`.`a``.b`"));
+    }
+
+    private static ExportModel model(File folder) {
+        ExportModel model = new ExportModel();
+        model.setFileFolder(folder.getPath());
+        model.setPersistSchema(true);
+        return model;
+    }
+}
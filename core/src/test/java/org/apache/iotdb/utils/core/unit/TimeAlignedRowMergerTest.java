@@ -0,0 +1,77 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.utils.core.utils.TimeAlignedRowMerger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimeAlignedRowMergerTest {
+
+    @Test
+    public void testMergeSkewedGroups() throws Exception {
+        List<TimeAlignedRowMerger.RowCursor> cursors = new ArrayList<>();
+        cursors.add(cursor(1, 3, 5, 7, 9));
+        cursors.add(cursor(2, 3, 100));
+        cursors.add(cursor());
+        cursors.add(cursor(0, 9));
+        TimeAlignedRowMerger merger = new TimeAlignedRowMerger(cursors);
+        RowRecord[] rowGroup = new RowRecord[merger.groupSize()];
+
+        List<Long> times = new ArrayList<>();
+        while (merger.hasNext()) {
+            long time = merger.next(rowGroup);
+            times.add(time);
+            assertNull(rowGroup[2]);
+            if (time == 3) {
+                assertNotNull(rowGroup[0]);
+                assertNotNull(rowGroup[1]);
+                assertNull(rowGroup[3]);
+            }
+            if (time == 9) {
+                assertNotNull(rowGroup[0]);
+                assertNull(rowGroup[1]);
+                assertNotNull(rowGroup[3]);
+            }
+            for (RowRecord record : rowGroup) {
+                assertTrue(record == null || record.getTimestamp() == time);
+            }
+        }
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 5L, 7L, 9L, 100L), times);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        TimeAlignedRowMerger merger = new TimeAlignedRowMerger(new ArrayList<TimeAlignedRowMerger.RowCursor>());
+        assertFalse(merger.hasNext());
+    }
+
+    private TimeAlignedRowMerger.RowCursor cursor(long... times) {
+        Iterator<Long> iterator = Arrays.stream(times).boxed().iterator();
+        return new TimeAlignedRowMerger.RowCursor() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public RowRecord next() {
+                long time = iterator.next();
+                Field field = new Field(TSDataType.INT64);
+                field.setLongV(time);
+                return new RowRecord(time, Arrays.asList(field));
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.iotdb.utils.core.unit;
+
+import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.pipeline.TransformChannel;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransformChannelTest {
+
+    @Test
+    public void testFusedChannels() {
+        AtomicInteger transformerCount = new AtomicInteger();
+        //乘以上下文中的倍数，奇数丢弃
+        TransformChannel<Integer, Integer> multiply = new TransformChannel<Integer, Integer>() {
+            @Override
+            public Function<Integer, Integer> transformer(ContextView contextView) {
+                transformerCount.incrementAndGet();
+                int times = contextView.get("times");
+                return i -> i % 2 == 0 ? i * times : null;
+            }
+        };
+        TransformChannel<Integer, String> format = new TransformChannel<Integer, String>() {
+            @Override
+            public Function<Integer, String> transformer(ContextView contextView) {
+                transformerCount.incrementAndGet();
+                return String::valueOf;
+            }
+        };
+        multiply.setNext(format);
+        format.setNext(new PipeSink<String, String>() {
+            @Override
+            public Function<ParallelFlux<String>, ParallelFlux<String>> doExecute() {
+                return flux -> flux;
+            }
+
+            @Override
+            public Double[] rateOfProcess() {
+                return new Double[0];
+            }
+
+            @Override
+            public Long finishedRowNum() {
+                return 0L;
+            }
+        });
+        assertEquals(2, multiply.fusedStages().size());
+        //合并后的阶段输出最后一个channel的类型
+        Function<ParallelFlux<Integer>, ? extends ParallelFlux<?>> channels = multiply.execute();
+
+        Scheduler scheduler = Schedulers.newParallel("transform-test", 4);
+        try {
+            List<String> result = channels.apply(Flux.range(0, 1000).parallel(4).runOn(scheduler))
+                    .sequential()
+                    .cast(String.class)
+                    .contextWrite(ctx -> ctx.put("times", 3))
+                    .collectList()
+                    .block();
+            List<Integer> values = new ArrayList<>();
+            for (String value : result) {
+                values.add(Integer.valueOf(value));
+            }
+            Collections.sort(values);
+            assertEquals(500, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(i * 2 * 3, (int) values.get(i));
+            }
+            //每个rail每个channel只解析一次上下文
+            assertEquals(8, transformerCount.get());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+
+/**
+ * benchmark 共用的数据，固定随机种子，每次生成的数据相同
+ * 一个设备，列类型按 BOOLEAN、INT32、INT64、FLOAT、DOUBLE、TEXT 循环，约十分之一的值为空
+ */
+public class BenchmarkData {
+
+    public static final String DEVICE = "root.benchmark.d1";
+
+    public static final TSDataType[] TYPES = {
+            TSDataType.BOOLEAN, TSDataType.INT32, TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.TEXT
+    };
+
+    private BenchmarkData() {
+    }
+
+    public static DeviceModel deviceModel() {
+        DeviceModel deviceModel = new DeviceModel();
+        deviceModel.setDeviceName(DEVICE);
+        return deviceModel;
+    }
+
+    public static String[] columnNames(int columnSize) {
+        String[] columnNames = new String[columnSize];
+        for (int i = 0; i < columnSize; i++) {
+            columnNames[i] = DEVICE + ".s" + i;
+        }
+        return columnNames;
+    }
+
+    public static TSDataType type(int column) {
+        return TYPES[column % TYPES.length];
+    }
+
+    public static RowBatch rowBatch(int rowCount, int columnSize) {
+        RowBatch batch = new RowBatch(deviceModel(), columnNames(columnSize), rowCount);
+        long seed = 20220830L;
+        for (int row = 0; row < rowCount; row++) {
+            int index = batch.addRow(1660000000000L + row * 1000L);
+            for (int column = 0; column < columnSize; column++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                int random = (int) (seed >>> 33);
+                if (random % 10 == 0) {
+                    continue;
+                }
+                switch (type(column)) {
+                    case BOOLEAN:
+                        batch.putBoolean(column, index, (random & 1) == 0);
+                        break;
+                    case INT32:
+                        batch.putInt(column, index, random % 100000);
+                        break;
+                    case INT64:
+                        batch.putLong(column, index, seed);
+                        break;
+                    case FLOAT:
+                        batch.putFloat(column, index, random / 1000f);
+                        break;
+                    case DOUBLE:
+                        batch.putDouble(column, index, random / 3.0);
+                        break;
+                    default:
+                        batch.putBinary(column, index, Binary.valueOf("value_" + random));
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 导出csv文件的格式，第一行为header
+     */
+    public static String csv(int rowCount, int columnSize) {
+        RowBatch batch = rowBatch(rowCount, columnSize);
+        StringBuilder builder = new StringBuilder("Time");
+        for (String columnName : batch.getColumnNames()) {
+            builder.append(',').append(columnName);
+        }
+        builder.append('\n');
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            builder.append(batch.getTimes()[row]);
+            for (int column = 0; column < columnSize; column++) {
+                builder.append(',');
+                if (!batch.isNull(column, row)) {
+                    builder.append(batch.getStringValue(column, row));
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
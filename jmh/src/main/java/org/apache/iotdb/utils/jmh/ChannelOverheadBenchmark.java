@@ -0,0 +1,218 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.utils.core.model.DeviceModel;
+import org.apache.iotdb.utils.core.model.FieldCopy;
+import org.apache.iotdb.utils.core.model.IField;
+import org.apache.iotdb.utils.core.model.TimeSeriesRowModel;
+import org.apache.iotdb.utils.core.pipeline.PipeSink;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.in.channel.FieldColumnFormatChannel;
+import org.apache.iotdb.utils.core.pipeline.out.channel.StringFormatIncludeNullFieldChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * channel每行开销的对比，结果按行计算（ops/s 即 行/秒）
+ * before：原来的写法，每个channel对每一行 flatMap + deferContextual + ParallelFlux.from(Flux.just)，列名前缀每个字段 StringBuilder + replace
+ * after：TransformChannel，两个channel合并为一个阶段，上下文每个rail解析一次
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelOverheadBenchmark {
+
+    private static final int ROWS = 200_000;
+
+    private static final int COLUMNS = 10;
+
+    private static final int PARALLELISM = 4;
+
+    @Param({"before", "after"})
+    public String channel;
+
+    private List<TimeSeriesRowModel> rows;
+
+    private List<TimeSeriesRowModel> copy;
+
+    private Scheduler scheduler;
+
+    private Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> channels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rows = rows();
+        scheduler = Schedulers.newParallel("benchmark", PARALLELISM);
+        if ("before".equals(channel)) {
+            channels = ChannelOverheadBenchmark::perRowChannels;
+        } else {
+            StringFormatIncludeNullFieldChannel stringFormat = new StringFormatIncludeNullFieldChannel("string-format");
+            FieldColumnFormatChannel columnFormat = new FieldColumnFormatChannel("column-format");
+            stringFormat.setNext(columnFormat);
+            columnFormat.setNext(new CountSink());
+            channels = stringFormat.execute();
+        }
+    }
+
+    /**
+     * 每次重新生成字段，列名和TEXT值都会被channel修改
+     */
+    @Setup(Level.Invocation)
+    public void copyRows() {
+        copy = new ArrayList<>(rows.size());
+        for (TimeSeriesRowModel row : rows) {
+            copy.add(copy(row));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long run() {
+        Long count = Flux.fromIterable(copy)
+                .parallel(PARALLELISM)
+                .runOn(scheduler)
+                .transform(channels)
+                .sequential()
+                .contextWrite(ctx -> ctx.put("pipelineContext", new PipelineContext<>()))
+                .count()
+                .block();
+        if (count == null || count != ROWS) {
+            throw new IllegalStateException("row count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * 原来channel的写法
+     */
+    private static ParallelFlux<TimeSeriesRowModel> perRowChannels(ParallelFlux<TimeSeriesRowModel> flux) {
+        return flux
+                .flatMap(s -> Flux.deferContextual(contextView -> {
+                    PipelineContext<?> pcontext = contextView.get("pipelineContext");
+                    for (IField iField : s.getIFieldList()) {
+                        if (iField.getField() != null && iField.getField().getDataType() == TSDataType.TEXT) {
+                            StringBuilder value = new StringBuilder();
+                            value.append("\"")
+                                    .append(iField.getField().getStringValue())
+                                    .append("\"");
+                            iField.getField().setBinaryV(Binary.valueOf(value.toString()));
+                        }
+                    }
+                    return ParallelFlux.from(Flux.just(s));
+                }))
+                .flatMap(s -> Flux.deferContextual(contextView -> {
+                    PipelineContext<?> pcontext = contextView.get("pipelineContext");
+                    for (IField ifield : s.getIFieldList()) {
+                        if (ifield.getField() != null) {
+                            StringBuilder builder = new StringBuilder();
+                            builder.append(s.getDeviceModel().getDeviceName())
+                                    .append(".");
+                            ifield.setColumnName(ifield.getColumnName().replace(builder.toString(), ""));
+                        }
+                    }
+                    return ParallelFlux.from(Flux.just(s));
+                }));
+    }
+
+    private static List<TimeSeriesRowModel> rows() {
+        List<TimeSeriesRowModel> rows = new ArrayList<>(ROWS);
+        DeviceModel[] devices = new DeviceModel[PARALLELISM * 4];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = new DeviceModel();
+            devices[i].setDeviceName("root.benchmark.d" + i);
+        }
+        for (int i = 0; i < ROWS; i++) {
+            DeviceModel deviceModel = devices[i * devices.length / ROWS];
+            TimeSeriesRowModel row = new TimeSeriesRowModel();
+            row.setTimestamp(String.valueOf(i));
+            row.setDeviceModel(deviceModel);
+            List<IField> fields = new ArrayList<>(COLUMNS);
+            for (int c = 0; c < COLUMNS; c++) {
+                IField iField = new IField();
+                iField.setColumnName(deviceModel.getDeviceName() + ".s" + c);
+                FieldCopy field;
+                if (c % 2 == 0) {
+                    field = new FieldCopy(TSDataType.DOUBLE);
+                    field.setDoubleV(i * 0.5);
+                } else {
+                    field = new FieldCopy(TSDataType.TEXT);
+                    field.setBinaryV(Binary.valueOf("value" + i));
+                }
+                iField.setField(field);
+                fields.add(iField);
+            }
+            row.setIFieldList(fields);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static TimeSeriesRowModel copy(TimeSeriesRowModel row) {
+        TimeSeriesRowModel copy = new TimeSeriesRowModel();
+        copy.setTimestamp(row.getTimestamp());
+        copy.setDeviceModel(row.getDeviceModel());
+        List<IField> fields = new ArrayList<>(row.getIFieldList().size());
+        for (IField iField : row.getIFieldList()) {
+            IField field = new IField();
+            field.setColumnName(iField.getColumnName());
+            if (iField.getField().getDataType() == TSDataType.TEXT) {
+                FieldCopy text = new FieldCopy(TSDataType.TEXT);
+                text.setBinaryV(iField.getField().getBinaryV());
+                field.setField(text);
+            } else {
+                field.setField(iField.getField());
+            }
+            fields.add(field);
+        }
+        copy.setIFieldList(fields);
+        return copy;
+    }
+
+    private static class CountSink extends PipeSink<TimeSeriesRowModel, TimeSeriesRowModel> {
+
+        @Override
+        public Function<ParallelFlux<TimeSeriesRowModel>, ParallelFlux<TimeSeriesRowModel>> doExecute() {
+            return flux -> flux;
+        }
+
+        @Override
+        public Double[] rateOfProcess() {
+            return new Double[0];
+        }
+
+        @Override
+        public Long finishedRowNum() {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.utils.core.compress.ColumnBlockCodec;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.in.source.InCompressDataSource;
+import org.apache.iotdb.utils.core.service.ExportPipelineService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩格式的导出和导入，每种 CompressEnum 分别测试，每次操作为一个block
+ * compressBlock 分别测试 v1（字符串数组）和 v2（按列编码）格式；writeCompressData 为一列字符串的压缩；
+ * parseCompressData 为 v1 格式一个block的解压
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private static final int COLUMNS = 12;
+
+    @Param({"SNAPPY", "GZIP", "LZ4", "LZ4HC", "NONE"})
+    public CompressEnum compressEnum;
+
+    private ExportPipelineService exportPipelineService;
+
+    private InCompressDataSource inCompressDataSource;
+
+    private RowBatch batch;
+
+    private List<String> column;
+
+    private ExportModel v1Model;
+
+    private ExportModel v2Model;
+
+    private byte[] v1Block;
+
+    private String compressType;
+
+    private final OutputStream discard = new DiscardOutputStream();
+
+    @Setup
+    public void setup() throws IOException {
+        exportPipelineService = ExportPipelineService.exportPipelineService();
+        inCompressDataSource = new InCompressDataSource("benchmark", 1);
+        batch = BenchmarkData.rowBatch(ROWS, COLUMNS);
+        column = new ArrayList<>(ROWS);
+        int textColumn = BenchmarkData.TYPES.length - 1;
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            column.add(batch.isNull(textColumn, row) ? null : batch.getStringValue(textColumn, row));
+        }
+        v1Model = exportModel(ColumnBlockCodec.VERSION_1);
+        v2Model = exportModel(ColumnBlockCodec.VERSION_2);
+        compressType = exportPipelineService.getCompressType(v1Model);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportPipelineService.compressBlock(batch, out, v1Model);
+        v1Block = out.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        inCompressDataSource.getScheduler().dispose();
+        inCompressDataSource.getDecodeScheduler().dispose();
+    }
+
+    @Benchmark
+    public OutputStream compressBlockV1() {
+        exportPipelineService.compressBlock(batch, discard, v1Model);
+        return discard;
+    }
+
+    @Benchmark
+    public OutputStream compressBlockV2() {
+        exportPipelineService.compressBlock(batch, discard, v2Model);
+        return discard;
+    }
+
+    @Benchmark
+    public OutputStream writeCompressData() {
+        exportPipelineService.writeCompressData(column, discard, v1Model);
+        return discard;
+    }
+
+    @Benchmark
+    public List<String[]> parseCompressData() throws IOException {
+        return inCompressDataSource.parseCompressData(new ByteArrayInputStream(v1Block), COLUMNS + 1, compressType);
+    }
+
+    private ExportModel exportModel(short version) {
+        ExportModel model = new ExportModel();
+        model.setCompressEnum(compressEnum);
+        model.setCompressVersion(version);
+        return model;
+    }
+
+    /**
+     * 丢弃写入的数据，只测试编码和压缩
+     */
+    private static class DiscardOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.utils.core.model.CsvChunkModel;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.context.PipelineContext;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.in.source.InCsvDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * csv导入的解析，InCsvDataSource.parseRowBatch 把csv文本解析为RowBatch，结果按行计算（ops/s 即 行/秒）
+ * 列名和类型直接设置在切片上，不查询iotdb
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvParseBenchmark {
+
+    private static final int ROWS = 10000;
+
+    @Param({"6", "60"})
+    public int columnSize;
+
+    private InCsvDataSource inCsvDataSource;
+
+    private PipelineContext<ImportModel> pipelineContext;
+
+    private byte[] csv;
+
+    private String[] headers;
+
+    private String[] columnNames;
+
+    private int[] columnIndex;
+
+    private TSDataType[] dataTypes;
+
+    @Setup
+    public void setup() {
+        inCsvDataSource = new InCsvDataSource("benchmark", 1);
+        ImportModel importModel = new ImportModel();
+        importModel.setCharSet("utf8");
+        pipelineContext = new PipelineContext<>();
+        pipelineContext.setModel(importModel);
+
+        String text = BenchmarkData.csv(ROWS, columnSize);
+        //去掉header行，切片只包含数据
+        int headerEnd = text.indexOf('\n');
+        headers = text.substring(0, headerEnd).split(",");
+        csv = text.substring(headerEnd + 1).getBytes(StandardCharsets.UTF_8);
+        columnNames = BenchmarkData.columnNames(columnSize);
+        columnIndex = new int[headers.length];
+        columnIndex[0] = -1;
+        dataTypes = new TSDataType[columnSize];
+        for (int i = 0; i < columnSize; i++) {
+            columnIndex[i + 1] = i;
+            dataTypes[i] = BenchmarkData.type(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        inCsvDataSource.getScheduler().dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseRowBatch(Blackhole blackhole) {
+        CsvChunkModel chunk = new CsvChunkModel();
+        chunk.setIn(new ByteArrayInputStream(csv));
+        chunk.setHeaders(headers);
+        chunk.setDeviceModel(BenchmarkData.deviceModel());
+        chunk.setColumnNames(columnNames);
+        chunk.setColumnIndex(columnIndex);
+        chunk.setDataTypes(dataTypes);
+        chunk.setRemainingChunk(new AtomicInteger(1));
+        RowBatch last = inCsvDataSource.parseRowBatch(chunk)
+                .doOnNext(blackhole::consume)
+                .contextWrite(ctx -> ctx.put("pipelineContext", pipelineContext))
+                .blockLast();
+        blackhole.consume(last);
+    }
+}
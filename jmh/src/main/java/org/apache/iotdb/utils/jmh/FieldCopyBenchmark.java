@@ -0,0 +1,65 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.utils.core.model.FieldCopy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FieldCopy.copy，导出时 SessionDataSet 返回的 Field 每个值复制一次
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldCopyBenchmark {
+
+    @Param({"BOOLEAN", "INT32", "INT64", "FLOAT", "DOUBLE", "TEXT"})
+    public TSDataType dataType;
+
+    private Field field;
+
+    @Setup
+    public void setup() {
+        field = new Field(dataType);
+        switch (dataType) {
+            case BOOLEAN:
+                field.setBoolV(true);
+                break;
+            case INT32:
+                field.setIntV(123456);
+                break;
+            case INT64:
+                field.setLongV(1660000000000L);
+                break;
+            case FLOAT:
+                field.setFloatV(12.5f);
+                break;
+            case DOUBLE:
+                field.setDoubleV(12345.678);
+                break;
+            default:
+                field.setBinaryV(Binary.valueOf("benchmark_text_value"));
+        }
+    }
+
+    @Benchmark
+    public FieldCopy copy() {
+        return FieldCopy.copy(field);
+    }
+}
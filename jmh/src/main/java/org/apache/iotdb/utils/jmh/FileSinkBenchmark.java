@@ -0,0 +1,69 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.out.sink.OutCsvFileSink;
+import org.apache.iotdb.utils.core.pipeline.out.sink.OutSqlFileSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出sql、csv时每一行的字符串生成，每次调用处理一个batch的所有行，结果按行计算（ops/s 即 行/秒）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FileSinkBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"6", "60"})
+    public int columnSize;
+
+    private RowBatch batch;
+
+    private String[] measurements;
+
+    private OutSqlFileSink sqlFileSink;
+
+    private OutCsvFileSink csvFileSink;
+
+    @Setup
+    public void setup() {
+        batch = BenchmarkData.rowBatch(ROWS, columnSize);
+        measurements = batch.measurements();
+        sqlFileSink = new OutSqlFileSink("benchmark");
+        csvFileSink = new OutCsvFileSink("benchmark");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void generateSqlString(Blackhole blackhole) {
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            blackhole.consume(sqlFileSink.generateSqlString(batch, measurements, row));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void generateCsvString(Blackhole blackhole) {
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            blackhole.consume(csvFileSink.generateCsvString(batch, row));
+        }
+    }
+}
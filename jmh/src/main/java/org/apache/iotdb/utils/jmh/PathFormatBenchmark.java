@@ -0,0 +1,49 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.utils.core.service.ExportPipelineService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * timeseries 路径和 measurement 的格式化，导出sql时每个字段都会调用
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathFormatBenchmark {
+
+    /**
+     * 普通路径、带数字节点、带关键字和特殊字符的路径
+     */
+    @Param({"root.sg1.d1.s1", "root.sg1.123.s1", "root.sg1.`d-1`.time.\"s.1\""})
+    public String path;
+
+    /**
+     * 普通 measurement、纯数字、关键字、特殊字符
+     */
+    @Param({"temperature", "123", "time", "s-1"})
+    public String measurement;
+
+    @Benchmark
+    public String formatPath() {
+        return ExportPipelineService.formatPath(path);
+    }
+
+    @Benchmark
+    public String formatMeasurement() {
+        return ExportPipelineService.formatMeasurement(measurement);
+    }
+}
@@ -0,0 +1,153 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.utils.core.ExportStarter;
+import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.model.RowBatch;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.IECommonModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 完整的导出、导入管道，session 为内存中的 MemorySession，不需要启动 IoTDB，结果只包含客户端的开销
+ * latencyMicros 为每次取页请求的模拟延迟；结果按行计算（ops/s 即 行/秒）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    private static final int ROWS = 10000;
+
+    private static final int DEVICES = 4;
+
+    private static final int COLUMNS = 12;
+
+    @Param({"CSV", "SNAPPY", "GZIP"})
+    public String compress;
+
+    @Param({"0", "200"})
+    public long latencyMicros;
+
+    private MemoryTimeseriesStore source;
+
+    private MemoryTimeseriesStore target;
+
+    private File exportFolder;
+
+    private File importFolder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        source = new MemoryTimeseriesStore();
+        RowBatch batch = BenchmarkData.rowBatch(ROWS / DEVICES, COLUMNS);
+        List<String> measurements = Arrays.asList(batch.measurements());
+        List<TSDataType> dataTypes = Arrays.asList(batch.getDataTypes());
+        for (int device = 0; device < DEVICES; device++) {
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                List<Object> values = new ArrayList<>(COLUMNS);
+                for (int column = 0; column < COLUMNS; column++) {
+                    values.add(batch.isNull(column, row) ? null : batch.getObjectValue(column, row));
+                }
+                source.insert("root.benchmark.d" + device, device % 2 == 1, batch.getTimes()[row], measurements, dataTypes, values);
+            }
+        }
+        source.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+        target = new MemoryTimeseriesStore();
+        target.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+        exportFolder = Files.createTempDirectory("pipeline-export").toFile();
+        //导入的数据只生成一次
+        importFolder = Files.createTempDirectory("pipeline-import").toFile();
+        run(exportModel(importFolder), new ExportStarter()::start);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        delete(exportFolder);
+        delete(importFolder);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void export() throws Exception {
+        delete(exportFolder);
+        exportFolder.mkdirs();
+        run(exportModel(exportFolder), new ExportStarter()::start);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void importData() throws Exception {
+        target.clear();
+        ImportModel importModel = new ImportModel();
+        importModel.setCompressEnum(CompressEnum.valueOf(compress));
+        importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        importModel.setNeedTimeseriesStructure(true);
+        importModel.setCharSet("utf8");
+        importModel.setFileFolder(importFolder.getAbsolutePath());
+        importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+        importModel.setSession(new MemorySession(target));
+        importModel.setSessionFactory(() -> new MemorySession(target));
+        run(importModel, new ImportStarter()::start);
+    }
+
+    private ExportModel exportModel(File folder) {
+        ExportModel exportModel = new ExportModel();
+        exportModel.setIotdbPath("root.benchmark.**");
+        exportModel.setCompressEnum(CompressEnum.valueOf(compress));
+        exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        exportModel.setNeedTimeseriesStructure(true);
+        exportModel.setCharSet("utf8");
+        exportModel.setFileFolder(folder.getAbsolutePath());
+        exportModel.setSession(new MemorySession(source));
+        exportModel.setSessionFactory(() -> new MemorySession(source));
+        return exportModel;
+    }
+
+    private static <T extends IECommonModel> void run(T model, Function<T, PipelineHandle> starter) throws InterruptedException {
+        if (starter.apply(model).await(10, TimeUnit.MINUTES) == null) {
+            throw new IllegalStateException("pipeline timeout");
+        }
+    }
+
+    private static void delete(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+}
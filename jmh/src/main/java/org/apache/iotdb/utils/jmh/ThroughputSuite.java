@@ -0,0 +1,421 @@
+package org.apache.iotdb.utils.jmh;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.utils.core.ExportStarter;
+import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.memory.MemorySession;
+import org.apache.iotdb.utils.core.memory.MemoryTimeseriesStore;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
+import org.apache.iotdb.utils.core.pipeline.context.SessionFactory;
+import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.IECommonModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
+import org.apache.iotdb.utils.core.pipeline.context.model.InsertStrategyEnum;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 端到端吞吐量测试，用 Workload 生成数据后，每种格式分别通过 ExportStarter 导出、ImportStarter 导入，
+ * 记录 行/秒、MB/秒、堆内存峰值、GC时间、文件大小，结果输出为json，用于不同版本之间对比
+ * 默认使用 MemorySession，指定 -h 时使用 iotdbserver（会删除 root.workload 存储组）
+ * 运行：java -cp jmh/target/benchmarks.jar org.apache.iotdb.utils.jmh.ThroughputSuite -devices 100 -rows 1000000 -report result.json
+ * 内存模式下堆内存峰值包含数据集本身，只适合同一数据集之间对比
+ */
+public class ThroughputSuite {
+
+    private static final List<CompressEnum> DEFAULT_FORMATS = Arrays.asList(
+            CompressEnum.SQL, CompressEnum.CSV, CompressEnum.SNAPPY, CompressEnum.GZIP, CompressEnum.LZ4);
+
+    private final Workload workload;
+
+    private final List<CompressEnum> formats;
+
+    private final int parallelism;
+
+    private final File workFolder;
+
+    //为空时使用内存中的store
+    private final SessionFactory serverSessionFactory;
+
+    private final long latencyMicros;
+
+    //正式测量前完整运行的轮数，结果丢弃
+    private int warmup = 1;
+
+    private MemoryTimeseriesStore source;
+
+    private MemoryTimeseriesStore target;
+
+    public ThroughputSuite(Workload workload, List<CompressEnum> formats, int parallelism, File workFolder,
+                           SessionFactory serverSessionFactory, long latencyMicros) {
+        this.workload = workload;
+        this.formats = formats;
+        this.parallelism = parallelism;
+        this.workFolder = workFolder;
+        this.serverSessionFactory = serverSessionFactory;
+        this.latencyMicros = latencyMicros;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption("devices", true, "device count, default 10");
+        options.addOption("measurements", true, "measurements per device, default 10");
+        options.addOption("rows", true, "total rows of all devices, default 100000");
+        options.addOption("types", true, "data types in turn, e.g. INT64,DOUBLE,TEXT");
+        options.addOption("nulls", true, "null ratio, default 0.1");
+        options.addOption("aligned", true, "aligned device ratio, default 0.5");
+        options.addOption("skew", true, "zipf exponent of rows per device, default 0");
+        options.addOption("seed", true, "random seed");
+        options.addOption("formats", true, "formats, default SQL,CSV,SNAPPY,GZIP,LZ4");
+        options.addOption("parallelism", true, "pipeline parallelism, default cpu count");
+        options.addOption("latency", true, "simulated latency of each memory session request, microseconds");
+        options.addOption("warmup", true, "warmup rounds before measuring, default 1");
+        options.addOption("dir", true, "work folder, default a temp folder");
+        options.addOption("report", true, "report file, default stdout");
+        options.addOption("h", true, "iotdb host, memory session when absent");
+        options.addOption("p", true, "iotdb port, default 6667");
+        options.addOption("u", true, "username, default root");
+        options.addOption("pw", true, "password, default root");
+        options.addOption("help", false, "help");
+        CommandLine commandLine;
+        try {
+            commandLine = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.out.println("Parse error: " + e.getMessage());
+            new HelpFormatter().printHelp("ThroughputSuite", options, true);
+            return;
+        }
+        if (commandLine.hasOption("help")) {
+            new HelpFormatter().printHelp("ThroughputSuite", options, true);
+            return;
+        }
+
+        Workload workload = new Workload();
+        workload.setDevices(Integer.parseInt(commandLine.getOptionValue("devices", "10")));
+        workload.setMeasurements(Integer.parseInt(commandLine.getOptionValue("measurements", "10")));
+        workload.setRows(Long.parseLong(commandLine.getOptionValue("rows", "100000")));
+        workload.setNullRatio(Double.parseDouble(commandLine.getOptionValue("nulls", "0.1")));
+        workload.setAlignedRatio(Double.parseDouble(commandLine.getOptionValue("aligned", "0.5")));
+        workload.setSkew(Double.parseDouble(commandLine.getOptionValue("skew", "0")));
+        if (commandLine.hasOption("seed")) {
+            workload.setSeed(Long.parseLong(commandLine.getOptionValue("seed")));
+        }
+        if (commandLine.hasOption("types")) {
+            List<TSDataType> dataTypes = new ArrayList<>();
+            for (String type : commandLine.getOptionValue("types").split(",")) {
+                dataTypes.add(TSDataType.valueOf(type.trim().toUpperCase()));
+            }
+            workload.setDataTypes(dataTypes);
+        }
+        List<CompressEnum> formats = DEFAULT_FORMATS;
+        if (commandLine.hasOption("formats")) {
+            formats = new ArrayList<>();
+            for (String format : commandLine.getOptionValue("formats").split(",")) {
+                formats.add(CompressEnum.valueOf(format.trim().toUpperCase()));
+            }
+        }
+        int parallelism = Integer.parseInt(commandLine.getOptionValue("parallelism",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        File workFolder = commandLine.hasOption("dir") ? new File(commandLine.getOptionValue("dir"))
+                : Files.createTempDirectory("throughput").toFile();
+        SessionFactory serverSessionFactory = null;
+        if (commandLine.hasOption("h")) {
+            String host = commandLine.getOptionValue("h");
+            int port = Integer.parseInt(commandLine.getOptionValue("p", "6667"));
+            String username = commandLine.getOptionValue("u", "root");
+            String password = commandLine.getOptionValue("pw", "root");
+            serverSessionFactory = () -> {
+                Session session = new Session(host, port, username, password, false);
+                session.open(false);
+                return session;
+            };
+        }
+        long latencyMicros = Long.parseLong(commandLine.getOptionValue("latency", "0"));
+
+        ThroughputSuite suite = new ThroughputSuite(workload, formats, parallelism, workFolder,
+                serverSessionFactory, latencyMicros);
+        suite.setWarmup(Integer.parseInt(commandLine.getOptionValue("warmup", "1")));
+        Map<String, Object> report = suite.run();
+        String json = JSON.toJSONString(report, SerializerFeature.PrettyFormat, SerializerFeature.WriteMapNullValue);
+        if (commandLine.hasOption("report")) {
+            Files.write(new File(commandLine.getOptionValue("report")).toPath(), json.getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.println(json);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 先导出所有格式，再依次清空目标后导入，导入的数据不会影响后面格式的导出
+     */
+    public Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("environment", environment());
+        report.put("workload", workload);
+        report.put("parallelism", parallelism);
+        report.put("latencyMicros", latencyMicros);
+        report.put("warmup", warmup);
+
+        long start = System.nanoTime();
+        long points;
+        if (serverSessionFactory == null) {
+            source = new MemoryTimeseriesStore();
+            points = workload.generate(new MemorySession(source));
+            source.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+        } else {
+            Session session = serverSessionFactory.create();
+            try {
+                deleteStorageGroup(session);
+                points = workload.generate(session);
+            } finally {
+                session.close();
+            }
+        }
+        report.put("points", points);
+        report.put("generateSeconds", (System.nanoTime() - start) / 1e9);
+
+        for (int i = 0; i < warmup; i++) {
+            for (CompressEnum format : formats) {
+                export(format);
+            }
+            for (CompressEnum format : formats) {
+                importData(format, points);
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        for (CompressEnum format : formats) {
+            results.add(export(format));
+        }
+        for (CompressEnum format : formats) {
+            results.add(importData(format, points));
+        }
+        report.put("results", results);
+        return report;
+    }
+
+    private Result export(CompressEnum format) throws Exception {
+        File folder = folder(format);
+        clear(folder);
+        ExportModel exportModel = new ExportModel();
+        exportModel.setIotdbPath(Workload.STORAGE_GROUP + ".**");
+        exportModel.setCompressEnum(format);
+        exportModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        exportModel.setNeedTimeseriesStructure(true);
+        exportModel.setCharSet("utf8");
+        exportModel.setFileFolder(folder.getAbsolutePath());
+        exportModel.setParallelism(parallelism);
+        SessionFactory sessionFactory = serverSessionFactory != null ? serverSessionFactory : () -> new MemorySession(source);
+        exportModel.setSession(sessionFactory.create());
+        exportModel.setSessionFactory(sessionFactory);
+        ExportStarter exportStarter = new ExportStarter();
+        Result result = measure(format, "export", exportModel, exportStarter::start);
+        result.bytes = size(folder);
+        result.finish(workload.getRows());
+        exportModel.getSession().close();
+        return result;
+    }
+
+    private Result importData(CompressEnum format, long points) throws Exception {
+        File folder = folder(format);
+        ImportModel importModel = new ImportModel();
+        importModel.setCompressEnum(format);
+        importModel.setFileSinkStrategyEnum(FileSinkStrategyEnum.EXTRA_CATALOG);
+        importModel.setNeedTimeseriesStructure(true);
+        importModel.setCharSet("utf8");
+        importModel.setFileFolder(folder.getAbsolutePath());
+        importModel.setParallelism(parallelism);
+        importModel.setInsertStrategyEnum(InsertStrategyEnum.TABLET);
+        SessionFactory sessionFactory;
+        if (serverSessionFactory == null) {
+            target = new MemoryTimeseriesStore();
+            target.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+            sessionFactory = () -> new MemorySession(target);
+        } else {
+            sessionFactory = serverSessionFactory;
+            Session session = serverSessionFactory.create();
+            try {
+                deleteStorageGroup(session);
+            } finally {
+                session.close();
+            }
+        }
+        importModel.setSession(sessionFactory.create());
+        importModel.setSessionFactory(sessionFactory);
+        ImportStarter importStarter = new ImportStarter();
+        Result result = measure(format, "import", importModel, importStarter::start);
+        result.bytes = size(folder);
+        result.finish(workload.getRows());
+        //内存模式下比较导入的数据点数，iotdbserver 不校验
+        if (serverSessionFactory == null) {
+            result.verified = target.pointCount() == points;
+        }
+        importModel.getSession().close();
+        return result;
+    }
+
+    /**
+     * 运行前先gc并重置各堆内存区的峰值，结果为各区峰值之和，GC时间为运行期间所有收集器的累计时间
+     */
+    private <T extends IECommonModel> Result measure(CompressEnum format, String phase, T model,
+                                                    Function<T, PipelineHandle> starter) throws InterruptedException {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcTime = gcTime();
+        long gcCount = gcCount();
+        long start = System.nanoTime();
+        PipelineResult pipelineResult = starter.apply(model).await(1, TimeUnit.HOURS);
+        if (pipelineResult == null) {
+            throw new IllegalStateException(format + " " + phase + " timeout");
+        }
+        Result result = new Result();
+        result.success = pipelineResult.isSuccess();
+        result.format = format.toString();
+        result.phase = phase;
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        result.gcMillis = gcTime() - gcTime;
+        result.gcCount = gcCount() - gcCount;
+        for (MemoryPoolMXBean pool : heapPools) {
+            result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    private Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("version", ExportStarter.class.getPackage().getImplementationVersion());
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("vm", System.getProperty("java.vm.name"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        environment.put("session", serverSessionFactory == null ? "memory" : "server");
+        environment.put("timestamp", System.currentTimeMillis());
+        return environment;
+    }
+
+    private File folder(CompressEnum format) {
+        File folder = new File(workFolder, format.toString().toLowerCase());
+        folder.mkdirs();
+        return folder;
+    }
+
+    private static void deleteStorageGroup(Session session) {
+        try {
+            session.deleteStorageGroup(Workload.STORAGE_GROUP);
+        } catch (Exception e) {
+            //第一次运行时存储组不存在
+        }
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long size(File folder) {
+        long size = 0;
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.isDirectory() ? size(file) : file.length();
+            }
+        }
+        return size;
+    }
+
+    private static void clear(File folder) throws IOException {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    clear(file);
+                }
+                Files.delete(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * 一种格式一个阶段的结果，bytes 为导出文件或导入文件的总大小
+     */
+    public static class Result {
+
+        public String format;
+
+        public String phase;
+
+        public long rows;
+
+        public double seconds;
+
+        public double rowsPerSecond;
+
+        public long bytes;
+
+        public double mbPerSecond;
+
+        public long peakHeapBytes;
+
+        public long gcMillis;
+
+        public long gcCount;
+
+        //pipeline 正常结束且没有异常
+        public boolean success;
+
+        //导入的数据点数是否与生成的一致，iotdbserver 为空
+        public Boolean verified;
+
+        void finish(long rows) {
+            this.rows = rows;
+            this.rowsPerSecond = seconds > 0 ? rows / seconds : 0;
+            this.mbPerSecond = seconds > 0 ? bytes / 1024.0 / 1024.0 / seconds : 0;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.apache.iotdb.utils.jmh;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 可复现的合成数据集，写入任意 session（MemorySession 或 iotdbserver）
+ * 设备数、每个设备的测点数、数据类型、空值比例、对齐设备比例、设备间行数的倾斜都可以配置，固定随机种子时每次生成的数据相同
+ * 行数按 zipf 分布分配到各设备，skew 为0时平均分配，越大前面的设备行数越多
+ */
+public class Workload {
+
+    public static final String STORAGE_GROUP = "root.workload";
+
+    private static final long START_TIME = 1660000000000L;
+
+    private static final int TABLET_SIZE = 1000;
+
+    private int devices = 10;
+
+    private int measurements = 10;
+
+    //所有设备的总行数
+    private long rows = 100000;
+
+    //测点类型按顺序循环
+    private List<TSDataType> dataTypes = Arrays.asList(TSDataType.BOOLEAN, TSDataType.INT32, TSDataType.INT64,
+            TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.TEXT);
+
+    private double nullRatio = 0.1;
+
+    private double alignedRatio = 0.5;
+
+    private double skew = 0;
+
+    //两行之间的时间间隔，毫秒
+    private long interval = 1000;
+
+    private int textLength = 16;
+
+    private long seed = 20220901L;
+
+    public String deviceId(int device) {
+        return STORAGE_GROUP + ".d" + device;
+    }
+
+    public String measurement(int measurement) {
+        return "s" + measurement;
+    }
+
+    public TSDataType dataType(int measurement) {
+        return dataTypes.get(measurement % dataTypes.size());
+    }
+
+    /**
+     * 对齐设备均匀分布在所有设备中
+     */
+    public boolean isAligned(int device) {
+        return Math.floor((device + 1) * alignedRatio) > Math.floor(device * alignedRatio);
+    }
+
+    /**
+     * 每个设备的行数，总和为 rows
+     */
+    public long[] rowsPerDevice() {
+        double[] weights = new double[devices];
+        double sum = 0;
+        for (int i = 0; i < devices; i++) {
+            weights[i] = 1 / Math.pow(i + 1, skew);
+            sum += weights[i];
+        }
+        long[] result = new long[devices];
+        long assigned = 0;
+        for (int i = 0; i < devices; i++) {
+            result[i] = (long) (rows * weights[i] / sum);
+            assigned += result[i];
+        }
+        //取整剩下的行数给第一个设备
+        result[0] += rows - assigned;
+        return result;
+    }
+
+    /**
+     * 生成数据并按 tablet 写入session
+     *
+     * @return 写入的数据点数，不包含空值
+     */
+    public long generate(Session session) throws IoTDBConnectionException, StatementExecutionException {
+        long points = 0;
+        long[] deviceRows = rowsPerDevice();
+        for (int device = 0; device < devices; device++) {
+            SplittableRandom random = new SplittableRandom(seed + device);
+            List<MeasurementSchema> schemaList = new ArrayList<>(measurements);
+            for (int i = 0; i < measurements; i++) {
+                schemaList.add(new MeasurementSchema(measurement(i), dataType(i)));
+            }
+            Tablet tablet = new Tablet(deviceId(device), schemaList, TABLET_SIZE);
+            tablet.initBitMaps();
+            for (long row = 0; row < deviceRows[device]; row++) {
+                int index = tablet.rowSize++;
+                tablet.timestamps[index] = START_TIME + row * interval;
+                for (int i = 0; i < measurements; i++) {
+                    if (random.nextDouble() < nullRatio) {
+                        tablet.bitMaps[i].mark(index);
+                        continue;
+                    }
+                    putValue(tablet.values[i], dataType(i), index, random);
+                    points++;
+                }
+                if (tablet.rowSize == tablet.getMaxRowNumber()) {
+                    write(session, tablet, isAligned(device));
+                }
+            }
+            if (tablet.rowSize > 0) {
+                write(session, tablet, isAligned(device));
+            }
+        }
+        return points;
+    }
+
+    private void write(Session session, Tablet tablet, boolean aligned)
+            throws IoTDBConnectionException, StatementExecutionException {
+        if (aligned) {
+            session.insertAlignedTablet(tablet, true);
+        } else {
+            session.insertTablet(tablet, true);
+        }
+        tablet.reset();
+        for (BitMap bitMap : tablet.bitMaps) {
+            bitMap.reset();
+        }
+    }
+
+    private void putValue(Object values, TSDataType dataType, int index, SplittableRandom random) {
+        switch (dataType) {
+            case BOOLEAN:
+                ((boolean[]) values)[index] = random.nextBoolean();
+                break;
+            case INT32:
+                ((int[]) values)[index] = random.nextInt(1000000);
+                break;
+            case INT64:
+                ((long[]) values)[index] = random.nextLong();
+                break;
+            case FLOAT:
+                ((float[]) values)[index] = random.nextInt(1000000) / 100f;
+                break;
+            case DOUBLE:
+                ((double[]) values)[index] = random.nextDouble() * 1000000;
+                break;
+            default:
+                char[] chars = new char[textLength];
+                for (int i = 0; i < textLength; i++) {
+                    chars[i] = (char) ('a' + random.nextInt(26));
+                }
+                ((Binary[]) values)[index] = Binary.valueOf(new String(chars));
+        }
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public void setDevices(int devices) {
+        this.devices = devices;
+    }
+
+    public int getMeasurements() {
+        return measurements;
+    }
+
+    public void setMeasurements(int measurements) {
+        this.measurements = measurements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public List<TSDataType> getDataTypes() {
+        return dataTypes;
+    }
+
+    public void setDataTypes(List<TSDataType> dataTypes) {
+        this.dataTypes = dataTypes;
+    }
+
+    public double getNullRatio() {
+        return nullRatio;
+    }
+
+    public void setNullRatio(double nullRatio) {
+        this.nullRatio = nullRatio;
+    }
+
+    public double getAlignedRatio() {
+        return alignedRatio;
+    }
+
+    public void setAlignedRatio(double alignedRatio) {
+        this.alignedRatio = alignedRatio;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    public void setTextLength(int textLength) {
+        this.textLength = textLength;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -2,7 +2,10 @@ package org.apache.iotdb.utils.tools;
 
 import org.apache.iotdb.utils.core.ExportStarter;
 import org.apache.iotdb.utils.core.exception.ParamCheckException;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
 import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
+import org.apache.iotdb.utils.core.pipeline.context.model.FileSyncEnum;
 import org.apache.iotdb.utils.core.pipeline.context.model.ExportModel;
 import org.apache.iotdb.utils.core.pipeline.context.model.FileSinkStrategyEnum;
 import org.apache.iotdb.utils.tools.Exception.ArgsErrorException;
@@ -10,9 +13,9 @@ import org.apache.iotdb.utils.tools.utils.AbstractCsvTool;
 import org.apache.commons.cli.*;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
-import reactor.core.Disposable;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @Author: LL
@@ -38,6 +41,21 @@ public class ExportTool13_1 extends AbstractCsvTool {
     private static final String NEED_TIMESERIES_STRUCTURE_ARGS = "se";
     private static final String NEED_TIMESERIES_STRUCTURE_NAME = "need timeseries structure";
 
+    private static final String TIME_SLICE_NUM_ARGS = "ts";
+    private static final String TIME_SLICE_NUM_NAME = "timeSliceNum";
+
+    private static final String COMPRESS_LEVEL_ARGS = "cl";
+    private static final String COMPRESS_LEVEL_NAME = "compressLevel";
+
+    private static final String PERSIST_SCHEMA_ARGS = "ps";
+    private static final String PERSIST_SCHEMA_NAME = "persistSchema";
+
+    private static final String RESUME_ARGS = "rs";
+    private static final String RESUME_NAME = "resume";
+
+    private static final String FILE_SYNC_ARGS = "fs";
+    private static final String FILE_SYNC_NAME = "fileSync";
+
     private static final String NEED_ZIP_COMPRESS_ARGS = "z";
     private static final String NEED_ZIP_COMPRESS_NAME = "need zip compress";
 
@@ -55,6 +73,16 @@ public class ExportTool13_1 extends AbstractCsvTool {
 
     private static Boolean needZipCompress;
 
+    private static Integer timeSliceNum;
+
+    private static Integer compressLevel;
+
+    private static Boolean persistSchema;
+
+    private static Boolean resume;
+
+    private static FileSyncEnum fileSync;
+
 
     /**
      * main function of export csv tool.
@@ -70,12 +98,17 @@ public class ExportTool13_1 extends AbstractCsvTool {
             ExportStarter exportStarter = new ExportStarter();
             ExportModel exportModel = generateExportModel();
             exportModel.setSession(session);
-            Disposable disposable = exportStarter.start(exportModel);
-            while (!disposable.isDisposed()){
+            exportModel.setSessionFactory(AbstractCsvTool::newSession);
+            PipelineHandle handle = exportStarter.start(exportModel);
+            //每秒打印一次进度，结束时立即返回
+            PipelineResult result;
+            while ((result = handle.await(1, TimeUnit.SECONDS)) == null){
                 System.out.print("完成行数:"+exportStarter.finishedRowNum()+"行\r");
-                Thread.sleep(1000);
             }
-            System.out.print("完成行数:"+exportStarter.finishedRowNum()+"行\r");
+            System.out.print("完成行数:"+result.getFinishedRowNum()+"行\r");
+            if(!result.isSuccess()){
+                exitCode = CODE_ERROR;
+            }
         } catch (IoTDBConnectionException | StatementExecutionException | InterruptedException e) {
             System.out.println("Connect failed because " + e.getMessage());
             exitCode = CODE_ERROR;
@@ -103,6 +136,11 @@ public class ExportTool13_1 extends AbstractCsvTool {
         exportModel.setNeedTimeseriesStructure(needTimeseriesStructure);
         //exportModel.setZipCompress(needZipCompress);
         exportModel.setFileFolder(fileFloder);
+        exportModel.setTimeSliceNum(timeSliceNum);
+        exportModel.setCompressLevel(compressLevel);
+        exportModel.setPersistSchema(persistSchema);
+        exportModel.setResume(resume);
+        exportModel.setFileSync(fileSync);
         return exportModel;
     }
 
@@ -167,6 +205,10 @@ public class ExportTool13_1 extends AbstractCsvTool {
             compressEnum = CompressEnum.SQL;
         }else if("lz4".equals(compressAlgorithm)){
             compressEnum = CompressEnum.LZ4;
+        }else if("lz4hc".equals(compressAlgorithm)){
+            compressEnum = CompressEnum.LZ4HC;
+        }else if("none".equals(compressAlgorithm)){
+            compressEnum = CompressEnum.NONE;
         }else {
             compressEnum = CompressEnum.CSV;
         }
@@ -203,6 +245,39 @@ public class ExportTool13_1 extends AbstractCsvTool {
             needTimeseriesStructure = false;
         }
 
+        String timeSliceNumAlgorithm = commandLine.getOptionValue(TIME_SLICE_NUM_ARGS);
+        if(timeSliceNumAlgorithm != null && !"".equals(timeSliceNumAlgorithm.trim())){
+            try {
+                timeSliceNum = Integer.parseInt(timeSliceNumAlgorithm.trim());
+            } catch (NumberFormatException e) {
+                throw new ArgsErrorException("timeSliceNum must be a number");
+            }
+        }
+
+        String compressLevelAlgorithm = commandLine.getOptionValue(COMPRESS_LEVEL_ARGS);
+        if(compressLevelAlgorithm != null && !"".equals(compressLevelAlgorithm.trim())){
+            try {
+                compressLevel = Integer.parseInt(compressLevelAlgorithm.trim());
+            } catch (NumberFormatException e) {
+                throw new ArgsErrorException("compressLevel must be a number");
+            }
+        }
+
+        String persistSchemaAlgorithm = commandLine.getOptionValue(PERSIST_SCHEMA_ARGS);
+        persistSchema = persistSchemaAlgorithm != null && "true".equals(persistSchemaAlgorithm.trim());
+
+        String resumeAlgorithm = commandLine.getOptionValue(RESUME_ARGS);
+        resume = resumeAlgorithm != null && "true".equals(resumeAlgorithm.trim());
+
+        String fileSyncAlgorithm = commandLine.getOptionValue(FILE_SYNC_ARGS);
+        if(fileSyncAlgorithm != null && !"".equals(fileSyncAlgorithm.trim())){
+            try {
+                fileSync = FileSyncEnum.valueOf(fileSyncAlgorithm.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ArgsErrorException("fileSync must be none, close or flush");
+            }
+        }
+
         String needZipCompressAlgorithm = commandLine.getOptionValue(NEED_ZIP_COMPRESS_ARGS);
         if(needZipCompressAlgorithm == null || "".equals(needZipCompressAlgorithm)){
             needZipCompress = false;
@@ -263,7 +338,7 @@ public class ExportTool13_1 extends AbstractCsvTool {
                         .longOpt(COMPRESS_NAME)
                         .argName(COMPRESS_NAME)
                         .hasArg()
-                        .desc("Type sql/csv/snappy/gzip/lz4 to use compress algorithm. (optional)")
+                        .desc("Type sql/csv/snappy/gzip/lz4/lz4hc/none to use compress algorithm. (optional)")
                         .build();
         options.addOption(opCompress);
 
@@ -294,6 +369,51 @@ public class ExportTool13_1 extends AbstractCsvTool {
                         .build();
         options.addOption(opStructure);
 
+        Option opTimeSlice =
+                Option.builder(TIME_SLICE_NUM_ARGS)
+                        .longOpt(TIME_SLICE_NUM_NAME)
+                        .argName(TIME_SLICE_NUM_NAME)
+                        .hasArg()
+                        .desc("split every device into n time slices which are exported concurrently into segment files (optional)")
+                        .build();
+        options.addOption(opTimeSlice);
+
+        Option opCompressLevel =
+                Option.builder(COMPRESS_LEVEL_ARGS)
+                        .longOpt(COMPRESS_LEVEL_NAME)
+                        .argName(COMPRESS_LEVEL_NAME)
+                        .hasArg()
+                        .desc("compress level, gzip 0-9, lz4hc 1-17 (optional)")
+                        .build();
+        options.addOption(opCompressLevel);
+
+        Option opPersistSchema =
+                Option.builder(PERSIST_SCHEMA_ARGS)
+                        .longOpt(PERSIST_SCHEMA_NAME)
+                        .argName(PERSIST_SCHEMA_NAME)
+                        .hasArg()
+                        .desc("true: save the schema cache as SCHEMA.json in the target directory and reuse it on the next run (optional)")
+                        .build();
+        options.addOption(opPersistSchema);
+
+        Option opResume =
+                Option.builder(RESUME_ARGS)
+                        .longOpt(RESUME_NAME)
+                        .argName(RESUME_NAME)
+                        .hasArg()
+                        .desc("true: continue an interrupted export in the target directory, finished devices are skipped (optional)")
+                        .build();
+        options.addOption(opResume);
+
+        Option opFileSync =
+                Option.builder(FILE_SYNC_ARGS)
+                        .longOpt(FILE_SYNC_NAME)
+                        .argName(FILE_SYNC_NAME)
+                        .hasArg()
+                        .desc("fsync policy of csv/sql files: none, close (when a device finishes) or flush (every buffer write), default none (optional)")
+                        .build();
+        options.addOption(opFileSync);
+
 //        Option zipCompress =
 //                Option.builder(NEED_ZIP_COMPRESS_ARGS)
 //                        .longOpt(NEED_ZIP_COMPRESS_NAME)
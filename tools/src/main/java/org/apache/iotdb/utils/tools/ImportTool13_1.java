@@ -1,6 +1,8 @@
 package org.apache.iotdb.utils.tools;
 
 import org.apache.iotdb.utils.core.ImportStarter;
+import org.apache.iotdb.utils.core.pipeline.PipelineHandle;
+import org.apache.iotdb.utils.core.pipeline.PipelineResult;
 import org.apache.iotdb.utils.core.pipeline.context.model.CompressEnum;
 import org.apache.iotdb.utils.core.pipeline.context.model.ImportModel;
 import org.apache.iotdb.utils.tools.Exception.ArgsErrorException;
@@ -8,9 +10,9 @@ import org.apache.iotdb.utils.tools.utils.AbstractCsvTool;
 import org.apache.commons.cli.*;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
-import reactor.core.Disposable;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @Author: LL
@@ -27,6 +29,9 @@ public class ImportTool13_1 extends AbstractCsvTool {
     private static final String NEED_TIMESERIES_STRUCTURE_ARGS = "se";
     private static final String NEED_TIMESERIES_STRUCTURE_NAME = "need timeseries structure";
 
+    private static final String RESUME_ARGS = "rs";
+    private static final String RESUME_NAME = "resume";
+
     private static final String NEED_ZIP_COMPRESS_ARGS = "z";
     private static final String NEED_ZIP_COMPRESS_NAME = "need zip compress";
 
@@ -38,6 +43,8 @@ public class ImportTool13_1 extends AbstractCsvTool {
 
     private static Boolean needZipCompress;
 
+    private static Boolean resume;
+
     /**
      *
      * @param args
@@ -51,12 +58,17 @@ public class ImportTool13_1 extends AbstractCsvTool {
             ImportStarter importStarter = new ImportStarter();
             ImportModel importModel = generateImportCsvFile();
             importModel.setSession(session);
-            Disposable disposable = importStarter.start(importModel);
-            while (!disposable.isDisposed()){
+            importModel.setSessionFactory(AbstractCsvTool::newSession);
+            PipelineHandle handle = importStarter.start(importModel);
+            //每秒打印一次进度，结束时立即返回
+            PipelineResult result;
+            while ((result = handle.await(1, TimeUnit.SECONDS)) == null){
                 System.out.print("完成行数:"+importStarter.finishedRowNum()+"行\r");
-                Thread.sleep(1000);
             }
-            System.out.print("完成行数:"+importStarter.finishedRowNum()+"行\r");
+            System.out.print("完成行数:"+result.getFinishedRowNum()+"行\r");
+            if(!result.isSuccess()){
+                exitCode = CODE_ERROR;
+            }
         } catch (IoTDBConnectionException | StatementExecutionException e) {
             System.out.println("Connect failed because " + e.getMessage());
             exitCode = CODE_ERROR;
@@ -156,7 +168,7 @@ public class ImportTool13_1 extends AbstractCsvTool {
                         .longOpt(COMPRESS_NAME)
                         .argName(COMPRESS_NAME)
                         .hasArg()
-                        .desc("Type sql/csv/snappy/gzip/lz4 to use compress algorithm. (optional)")
+                        .desc("Type sql/csv/snappy/gzip/lz4/lz4hc/none to use compress algorithm. (optional)")
                         .build();
         options.addOption(opCompress);
 
@@ -178,6 +190,15 @@ public class ImportTool13_1 extends AbstractCsvTool {
                         .build();
         options.addOption(opStructure);
 
+        Option opResume =
+                Option.builder(RESUME_ARGS)
+                        .longOpt(RESUME_NAME)
+                        .argName(RESUME_NAME)
+                        .hasArg()
+                        .desc("true: continue an interrupted import from the same directory, written files and batches are skipped (optional)")
+                        .build();
+        options.addOption(opResume);
+
         Option charSet =
                 Option.builder(CHAR_SET_ARGS)
                         .argName(CHAR_SET_NAME)
@@ -211,6 +232,10 @@ public class ImportTool13_1 extends AbstractCsvTool {
             compressEnum = CompressEnum.SQL;
         }else if("lz4".equals(compressAlgorithm)){
             compressEnum = CompressEnum.LZ4;
+        }else if("lz4hc".equals(compressAlgorithm)){
+            compressEnum = CompressEnum.LZ4HC;
+        }else if("none".equals(compressAlgorithm)){
+            compressEnum = CompressEnum.NONE;
         }else {
             compressEnum = CompressEnum.CSV;
         }
@@ -224,6 +249,9 @@ public class ImportTool13_1 extends AbstractCsvTool {
             needTimeseriesStructure = false;
         }
 
+        String resumeAlgorithm = commandLine.getOptionValue(RESUME_ARGS);
+        resume = resumeAlgorithm != null && "true".equals(resumeAlgorithm.trim());
+
         String needZipCompressAlgorithm = commandLine.getOptionValue(NEED_ZIP_COMPRESS_ARGS);
         if(needZipCompressAlgorithm == null || "".equals(needZipCompressAlgorithm)){
             needZipCompress = false;
@@ -248,6 +276,7 @@ public class ImportTool13_1 extends AbstractCsvTool {
         importModel.setNeedTimeseriesStructure(needTimeseriesStructure);
         importModel.setFileFolder(fileFloder);
         importModel.setCharSet(charSet);
+        importModel.setResume(resume);
         //importModel.setZipCompress(needZipCompress);
         return importModel;
     }
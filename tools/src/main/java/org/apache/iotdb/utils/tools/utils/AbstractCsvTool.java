@@ -127,12 +127,20 @@ public abstract class AbstractCsvTool {
     }
 
     protected static void initSession() throws StatementExecutionException, IoTDBConnectionException {
-        session = new Session(host, Integer.parseInt(port), username, password,false);
-        session.open(false);
+        session = newSession();
+        zoneId = ZoneId.of(session.getTimeZone());
+    }
+
+    /**
+     * 使用相同的连接参数创建一个新的session，用于并发查询
+     */
+    protected static Session newSession() throws StatementExecutionException, IoTDBConnectionException {
+        Session newSession = new Session(host, Integer.parseInt(port), username, password,false);
+        newSession.open(false);
         if (timeZoneID != null) {
-            session.setTimeZone(timeZoneID);
+            newSession.setTimeZone(timeZoneID);
         }
-        zoneId = ZoneId.of(session.getTimeZone());
+        return newSession;
     }
 
     protected static void parseBasicParams(CommandLine commandLine)